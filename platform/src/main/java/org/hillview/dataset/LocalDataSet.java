@@ -24,12 +24,14 @@ import org.hillview.utils.HillviewLogger;
 import rx.Observable;
 import rx.Scheduler;
 import rx.schedulers.Schedulers;
+import rx.subjects.AsyncSubject;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A LocalDataSet is an implementation of IDataSet which contains exactly one
@@ -56,6 +58,47 @@ public class LocalDataSet<T> extends BaseDataSet<T> {
      */
     private static final Scheduler workScheduler;
 
+    /**
+     * If true, sketches over data that implements ISplittable and has at least
+     * 2 * minSplitSize elements are computed by a ParallelSketch, which splits
+     * the data into parts that are processed as fork-join tasks.  Idle threads
+     * steal parts of large datasets, so a single large dataset does not delay
+     * the whole computation.
+     */
+    public static boolean splitLargeData = true;
+    /**
+     * Minimum size of a part produced by splitting.
+     */
+    public static int minSplitSize = ParallelSketch.DefaultMinSizePerTask;
+    /**
+     * Sketches over the same LocalDataSet that arrive within this many milliseconds
+     * of the first one are computed together by a MultiSketch, in a single pass over
+     * the data.  If 0 each sketch is computed separately.
+     */
+    public static int sketchBatchWindow = 0;
+
+    /**
+     * A sketch waiting to be computed as part of a batch.
+     */
+    private static class PendingSketch<T> {
+        final ISketch<T, Object> sketch;
+        final AsyncSubject<Object> result;
+        volatile boolean cancelled;
+
+        PendingSketch(ISketch<T, Object> sketch) {
+            this.sketch = sketch;
+            this.result = AsyncSubject.create();
+            this.cancelled = false;
+        }
+    }
+
+    /**
+     * Sketches in the batch that has not started yet; null if there is no such batch.
+     * Protected by synchronizing on this.
+     */
+    @Nullable
+    private List<PendingSketch<T>> pendingSketches;
+
     static {
         ExecutorService executor = ExecutorUtils.getComputeExecutorService();
         workScheduler = Schedulers.from(executor);
@@ -187,13 +230,18 @@ public class LocalDataSet<T> extends BaseDataSet<T> {
 
     @Override
     public <R> Observable<PartialResult<R>> sketch(final ISketch<T, R> sketch) {
+        if (sketchBatchWindow > 0 && this.separateThread && sketch.canSplitData())
+            return this.batchSketch(sketch);
         // Immediately return a zero partial result
         // final Observable<PartialResult<R>> zero = this.zero(sketch::zero);
         final Callable<R> callable = () -> {
             try {
                 HillviewLogger.instance.info("Starting sketch", "{0}:{1}",
                         this, sketch.asString());
-                R result = sketch.create(this.data);
+                ISketch<T, R> toRun = sketch;
+                if (splitLargeData && this.separateThread)
+                    toRun = new ParallelSketch<T, R>(sketch, minSplitSize);
+                R result = toRun.create(this.data);
                 HillviewLogger.instance.info("Completed sketch", "{0}:{1}",
                         this, sketch.asString());
                 return result;
@@ -209,6 +257,78 @@ public class LocalDataSet<T> extends BaseDataSet<T> {
         return this.schedule(pro);
     }
 
+    /**
+     * Adds the sketch to the pending batch when the result is subscribed to.
+     * The first sketch in a batch schedules the batch computation.
+     */
+    @SuppressWarnings("unchecked")
+    private <R> Observable<PartialResult<R>> batchSketch(final ISketch<T, R> sketch) {
+        return Observable.defer(() -> {
+            PendingSketch<T> pending = new PendingSketch<T>((ISketch<T, Object>)sketch);
+            boolean first;
+            synchronized (this) {
+                first = this.pendingSketches == null;
+                if (first)
+                    this.pendingSketches = new ArrayList<PendingSketch<T>>();
+                this.pendingSketches.add(pending);
+            }
+            if (first) {
+                Scheduler.Worker worker = workScheduler.createWorker();
+                worker.schedule(() -> {
+                    try {
+                        this.runBatch();
+                    } finally {
+                        worker.unsubscribe();
+                    }
+                }, sketchBatchWindow, TimeUnit.MILLISECONDS);
+            }
+            return pending.result
+                    .doOnUnsubscribe(() -> pending.cancelled = true)
+                    .map(r -> new PartialResult<R>((R)r));
+        });
+    }
+
+    /**
+     * Computes all sketches in the pending batch that have not been cancelled
+     * and sends each result to the subscriber of the corresponding sketch.
+     */
+    private void runBatch() {
+        List<PendingSketch<T>> batch;
+        synchronized (this) {
+            batch = Converters.checkNull(this.pendingSketches);
+            this.pendingSketches = null;
+        }
+        List<PendingSketch<T>> toCompute = new ArrayList<PendingSketch<T>>(batch.size());
+        List<ISketch<T, Object>> sketches = new ArrayList<ISketch<T, Object>>(batch.size());
+        for (PendingSketch<T> p : batch) {
+            if (p.cancelled)
+                continue;
+            toCompute.add(p);
+            sketches.add(p.sketch);
+        }
+        if (toCompute.isEmpty())
+            return;
+        ISketch<T, List<Object>> toRun = new MultiSketch<T>(sketches);
+        try {
+            HillviewLogger.instance.info("Starting sketch batch", "{0}:{1}",
+                    this, toRun.asString());
+            if (splitLargeData)
+                toRun = new ParallelSketch<T, List<Object>>(toRun, minSplitSize);
+            List<Object> results = Converters.checkNull(toRun.create(this.data));
+            HillviewLogger.instance.info("Completed sketch batch", "{0}:{1}",
+                    this, toRun.asString());
+            for (int i = 0; i < toCompute.size(); i++) {
+                AsyncSubject<Object> subject = toCompute.get(i).result;
+                subject.onNext(results.get(i));
+                subject.onCompleted();
+            }
+        } catch (final Throwable t) {
+            Exception ex = new Exception(t);
+            for (PendingSketch<T> p : toCompute)
+                p.result.onError(ex);
+        }
+    }
+
     @Override
     public String toString() {
         return super.toString() + ":" + this.data;
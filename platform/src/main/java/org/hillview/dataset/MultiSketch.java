@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.dataset;
+
+import org.hillview.dataset.api.ISketch;
+import org.hillview.dataset.api.ISplittable;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A sketch which computes any number of sketches in a single pass over the data;
+ * it generalizes ConcurrentSketch and TripleSketch.  If the data implements
+ * ISplittable it is processed in chunks; all sketches are computed on a chunk
+ * before moving to the next one, so the chunk is read from memory once and
+ * is in the cache when the other sketches scan it.  Chunking is disabled when
+ * LocalDataSet.splitLargeData is false or some sketch cannot split its data.
+ * @param <T> Input data type.
+ */
+public class MultiSketch<T> implements ISketch<T, List<Object>> {
+    /**
+     * Default size of a chunk, e.g., number of rows.
+     */
+    public static final int DefaultChunkSize = 64 * 1024;
+
+    private final List<ISketch<T, Object>> sketches;
+    private final int chunkSize;
+
+    /**
+     * Create a sketch that computes several sketches.
+     * @param sketches   Sketches to compute; the result has one element for each sketch.
+     * @param chunkSize  Size of the chunks into which splittable data is divided.
+     */
+    public MultiSketch(List<ISketch<T, Object>> sketches, int chunkSize) {
+        if (chunkSize <= 0)
+            throw new RuntimeException("Chunk size must be positive: " + chunkSize);
+        this.sketches = sketches;
+        this.chunkSize = chunkSize;
+    }
+
+    public MultiSketch(List<ISketch<T, Object>> sketches) {
+        this(sketches, DefaultChunkSize);
+    }
+
+    @Nullable
+    @Override
+    public List<Object> zero() {
+        List<Object> result = new ArrayList<Object>(this.sketches.size());
+        for (ISketch<T, Object> sketch : this.sketches)
+            result.add(sketch.zero());
+        return result;
+    }
+
+    @Nullable
+    @Override
+    public List<Object> add(@Nullable List<Object> left, @Nullable List<Object> right) {
+        assert left != null;
+        assert right != null;
+        List<Object> result = new ArrayList<Object>(this.sketches.size());
+        for (int i = 0; i < this.sketches.size(); i++)
+            result.add(this.sketches.get(i).add(left.get(i), right.get(i)));
+        return result;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object> create(@Nullable T data) {
+        if (LocalDataSet.splitLargeData && data instanceof ISplittable && this.canSplitData()) {
+            ISplittable<T> splittable = (ISplittable<T>)data;
+            int chunks = splittable.getSplitSize() / this.chunkSize;
+            if (chunks >= 2 && this.sketches.size() > 1) {
+                List<Object> result = null;
+                for (T chunk : splittable.split(chunks)) {
+                    List<Object> partial = this.createAll(chunk);
+                    result = result == null ? partial : this.add(result, partial);
+                }
+                return result;
+            }
+        }
+        return this.createAll(data);
+    }
+
+    private List<Object> createAll(@Nullable T data) {
+        List<Object> result = new ArrayList<Object>(this.sketches.size());
+        for (ISketch<T, Object> sketch : this.sketches)
+            result.add(sketch.create(data));
+        return result;
+    }
+
+    @Override
+    public boolean canSplitData() {
+        for (ISketch<T, Object> sketch : this.sketches)
+            if (!sketch.canSplitData())
+                return false;
+        return true;
+    }
+
+    @Override
+    public String asString() {
+        StringBuilder builder = new StringBuilder("MultiSketch[");
+        for (int i = 0; i < this.sketches.size(); i++) {
+            if (i > 0)
+                builder.append(",");
+            builder.append(this.sketches.get(i).asString());
+        }
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -86,6 +86,10 @@ public class ParallelDataSet<T> extends BaseDataSet<T> {
 
     private int size() { return this.children.size(); }
 
+    public List<IDataSet<T>> getChildren() {
+        return this.children;
+    }
+
     /**
      * Can be used to change the time interval in which partial results are aggregated.
      * This should be done only once after construction; datasets are supposed to be immutable.
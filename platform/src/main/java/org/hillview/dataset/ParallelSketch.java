@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.dataset;
+
+import org.hillview.dataset.api.ISketch;
+import org.hillview.dataset.api.ISplittable;
+import org.hillview.utils.ExecutorUtils;
+import org.hillview.utils.HillviewLogger;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A sketch which computes another sketch in parallel.  If the data implements
+ * ISplittable and is large enough it is split into disjoint parts; the
+ * wrapped sketch is computed on each part as a fork-join task in the compute
+ * thread pool, and the results are combined using the sketch's add method.
+ * Since idle threads steal tasks, the work on a large table is spread over
+ * all threads.  Sketches whose results cannot be combined across parts,
+ * e.g., because they write files or depend on row positions, return false
+ * from canSplitData and are computed on the whole data.
+ * @param <T> Input data type.
+ * @param <R> Output data type.
+ */
+public class ParallelSketch<T, R> implements ISketch<T, R> {
+    /**
+     * Default minimum size of the data processed by one task, e.g., the number of rows.
+     */
+    public static final int DefaultMinSizePerTask = 256 * 1024;
+    /**
+     * Maximum number of tasks created for each thread.
+     */
+    private static final int maxTasksPerThread = 4;
+
+    private final ISketch<T, R> sketch;
+    private final int minSizePerTask;
+
+    /**
+     * Create a parallel sketch.
+     * @param sketch          Sketch to compute.
+     * @param minSizePerTask  The data is only split into parts that have at least this size.
+     */
+    public ParallelSketch(ISketch<T, R> sketch, int minSizePerTask) {
+        if (minSizePerTask <= 0)
+            throw new RuntimeException("Task size must be positive: " + minSizePerTask);
+        this.sketch = sketch;
+        this.minSizePerTask = minSizePerTask;
+    }
+
+    public ParallelSketch(ISketch<T, R> sketch) {
+        this(sketch, DefaultMinSizePerTask);
+    }
+
+    @Nullable
+    @Override
+    public R zero() {
+        return this.sketch.zero();
+    }
+
+    @Nullable
+    @Override
+    public R add(@Nullable R left, @Nullable R right) {
+        return this.sketch.add(left, right);
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public R create(@Nullable T data) {
+        if (!(data instanceof ISplittable) || !this.sketch.canSplitData())
+            return this.sketch.create(data);
+        ForkJoinPool pool = ExecutorUtils.getComputeExecutorService();
+        ISplittable<T> splittable = (ISplittable<T>)data;
+        int parts = Math.min(splittable.getSplitSize() / this.minSizePerTask,
+                maxTasksPerThread * pool.getParallelism());
+        if (parts < 2)
+            return this.sketch.create(data);
+        HillviewLogger.instance.info("Splitting sketch", "{0} into {1} parts",
+                this.sketch.asString(), parts);
+        List<T> split = splittable.split(parts);
+        SketchTask<T, R> task = new SketchTask<T, R>(this.sketch, split, 0, split.size());
+        // Tasks forked from a thread of the pool are stolen by idle threads.
+        if (ForkJoinTask.getPool() == pool)
+            return task.invoke();
+        return pool.invoke(task);
+    }
+
+    @Override
+    public boolean canSplitData() {
+        return this.sketch.canSplitData();
+    }
+
+    @Override
+    public String asString() {
+        return this.sketch.asString();
+    }
+
+    /**
+     * Computes a sketch over a range of parts, by recursively
+     * splitting the range in two halves, one of which is forked.
+     */
+    private static class SketchTask<T, R> extends RecursiveTask<R> {
+        private final ISketch<T, R> sketch;
+        private final List<T> parts;
+        private final int start;
+        private final int end;
+
+        SketchTask(ISketch<T, R> sketch, List<T> parts, int start, int end) {
+            this.sketch = sketch;
+            this.parts = parts;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected R compute() {
+            if (this.end - this.start == 1)
+                return this.sketch.create(this.parts.get(this.start));
+            int mid = (this.start + this.end) / 2;
+            SketchTask<T, R> left = new SketchTask<T, R>(this.sketch, this.parts, this.start, mid);
+            left.fork();
+            R right = new SketchTask<T, R>(this.sketch, this.parts, mid, this.end).compute();
+            return this.sketch.add(left.join(), right);
+        }
+    }
+}
@@ -22,7 +22,6 @@ import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
 import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
 import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
 import io.grpc.stub.StreamObserver;
-import org.apache.commons.lang3.SerializationUtils;
 import org.hillview.dataset.api.*;
 import org.hillview.pb.Ack;
 import org.hillview.pb.Command;
@@ -95,12 +94,20 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
         this.stub = HillviewServerGrpc.newStub(NettyChannelBuilder
                 .forAddress(serverEndpoint.getHost(), serverEndpoint.getPort())
                 .maxInboundMessageSize(HillviewServer.MAX_MESSAGE_SIZE)
+                .decompressorRegistry(ResultCompression.getDecompressorRegistry())
                 .executor(executorService)
                 .eventLoopGroup(workerElg)
                 .usePlaintext()   // channel is unencrypted.
                 .build());
     }
 
+    /**
+     * Index of the dataset on the remote server.
+     */
+    public int getRemoteHandle() {
+        return this.remoteHandle;
+    }
+
     private static <T> SerializedSubject<T, T> createSerializedSubject() {
         return PublishSubject.<T>create().toSerialized();
     }
@@ -122,7 +129,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
         StreamObserver<PartialResponse> responseObserver;
 
         CommandWrapper(RemoteOperation operation) {
-            byte[] serializedOp = SerializationUtils.serialize(operation);
+            byte[] serializedOp = BinaryCodecs.serialize(operation);
             this.operationId = UUID.randomUUID();
             this.command = Command.newBuilder()
                     .setIdsIndex(RemoteDataSet.this.remoteHandle)
@@ -245,7 +252,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
     private void unsubscribe(final UUID id) {
         HillviewLogger.instance.info("Unsubscribe called", "{0}", id);
         final UnsubscribeOperation op = new UnsubscribeOperation(id);
-        final byte[] serializedOp = SerializationUtils.serialize(op);
+        final byte[] serializedOp = BinaryCodecs.serialize(op);
         final Command command = Command.newBuilder()
                                        .setIdsIndex(this.remoteHandle)
                                        .setSerializedOp(ByteString.copyFrom(serializedOp))
@@ -312,7 +319,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
         @Override
         @SuppressWarnings("unchecked")
         public PartialResult<IDataSet<S>> processResponse(final PartialResponse response) {
-            final OperationResponse op = SerializationUtils.deserialize(response
+            final OperationResponse op = BinaryCodecs.deserialize(response
                     .getSerializedOp().toByteArray());
             PartialResult<Integer> pr = Converters.checkNull((PartialResult<Integer>)op.result);
             final IDataSet<S> ids = (pr.deltaValue == null) ? null :
@@ -333,7 +340,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
         @Override
         @SuppressWarnings("unchecked")
         public PartialResult<S> processResponse(final PartialResponse response) {
-            final OperationResponse op = SerializationUtils.deserialize(response
+            final OperationResponse op = BinaryCodecs.deserialize(response
                     .getSerializedOp().toByteArray());
             assert op.result != null;
             HillviewLogger.instance.info("Receiving partial sketch result", "{0}", op.result);
@@ -361,7 +368,7 @@ public class RemoteDataSet<T> extends BaseDataSet<T> {
         @SuppressWarnings("unchecked")
         public PartialResult<ControlMessage.StatusList> processResponse(
                 final PartialResponse response) {
-            final OperationResponse op = SerializationUtils.deserialize(response
+            final OperationResponse op = BinaryCodecs.deserialize(response
                     .getSerializedOp().toByteArray());
             return (PartialResult<ControlMessage.StatusList>)Converters.checkNull(op.result);
         }
@@ -36,6 +36,12 @@ public interface ISketch<T, R> extends IDataSetComputation, IMonoid<R> {
     @Nullable
     R create(@Nullable T data);
 
+    /**
+     * If false the sketch is always computed on the whole data, which is not
+     * split into parts, e.g., because it caches results for the data it sees.
+     */
+    default boolean canSplitData() { return true; }
+
     /**
      * Helper method to return non-null zeros.
      */
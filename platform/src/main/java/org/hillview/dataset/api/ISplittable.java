@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.dataset.api;
+
+import java.util.List;
+
+/**
+ * Data that can be split into independent parts.  Sketches over the data
+ * can be computed over each part separately and then added.
+ * @param <T> Type of the parts.
+ */
+public interface ISplittable<T> {
+    /**
+     * A measure of the work needed to process the data, e.g., the number of rows.
+     */
+    int getSplitSize();
+
+    /**
+     * Splits the data into parts of roughly equal size.
+     * @param parts  Number of parts to produce; at most getSplitSize().
+     */
+    List<T> split(int parts);
+}
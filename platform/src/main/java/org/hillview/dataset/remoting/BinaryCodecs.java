@@ -0,0 +1,436 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.dataset.remoting;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.hillview.dataset.api.PartialResult;
+import org.hillview.sketches.*;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Schema;
+import org.hillview.table.SmallTable;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.columns.ObjectArrayColumn;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes the operations and results exchanged between Hillview machines.
+ * Objects whose class has a registered IBinaryCodec are written with the codec;
+ * all other objects are written using Java serialization.  Each object is
+ * preceded by a tag byte which indicates how it was encoded, so the two
+ * encodings can be freely mixed, and nested objects can be encoded differently
+ * from their container.  Integers are written using a variable-length
+ * encoding, since most counts are small.
+ */
+// This class introduces circular dependencies, since it has to know the
+// classes that have codecs.
+public final class BinaryCodecs {
+    private static final byte NullTag = 0;
+    private static final byte JavaTag = 1;
+    private static final byte IntegerTag = 2;
+    private static final byte LongTag = 3;
+    private static final byte DoubleTag = 4;
+    private static final byte StringTag = 5;
+    private static final byte InstantTag = 6;
+    private static final byte DurationTag = 7;
+    /**
+     * Tags below this value are reserved for the built-in types.
+     */
+    private static final int FirstCodecTag = 16;
+    /**
+     * First byte of a Java serialization stream; data starting with this byte
+     * was produced by plain Java serialization.
+     */
+    private static final byte JavaStreamMagic = (byte)0xAC;
+
+    /**
+     * If true all data is written using Java serialization.  Data written
+     * in either format can always be read.
+     */
+    public static boolean useJavaSerialization = false;
+
+    private static class Registration {
+        final byte tag;
+        final IBinaryCodec<Object> codec;
+
+        Registration(byte tag, IBinaryCodec<Object> codec) {
+            this.tag = tag;
+            this.codec = codec;
+        }
+    }
+
+    private static final ConcurrentHashMap<Class<?>, Registration> byClass =
+            new ConcurrentHashMap<Class<?>, Registration>();
+    private static final IBinaryCodec<?>[] byTag = new IBinaryCodec<?>[128];
+
+    static {
+        register(16, OperationResponse.class, new OperationResponseCodec());
+        register(17, PartialResult.class, new PartialResultCodec());
+        register(18, DoubleHistogramBuckets.class, new DoubleHistogramBuckets.Codec());
+        register(19, StringHistogramBuckets.class, new StringHistogramBuckets.Codec());
+        register(20, Histogram.class, new Histogram.Codec());
+        register(21, Heatmap.class, new Heatmap.Codec());
+        register(22, Heatmap3D.class, new Heatmap3D.Codec());
+        register(23, ObjectArrayColumn.class, new ObjectArrayColumn.Codec());
+        register(24, SmallTable.class, new SmallTable.Codec());
+        register(25, NextKList.class, new NextKList.Codec());
+        register(26, FreqKListMG.class, new FreqKListMG.Codec());
+        register(27, MinKSet.class, new MinKSet.Codec());
+        register(28, FreqKListSS.class, new FreqKListSS.Codec());
+        register(29, HLogLogPP.class, new HLogLogPP.Codec());
+    }
+
+    private BinaryCodecs() {}
+
+    /**
+     * The standard byte array streams synchronize on each byte,
+     * which is expensive when writing or reading variable-length integers.
+     */
+    private static class OutputBuffer extends ByteArrayOutputStream {
+        @Override
+        public void write(int b) {
+            if (this.count == this.buf.length)
+                this.buf = Arrays.copyOf(this.buf, this.buf.length * 2);
+            this.buf[this.count++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (this.count + len > this.buf.length)
+                this.buf = Arrays.copyOf(this.buf, Math.max(this.buf.length * 2, this.count + len));
+            System.arraycopy(b, off, this.buf, this.count, len);
+            this.count += len;
+        }
+    }
+
+    private static class InputBuffer extends ByteArrayInputStream {
+        InputBuffer(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public int read() {
+            return (this.pos < this.count) ? (this.buf[this.pos++] & 0xFF) : -1;
+        }
+    }
+
+    /**
+     * Registers a codec for a class.  Codecs apply only to objects of exactly
+     * this class, not to subclasses.  All machines must register the same
+     * codecs with the same tags before exchanging any data.
+     * @param tag    A number between 16 and 127 identifying the codec.
+     * @param cls    Class of objects encoded.
+     * @param codec  Codec used to encode objects of this class.
+     */
+    @SuppressWarnings("unchecked")
+    public static synchronized <T> void register(int tag, Class<T> cls, IBinaryCodec<T> codec) {
+        if (tag < FirstCodecTag || tag >= byTag.length)
+            throw new IllegalArgumentException("Codec tag out of range " + tag);
+        if (byTag[tag] != null)
+            throw new IllegalArgumentException("Codec tag already used " + tag);
+        byTag[tag] = codec;
+        byClass.put(cls, new Registration((byte)tag, (IBinaryCodec<Object>)codec));
+    }
+
+    /**
+     * Encodes an object as a byte array.
+     */
+    public static byte[] serialize(@Nullable Object value) {
+        if (useJavaSerialization)
+            return SerializationUtils.serialize((Serializable)value);
+        try {
+            OutputBuffer bytes = new OutputBuffer();
+            DataOutputStream out = new DataOutputStream(bytes);
+            writeObject(out, value);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Decodes an object encoded by serialize.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T deserialize(byte[] bytes) {
+        if (bytes.length > 0 && bytes[0] == JavaStreamMagic)
+            return SerializationUtils.deserialize(bytes);
+        try {
+            DataInputStream in = new DataInputStream(new InputBuffer(bytes));
+            return (T)readObject(in);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Writes an arbitrary object, preceded by its tag.
+     */
+    public static void writeObject(DataOutput out, @Nullable Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NullTag);
+        } else if (value instanceof Integer) {
+            out.writeByte(IntegerTag);
+            writeVarInt(out, (Integer)value);
+        } else if (value instanceof Long) {
+            out.writeByte(LongTag);
+            writeVarLong(out, (Long)value);
+        } else if (value instanceof Double) {
+            out.writeByte(DoubleTag);
+            out.writeDouble((Double)value);
+        } else if (value instanceof String) {
+            out.writeByte(StringTag);
+            writeString(out, (String)value);
+        } else if (value instanceof Instant) {
+            out.writeByte(InstantTag);
+            Instant instant = (Instant)value;
+            writeVarLong(out, instant.getEpochSecond());
+            writeVarInt(out, instant.getNano());
+        } else if (value instanceof Duration) {
+            out.writeByte(DurationTag);
+            Duration duration = (Duration)value;
+            writeVarLong(out, duration.getSeconds());
+            writeVarInt(out, duration.getNano());
+        } else {
+            Registration reg = byClass.get(value.getClass());
+            if (reg != null) {
+                out.writeByte(reg.tag);
+                reg.codec.encode(value, out);
+            } else {
+                out.writeByte(JavaTag);
+                byte[] bytes = SerializationUtils.serialize((Serializable)value);
+                writeVarInt(out, bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Reads an object written by writeObject.
+     */
+    @Nullable
+    public static Object readObject(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NullTag:
+                return null;
+            case JavaTag: {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.readFully(bytes);
+                return SerializationUtils.deserialize(bytes);
+            }
+            case IntegerTag:
+                return readVarInt(in);
+            case LongTag:
+                return readVarLong(in);
+            case DoubleTag:
+                return in.readDouble();
+            case StringTag:
+                return readString(in);
+            case InstantTag: {
+                long seconds = readVarLong(in);
+                return Instant.ofEpochSecond(seconds, readVarInt(in));
+            }
+            case DurationTag: {
+                long seconds = readVarLong(in);
+                return Duration.ofSeconds(seconds, readVarInt(in));
+            }
+            default:
+                IBinaryCodec<?> codec = (tag >= 0) ? byTag[tag] : null;
+                if (codec == null)
+                    throw new RuntimeException("Unknown codec tag " + tag);
+                return codec.decode(in);
+        }
+    }
+
+    /**
+     * Writes a long using a variable number of bytes; small absolute values use fewer bytes.
+     */
+    public static void writeVarLong(DataOutput out, long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);  // zig-zag encoding
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int)((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int)v);
+    }
+
+    public static long readVarLong(DataInput in) throws IOException {
+        long v = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.readByte();
+            v |= (long)(b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        return (int)readVarLong(in);
+    }
+
+    /**
+     * Writes a string that may be null.
+     */
+    public static void writeString(DataOutput out, @Nullable String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    @Nullable
+    public static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeLongArray(DataOutput out, long[] values) throws IOException {
+        writeVarInt(out, values.length);
+        writeCounts(out, values);
+    }
+
+    public static long[] readLongArray(DataInput in) throws IOException {
+        long[] result = new long[readVarInt(in)];
+        readCounts(in, result);
+        return result;
+    }
+
+    /**
+     * Writes an array of counts whose length is known to the reader.
+     * Partial sketch results are often mostly zero, since each one covers
+     * only a part of the data; if fewer than half of the values are non-zero
+     * only the non-zero values are written, each preceded by the distance
+     * from the previous one.
+     */
+    public static void writeCounts(DataOutput out, long[] values) throws IOException {
+        int nonZero = 0;
+        for (long v : values)
+            if (v != 0)
+                nonZero++;
+        writeVarInt(out, nonZero);
+        if (isSparse(nonZero, values.length)) {
+            int previous = -1;
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == 0)
+                    continue;
+                writeVarInt(out, i - previous - 1);
+                writeVarLong(out, values[i]);
+                previous = i;
+            }
+        } else {
+            for (long v : values)
+                writeVarLong(out, v);
+        }
+    }
+
+    /**
+     * Reads counts written by writeCounts into an array of the right length.
+     */
+    public static void readCounts(DataInput in, long[] values) throws IOException {
+        int nonZero = readVarInt(in);
+        if (isSparse(nonZero, values.length)) {
+            Arrays.fill(values, 0);
+            int index = -1;
+            for (int i = 0; i < nonZero; i++) {
+                index += readVarInt(in) + 1;
+                values[index] = readVarLong(in);
+            }
+        } else {
+            for (int i = 0; i < values.length; i++)
+                values[i] = readVarLong(in);
+        }
+    }
+
+    private static boolean isSparse(int nonZero, int length) {
+        return nonZero * 2 < length;
+    }
+
+    public static void writeColumnDescription(DataOutput out, ColumnDescription desc)
+            throws IOException {
+        writeString(out, desc.name);
+        out.writeByte(desc.kind.ordinal());
+    }
+
+    public static ColumnDescription readColumnDescription(DataInput in) throws IOException {
+        String name = readString(in);
+        ContentsKind kind = ContentsKind.values()[in.readByte()];
+        assert name != null;
+        return new ColumnDescription(name, kind);
+    }
+
+    public static void writeSchema(DataOutput out, Schema schema) throws IOException {
+        writeVarInt(out, schema.getColumnCount());
+        for (ColumnDescription desc : schema.getColumnDescriptions())
+            writeColumnDescription(out, desc);
+    }
+
+    public static Schema readSchema(DataInput in) throws IOException {
+        Schema result = new Schema();
+        int count = readVarInt(in);
+        for (int i = 0; i < count; i++)
+            result.append(readColumnDescription(in));
+        return result;
+    }
+
+    private static class OperationResponseCodec implements IBinaryCodec<OperationResponse> {
+        @Override
+        public void encode(OperationResponse value, DataOutput out) throws IOException {
+            writeObject(out, value.result);
+        }
+
+        @Override
+        public OperationResponse decode(DataInput in) throws IOException {
+            return new OperationResponse<Object>(readObject(in));
+        }
+    }
+
+    private static class PartialResultCodec implements IBinaryCodec<PartialResult> {
+        @Override
+        public void encode(PartialResult value, DataOutput out) throws IOException {
+            out.writeDouble(value.deltaDone);
+            writeObject(out, value.deltaValue);
+        }
+
+        @Override
+        public PartialResult decode(DataInput in) throws IOException {
+            double done = in.readDouble();
+            return new PartialResult<Object>(done, readObject(in));
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.hillview.dataset.remoting;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
+import com.google.common.hash.Hashing;
 import com.google.protobuf.ByteString;
 import io.grpc.Server;
 import io.grpc.Status;
@@ -28,7 +29,6 @@ import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
 import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
 import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
 import io.grpc.stub.StreamObserver;
-import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.hillview.dataset.api.DatasetMissing;
 import org.hillview.dataset.api.IDataSet;
@@ -50,6 +50,7 @@ import java.util.HashMap;
 import java.util.UUID;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Server that transfers map(), sketch(), zip(), manage(), and unsubscribe() RPCs from a
@@ -112,6 +113,14 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     private final HostAndPort listenAddress;
 
     private final MemoizedResults memoizedCommands;
+    /**
+     * Sketches that are currently running, indexed by dataset and operation.
+     * An identical sketch that arrives while one is running subscribes to the
+     * same computation instead of scanning the dataset again; it first receives
+     * the partial results produced so far.
+     */
+    private final ConcurrentHashMap<String, Observable<PartialResult>> runningSketches
+            = new ConcurrentHashMap<String, Observable<PartialResult>>();
 
     public HillviewServer(final HostAndPort listenAddress, final IDataSet initialDataset) throws IOException {
         this.initialDatasets = new HashMap<Integer, IDataSet>();
@@ -125,14 +134,18 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                                         .bossEventLoopGroup(bossElg)
                                         .addService(this)
                                         .maxInboundMessageSize(MAX_MESSAGE_SIZE)
+                                        .compressorRegistry(ResultCompression.getCompressorRegistry())
+                                        .decompressorRegistry(ResultCompression.getDecompressorRegistry())
                                         .build()
                                         .start();
         this.dataSets = CacheBuilder.newBuilder()
                 .expireAfterAccess(EXPIRE_TIME_IN_HOURS, TimeUnit.HOURS)
                 .removalListener(
-                        (RemovalListener<Integer, IDataSet>) removalNotification ->
-                                HillviewLogger.instance.info("Removing reference to dataset", "{0}: {1}",
-                                    removalNotification.getKey(), removalNotification.getValue().toString()))
+                        (RemovalListener<Integer, IDataSet>) removalNotification -> {
+                            HillviewLogger.instance.info("Removing reference to dataset", "{0}: {1}",
+                                    removalNotification.getKey(), removalNotification.getValue().toString());
+                            this.memoizedCommands.datasetRemoved(removalNotification.getKey());
+                        })
                 .build();
         this.toUnsubscribe = CacheBuilder.newBuilder()
                 .expireAfterAccess(EXPIRE_TIME_IN_HOURS, TimeUnit.HOURS)
@@ -150,6 +163,36 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
         return new UUID(command.getHighId(), command.getLowId());
     }
 
+    /**
+     * Returns an observable that shares the computation of the sketch with any
+     * identical sketch running on the same dataset.  The shared computation is
+     * cancelled only when all its subscribers have unsubscribed.
+     * @param command  Command containing the sketch.
+     * @param source   Observable that computes the sketch; it is only subscribed to if
+     *                 no identical sketch is running.
+     */
+    private Observable<PartialResult> shareSketch(
+            final Command command, final Observable<PartialResult> source) {
+        final String key = command.getIdsIndex() + ":" + Hashing.sha256().hashBytes(
+                command.getSerializedOp().toByteArray()).toString();
+        final AtomicReference<Observable<PartialResult>> self =
+                new AtomicReference<Observable<PartialResult>>();
+        final Runnable done = () -> this.runningSketches.remove(key, self.get());
+        final Observable<PartialResult> shared = source
+                .doOnTerminate(done::run)
+                .doOnUnsubscribe(done::run)
+                .replay()
+                .refCount();
+        self.set(shared);
+        final Observable<PartialResult> running = this.runningSketches.putIfAbsent(key, shared);
+        if (running != null) {
+            HillviewLogger.instance.info(
+                    "Joining running sketch", "on IDataSet#{0}", command.getIdsIndex());
+            return running;
+        }
+        return shared;
+    }
+
     /**
      * Save the RxJava subscription for a command; allows it to be cancelled.
      * @param id              Command id.
@@ -184,7 +227,13 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
         return this.operationToObservable.remove(id);
     }
 
-    synchronized private int save(IDataSet dataSet) {
+    /**
+     * Save a dataset.
+     * @param dataSet  Dataset to save.
+     * @param command  Command that produced the dataset.
+     * @return         The index of the dataset.
+     */
+    synchronized private int save(IDataSet dataSet, Command command) {
         int index = this.dsIndex.getAndIncrement();
         if (index < 0)
             index = 0;
@@ -193,6 +242,8 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
             // This means we have created more than 2B datasets which haven't expired yet!
             throw new RuntimeException("Dataset index overflow: " + index);
         this.dataSets.put(index, dataSet);
+        this.memoizedCommands.setSource(
+                index, command, MemoizedResults.getDataVersion(dataSet));
         return index;
     }
 
@@ -226,7 +277,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     }
 
     public void purgeMemoized() {
-        this.memoizedCommands.clear();
+        this.memoizedCommands.purge();
     }
 
     /**
@@ -242,6 +293,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     private Subscriber<PartialResult<IDataSet>> createSubscriber(
             final Command command, final UUID id, final String operation,
             final StreamObserver<PartialResponse> responseObserver) {
+        final long startTime = System.nanoTime();
         return new Subscriber<PartialResult<IDataSet>>() {
             @Nullable private PartialResponse memoizedResult = null;
             @Nullable private Integer memoizedDatasetIndex = null;
@@ -253,7 +305,8 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                     if (MEMOIZE && this.memoizedResult != null) {
                         HillviewServer.this.memoizedCommands.insert(
                                 command, this.memoizedResult,
-                                Converters.checkNull(this.memoizedDatasetIndex));
+                                Converters.checkNull(this.memoizedDatasetIndex),
+                                System.nanoTime() - startTime);
                     }
                     responseObserver.onCompleted();
                     HillviewServer.this.removeSubscription(id, operation + " completed");
@@ -275,12 +328,12 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                 queue = queue.thenRunAsync(() -> {
                     Integer idsIndex = null;
                     if (pr.deltaValue != null) {
-                        idsIndex = HillviewServer.this.save(pr.deltaValue);
+                        idsIndex = HillviewServer.this.save(pr.deltaValue, command);
                     }
                     final OperationResponse<PartialResult<Integer>> res = new
                             OperationResponse<PartialResult<Integer>>(new
                             PartialResult<Integer>(pr.deltaDone, idsIndex));
-                    final byte[] bytes = SerializationUtils.serialize(res);
+                    final byte[] bytes = BinaryCodecs.serialize(res);
                     final PartialResponse result = PartialResponse.newBuilder()
                             .setSerializedOp(ByteString.copyFrom(bytes)).build();
                     if (MEMOIZE) {
@@ -307,7 +360,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                 return;
             }
 
-            final PruneOperation mapOp = SerializationUtils.deserialize(bytes);
+            final PruneOperation mapOp = BinaryCodecs.deserialize(bytes);
             final Observable<PartialResult<IDataSet>> observable = dataset.prune(mapOp.isEmpty);
 
             final UUID commandId = this.getId(command);
@@ -343,7 +396,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                 return;
             }
 
-            final MapOperation mapOp = SerializationUtils.deserialize(bytes);
+            final MapOperation mapOp = BinaryCodecs.deserialize(bytes);
             final Observable<PartialResult<IDataSet>> observable = dataset.map(mapOp.mapper);
             final UUID commandId = this.getId(command);
             Subscriber subscriber = this.createSubscriber(
@@ -380,7 +433,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                 return;
             }
 
-            final FlatMapOperation mapOp = SerializationUtils.deserialize(bytes);
+            final FlatMapOperation mapOp = BinaryCodecs.deserialize(bytes);
             final Observable<PartialResult<IDataSet>> observable = dataset.flatMap(mapOp.mapper);
             final UUID commandId = this.getId(command);
             Subscriber subscriber = this.createSubscriber(
@@ -406,6 +459,9 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     public void sketch(final Command command, final StreamObserver<PartialResponse> responseObserver) {
         try {
             boolean memoize = MEMOIZE;  // The value may change while we execute
+            final long startTime = System.nanoTime();
+            // Sketch results can be large; compress them if the client supports it.
+            ResultCompression.enable(responseObserver);
             final IDataSet dataset = this.getIfValid(command.getIdsIndex(), responseObserver);
             if (dataset == null)
                 return;
@@ -416,8 +472,9 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
             }
 
             final byte[] bytes = command.getSerializedOp().toByteArray();
-            final SketchOperation sketchOp = SerializationUtils.deserialize(bytes);
-            final Observable<PartialResult> observable = dataset.sketch(sketchOp.sketch);
+            final SketchOperation sketchOp = BinaryCodecs.deserialize(bytes);
+            final Observable<PartialResult> observable =
+                    this.shareSketch(command, dataset.sketch(sketchOp.sketch));
             final UUID commandId = this.getId(command);
             Subscriber subscriber = new Subscriber<PartialResult>() {
                 @Nullable private Object sketchResultAccumulator =
@@ -434,11 +491,12 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                                 final OperationResponse<PartialResult> res =
                                         new OperationResponse<PartialResult>(
                                                 new PartialResult(1.0, this.sketchResultAccumulator));
-                                final byte[] bytes = SerializationUtils.serialize(res);
+                                final byte[] bytes = BinaryCodecs.serialize(res);
                                 final PartialResponse memoizedResult = PartialResponse.newBuilder()
                                         .setSerializedOp(ByteString.copyFrom(bytes))
                                         .build();
-                                HillviewServer.this.memoizedCommands.insert(command, memoizedResult, 0);
+                                HillviewServer.this.memoizedCommands.insert(
+                                        command, memoizedResult, 0, System.nanoTime() - startTime);
                             }
                         } catch (Throwable ex) {
                             HillviewLogger.instance.error("Async exception", ex);
@@ -467,7 +525,8 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                                         .sketchResultAccumulator, pr.deltaValue);
                             final OperationResponse<PartialResult> res =
                                     new OperationResponse<PartialResult>(pr);
-                            final byte[] bytes = SerializationUtils.serialize(res);
+                            final byte[] bytes = BinaryCodecs.serialize(res);
+                            ResultCompression.beforeSend(responseObserver, bytes.length);
                             responseObserver.onNext(PartialResponse.newBuilder()
                                     .setSerializedOp(ByteString.copyFrom(bytes))
                                     .build());
@@ -504,7 +563,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
             if (dataset == null)
                 return;
             final byte[] bytes = command.getSerializedOp().toByteArray();
-            final ManageOperation manage = SerializationUtils.deserialize(bytes);
+            final ManageOperation manage = BinaryCodecs.deserialize(bytes);
             Observable<PartialResult<ControlMessage.StatusList>> observable = dataset.manage(manage
                     .message);
             final Callable<ControlMessage.StatusList> callable = () -> {
@@ -543,7 +602,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                 public void onNext(final PartialResult pr) {
                     final OperationResponse<PartialResult> res =
                             new OperationResponse<PartialResult>(pr);
-                    final byte[] bytes = SerializationUtils.serialize(res);
+                    final byte[] bytes = BinaryCodecs.serialize(res);
                     responseObserver.onNext(PartialResponse.newBuilder()
                             .setSerializedOp(ByteString.copyFrom(bytes))
                             .build());
@@ -571,7 +630,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
         try {
             final UUID commandId = this.getId(command);
             final byte[] bytes = command.getSerializedOp().toByteArray();
-            final ZipOperation zipOp = SerializationUtils.deserialize(bytes);
+            final ZipOperation zipOp = BinaryCodecs.deserialize(bytes);
             final IDataSet left = this.getIfValid(command.getIdsIndex(), responseObserver);
             if (left == null)
                 return;
@@ -608,7 +667,7 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
     public void unsubscribe(final Command command, final StreamObserver<Ack> responseObserver) {
         try {
             final byte[] bytes = command.getSerializedOp().toByteArray();
-            final UnsubscribeOperation unsubscribeOp = SerializationUtils.deserialize(bytes);
+            final UnsubscribeOperation unsubscribeOp = BinaryCodecs.deserialize(bytes);
             HillviewLogger.instance.info("Unsubscribing", "{0}", unsubscribeOp.id);
             @Nullable
             final Subscription subscription = this.removeSubscription(unsubscribeOp.id,
@@ -663,6 +722,8 @@ public class HillviewServer extends HillviewServerGrpc.HillviewServerImplBase {
                 return false;
             }
         }
+        ResultCompression.beforeSend(
+                responseObserver, memoized.response.getSerializedOp().size());
         responseObserver.onNext(memoized.response);
         responseObserver.onCompleted();
         return true;
@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.dataset.remoting;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Hand-written binary encoding of objects of a specific class.
+ * Codecs are registered with BinaryCodecs.
+ * @param <T> Type of objects encoded.
+ */
+public interface IBinaryCodec<T> {
+    /**
+     * Writes the value; nested objects can be written with BinaryCodecs.writeObject.
+     */
+    void encode(T value, DataOutput out) throws IOException;
+
+    /**
+     * Reads a value written by encode.
+     */
+    T decode(DataInput in) throws IOException;
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.dataset.remoting;
+
+import io.airlift.compress.lz4.Lz4Compressor;
+import io.airlift.compress.lz4.Lz4Decompressor;
+import io.grpc.Codec;
+
+import java.io.*;
+
+/**
+ * A gRPC message codec which uses LZ4 block compression.  LZ4 is much cheaper
+ * than gzip on both ends, which matters because large sketch results are
+ * compressed once per partial result.  A compressed message is a sequence of
+ * blocks; each block is written as the uncompressed length, the compressed
+ * length, and the compressed bytes.  The number of bytes that go in and out
+ * of the compressor are added to the counters in ResultCompression.
+ */
+public final class Lz4MessageCodec implements Codec {
+    public static final String Name = "hillview-lz4";
+    /**
+     * Size of the uncompressed blocks.
+     */
+    private static final int BlockSize = 256 * 1024;
+
+    @Override
+    public String getMessageEncoding() {
+        return Name;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) {
+        return new CompressingStream(os);
+    }
+
+    @Override
+    public InputStream decompress(InputStream is) {
+        return new DecompressingStream(is);
+    }
+
+    private static final class CompressingStream extends OutputStream {
+        private final DataOutputStream out;
+        private final Lz4Compressor compressor = new Lz4Compressor();
+        private final byte[] block = new byte[BlockSize];
+        private int blockSize;
+        private byte[] compressed = new byte[0];
+        private long rawBytes;
+        private long compressedBytes;
+        private boolean closed;
+
+        CompressingStream(OutputStream out) {
+            this.out = new DataOutputStream(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (this.blockSize == this.block.length)
+                this.flushBlock();
+            this.block[this.blockSize++] = (byte)b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (this.blockSize == this.block.length)
+                    this.flushBlock();
+                int toCopy = Math.min(len, this.block.length - this.blockSize);
+                System.arraycopy(b, off, this.block, this.blockSize, toCopy);
+                this.blockSize += toCopy;
+                off += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (this.blockSize == 0)
+                return;
+            int max = this.compressor.maxCompressedLength(this.blockSize);
+            if (this.compressed.length < max)
+                this.compressed = new byte[max];
+            int size = this.compressor.compress(
+                    this.block, 0, this.blockSize, this.compressed, 0, max);
+            this.out.writeInt(this.blockSize);
+            this.out.writeInt(size);
+            this.out.write(this.compressed, 0, size);
+            this.rawBytes += this.blockSize;
+            this.compressedBytes += size + 8;
+            this.blockSize = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.flushBlock();
+            this.out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (this.closed)
+                return;
+            this.closed = true;
+            this.flushBlock();
+            this.out.close();
+            ResultCompression.recordCompressed(this.rawBytes, this.compressedBytes);
+        }
+    }
+
+    private static final class DecompressingStream extends InputStream {
+        private final DataInputStream in;
+        private final Lz4Decompressor decompressor = new Lz4Decompressor();
+        private byte[] block = new byte[0];
+        private byte[] compressed = new byte[0];
+        private int blockSize;
+        private int position;
+
+        DecompressingStream(InputStream in) {
+            this.in = new DataInputStream(in);
+        }
+
+        /**
+         * Reads the next block.
+         * @return False at the end of the stream.
+         */
+        private boolean nextBlock() throws IOException {
+            int rawSize;
+            try {
+                rawSize = this.in.readInt();
+            } catch (EOFException ex) {
+                return false;
+            }
+            int size = this.in.readInt();
+            if (rawSize < 0 || rawSize > BlockSize || size < 0)
+                throw new IOException("Corrupted LZ4 block header");
+            if (this.compressed.length < size)
+                this.compressed = new byte[size];
+            this.in.readFully(this.compressed, 0, size);
+            if (this.block.length < rawSize)
+                this.block = new byte[BlockSize];
+            int decompressed = this.decompressor.decompress(
+                    this.compressed, 0, size, this.block, 0, rawSize);
+            if (decompressed != rawSize)
+                throw new IOException("Corrupted LZ4 block: expected " + rawSize +
+                        " bytes, got " + decompressed);
+            this.blockSize = rawSize;
+            this.position = 0;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (this.position == this.blockSize)
+                if (!this.nextBlock())
+                    return -1;
+            return this.block[this.position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            while (this.position == this.blockSize)
+                if (!this.nextBlock())
+                    return -1;
+            int toCopy = Math.min(len, this.blockSize - this.position);
+            System.arraycopy(this.block, this.position, b, off, toCopy);
+            this.position += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public int available() {
+            return this.blockSize - this.position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.in.close();
+        }
+    }
+}
@@ -17,18 +17,51 @@
 
 package org.hillview.dataset.remoting;
 
-import com.google.protobuf.ByteString;
+import com.google.common.hash.Hashing;
+import org.hillview.dataset.LocalDataSet;
+import org.hillview.dataset.ParallelDataSet;
+import org.hillview.dataset.RemoteDataSet;
+import org.hillview.dataset.api.IDataSet;
 import org.hillview.pb.Command;
 import org.hillview.pb.PartialResponse;
+import org.hillview.storage.IFileReference;
+import org.hillview.utils.HillviewLogger;
 
 import javax.annotation.Nullable;
-import java.util.Map;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is used to hold memoized results from remote commands.
+ * The results are indexed by a hash of the command and of the operations that
+ * have produced the dataset the command is applied to, so the same results are
+ * found when the same datasets are created again, e.g., after a restart.
+ * The sources of datasets which refer to files include the sizes and modification
+ * times of the files, so results are not reused after the files change.  Datasets
+ * with the same source share the results, which are kept while any of them exists.
+ * The total size of the results kept in memory is bounded; when it is exceeded
+ * the results which are cheap to recompute relative to their size and which
+ * have not been used recently are evicted first (the GreedyDual-Size policy).
+ * Results that do not refer to datasets can also be saved on disk.
  */
 public class MemoizedResults {
+    /**
+     * Default bound on the total size of the results kept in memory.
+     */
+    public static long maxBytes = Runtime.getRuntime().maxMemory() / 20;
+    /**
+     * Default folder where results are saved; if null results are only kept in memory.
+     */
+    @Nullable
+    public static String diskFolder = null;
+    private static final String suffix = ".memo";
+
     /**
      * This is used as a element in the memoizedCommands hashmap below.
      */
@@ -49,43 +82,353 @@ public class MemoizedResults {
         }
     }
 
+    private static class Entry {
+        final String key;
+        final ResponseAndId value;
+        /**
+         * Source of the dataset the command was applied to.
+         */
+        final String source;
+        /**
+         * Approximate size in bytes.
+         */
+        final long size;
+        /**
+         * Time it took to compute the result, in nanoseconds.
+         */
+        final long cost;
+        final long sequence;
+        double priority;
+
+        Entry(String key, ResponseAndId value, String source, long cost, long sequence) {
+            this.key = key;
+            this.value = value;
+            this.source = source;
+            this.size = value.response.getSerializedSize() + 2 * key.length() + 64;
+            this.cost = cost;
+            this.sequence = sequence;
+        }
+
+        double weight() {
+            return (this.cost + 1.0) / this.size;
+        }
+    }
+
+    private final long capacity;
+    @Nullable
+    private final String folder;
+    private final HashMap<String, Entry> entries;
+    /**
+     * Entries sorted by priority; the first one is evicted first.
+     */
+    private final TreeSet<Entry> byPriority;
+    /**
+     * For each dataset a hash of the operations which produced it.
+     */
+    private final ConcurrentHashMap<Integer, String> sources;
+    /**
+     * For each source the number of existing datasets with that source.
+     */
+    private final HashMap<String, Integer> sourceCount;
+    private long usedBytes;
     /**
-     * Map each (command, dataset index) to a partial response obtained by
-     * running the command on that respective dataset.
+     * Priority of the last evicted entry; added to the priorities of the
+     * entries used afterwards, so entries that are not used age.
      */
-    private final ConcurrentHashMap<ByteString, Map<Integer, ResponseAndId>> memoizedCommands;
+    private double inflation;
+    private long sequence;
 
     MemoizedResults() {
-        this.memoizedCommands = new ConcurrentHashMap<ByteString, Map<Integer, ResponseAndId>>();
+        this(maxBytes, diskFolder);
     }
 
     /**
-     * Purges all memoized results
+     * Create a store for memoized results.
+     * @param capacity  Maximum total size of the results kept in memory.
+     * @param folder    Folder where results which do not refer to datasets are saved;
+     *                  if null results are not saved.
      */
-    public void clear() {
-        this.memoizedCommands.clear();
+    public MemoizedResults(long capacity, @Nullable String folder) {
+        this.capacity = capacity;
+        this.folder = folder;
+        this.entries = new HashMap<String, Entry>();
+        this.byPriority = new TreeSet<Entry>((a, b) -> {
+            int c = Double.compare(a.priority, b.priority);
+            if (c != 0)
+                return c;
+            return Long.compare(a.sequence, b.sequence);
+        });
+        this.sources = new ConcurrentHashMap<Integer, String>();
+        this.sourceCount = new HashMap<String, Integer>();
+        this.usedBytes = 0;
+        this.inflation = 0;
+        this.sequence = 0;
+        if (folder != null) {
+            File dir = new File(folder);
+            if (!dir.exists() && !dir.mkdirs())
+                throw new RuntimeException("Cannot create folder " + folder);
+        }
+    }
+
+    /**
+     * The source of the dataset a command applies to, or null if it is not known.
+     */
+    @Nullable
+    private String getSource(final Command command) {
+        int index = command.getIdsIndex();
+        // Initial datasets are created when the server starts.
+        return index < 0 ? Integer.toString(index) : this.sources.get(index);
+    }
+
+    private static String getKey(final Command command, String source) {
+        return Hashing.sha256().newHasher()
+                .putBytes(command.getSerializedOp().toByteArray())
+                .putString(source, StandardCharsets.UTF_8)
+                .hash().toString();
+    }
+
+    /**
+     * The key of a command, or null if the source of the dataset it applies to is not known.
+     */
+    @Nullable
+    private String getKey(final Command command) {
+        String source = this.getSource(command);
+        if (source == null)
+            return null;
+        return getKey(command, source);
+    }
+
+    /**
+     * Describes the data in a dataset which is not determined by the commands that
+     * produced it: the versions of the files it refers to and the remote datasets it
+     * contains.  Remote datasets are produced again on each server, so results
+     * computed from them are not reused after a restart.
+     */
+    public static String getDataVersion(IDataSet<?> dataSet) {
+        StringBuilder builder = new StringBuilder();
+        appendDataVersion(dataSet, builder);
+        return builder.toString();
+    }
+
+    private static void appendDataVersion(IDataSet<?> dataSet, StringBuilder builder) {
+        if (dataSet instanceof ParallelDataSet) {
+            for (IDataSet<?> child : ((ParallelDataSet<?>)dataSet).getChildren())
+                appendDataVersion(child, builder);
+        } else if (dataSet instanceof RemoteDataSet) {
+            builder.append(dataSet.toString()).append("/")
+                    .append(((RemoteDataSet<?>)dataSet).getRemoteHandle()).append(",");
+        } else if (dataSet instanceof LocalDataSet) {
+            Object data = ((LocalDataSet<?>)dataSet).data;
+            if (data instanceof IFileReference)
+                builder.append(((IFileReference)data).getVersion()).append(",");
+        }
+    }
+
+    /**
+     * Records that a dataset was created by running a command.
+     * @param datasetIndex  Index of the dataset.
+     * @param command       Command that created the dataset.
+     * @param dataVersion   Describes the data of the dataset; see getDataVersion.
+     */
+    public synchronized void setSource(int datasetIndex, final Command command,
+                                       String dataVersion) {
+        String key = this.getKey(command);
+        if (key == null)
+            return;
+        if (!dataVersion.isEmpty())
+            key = Hashing.sha256().hashString(key + dataVersion, StandardCharsets.UTF_8).toString();
+        this.releaseSource(this.sources.put(datasetIndex, key));
+        this.sourceCount.merge(key, 1, Integer::sum);
+    }
+
+    public void setSource(int datasetIndex, final Command command) {
+        this.setSource(datasetIndex, command, "");
+    }
+
+    /**
+     * Removes the results computed on datasets with a source if no such dataset exists.
+     */
+    private void releaseSource(@Nullable String source) {
+        if (source == null)
+            return;
+        int count = this.sourceCount.merge(source, -1, Integer::sum);
+        if (count > 0)
+            return;
+        this.sourceCount.remove(source);
+        List<Entry> toRemove = new ArrayList<Entry>();
+        for (Entry e : this.entries.values())
+            if (e.source.equals(source))
+                toRemove.add(e);
+        for (Entry e : toRemove)
+            this.removeEntry(e);
+    }
+
+    /**
+     * Removes all memoized results which involve a dataset which no longer exists:
+     * the results which refer to the dataset, and the results computed on it unless
+     * another dataset with the same source exists.
+     */
+    public synchronized void datasetRemoved(int datasetIndex) {
+        this.releaseSource(this.sources.remove(datasetIndex));
+        List<Entry> toRemove = new ArrayList<Entry>();
+        for (Entry e : this.entries.values())
+            if (e.value.localDatasetIndex == datasetIndex)
+                toRemove.add(e);
+        for (Entry e : toRemove)
+            this.removeEntry(e);
+    }
+
+    /**
+     * Purges all memoized results from memory.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.byPriority.clear();
+        this.usedBytes = 0;
+        this.inflation = 0;
+    }
+
+    /**
+     * Purges all memoized results, including the ones saved on disk.
+     */
+    public void purge() {
+        this.clear();
+        if (this.folder == null)
+            return;
+        File[] files = new File(this.folder).listFiles((d, name) -> name.endsWith(suffix));
+        if (files == null)
+            return;
+        for (File f : files)
+            if (!f.delete())
+                HillviewLogger.instance.warn("Could not delete", "{0}", f);
+    }
+
+    /**
+     * Total size of the results kept in memory.
+     */
+    public synchronized long getUsedBytes() {
+        return this.usedBytes;
     }
 
     @Nullable
     public ResponseAndId get(final Command command) {
-        ByteString ser = command.getSerializedOp();
-        if (!this.memoizedCommands.containsKey(ser))
+        String source = this.getSource(command);
+        if (source == null)
             return null;
-        Map<Integer, ResponseAndId> map = this.memoizedCommands.get(ser);
-        int index = command.getIdsIndex();
-        if (!map.containsKey(index))
+        String key = getKey(command, source);
+        synchronized (this) {
+            Entry e = this.entries.get(key);
+            if (e != null) {
+                this.byPriority.remove(e);
+                e.priority = this.inflation + e.weight();
+                this.byPriority.add(e);
+                return e.value;
+            }
+        }
+        Entry e = this.read(key, source);
+        if (e == null)
+            return null;
+        synchronized (this) {
+            this.add(e);
+        }
+        return e.value;
+    }
+
+    /**
+     * Memoize the result of a command.
+     * @param command   Command that was executed.
+     * @param response  Result of the command.
+     * @param index     Index of the dataset in the response, or 0 if there is none.
+     * @param cost      Time it took to compute the result, in nanoseconds.
+     */
+    public void insert(final Command command, final PartialResponse response,
+                       Integer index, long cost) {
+        String source = this.getSource(command);
+        if (source == null)
+            return;
+        String key = getKey(command, source);
+        Entry e;
+        synchronized (this) {
+            e = new Entry(key, new ResponseAndId(response, index),
+                    source, cost, this.sequence++);
+            this.add(e);
+        }
+        if (index == 0)
+            this.write(e);
+    }
+
+    public synchronized void remove(final Command command, final ResponseAndId resp) {
+        String key = this.getKey(command);
+        if (key == null)
+            return;
+        Entry e = this.entries.get(key);
+        if (e != null && e.value == resp)
+            this.removeEntry(e);
+    }
+
+    private void removeEntry(Entry e) {
+        this.entries.remove(e.key);
+        this.byPriority.remove(e);
+        this.usedBytes -= e.size;
+    }
+
+    private void add(Entry e) {
+        Entry old = this.entries.get(e.key);
+        if (old != null)
+            this.removeEntry(old);
+        if (e.size > this.capacity)
+            return;
+        while (this.usedBytes + e.size > this.capacity) {
+            Entry victim = this.byPriority.first();
+            this.removeEntry(victim);
+            this.inflation = victim.priority;
+        }
+        e.priority = this.inflation + e.weight();
+        this.entries.put(e.key, e);
+        this.byPriority.add(e);
+        this.usedBytes += e.size;
+    }
+
+    @Nullable
+    private Path getPath(String key) {
+        if (this.folder == null)
             return null;
-        return map.get(index);
+        return Paths.get(this.folder, key + suffix);
     }
 
-    public void insert(final Command command, final PartialResponse response, Integer index) {
-        ResponseAndId rid = new ResponseAndId(response, index);
-        this.memoizedCommands.computeIfAbsent(command.getSerializedOp(),
-                (k) -> new ConcurrentHashMap<Integer, ResponseAndId>()).put(command.getIdsIndex(), rid);
+    private void write(Entry e) {
+        Path path = this.getPath(e.key);
+        if (path == null)
+            return;
+        try {
+            Path tmp = Files.createTempFile(path.getParent(), e.key, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeLong(e.cost);
+                e.value.response.writeTo(out);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            HillviewLogger.instance.error("Could not save memoized result", ex);
+        }
     }
 
-    public void remove(final Command command, final ResponseAndId resp) {
-        Map<Integer, ResponseAndId> map = this.memoizedCommands.get(command.getSerializedOp());
-        map.remove(command.getIdsIndex());
+    @Nullable
+    private Entry read(String key, String source) {
+        Path path = this.getPath(key);
+        if (path == null || !Files.exists(path))
+            return null;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            long cost = in.readLong();
+            PartialResponse response = PartialResponse.parseFrom(in);
+            synchronized (this) {
+                return new Entry(key, new ResponseAndId(response, 0),
+                        source, cost, this.sequence++);
+            }
+        } catch (IOException ex) {
+            HillviewLogger.instance.error("Could not read memoized result", ex);
+            return null;
+        }
     }
 }
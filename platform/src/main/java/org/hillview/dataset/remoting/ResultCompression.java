@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.dataset.remoting;
+
+import io.grpc.Codec;
+import io.grpc.CompressorRegistry;
+import io.grpc.DecompressorRegistry;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Policy for compressing the messages sent by a HillviewServer.
+ * Compression is negotiated per call by gRPC: a RemoteDataSet advertises
+ * that it can decompress LZ4 messages only if compression is enabled on
+ * the client, and the server compresses responses only if the client
+ * has advertised LZ4 and the message is larger than a threshold.
+ * Small messages are cheaper to send as they are.
+ */
+public final class ResultCompression {
+    /**
+     * If false clients do not advertise LZ4, so they will receive uncompressed data.
+     */
+    public static boolean enabled = true;
+    /**
+     * Messages smaller than this number of bytes are never compressed.
+     */
+    public static int thresholdBytes = 16 * 1024;
+
+    private static final Codec codec = new Lz4MessageCodec();
+    private static final CompressorRegistry compressors;
+    private static final AtomicLong rawBytes = new AtomicLong();
+    private static final AtomicLong compressedBytes = new AtomicLong();
+    private static final AtomicLong compressedMessages = new AtomicLong();
+    private static final AtomicLong uncompressedMessages = new AtomicLong();
+    private static final AtomicLong uncompressedBytes = new AtomicLong();
+
+    static {
+        compressors = CompressorRegistry.newEmptyInstance();
+        compressors.register(codec);
+        compressors.register(new Codec.Gzip());
+    }
+
+    private ResultCompression() {}
+
+    public static CompressorRegistry getCompressorRegistry() {
+        return compressors;
+    }
+
+    /**
+     * Decompressors available to a client.  LZ4 is only advertised to the
+     * server if compression is enabled.
+     */
+    public static DecompressorRegistry getDecompressorRegistry() {
+        return DecompressorRegistry.getDefaultInstance().with(codec, enabled);
+    }
+
+    /**
+     * Called by a server before sending the first response of a call;
+     * gRPC falls back to uncompressed messages if the client has not
+     * advertised LZ4.
+     */
+    public static void enable(StreamObserver<?> observer) {
+        if (observer instanceof ServerCallStreamObserver)
+            ((ServerCallStreamObserver<?>)observer).setCompression(Lz4MessageCodec.Name);
+    }
+
+    /**
+     * Called by a server before sending each response; only large messages
+     * are compressed.
+     * @param size  Size of the message that will be sent in bytes.
+     */
+    public static void beforeSend(StreamObserver<?> observer, int size) {
+        if (!(observer instanceof ServerCallStreamObserver))
+            return;
+        boolean compress = size >= thresholdBytes;
+        ((ServerCallStreamObserver<?>)observer).setMessageCompression(compress);
+        if (!compress) {
+            uncompressedMessages.incrementAndGet();
+            uncompressedBytes.addAndGet(size);
+        }
+    }
+
+    static void recordCompressed(long raw, long compressed) {
+        compressedMessages.incrementAndGet();
+        rawBytes.addAndGet(raw);
+        compressedBytes.addAndGet(compressed);
+    }
+
+    /**
+     * Total size before compression of all messages compressed.
+     */
+    public static long getRawBytes() {
+        return rawBytes.get();
+    }
+
+    /**
+     * Total size after compression of all messages compressed.
+     */
+    public static long getCompressedBytes() {
+        return compressedBytes.get();
+    }
+
+    public static long getCompressedMessages() {
+        return compressedMessages.get();
+    }
+
+    /**
+     * Number of messages sent uncompressed because they were below the threshold.
+     */
+    public static long getUncompressedMessages() {
+        return uncompressedMessages.get();
+    }
+
+    public static long getUncompressedBytes() {
+        return uncompressedBytes.get();
+    }
+
+    public static void resetCounters() {
+        rawBytes.set(0);
+        compressedBytes.set(0);
+        compressedMessages.set(0);
+        uncompressedMessages.set(0);
+        uncompressedBytes.set(0);
+    }
+
+    public static String getStatistics() {
+        return "compressed " + getCompressedMessages() + " messages: " +
+                getRawBytes() + " -> " + getCompressedBytes() + " bytes; " +
+                getUncompressedMessages() + " messages (" + getUncompressedBytes() +
+                " bytes) below threshold";
+    }
+}
@@ -24,11 +24,16 @@ import org.hillview.dataset.api.Empty;
 import org.hillview.dataset.api.IDataSet;
 import org.hillview.dataset.api.IMap;
 import org.hillview.dataset.api.ISketch;
+import org.hillview.dataset.api.PartialResult;
+import org.hillview.dataset.remoting.BinaryCodecs;
 import org.hillview.dataset.remoting.HillviewServer;
+import org.hillview.dataset.remoting.OperationResponse;
 import org.hillview.management.ClusterConfig;
 import org.hillview.management.SetMemoization;
 import org.hillview.sketches.*;
 import org.hillview.table.ColumnDescription;
+import org.hillview.table.RecordOrder;
+import org.hillview.table.SmallTable;
 import org.hillview.table.Table;
 import org.hillview.table.api.ContentsKind;
 import org.hillview.table.api.IColumn;
@@ -373,6 +378,83 @@ public class Benchmarks {
         }
     }
 
+    /**
+     * Compares the size and the encoding/decoding time of sketch results
+     * written with Java serialization and with the binary codecs.
+     */
+    private static void measureSerialization(String type, Object result, int runCount) {
+        OperationResponse<PartialResult<Object>> response =
+                new OperationResponse<PartialResult<Object>>(new PartialResult<Object>(result));
+        final boolean useJava = BinaryCodecs.useJavaSerialization;
+        for (boolean java : new boolean[] { true, false }) {
+            BinaryCodecs.useJavaSerialization = java;
+            byte[] bytes = BinaryCodecs.serialize(response);
+            long encode = Long.MAX_VALUE;
+            long decode = Long.MAX_VALUE;
+            for (int i = 0; i < runCount; i++) {
+                encode = Math.min(encode, time(() -> BinaryCodecs.serialize(response)));
+                decode = Math.min(decode, time(() -> BinaryCodecs.deserialize(bytes)));
+            }
+            System.out.println(type + "," + (java ? "java" : "codec") + "," + bytes.length + "," +
+                    twoDigits(encode / (1000.0 * 1000.0)) + "," +
+                    twoDigits(decode / (1000.0 * 1000.0)));
+        }
+        BinaryCodecs.useJavaSerialization = useJava;
+    }
+
+    private static void benchmarkSerialization(String[] args) {
+        final int runCount = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        final int size = 1000 * 1000;
+        HillviewLogger.instance.setLogLevel(Level.OFF);
+        SmallTable table = TestTables.getIntTable(size, 2);
+        List<String> cols = table.getSchema().getColumnNames();
+        // The values in the table are between 0 and 5000
+        IHistogramBuckets b0 = new DoubleHistogramBuckets(0, 5000, 100);
+        IHistogramBuckets b1 = new DoubleHistogramBuckets(0, 5000, 100);
+        IHistogramBuckets b2 = new DoubleHistogramBuckets(0, 5000, 30);
+        RecordOrder order = new RecordOrder();
+        for (String c : cols)
+            order.append(new ColumnSortOrientation(table.getSchema().getDescription(c), true));
+        Table strings = TestTables.testLargeStringTable(size,
+                TestTables.randStringList(100000, 10).toArray(new String[0]), 10, "A");
+
+        System.out.println("Type,Encoding,Bytes,Encode (ms),Decode (ms)");
+        measureSerialization("Histogram", new HistogramSketch(
+                b0, cols.get(0), 1.0, 0).create(table), runCount);
+        measureSerialization("Heatmap", new HeatmapSketch(
+                b0, b1, cols.get(0), cols.get(1), 1.0, 0).create(table), runCount);
+        measureSerialization("Heatmap3D", new Heatmap3DSketch(
+                b2, b2, b2, cols.get(0), cols.get(1), cols.get(0), 1.0, 0).create(table), runCount);
+        measureSerialization("NextKList", new NextKSketch(
+                order, null, 1000).create(table), runCount);
+        measureSerialization("FreqKListMG", new FreqKSketchMG(
+                table.getSchema(), 0.001).create(table), runCount);
+        measureSerialization("MinKSet", new SampleDistinctElementsSketch(
+                strings.getSchema().getColumnNames().get(0), 0, 10000).create(strings), runCount);
+        measureSerialization("SmallTable", new RandomSamplingSketch(
+                0.01, 0, cols.toArray(new String[0]), true).create(table), runCount);
+    }
+
+    /**
+     * Compares the running time of the Misra-Gries and Space-Saving heavy hitters
+     * sketches on a column drawn from a Zipf distribution, for several numbers of counters.
+     * Arguments: number of runs, number of rows, exponent of the distribution.
+     */
+    private static void benchmarkHeavyHitters(String[] args) {
+        final int runCount = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        final int size = args.length > 1 ? Integer.parseInt(args[1]) : 10 * 1000 * 1000;
+        final double exp = args.length > 2 ? Double.parseDouble(args[2]) : 1.1;
+        HillviewLogger.instance.setLogLevel(Level.OFF);
+        SmallTable table = TestTables.getRandZipfTable(size, 1000 * 1000, exp);
+        System.out.println("Sketch,Time (ms),Melems/sec,Percent slower");
+        for (double epsilon : new double[] { 0.05, 0.005, 0.0005 }) {
+            FreqKSketchMG mg = new FreqKSketchMG(table.getSchema(), epsilon);
+            FreqKSketchSS ss = new FreqKSketchSS(table.getSchema(), epsilon);
+            runNTimes(() -> mg.create(table), runCount, "MG epsilon=" + epsilon, size);
+            runNTimes(() -> ss.create(table), runCount, "SS epsilon=" + epsilon, size);
+        }
+    }
+
     public static void main(String[] args) throws IOException, InterruptedException {
         HillviewLogger.instance.setLogLevel(Level.WARNING);
         String bench;
@@ -398,6 +480,12 @@ public class Benchmarks {
             case "quantilesError":
                 quantilesError(args);
                 break;
+            case "serialization":
+                benchmarkSerialization(args);
+                break;
+            case "heavyHitters":
+                benchmarkHeavyHitters(args);
+                break;
             default:
                 throw new RuntimeException("Unexpected benchmark: " + bench);
         }
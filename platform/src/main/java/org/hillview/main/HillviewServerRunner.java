@@ -22,6 +22,7 @@ import org.hillview.dataset.RemoteDataSet;
 import org.hillview.dataset.api.Empty;
 import org.hillview.dataset.api.IDataSet;
 import org.hillview.dataset.remoting.HillviewServer;
+import org.hillview.dataset.remoting.MemoizedResults;
 import org.hillview.utils.HostList;
 import org.hillview.utils.HillviewLogger;
 import org.hillview.utils.HostAndPort;
@@ -62,6 +63,14 @@ class HillviewServerRunner {
                 return;
             }
 
+            // Memoized results saved in this folder survive restarts.
+            String memoizationFolder = System.getProperty("hillview.memoizationFolder");
+            if (memoizationFolder != null)
+                MemoizedResults.diskFolder = memoizationFolder;
+            // Sketches on the same partition arriving within this window share one scan.
+            String batchWindow = System.getProperty("hillview.sketchBatchWindow");
+            if (batchWindow != null)
+                LocalDataSet.sketchBatchWindow = Integer.parseInt(batchWindow);
             new HillviewServer(HostAndPort.fromString(hostAndPort), initial);
             HillviewLogger.instance.info("Created HillviewServer");
             Thread.currentThread().join();
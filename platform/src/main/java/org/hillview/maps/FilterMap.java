@@ -18,18 +18,29 @@
 package org.hillview.maps;
 
 import org.hillview.dataset.api.IMap;
+import org.hillview.table.api.IBlockTableFilter;
+import org.hillview.table.columns.ZoneMap;
 import org.hillview.table.filters.FalseTableFilter;
 import org.hillview.table.api.ITableFilterDescription;
 import org.hillview.table.api.ITableFilter;
 import org.hillview.table.api.IMembershipSet;
 import org.hillview.table.api.ITable;
+import org.hillview.table.membership.CompressedMembershipSet;
+import org.hillview.table.membership.FullMembershipSet;
+import org.hillview.table.membership.LazyMembershipSet;
+import org.hillview.table.membership.RangeMembershipSet;
 import org.hillview.utils.HillviewLogger;
 
 import javax.annotation.Nullable;
 
 /**
  * A Map which implements table filtering: given a row index it returns true if the
- * row is in the resulting table.
+ * row is in the resulting table.  The rows of the result are described by a
+ * LazyMembershipSet, so the filter is evaluated by the first sketches that scan
+ * the result, and consecutive filters are evaluated together.  Filters that
+ * use zone maps are applied eagerly on contiguous rows, since they only
+ * need to test the rows in some blocks.  Table filters may keep state,
+ * e.g., a row snapshot, so each iterator over a lazy result creates its own filter.
  */
 public class FilterMap implements IMap<ITable, ITable> {
     /**
@@ -56,10 +67,55 @@ public class FilterMap implements IMap<ITable, ITable> {
         else
             filter = this.rowFilterPredicate.getFilter(data);
         HillviewLogger.instance.info("Filtering", "{0}", filter);
-        IMembershipSet result = data.getMembershipSet().filter(filter::test);
+        IMembershipSet members = data.getMembershipSet();
+        byte[] blocks = null;
+        if (filter instanceof IBlockTableFilter)
+            blocks = ((IBlockTableFilter)filter).getBlockResults();
+        IMembershipSet result;
+        if (blocks != null && members instanceof FullMembershipSet)
+            result = filterBlocks(0, members.getSize(), members.getMax(), blocks, filter);
+        else if (blocks != null && members instanceof RangeMembershipSet) {
+            RangeMembershipSet range = (RangeMembershipSet)members;
+            result = filterBlocks(range.getStart(), range.getEnd(), members.getMax(), blocks, filter);
+        } else {
+            ITableFilterDescription description = this.rowFilterPredicate;
+            result = new LazyMembershipSet(members, () -> {
+                ITableFilter f = description == null ?
+                        new FalseTableFilter() : description.getFilter(data);
+                return f::test;
+            });
+        }
         return data.selectRowsFromFullTable(result);
     }
 
+    /**
+     * Filters a range of rows using the results of the filter for whole blocks:
+     * only the rows in blocks where some rows match are tested.
+     */
+    private static IMembershipSet filterBlocks(int start, int end, int max,
+                                               byte[] blocks, ITableFilter filter) {
+        CompressedMembershipSet result = new CompressedMembershipSet(max);
+        int row = start;
+        while (row < end) {
+            int block = row >>> ZoneMap.LogBlockSize;
+            int blockEnd = Math.min(end, (block + 1) << ZoneMap.LogBlockSize);
+            switch (blocks[block]) {
+                case ZoneMap.AllRows:
+                    result.addRange(row, blockEnd);
+                    break;
+                case ZoneMap.SomeRows:
+                    for (int i = row; i < blockEnd; i++)
+                        if (filter.test(i))
+                            result.add(i);
+                    break;
+                default:
+                    break;
+            }
+            row = blockEnd;
+        }
+        return result.seal();
+    }
+
     public String asString() {
         return (this.rowFilterPredicate == null) ? "<null>" : this.rowFilterPredicate.toString();
     }
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.maps;
+
+import org.hillview.dataset.api.Empty;
+import org.hillview.dataset.api.IMap;
+import org.hillview.storage.JdbcConnectionInformation;
+import org.hillview.storage.JdbcDatabase;
+import org.hillview.table.api.ITable;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reads a database table in partitions; each partition becomes a separate table.
+ */
+public class LoadDatabasePartitionsMapper implements IMap<Empty, List<ITable>> {
+    private final JdbcConnectionInformation conn;
+
+    public LoadDatabasePartitionsMapper(JdbcConnectionInformation conn) {
+        this.conn = conn;
+    }
+
+    @Override
+    public List<ITable> apply(Empty data) {
+        try {
+            JdbcDatabase db = new JdbcDatabase(this.conn);
+            db.connect();
+            List<ITable> result = db.readTablePartitions();
+            db.disconnect();
+            return result;
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
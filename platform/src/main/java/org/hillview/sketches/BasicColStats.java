@@ -68,7 +68,9 @@ public class BasicColStats extends DataRange implements IJson {
     void createStats(final IColumn column,
                      final IMembershipSet membershipSet) {
         final IRowIterator myIter = membershipSet.getIterator();
-        int currRow = myIter.getNextRow();
+        final int[] rows = new int[IRowIterator.BATCH_SIZE];
+        final double[] values = new double[IRowIterator.BATCH_SIZE];
+        final boolean[] missing = new boolean[IRowIterator.BATCH_SIZE];
 
         boolean extractString = false;
         switch (column.getKind()) {
@@ -79,51 +81,54 @@ public class BasicColStats extends DataRange implements IJson {
             default:
                 break;
         }
-        while (currRow >= 0) {
-            if (column.isMissing(currRow)) {
-                this.missingCount++;
-                currRow = myIter.getNextRow();
-                continue;
-            }
+        int count = myIter.getNextRows(rows);
+        while (count > 0) {
+            column.asDouble(rows, count, values, missing);
+            for (int r = 0; r < count; r++) {
+                if (missing[r]) {
+                    this.missingCount++;
+                    continue;
+                }
 
-            String strVal = null;
-            double val = column.asDouble(currRow);
-            if (extractString)
-                strVal = column.getString(currRow);
-            if (this.presentCount == 0) {
-                this.min = val;
-                this.max = val;
+                String strVal = null;
+                double val = values[r];
+                if (extractString)
+                    strVal = column.getString(rows[r]);
+                if (this.presentCount == 0) {
+                    this.min = val;
+                    this.max = val;
+                    if (extractString) {
+                        this.minString = strVal;
+                        this.maxString = strVal;
+                    }
+                } else if (val < this.min) {
+                    this.min = val;
+                } else if (val > this.max) {
+                    this.max = val;
+                }
                 if (extractString) {
-                    this.minString = strVal;
-                    this.maxString = strVal;
+                    assert this.minString != null;
+                    assert strVal != null;
+                    if (this.minString.compareTo(strVal) < 0)
+                        this.minString = strVal;
+                    assert this.maxString != null;
+                    if (this.maxString.compareTo(strVal) < 0)
+                        this.maxString = strVal;
                 }
-            } else if (val < this.min) {
-                this.min = val;
-            } else if (val > this.max) {
-                this.max = val;
-            }
-            if (extractString) {
-                assert this.minString != null;
-                assert strVal != null;
-                if (this.minString.compareTo(strVal) < 0)
-                    this.minString = strVal;
-                assert this.maxString != null;
-                if (this.maxString.compareTo(strVal) < 0)
-                    this.maxString = strVal;
-            }
 
-            if (this.momentCount > 0) {
-                double tmpMoment = val;
-                double alpha = (double) this.presentCount / (double) (this.presentCount + 1);
-                double beta = 1.0 - alpha;
-                this.moments[0] = (alpha * this.moments[0]) + (beta * val);
-                for (int i = 1; i < this.momentCount; i++) {
-                    tmpMoment = tmpMoment * val;
-                    this.moments[i] = (alpha * this.moments[i]) + (beta * tmpMoment);
+                if (this.momentCount > 0) {
+                    double tmpMoment = val;
+                    double alpha = (double) this.presentCount / (double) (this.presentCount + 1);
+                    double beta = 1.0 - alpha;
+                    this.moments[0] = (alpha * this.moments[0]) + (beta * val);
+                    for (int i = 1; i < this.momentCount; i++) {
+                        tmpMoment = tmpMoment * val;
+                        this.moments[i] = (alpha * this.moments[i]) + (beta * tmpMoment);
+                    }
                 }
+                this.presentCount++;
             }
-            this.presentCount++;
-            currRow = myIter.getNextRow();
+            count = myIter.getNextRows(rows);
         }
     }
 
@@ -19,8 +19,12 @@ package org.hillview.sketches;
 
 import org.hillview.dataset.api.ISketch;
 import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IMembershipSet;
 import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ITable;
+import org.hillview.table.columns.ZoneMap;
+import org.hillview.table.membership.FullMembershipSet;
+import org.hillview.table.membership.RangeMembershipSet;
 
 import javax.annotation.Nullable;
 
@@ -38,17 +42,63 @@ public class DoubleDataRangeSketch implements ISketch<ITable, DataRange> {
     @Override
     public DataRange create(final ITable data) {
         IColumn column = data.getLoadedColumn(this.col);
+        IMembershipSet members = data.getMembershipSet();
+        ZoneMap zoneMap = column.getZoneMap();
+        if (zoneMap != null) {
+            if (members instanceof FullMembershipSet)
+                return createFromZoneMap(column, zoneMap, 0, members.getSize());
+            if (members instanceof RangeMembershipSet) {
+                RangeMembershipSet range = (RangeMembershipSet)members;
+                return createFromZoneMap(column, zoneMap, range.getStart(), range.getEnd());
+            }
+        }
+        DataRange result = new DataRange();
+        addRows(column, members.getIterator(), result);
+        return result;
+    }
+
+    private static void addRows(IColumn column, IRowIterator myIter, DataRange result) {
+        final int[] rows = new int[IRowIterator.BATCH_SIZE];
+        final double[] values = new double[IRowIterator.BATCH_SIZE];
+        final boolean[] missing = new boolean[IRowIterator.BATCH_SIZE];
+        int count = myIter.getNextRows(rows);
+        while (count > 0) {
+            column.asDouble(rows, count, values, missing);
+            for (int i = 0; i < count; i++) {
+                if (!missing[i])
+                    result.add(values[i]);
+                else
+                    result.addMissing();
+            }
+            count = myIter.getNextRows(rows);
+        }
+    }
+
+    /**
+     * Computes the range of the rows between start and end using the summaries
+     * of the blocks that are entirely in the range; the other rows are scanned.
+     */
+    private static DataRange createFromZoneMap(
+            IColumn column, ZoneMap zoneMap, int start, int end) {
         DataRange result = new DataRange();
-        final IRowIterator myIter = data.getMembershipSet().getIterator();
-        int currRow = myIter.getNextRow();
-        while (currRow >= 0) {
-            if (!column.isMissing(currRow)) {
-                double val = column.asDouble(currRow);
-                result.add(val);
+        int row = start;
+        while (row < end) {
+            int block = row >>> ZoneMap.LogBlockSize;
+            int blockStart = block << ZoneMap.LogBlockSize;
+            int blockEnd = Math.min(end, blockStart + ZoneMap.BlockSize);
+            if (row == blockStart && blockEnd == blockStart + zoneMap.getBlockRows(block) &&
+                    !zoneMap.hasNaN(block)) {
+                DataRange blockRange = new DataRange();
+                blockRange.missingCount = zoneMap.getMissingCount(block);
+                blockRange.presentCount = zoneMap.getBlockRows(block) - blockRange.missingCount;
+                blockRange.min = zoneMap.getMin(block);
+                blockRange.max = zoneMap.getMax(block);
+                result = result.add(blockRange);
             } else {
-                result.addMissing();
+                addRows(column, new RangeMembershipSet(row, blockEnd, zoneMap.getRowCount()).getIterator(),
+                        result);
             }
-            currRow = myIter.getNextRow();
+            row = blockEnd;
         }
         return result;
     }
@@ -17,8 +17,14 @@
 
 package org.hillview.sketches;
 
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
 import org.hillview.table.api.IColumn;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * Buckets for computing a histogram of data that can be converted to a double.
  * The last bucket is right-inclusive.
@@ -54,6 +60,30 @@ public class DoubleHistogramBuckets implements IHistogramBuckets {
         return this.indexOf(item);
     }
 
+    @Override
+    public void indexOf(IColumn column, int[] rows, int count,
+                        double[] values, boolean[] missing, int[] indexes) {
+        column.asDouble(rows, count, values, missing);
+        for (int i = 0; i < count; i++)
+            indexes[i] = this.indexOf(values[i]);
+    }
+
     @Override
     public int getNumOfBuckets() { return this.numOfBuckets; }
+
+    public static class Codec implements IBinaryCodec<DoubleHistogramBuckets> {
+        @Override
+        public void encode(DoubleHistogramBuckets value, DataOutput out) throws IOException {
+            out.writeDouble(value.minValue);
+            out.writeDouble(value.maxValue);
+            BinaryCodecs.writeVarInt(out, value.numOfBuckets);
+        }
+
+        @Override
+        public DoubleHistogramBuckets decode(DataInput in) throws IOException {
+            double min = in.readDouble();
+            double max = in.readDouble();
+            return new DoubleHistogramBuckets(min, max, BinaryCodecs.readVarInt(in));
+        }
+    }
 }
@@ -23,6 +23,8 @@ import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.hillview.dataset.api.ISketch;
 import org.hillview.table.Schema;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IDictionaryColumn;
 import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ITable;
 import org.hillview.table.rows.BaseRowSnapshot;
@@ -31,6 +33,7 @@ import org.hillview.table.rows.VirtualRowSnapshot;
 import org.hillview.utils.Converters;
 
 import javax.annotation.Nullable;
+import java.util.HashMap;
 import java.util.List;
 
 /**
@@ -80,6 +83,12 @@ public class ExactFreqSketch implements ISketch<ITable, FreqKListExact> {
     @Override
     public FreqKListExact create(ITable data) {
         data.getColumns(this.schema);
+        if (this.schema.getColumnCount() == 1) {
+            IColumn col = data.getLoadedColumn(this.schema.getColumnNames().get(0));
+            IDictionaryColumn dictionary = IDictionaryColumn.asDictionary(col, data.getNumOfRows());
+            if (dictionary != null)
+                return this.createFromCodes(data, dictionary);
+        }
         Hash.Strategy<BaseRowSnapshot> hs = new Hash.Strategy<BaseRowSnapshot>() {
             @Override
             public int hashCode(BaseRowSnapshot brs) {
@@ -116,4 +125,23 @@ public class ExactFreqSketch implements ISketch<ITable, FreqKListExact> {
         this.rssList.forEach(rss -> hm.put(rss, hMap.getInt(rss)));
         return new FreqKListExact(data.getNumOfRows(), this.epsilon, hm, this.rssList);
     }
+
+    /**
+     * Computes the frequencies for a single dictionary column by counting the
+     * codes, and then looking up the code of each value in the list.
+     */
+    private FreqKListExact createFromCodes(ITable data, IDictionaryColumn column) {
+        String colName = column.getName();
+        int[] counts = column.countCodes(data.getRowIterator(), null);
+        HashMap<String, Integer> codes = new HashMap<String, Integer>(counts.length);
+        for (int code = 0; code < counts.length; code++)
+            if (counts[code] > 0)
+                codes.put(column.decode(code), code);
+        Object2IntOpenHashMap<RowSnapshot> hm = new Object2IntOpenHashMap<RowSnapshot>(this.rssList.size());
+        for (RowSnapshot rss : this.rssList) {
+            Integer code = codes.get(rss.getString(colName));
+            hm.put(rss, code == null ? 0 : counts[code]);
+        }
+        return new FreqKListExact(data.getNumOfRows(), this.epsilon, hm, this.rssList);
+    }
 }
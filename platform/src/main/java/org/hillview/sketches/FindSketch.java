@@ -26,11 +26,14 @@ import org.hillview.table.Schema;
 import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.IStringFilter;
 import org.hillview.table.api.ITable;
+import org.hillview.table.api.ITableFilter;
 import org.hillview.table.filters.StringFilterDescription;
 import org.hillview.table.filters.StringFilterFactory;
 import org.hillview.table.rows.RowSnapshot;
 import org.hillview.table.rows.VirtualRowSnapshot;
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 
 public class FindSketch implements ISketch<ITable, FindSketch.Result> {
     public static final class Result implements IJson {
@@ -165,6 +168,16 @@ public class FindSketch implements ISketch<ITable, FindSketch.Result> {
         this(stringFilterDescription, topRow, recordOrder, false, true);
     }
 
+    /**
+     * True if the row matches the filter in any of the columns.
+     */
+    private static boolean matches(List<ITableFilter> columnFilters, int rowIndex) {
+        for (ITableFilter filter : columnFilters)
+            if (filter.test(rowIndex))
+                return true;
+        return false;
+    }
+
     @Override
     public Result create(@Nullable ITable data) {
         assert(data != null);
@@ -174,13 +187,17 @@ public class FindSketch implements ISketch<ITable, FindSketch.Result> {
         IRowIterator rowIt = data.getRowIterator();
         Schema toCheck = this.recordOrder.toSchema();
         IStringFilter stringFilter = StringFilterFactory.getFilter(this.stringFilterDescription);
+        List<ITableFilter> columnFilters = new ArrayList<ITableFilter>();
+        for (String colName : toCheck.getColumnNames())
+            columnFilters.add(StringFilterFactory.getColumnFilter(
+                    data.getLoadedColumn(colName), stringFilter, data.getNumOfRows()));
         VirtualRowSnapshot vw = new VirtualRowSnapshot(data, toCheck);
         VirtualRowSnapshot smallestMatch = new VirtualRowSnapshot(data, toCheck);
         int compareTop, compareSmallest;
         for (int i = rowIt.getNextRow(); i >= 0; i = rowIt.getNextRow()) {
-            vw.setRow(i);
-            if (!vw.matches(stringFilter))
+            if (!matches(columnFilters, i))
                 continue;
+            vw.setRow(i);
             boolean match_before;
             if (this.topRow == null)
                 match_before = false;
@@ -2,9 +2,17 @@ package org.hillview.sketches;
 
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.hillview.dataset.api.Pair;
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
 import org.hillview.table.Schema;
 import org.hillview.table.rows.RowSnapshot;
 
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
 /**
  * This compute the Misra-Gries sketch for finding Heavy Hitters.
  */
@@ -60,4 +68,48 @@ public class FreqKListMG extends FreqKList {
         this.hMap.forEach((rs, j) -> this.pList.add(new Pair<RowSnapshot, Integer>(rs, j)));
         return this.sortTopK(schema);
     }
+
+    /**
+     * The rows usually share a schema, which is written only when it changes.
+     * The list of post-processed results is not written.
+     */
+    public static class Codec implements IBinaryCodec<FreqKListMG> {
+        @Override
+        public void encode(FreqKListMG value, DataOutput out) throws IOException {
+            BinaryCodecs.writeVarLong(out, value.totalRows);
+            out.writeDouble(value.epsilon);
+            BinaryCodecs.writeVarInt(out, value.maxSize);
+            BinaryCodecs.writeVarInt(out, value.hMap.size());
+            Schema previous = null;
+            for (Map.Entry<RowSnapshot, Integer> e : value.hMap.object2IntEntrySet()) {
+                Schema schema = e.getKey().getSchema();
+                boolean sameSchema = schema == previous ||
+                        (previous != null && schema.equals(previous));
+                out.writeBoolean(sameSchema);
+                if (!sameSchema)
+                    BinaryCodecs.writeSchema(out, schema);
+                previous = schema;
+                e.getKey().writeValues(out);
+                BinaryCodecs.writeVarInt(out, e.getValue());
+            }
+        }
+
+        @Override
+        public FreqKListMG decode(DataInput in) throws IOException {
+            long totalRows = BinaryCodecs.readVarLong(in);
+            double epsilon = in.readDouble();
+            int maxSize = BinaryCodecs.readVarInt(in);
+            int size = BinaryCodecs.readVarInt(in);
+            Object2IntOpenHashMap<RowSnapshot> hMap = new Object2IntOpenHashMap<RowSnapshot>(size);
+            @Nullable Schema schema = null;
+            for (int i = 0; i < size; i++) {
+                if (!in.readBoolean())
+                    schema = BinaryCodecs.readSchema(in);
+                assert schema != null;
+                RowSnapshot row = RowSnapshot.readValues(schema, in);
+                hMap.put(row, BinaryCodecs.readVarInt(in));
+            }
+            return new FreqKListMG(totalRows, epsilon, maxSize, hMap);
+        }
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.sketches;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.hillview.dataset.api.Pair;
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
+import org.hillview.table.Schema;
+import org.hillview.table.rows.RowSnapshot;
+
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * The result of the Space-Saving heavy hitters sketch.  The counts stored are
+ * upper bounds of the true counts.
+ */
+public class FreqKListSS extends FreqKList {
+    /**
+     * The number of counters we store.
+     */
+    public final int maxSize;
+    /**
+     * Every count stored exceeds the true count by at most errorBound, and every
+     * row that is not stored occurs at most errorBound times.
+     */
+    public final int errorBound;
+
+    public FreqKListSS(long totalRows, double epsilon, int maxSize, int errorBound,
+                       Object2IntOpenHashMap<RowSnapshot> hMap) {
+        super(totalRows, epsilon, hMap);
+        this.maxSize = maxSize;
+        this.errorBound = errorBound;
+    }
+
+    /**
+     * Keeps only the rows whose count is at least epsilon times the number of rows.
+     * Since the counts are over-estimates no heavy hitter is removed.
+     */
+    public void filter() {
+        this.fkFilter(this.epsilon * this.totalRows);
+    }
+
+    @Override
+    public NextKList getTop(Schema schema) {
+        this.filter();
+        this.hMap.forEach((rs, j) -> this.pList.add(new Pair<RowSnapshot, Integer>(rs, j)));
+        return this.sortTopK(schema);
+    }
+
+    /**
+     * The rows usually share a schema, which is written only when it changes.
+     */
+    public static class Codec implements IBinaryCodec<FreqKListSS> {
+        @Override
+        public void encode(FreqKListSS value, DataOutput out) throws IOException {
+            BinaryCodecs.writeVarLong(out, value.totalRows);
+            out.writeDouble(value.epsilon);
+            BinaryCodecs.writeVarInt(out, value.maxSize);
+            BinaryCodecs.writeVarInt(out, value.errorBound);
+            BinaryCodecs.writeVarInt(out, value.hMap.size());
+            Schema previous = null;
+            for (Map.Entry<RowSnapshot, Integer> e : value.hMap.object2IntEntrySet()) {
+                Schema schema = e.getKey().getSchema();
+                boolean sameSchema = schema == previous ||
+                        (previous != null && schema.equals(previous));
+                out.writeBoolean(sameSchema);
+                if (!sameSchema)
+                    BinaryCodecs.writeSchema(out, schema);
+                previous = schema;
+                e.getKey().writeValues(out);
+                BinaryCodecs.writeVarInt(out, e.getValue());
+            }
+        }
+
+        @Override
+        public FreqKListSS decode(DataInput in) throws IOException {
+            long totalRows = BinaryCodecs.readVarLong(in);
+            double epsilon = in.readDouble();
+            int maxSize = BinaryCodecs.readVarInt(in);
+            int errorBound = BinaryCodecs.readVarInt(in);
+            int size = BinaryCodecs.readVarInt(in);
+            Object2IntOpenHashMap<RowSnapshot> hMap = new Object2IntOpenHashMap<RowSnapshot>(size);
+            @Nullable Schema schema = null;
+            for (int i = 0; i < size; i++) {
+                if (!in.readBoolean())
+                    schema = BinaryCodecs.readSchema(in);
+                assert schema != null;
+                RowSnapshot row = RowSnapshot.readValues(schema, in);
+                hMap.put(row, BinaryCodecs.readVarInt(in));
+            }
+            return new FreqKListSS(totalRows, epsilon, maxSize, errorBound, hMap);
+        }
+    }
+}
@@ -23,6 +23,8 @@ import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import org.hillview.dataset.api.ISketch;
 import org.hillview.table.Schema;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IDictionaryColumn;
 import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ITable;
 import org.hillview.table.rows.RowSnapshot;
@@ -111,6 +113,12 @@ public class FreqKSketchMG implements ISketch<ITable, FreqKListMG> {
      */
     @Override
     public FreqKListMG create(ITable data) {
+        if (this.schema.getColumnCount() == 1) {
+            IColumn col = data.getLoadedColumn(this.schema.getColumnNames().get(0));
+            IDictionaryColumn dictionary = IDictionaryColumn.asDictionary(col, data.getNumOfRows());
+            if (dictionary != null)
+                return this.createFromCodes(data, dictionary);
+        }
         VirtualRowHashStrategy hashStrategy = new VirtualRowHashStrategy(data, this.schema);
         Int2ObjectOpenCustomHashMap<MutableInteger> hMap = new Int2ObjectOpenCustomHashMap<MutableInteger>(hashStrategy);
         IntSet toRemove = new IntOpenHashSet(this.maxSize);
@@ -153,4 +161,30 @@ public class FreqKSketchMG implements ISketch<ITable, FreqKListMG> {
         Object2IntOpenHashMap<RowSnapshot> hm = hashStrategy.materializeHashMap(hMap);
         return new FreqKListMG(data.getNumOfRows(), this.epsilon, this.maxSize, hm);
     }
+
+    /**
+     * Computes the sketch over a dictionary column by counting the codes exactly,
+     * and then keeping the maxSize most frequent values, with their counts
+     * reduced as in the add method.  Only the values kept are materialized.
+     */
+    private FreqKListMG createFromCodes(ITable data, IDictionaryColumn column) {
+        int[] firstRows = new int[column.getDictionarySize()];
+        int[] counts = column.countCodes(data.getRowIterator(), firstRows);
+        IntArrayList present = new IntArrayList();
+        for (int code = 0; code < counts.length; code++)
+            if (counts[code] > 0)
+                present.add(code);
+        int[] codes = present.toIntArray();
+        IntArrays.quickSort(codes, (a, b) -> Integer.compare(counts[b], counts[a]));
+        int k = 0;
+        if (codes.length >= (this.maxSize + 1))
+            k = counts[codes[this.maxSize]];
+        Object2IntOpenHashMap<RowSnapshot> hm = new Object2IntOpenHashMap<RowSnapshot>(this.maxSize);
+        for (int i = 0; i < Math.min(this.maxSize, codes.length); i++) {
+            int count = counts[codes[i]];
+            if (count >= (k + 1))
+                hm.put(new RowSnapshot(data, firstRows[codes[i]], this.schema), count - k);
+        }
+        return new FreqKListMG(data.getNumOfRows(), this.epsilon, this.maxSize, hm);
+    }
 }
@@ -0,0 +1,407 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.sketches;
+
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import org.hillview.dataset.api.ISketch;
+import org.hillview.table.Schema;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IDictionaryColumn;
+import org.hillview.table.api.IRowIterator;
+import org.hillview.table.api.ITable;
+import org.hillview.table.rows.RowSnapshot;
+import org.hillview.table.rows.VirtualRowHashStrategy;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Computes heavy hitters using the Space-Saving algorithm of Metwally et al.
+ * ("Efficient computation of frequent and top-k elements in data streams").
+ * It maintains maxSize counters; a row which has no counter replaces the row
+ * with the smallest count, and inherits its count.  The counters are kept in a
+ * Stream-Summary: a list of buckets sorted by count, where each bucket holds the
+ * counters with the same count, so each row is processed in constant time.
+ * Counts are over-estimates; every row with frequency greater than N/maxSize appears
+ * in the result.  Sketches are merged as in "Parallel Space Saving" by Cafaro et al.
+ */
+public class FreqKSketchSS implements ISketch<ITable, FreqKListSS> {
+    /**
+     * The schema specifies which columns are relevant in determining equality of records.
+     */
+    private final Schema schema;
+    /**
+     * Our goal is to find all elements that constitute more than an epsilon fraction of the total.
+     */
+    private final double epsilon;
+    /**
+     * Controls the error of the counts, which is at most N/maxSize.
+     * We use the same value as FreqKSketchMG.
+     */
+    private static final int alpha = 5;
+    /**
+     * The number of counters.
+     */
+    private final int maxSize;
+
+    public FreqKSketchSS(Schema schema, double epsilon) {
+        this.schema = schema;
+        this.epsilon = epsilon;
+        this.maxSize = ((int) Math.ceil(alpha/epsilon));
+    }
+
+    public FreqKSketchSS(Schema schema, int maxSize) {
+        this.schema = schema;
+        this.epsilon = 1.0/maxSize;
+        this.maxSize = ((int) Math.ceil(alpha/epsilon));
+    }
+
+    @Nullable
+    @Override
+    public FreqKListSS zero() {
+        return new FreqKListSS(0, this.epsilon, this.maxSize, 0,
+                new Object2IntOpenHashMap<RowSnapshot>(0));
+    }
+
+    /**
+     * Adds the counts of the two lists; a row missing from one list is counted as
+     * if it occurred errorBound times in that list.  Only the maxSize largest counts
+     * are kept.
+     */
+    @Override
+    public FreqKListSS add(@Nullable FreqKListSS left, @Nullable FreqKListSS right) {
+        assert left != null;
+        assert right != null;
+        Object2IntOpenHashMap<RowSnapshot> sum =
+                new Object2IntOpenHashMap<RowSnapshot>(left.hMap.size() + right.hMap.size());
+        for (ObjectIterator<Object2IntMap.Entry<RowSnapshot>> it =
+             left.hMap.object2IntEntrySet().fastIterator(); it.hasNext(); ) {
+            Object2IntMap.Entry<RowSnapshot> e = it.next();
+            int other = right.hMap.containsKey(e.getKey()) ?
+                    right.hMap.getInt(e.getKey()) : right.errorBound;
+            sum.put(e.getKey(), e.getIntValue() + other);
+        }
+        for (ObjectIterator<Object2IntMap.Entry<RowSnapshot>> it =
+             right.hMap.object2IntEntrySet().fastIterator(); it.hasNext(); ) {
+            Object2IntMap.Entry<RowSnapshot> e = it.next();
+            if (!left.hMap.containsKey(e.getKey()))
+                sum.put(e.getKey(), e.getIntValue() + left.errorBound);
+        }
+        int errorBound = left.errorBound + right.errorBound;
+        long totalRows = left.totalRows + right.totalRows;
+        if (sum.size() <= this.maxSize)
+            return new FreqKListSS(totalRows, this.epsilon, this.maxSize, errorBound, sum);
+
+        List<Object2IntMap.Entry<RowSnapshot>> entries =
+                new ArrayList<Object2IntMap.Entry<RowSnapshot>>(sum.object2IntEntrySet());
+        entries.sort((a, b) -> Integer.compare(b.getIntValue(), a.getIntValue()));
+        // The rows dropped occur at most as many times as the largest count dropped.
+        errorBound = Math.max(errorBound, entries.get(this.maxSize).getIntValue());
+        Object2IntOpenHashMap<RowSnapshot> hm = new Object2IntOpenHashMap<RowSnapshot>(this.maxSize);
+        for (int i = 0; i < this.maxSize; i++)
+            hm.put(entries.get(i).getKey(), entries.get(i).getIntValue());
+        return new FreqKListSS(totalRows, this.epsilon, this.maxSize, errorBound, hm);
+    }
+
+    @Override
+    public FreqKListSS create(ITable data) {
+        if (this.schema.getColumnCount() == 1) {
+            IColumn col = data.getLoadedColumn(this.schema.getColumnNames().get(0));
+            IDictionaryColumn dictionary = IDictionaryColumn.asDictionary(col, data.getNumOfRows());
+            if (dictionary != null)
+                return this.createFromCodes(data, dictionary);
+        }
+        StreamSummary summary = new StreamSummary(
+                this.maxSize, new VirtualRowHashStrategy(data, this.schema));
+        IRowIterator rowIt = data.getRowIterator();
+        for (int i = rowIt.getNextRow(); i != -1; i = rowIt.getNextRow()) {
+            int hash = summary.hash(i);
+            int counter = summary.find(i, hash);
+            if (counter >= 0)
+                summary.increment(counter);
+            else if (summary.size() < this.maxSize)
+                summary.add(i, hash);
+            else
+                summary.replace(summary.getMinCounter(), i, hash);
+        }
+        int errorBound = summary.size() < this.maxSize ? 0 : summary.getMinCount();
+        Object2IntOpenHashMap<RowSnapshot> hm = new Object2IntOpenHashMap<RowSnapshot>(summary.size());
+        for (int c = 0; c < summary.size(); c++)
+            hm.put(new RowSnapshot(data, summary.getRow(c), this.schema), summary.getCount(c));
+        return new FreqKListSS(data.getNumOfRows(), this.epsilon, this.maxSize, errorBound, hm);
+    }
+
+    /**
+     * Computes the sketch over a dictionary column by counting the codes exactly
+     * and keeping the maxSize most frequent values.
+     */
+    private FreqKListSS createFromCodes(ITable data, IDictionaryColumn column) {
+        int[] firstRows = new int[column.getDictionarySize()];
+        int[] counts = column.countCodes(data.getRowIterator(), firstRows);
+        IntArrayList present = new IntArrayList();
+        for (int code = 0; code < counts.length; code++)
+            if (counts[code] > 0)
+                present.add(code);
+        int[] codes = present.toIntArray();
+        IntArrays.quickSort(codes, (a, b) -> Integer.compare(counts[b], counts[a]));
+        int errorBound = 0;
+        if (codes.length > this.maxSize)
+            errorBound = counts[codes[this.maxSize]];
+        int kept = Math.min(this.maxSize, codes.length);
+        Object2IntOpenHashMap<RowSnapshot> hm = new Object2IntOpenHashMap<RowSnapshot>(kept);
+        for (int i = 0; i < kept; i++)
+            hm.put(new RowSnapshot(data, firstRows[codes[i]], this.schema), counts[codes[i]]);
+        return new FreqKListSS(data.getNumOfRows(), this.epsilon, this.maxSize, errorBound, hm);
+    }
+
+    /**
+     * A set of counters sorted by count.  Counters with the same count belong
+     * to the same bucket; buckets form a doubly-linked list sorted by count,
+     * and the counters in a bucket form a doubly-linked list.  All links
+     * are indexes in arrays.  The counters are indexed by row in an open-addressing
+     * hash table which stores the hash of each counter's row, so a row that replaces
+     * another one is hashed only once.
+     */
+    private static class StreamSummary {
+        private final VirtualRowHashStrategy strategy;
+
+        // Counters
+        private final int[] row;
+        private final int[] hash;
+        private final int[] bucket;
+        private final int[] nextCounter;
+        private final int[] prevCounter;
+        private int size;
+
+        // Buckets
+        private final int[] count;
+        private final int[] firstCounter;
+        private final int[] nextBucket;
+        private final int[] prevBucket;
+        /**
+         * Buckets that are not in use.
+         */
+        private final int[] freeBuckets;
+        private int freeCount;
+        /**
+         * Bucket with the smallest count; -1 if there are no counters.
+         */
+        private int minBucket;
+
+        /**
+         * Hash table with linear probing; contains counter indexes, or -1 for empty slots.
+         */
+        private final int[] table;
+        private final int mask;
+
+        StreamSummary(int capacity, VirtualRowHashStrategy strategy) {
+            this.strategy = strategy;
+            this.row = new int[capacity];
+            this.hash = new int[capacity];
+            this.bucket = new int[capacity];
+            this.nextCounter = new int[capacity];
+            this.prevCounter = new int[capacity];
+            this.size = 0;
+            this.count = new int[capacity];
+            this.firstCounter = new int[capacity];
+            this.nextBucket = new int[capacity];
+            this.prevBucket = new int[capacity];
+            this.freeBuckets = new int[capacity];
+            for (int i = 0; i < capacity; i++)
+                this.freeBuckets[i] = capacity - i - 1;
+            this.freeCount = capacity;
+            this.minBucket = -1;
+            this.table = new int[HashCommon.arraySize(capacity, .5f)];
+            Arrays.fill(this.table, -1);
+            this.mask = this.table.length - 1;
+        }
+
+        int hash(int row) {
+            return HashCommon.mix(this.strategy.hashCode(row));
+        }
+
+        /**
+         * Returns the counter of a row, or -1 if the row has no counter.
+         * @param row   Row index.
+         * @param hash  Hash of the row, as returned by hash().
+         */
+        int find(int row, int hash) {
+            for (int pos = hash & this.mask; ; pos = (pos + 1) & this.mask) {
+                int counter = this.table[pos];
+                if (counter < 0)
+                    return -1;
+                if (this.hash[counter] == hash && this.strategy.equals(this.row[counter], row))
+                    return counter;
+            }
+        }
+
+        private void insert(int counter) {
+            int pos = this.hash[counter] & this.mask;
+            while (this.table[pos] >= 0)
+                pos = (pos + 1) & this.mask;
+            this.table[pos] = counter;
+        }
+
+        /**
+         * Removes a counter from the hash table, shifting the following entries
+         * back so that no probe sequence is broken.
+         */
+        private void remove(int counter) {
+            int pos = this.hash[counter] & this.mask;
+            while (this.table[pos] != counter)
+                pos = (pos + 1) & this.mask;
+            while (true) {
+                int last = pos;
+                int current;
+                while (true) {
+                    pos = (pos + 1) & this.mask;
+                    current = this.table[pos];
+                    if (current < 0) {
+                        this.table[last] = -1;
+                        return;
+                    }
+                    int slot = this.hash[current] & this.mask;
+                    // Move the entry back unless its home slot lies cyclically in (last, pos].
+                    if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos)
+                        break;
+                }
+                this.table[last] = current;
+            }
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        int getRow(int counter) {
+            return this.row[counter];
+        }
+
+        int getCount(int counter) {
+            return this.count[this.bucket[counter]];
+        }
+
+        int getMinCounter() {
+            return this.firstCounter[this.minBucket];
+        }
+
+        int getMinCount() {
+            return this.count[this.minBucket];
+        }
+
+        /**
+         * Adds a counter with count 1 for the specified row.
+         */
+        void add(int row, int hash) {
+            int counter = this.size++;
+            this.row[counter] = row;
+            this.hash[counter] = hash;
+            this.insert(counter);
+            int b = this.minBucket;
+            if (b < 0 || this.count[b] != 1)
+                b = this.newBucket(1, -1, b);
+            this.link(counter, b);
+        }
+
+        /**
+         * Assigns the counter to a new row and increments it.
+         */
+        void replace(int counter, int row, int hash) {
+            this.remove(counter);
+            this.row[counter] = row;
+            this.hash[counter] = hash;
+            this.insert(counter);
+            this.increment(counter);
+        }
+
+        void increment(int counter) {
+            int b = this.bucket[counter];
+            int newCount = this.count[b] + 1;
+            int next = this.nextBucket[b];
+            if (next >= 0 && this.count[next] == newCount) {
+                this.unlink(counter);
+                this.link(counter, next);
+            } else if (this.firstCounter[b] == counter && this.nextCounter[counter] < 0) {
+                // The only counter in the bucket.
+                this.count[b] = newCount;
+                return;
+            } else {
+                this.unlink(counter);
+                this.link(counter, this.newBucket(newCount, b, next));
+            }
+            if (this.firstCounter[b] < 0)
+                this.freeBucket(b);
+        }
+
+        private int newBucket(int count, int prev, int next) {
+            int b = this.freeBuckets[--this.freeCount];
+            this.count[b] = count;
+            this.firstCounter[b] = -1;
+            this.prevBucket[b] = prev;
+            this.nextBucket[b] = next;
+            if (prev >= 0)
+                this.nextBucket[prev] = b;
+            else
+                this.minBucket = b;
+            if (next >= 0)
+                this.prevBucket[next] = b;
+            return b;
+        }
+
+        private void freeBucket(int b) {
+            int prev = this.prevBucket[b];
+            int next = this.nextBucket[b];
+            if (prev >= 0)
+                this.nextBucket[prev] = next;
+            else
+                this.minBucket = next;
+            if (next >= 0)
+                this.prevBucket[next] = prev;
+            this.freeBuckets[this.freeCount++] = b;
+        }
+
+        private void link(int counter, int b) {
+            int first = this.firstCounter[b];
+            this.bucket[counter] = b;
+            this.prevCounter[counter] = -1;
+            this.nextCounter[counter] = first;
+            if (first >= 0)
+                this.prevCounter[first] = counter;
+            this.firstCounter[b] = counter;
+        }
+
+        private void unlink(int counter) {
+            int b = this.bucket[counter];
+            int prev = this.prevCounter[counter];
+            int next = this.nextCounter[counter];
+            if (prev >= 0)
+                this.nextCounter[prev] = next;
+            else
+                this.firstCounter[b] = next;
+            if (next >= 0)
+                this.prevCounter[next] = prev;
+        }
+    }
+}
@@ -67,12 +67,16 @@ public class HLogLog implements IJson {
     public void createHLL(IColumn column, IMembershipSet memSet) {
         final IRowIterator myIter = memSet.getIterator();
         LongHashFunction hash = LongHashFunction.xx(this.seed);
-        int currRow = myIter.getNextRow();
-        while (currRow >= 0) {
-            if (!column.isMissing(currRow)) {
-                this.add(column.hashCode64(currRow, hash));
-             }
-            currRow = myIter.getNextRow();
+        final int[] rows = new int[IRowIterator.BATCH_SIZE];
+        final long[] hashes = new long[IRowIterator.BATCH_SIZE];
+        final boolean[] missing = new boolean[IRowIterator.BATCH_SIZE];
+        int count = myIter.getNextRows(rows);
+        while (count > 0) {
+            column.hashCode64(rows, count, hash, hashes, missing);
+            for (int i = 0; i < count; i++)
+                if (!missing[i])
+                    this.add(hashes[i]);
+            count = myIter.getNextRows(rows);
         }
         this.distinctItemsEstimator();
     }
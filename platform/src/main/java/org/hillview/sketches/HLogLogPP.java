@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.sketches;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import org.hillview.dataset.api.IJson;
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
+
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Approximates the number of distinct elements using the HyperLogLog++ algorithm of
+ * Heule et al. ("HyperLogLog in practice").  Elements are identified by 64-bit hashes.
+ * For small cardinalities the data structure is sparse: it stores a sorted list of
+ * (index, rank) pairs computed with a precision of SparsePrecision bits, and the count
+ * is estimated using linear counting.  When the sparse list becomes larger than
+ * the registers it is converted to the usual dense array of 2^logRegNum registers.
+ * The raw HyperLogLog estimate is corrected using an empirical bias, which is
+ * computed once for each precision by simulation.
+ */
+public class HLogLogPP implements IJson {
+    /**
+     * Precision of the sparse representation.  A sparse entry holds the index
+     * in the upper 25 bits and the rank in the lower 6 bits.
+     */
+    static final int SparsePrecision = 25;
+    private static final int RankBits = 6;
+
+    private final int logRegNum;
+    private final long seed;
+    /**
+     * Registers of the dense representation; null while the representation is sparse.
+     */
+    @Nullable
+    private byte[] registers;
+    /**
+     * Sorted sparse entries, at most one for each sparse index.
+     */
+    @Nullable
+    private int[] sparse;
+    private int sparseSize;
+    /**
+     * Sparse entries that have not been merged into the sorted list yet.
+     */
+    @Nullable
+    private int[] buffer;
+    private int bufferSize;
+    public long distinctItemCount; // Field so that value is accessible after serializing
+
+    /**
+     * @param logRegNum the logarithm of the number of registers; should be in 4...18.
+     */
+    public HLogLogPP(int logRegNum, long seed) {
+        HLogLogPP.checkSpaceValid(logRegNum);
+        this.logRegNum = logRegNum;
+        this.seed = seed;
+        this.registers = null;
+        this.sparse = new int[0];
+        this.sparseSize = 0;
+        this.buffer = null;
+        this.bufferSize = 0;
+    }
+
+    public static void checkSpaceValid(int logSpaceSize) {
+        if ((logSpaceSize > 18) || (logSpaceSize < 4))
+            throw new IllegalArgumentException("HLogLogPP initialized with logSpaceSize out of range");
+    }
+
+    public long getSeed() {
+        return this.seed;
+    }
+
+    public boolean isSparse() {
+        return this.registers == null;
+    }
+
+    private int getRegNum() {
+        return 1 << this.logRegNum;
+    }
+
+    /**
+     * Number of sparse entries beyond which the dense representation is smaller:
+     * a sparse entry takes up to 4 bytes, and a register 6 bits when serialized.
+     */
+    private int getSparseLimit() {
+        return this.getRegNum() * 3 / 16;
+    }
+
+    /**
+     * Adds an element with the specified hash.
+     * @param hash a random 64-bit hash of the element.
+     */
+    public void add(long hash) {
+        if (this.registers != null) {
+            int index = (int)(hash >>> (Long.SIZE - this.logRegNum));
+            byte rank = (byte)(Long.numberOfLeadingZeros(
+                    (hash << this.logRegNum) | (1L << (this.logRegNum - 1))) + 1);
+            if (rank > this.registers[index])
+                this.registers[index] = rank;
+            return;
+        }
+        int index = (int)(hash >>> (Long.SIZE - SparsePrecision));
+        int rank = Long.numberOfLeadingZeros(
+                (hash << SparsePrecision) | (1L << (SparsePrecision - 1))) + 1;
+        if (this.buffer == null)
+            this.buffer = new int[this.getSparseLimit() / 4 + 1];
+        this.buffer[this.bufferSize++] = (index << RankBits) | rank;
+        if (this.bufferSize == this.buffer.length)
+            this.flush();
+    }
+
+    /**
+     * Merges the buffered entries into the sorted sparse list, converting to the
+     * dense representation if the list becomes too large.
+     */
+    private void flush() {
+        if (this.bufferSize == 0 || this.sparse == null || this.buffer == null)
+            return;
+        IntArrays.quickSort(this.buffer, 0, this.bufferSize);
+        this.sparse = mergeSparse(this.sparse, this.sparseSize, this.buffer, this.bufferSize);
+        this.sparseSize = this.sparse.length;
+        this.bufferSize = 0;
+        if (this.sparseSize > this.getSparseLimit())
+            this.toDense();
+    }
+
+    /**
+     * Merges two sorted lists of sparse entries; for each index only the entry with
+     * the largest rank is kept.
+     */
+    private static int[] mergeSparse(int[] left, int leftSize, int[] right, int rightSize) {
+        int[] result = new int[leftSize + rightSize];
+        int size = 0;
+        int l = 0, r = 0;
+        while (l < leftSize || r < rightSize) {
+            int next;
+            if (r == rightSize || (l < leftSize && left[l] <= right[r]))
+                next = left[l++];
+            else
+                next = right[r++];
+            // Entries with the same index are sorted by rank, so the last one is kept.
+            if (size > 0 && (result[size - 1] >>> RankBits) == (next >>> RankBits))
+                result[size - 1] = next;
+            else
+                result[size++] = next;
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private void toDense() {
+        assert this.sparse != null;
+        byte[] registers = new byte[this.getRegNum()];
+        for (int i = 0; i < this.sparseSize; i++)
+            this.addSparseEntry(registers, this.sparse[i]);
+        this.registers = registers;
+        this.sparse = null;
+        this.sparseSize = 0;
+        this.buffer = null;
+        this.bufferSize = 0;
+    }
+
+    /**
+     * Updates the dense registers with a sparse entry.
+     */
+    private void addSparseEntry(byte[] registers, int entry) {
+        int index = entry >>> RankBits;
+        int extraBits = SparsePrecision - this.logRegNum;
+        int register = index >>> extraBits;
+        int low = index & ((1 << extraBits) - 1);
+        int rank;
+        if (low != 0)
+            rank = Integer.numberOfLeadingZeros(low) - (Integer.SIZE - extraBits) + 1;
+        else
+            rank = extraBits + (entry & ((1 << RankBits) - 1));
+        if (rank > registers[register])
+            registers[register] = (byte)rank;
+    }
+
+    public HLogLogPP union(HLogLogPP other) {
+        if ((other.logRegNum != this.logRegNum) || (other.seed != this.seed))
+            throw new IllegalArgumentException("attempted union of non matching HLogLogPP classes");
+        this.flush();
+        other.flush();
+        HLogLogPP result = new HLogLogPP(this.logRegNum, this.seed);
+        if (this.sparse != null && other.sparse != null) {
+            result.sparse = mergeSparse(this.sparse, this.sparseSize, other.sparse, other.sparseSize);
+            result.sparseSize = result.sparse.length;
+            if (result.sparseSize > result.getSparseLimit())
+                result.toDense();
+        } else {
+            byte[] registers = new byte[this.getRegNum()];
+            for (HLogLogPP h : new HLogLogPP[] { this, other }) {
+                if (h.registers != null) {
+                    for (int i = 0; i < registers.length; i++)
+                        if (h.registers[i] > registers[i])
+                            registers[i] = h.registers[i];
+                } else {
+                    assert h.sparse != null;
+                    for (int i = 0; i < h.sparseSize; i++)
+                        this.addSparseEntry(registers, h.sparse[i]);
+                }
+            }
+            result.registers = registers;
+            result.sparse = null;
+        }
+        result.distinctItemsEstimator();
+        return result;
+    }
+
+    /**
+     * @return an estimation of the number of distinct items
+     */
+    public long distinctItemsEstimator() {
+        this.flush();
+        long result;
+        if (this.registers == null) {
+            // Linear counting with the precision of the sparse representation.
+            double m = 1 << SparsePrecision;
+            result = Math.round(m * Math.log(m / (m - this.sparseSize)));
+        } else {
+            int m = this.getRegNum();
+            int zeros = 0;
+            for (byte r : this.registers)
+                if (r == 0)
+                    zeros++;
+            double estimate = rawEstimate(this.registers, this.logRegNum);
+            if (estimate <= 5 * m)
+                estimate = Math.max(0, estimate - Bias.estimateBias(this.logRegNum, estimate));
+            if (zeros > 0) {
+                double linear = m * Math.log(m / (double)zeros);
+                if (linear <= Bias.threshold[this.logRegNum - 4])
+                    estimate = linear;
+            }
+            result = Math.round(estimate);
+        }
+        this.distinctItemCount = result;
+        return result;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16: return 0.673;
+            case 32: return 0.697;
+            case 64: return 0.709;
+            default: return 0.7213 / (1 + (1.079 / m));
+        }
+    }
+
+    private static double rawEstimate(byte[] registers, int logRegNum) {
+        double sum = 0;
+        for (byte r : registers)
+            sum += Bias.inversePowers[r];
+        int m = 1 << logRegNum;
+        return alpha(m) * m * m / sum;
+    }
+
+    /**
+     * Only the estimate is sent to the front-end.
+     */
+    @Override
+    public JsonElement toJsonTree() {
+        JsonObject result = new JsonObject();
+        result.addProperty("distinctItemCount", this.distinctItemCount);
+        return result;
+    }
+
+    /**
+     * Empirical bias of the raw HyperLogLog estimate, for raw estimates up to 5m.
+     * Instead of using the tables published with the algorithm, the bias is measured
+     * for each precision the first time it is needed, by simulating the insertion of
+     * random hashes with a fixed seed.
+     */
+    private static class Bias {
+        /**
+         * Linear counting is used below these cardinalities, for precisions 4 to 18.
+         */
+        static final int[] threshold = { 10, 20, 40, 80, 220, 400, 900, 1800, 3100,
+                6500, 11500, 20000, 50000, 120000, 350000 };
+        static final double[] inversePowers = new double[Long.SIZE + 2];
+        private static final int points = 200;
+        private static final int neighbors = 6;
+        private static final double[][] rawEstimates = new double[19][];
+        private static final double[][] biases = new double[19][];
+
+        static {
+            for (int i = 0; i < inversePowers.length; i++)
+                inversePowers[i] = Math.pow(2, -i);
+        }
+
+        /**
+         * Interpolates the bias for a raw estimate from the nearest measured raw estimates.
+         */
+        static double estimateBias(int logRegNum, double estimate) {
+            computeBias(logRegNum);
+            double[] raw = rawEstimates[logRegNum];
+            double[] bias = biases[logRegNum];
+            int right = Arrays.binarySearch(raw, estimate);
+            if (right < 0)
+                right = -right - 1;
+            int left = right - 1;
+            double sum = 0;
+            for (int i = 0; i < neighbors; i++) {
+                if (right >= raw.length ||
+                        (left >= 0 && estimate - raw[left] < raw[right] - estimate))
+                    sum += bias[left--];
+                else
+                    sum += bias[right++];
+            }
+            return sum / neighbors;
+        }
+
+        private static synchronized void computeBias(int logRegNum) {
+            if (rawEstimates[logRegNum] != null)
+                return;
+            int m = 1 << logRegNum;
+            int runs = Math.max(10, (1 << 20) / m);
+            long[] cardinality = new long[points];
+            for (int point = 0; point < points; point++)
+                cardinality[point] = Math.round((point + 1) * 5.0 * m / points);
+            double[] raw = new double[points];
+            SplittableRandom random = new SplittableRandom(logRegNum);
+            for (int run = 0; run < runs; run++) {
+                byte[] registers = new byte[m];
+                double sum = m;
+                long inserted = 0;
+                for (int point = 0; point < points; point++) {
+                    for (; inserted < cardinality[point]; inserted++) {
+                        long hash = random.nextLong();
+                        int index = (int)(hash >>> (Long.SIZE - logRegNum));
+                        byte rank = (byte)(Long.numberOfLeadingZeros(
+                                (hash << logRegNum) | (1L << (logRegNum - 1))) + 1);
+                        if (rank > registers[index]) {
+                            sum += inversePowers[rank] - inversePowers[registers[index]];
+                            registers[index] = rank;
+                        }
+                    }
+                    raw[point] += alpha(m) * m * m / sum;
+                }
+            }
+            double[] bias = new double[points];
+            for (int point = 0; point < points; point++) {
+                raw[point] /= runs;
+                bias[point] = raw[point] - cardinality[point];
+            }
+            // The raw estimates grow with the cardinality; sort them in case of noise.
+            for (int i = 1; i < points; i++)
+                if (raw[i] < raw[i - 1])
+                    raw[i] = raw[i - 1];
+            biases[logRegNum] = bias;
+            rawEstimates[logRegNum] = raw;
+        }
+    }
+
+    /**
+     * Sparse entries are written as differences between consecutive entries;
+     * registers are written using 6 bits each.
+     */
+    public static class Codec implements IBinaryCodec<HLogLogPP> {
+        @Override
+        public void encode(HLogLogPP value, DataOutput out) throws IOException {
+            value.flush();
+            BinaryCodecs.writeVarInt(out, value.logRegNum);
+            out.writeLong(value.seed);
+            BinaryCodecs.writeVarLong(out, value.distinctItemCount);
+            out.writeBoolean(value.registers == null);
+            if (value.registers == null) {
+                assert value.sparse != null;
+                BinaryCodecs.writeVarInt(out, value.sparseSize);
+                int previous = 0;
+                for (int i = 0; i < value.sparseSize; i++) {
+                    BinaryCodecs.writeVarInt(out, value.sparse[i] - previous);
+                    previous = value.sparse[i];
+                }
+            } else {
+                int bits = 0;
+                int bitCount = 0;
+                for (byte r : value.registers) {
+                    bits |= r << bitCount;
+                    bitCount += RankBits;
+                    while (bitCount >= Byte.SIZE) {
+                        out.writeByte(bits);
+                        bits >>>= Byte.SIZE;
+                        bitCount -= Byte.SIZE;
+                    }
+                }
+                if (bitCount > 0)
+                    out.writeByte(bits);
+            }
+        }
+
+        @Override
+        public HLogLogPP decode(DataInput in) throws IOException {
+            int logRegNum = BinaryCodecs.readVarInt(in);
+            long seed = in.readLong();
+            HLogLogPP result = new HLogLogPP(logRegNum, seed);
+            result.distinctItemCount = BinaryCodecs.readVarLong(in);
+            boolean sparse = in.readBoolean();
+            if (sparse) {
+                int size = BinaryCodecs.readVarInt(in);
+                int[] entries = new int[size];
+                int previous = 0;
+                for (int i = 0; i < size; i++) {
+                    previous += BinaryCodecs.readVarInt(in);
+                    entries[i] = previous;
+                }
+                result.sparse = entries;
+                result.sparseSize = size;
+            } else {
+                byte[] registers = new byte[1 << logRegNum];
+                int bits = 0;
+                int bitCount = 0;
+                for (int i = 0; i < registers.length; i++) {
+                    while (bitCount < RankBits) {
+                        bits |= (in.readByte() & 0xFF) << bitCount;
+                        bitCount += Byte.SIZE;
+                    }
+                    registers[i] = (byte)(bits & ((1 << RankBits) - 1));
+                    bits >>>= RankBits;
+                    bitCount -= RankBits;
+                }
+                result.registers = registers;
+                result.sparse = null;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.sketches;
+
+import net.openhft.hashing.LongHashFunction;
+import org.hillview.dataset.api.ISketch;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IRowIterator;
+import org.hillview.table.api.ITable;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Estimates the number of distinct values of a tuple of columns using HyperLogLog++.
+ * The hash of a row is computed by combining the 64-bit hashes of its values,
+ * similar to the way VirtualRowSnapshot combines the hash codes of the values.
+ * Rows where all the columns are missing are ignored.
+ */
+public class HLogLogPPSketch implements ISketch<ITable, HLogLogPP> {
+    private final String[] columnNames;
+    private final long seed; //seed for the hash function
+    /**
+     * The log of the number of registers. Should be in 4...18.
+     */
+    private final int logSpaceSize;
+    /**
+     * Hash combined for missing values.
+     */
+    private static final long missingHash = 0x5bd1e9955bd1e995L;
+
+    public HLogLogPPSketch(String[] columnNames, long seed) {
+        this(columnNames, 12, seed);
+    }
+
+    public HLogLogPPSketch(String[] columnNames, int logSpaceSize, long seed) {
+        if (columnNames.length == 0)
+            throw new IllegalArgumentException("No columns specified");
+        this.columnNames = columnNames;
+        this.seed = seed;
+        HLogLogPP.checkSpaceValid(logSpaceSize);
+        this.logSpaceSize = logSpaceSize;
+    }
+
+    public HLogLogPPSketch(String columnName, long seed) {
+        this(new String[] { columnName }, seed);
+    }
+
+    public HLogLogPPSketch(String columnName, int logSpaceSize, long seed) {
+        this(new String[] { columnName }, logSpaceSize, seed);
+    }
+
+    @Override
+    public HLogLogPP create(final ITable data) {
+        HLogLogPP result = this.getZero();
+        List<IColumn> columns = data.getLoadedColumns(Arrays.asList(this.columnNames));
+        LongHashFunction hash = LongHashFunction.xx(this.seed);
+        IRowIterator rowIt = data.getMembershipSet().getIterator();
+        final int[] rows = new int[IRowIterator.BATCH_SIZE];
+        final long[] hashes = new long[IRowIterator.BATCH_SIZE];
+        final long[] combined = new long[IRowIterator.BATCH_SIZE];
+        final boolean[] missing = new boolean[IRowIterator.BATCH_SIZE];
+        final boolean[] allMissing = new boolean[IRowIterator.BATCH_SIZE];
+        int count = rowIt.getNextRows(rows);
+        while (count > 0) {
+            if (columns.size() == 1) {
+                columns.get(0).hashCode64(rows, count, hash, hashes, missing);
+                for (int i = 0; i < count; i++)
+                    if (!missing[i])
+                        result.add(hashes[i]);
+            } else {
+                Arrays.fill(combined, 0, count, 0);
+                Arrays.fill(allMissing, 0, count, true);
+                for (IColumn column : columns) {
+                    column.hashCode64(rows, count, hash, hashes, missing);
+                    for (int i = 0; i < count; i++) {
+                        long h = missing[i] ? missingHash : hashes[i];
+                        allMissing[i] &= missing[i];
+                        combined[i] = Long.rotateLeft(combined[i] * 31, 17) ^ h;
+                    }
+                }
+                for (int i = 0; i < count; i++)
+                    if (!allMissing[i])
+                        result.add(hash.hashLong(combined[i]));
+            }
+            count = rowIt.getNextRows(rows);
+        }
+        result.distinctItemsEstimator();
+        return result;
+    }
+
+    @Override
+    public HLogLogPP add(@Nullable final HLogLogPP left, @Nullable final HLogLogPP right) {
+        assert left != null;
+        assert right != null;
+        return left.union(right);
+    }
+
+    @Override
+    public HLogLogPP zero() {
+        return new HLogLogPP(this.logSpaceSize, this.seed);
+    }
+}
@@ -17,7 +17,12 @@
 
 package org.hillview.sketches;
 import org.hillview.dataset.api.IJson;
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
 import org.hillview.table.api.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -47,30 +52,40 @@ public class Heatmap implements Serializable, IJson {
                               final long seed, final boolean enforceRate) {
         final ISampledRowIterator myIter = membershipSet.getIteratorOverSample(
                 samplingRate, seed, enforceRate);
-        int currRow = myIter.getNextRow();
-        while (currRow >= 0) {
-            boolean isMissingD1 = columnD1.isMissing(currRow);
-            boolean isMissingD2 = columnD2.isMissing(currRow);
-            if (isMissingD1 || isMissingD2) {
-                if (!isMissingD1) {
-                    // only column 2 is missing
-                    this.histogramMissingY.add(columnD1, currRow);
-                } else if (!isMissingD2) {
-                    // only column 1 is missing
-                    this.histogramMissingX.add(columnD2, currRow);
+        final int[] rows = new int[IRowIterator.BATCH_SIZE];
+        final double[] values = new double[IRowIterator.BATCH_SIZE];
+        final boolean[] missingD1 = new boolean[IRowIterator.BATCH_SIZE];
+        final boolean[] missingD2 = new boolean[IRowIterator.BATCH_SIZE];
+        final int[] indexes1 = new int[IRowIterator.BATCH_SIZE];
+        final int[] indexes2 = new int[IRowIterator.BATCH_SIZE];
+        int count = myIter.getNextRows(rows);
+        while (count > 0) {
+            this.bucketDescX.indexOf(columnD1, rows, count, values, missingD1, indexes1);
+            this.bucketDescY.indexOf(columnD2, rows, count, values, missingD2, indexes2);
+            for (int i = 0; i < count; i++) {
+                boolean isMissingD1 = missingD1[i];
+                boolean isMissingD2 = missingD2[i];
+                if (isMissingD1 || isMissingD2) {
+                    if (!isMissingD1) {
+                        // only column 2 is missing
+                        this.histogramMissingY.addIndex(indexes1[i]);
+                    } else if (!isMissingD2) {
+                        // only column 1 is missing
+                        this.histogramMissingX.addIndex(indexes2[i]);
+                    } else {
+                        // both are missing
+                        this.missingData++;
+                    }
                 } else {
-                    // both are missing
-                    this.missingData++;
-                }
-            } else {
-                int index1 = this.bucketDescX.indexOf(columnD1, currRow);
-                int index2 = this.bucketDescY.indexOf(columnD2, currRow);
-                if ((index1 >= 0) && (index2 >= 0)) {
-                    this.buckets[index1][index2]++;
-                    this.totalSize++;
+                    int index1 = indexes1[i];
+                    int index2 = indexes2[i];
+                    if ((index1 >= 0) && (index2 >= 0)) {
+                        this.buckets[index1][index2]++;
+                        this.totalSize++;
+                    }
                 }
             }
-            currRow = myIter.getNextRow();
+            count = myIter.getNextRows(rows);
         }
         samplingRate = myIter.rate();
         if (samplingRate < 1) {
@@ -115,4 +130,41 @@ public class Heatmap implements Serializable, IJson {
         unionH.histogramMissingY = this.histogramMissingY.union(otherHeatmap.histogramMissingY);
         return unionH;
     }
+
+    /**
+     * The missing-value histograms share the bucket descriptions of the heatmap,
+     * so only their counts are written.
+     */
+    public static class Codec implements IBinaryCodec<Heatmap> {
+        @Override
+        public void encode(Heatmap value, DataOutput out) throws IOException {
+            BinaryCodecs.writeObject(out, value.bucketDescX);
+            BinaryCodecs.writeObject(out, value.bucketDescY);
+            BinaryCodecs.writeVarLong(out, value.missingData);
+            BinaryCodecs.writeVarLong(out, value.totalSize);
+            for (long[] row : value.buckets)
+                BinaryCodecs.writeCounts(out, row);
+            BinaryCodecs.writeVarLong(out, value.histogramMissingX.missingData);
+            BinaryCodecs.writeLongArray(out, value.histogramMissingX.buckets);
+            BinaryCodecs.writeVarLong(out, value.histogramMissingY.missingData);
+            BinaryCodecs.writeLongArray(out, value.histogramMissingY.buckets);
+        }
+
+        @Override
+        public Heatmap decode(DataInput in) throws IOException {
+            IHistogramBuckets x = (IHistogramBuckets)BinaryCodecs.readObject(in);
+            IHistogramBuckets y = (IHistogramBuckets)BinaryCodecs.readObject(in);
+            assert x != null && y != null;
+            Heatmap result = new Heatmap(x, y);
+            result.missingData = BinaryCodecs.readVarLong(in);
+            result.totalSize = BinaryCodecs.readVarLong(in);
+            for (long[] row : result.buckets)
+                BinaryCodecs.readCounts(in, row);
+            result.histogramMissingX.missingData = BinaryCodecs.readVarLong(in);
+            result.histogramMissingX.buckets = BinaryCodecs.readLongArray(in);
+            result.histogramMissingY.missingData = BinaryCodecs.readVarLong(in);
+            result.histogramMissingY.buckets = BinaryCodecs.readLongArray(in);
+            return result;
+        }
+    }
 }
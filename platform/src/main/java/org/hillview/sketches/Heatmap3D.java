@@ -18,7 +18,12 @@
 package org.hillview.sketches;
 
 import org.hillview.dataset.api.IJson;
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
 import org.hillview.table.api.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 
 /**
@@ -89,4 +94,33 @@ public class Heatmap3D implements Serializable, IJson {
         unionH.totalPresent = this.totalPresent + otherHeatmap3D.totalPresent;
         return unionH;
     }
+
+    public static class Codec implements IBinaryCodec<Heatmap3D> {
+        @Override
+        public void encode(Heatmap3D value, DataOutput out) throws IOException {
+            BinaryCodecs.writeObject(out, value.bucketDescDim1);
+            BinaryCodecs.writeObject(out, value.bucketDescDim2);
+            BinaryCodecs.writeObject(out, value.bucketDescDim3);
+            BinaryCodecs.writeVarLong(out, value.eitherMissing);
+            BinaryCodecs.writeVarLong(out, value.totalPresent);
+            for (long[][] plane : value.buckets)
+                for (long[] row : plane)
+                    BinaryCodecs.writeCounts(out, row);
+        }
+
+        @Override
+        public Heatmap3D decode(DataInput in) throws IOException {
+            IHistogramBuckets b1 = (IHistogramBuckets)BinaryCodecs.readObject(in);
+            IHistogramBuckets b2 = (IHistogramBuckets)BinaryCodecs.readObject(in);
+            IHistogramBuckets b3 = (IHistogramBuckets)BinaryCodecs.readObject(in);
+            assert b1 != null && b2 != null && b3 != null;
+            Heatmap3D result = new Heatmap3D(b1, b2, b3);
+            result.eitherMissing = BinaryCodecs.readVarLong(in);
+            result.totalPresent = BinaryCodecs.readVarLong(in);
+            for (long[][] plane : result.buckets)
+                for (long[] row : plane)
+                    BinaryCodecs.readCounts(in, row);
+            return result;
+        }
+    }
 }
@@ -17,10 +17,17 @@
 
 package org.hillview.sketches;
 
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
 import org.hillview.table.api.IColumn;
 import org.hillview.table.api.IMembershipSet;
+import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ISampledRowIterator;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * One dimensional histogram.
  */
@@ -50,16 +57,35 @@ public class Histogram extends HistogramBase {
         }
     }
 
+    /**
+     * Adds a present value whose bucket index has already been computed.
+     * @param index  Bucket index; negative if the value is out of range.
+     */
+    void addIndex(int index) {
+        if (index >= 0)
+            this.buckets[index]++;
+    }
+
     public void create(final IColumn column, IMembershipSet membershipSet,
                        double sampleRate, long seed, boolean enforceRate) {
         if (sampleRate <= 0)
             throw new RuntimeException("Negative sampling rate");
         final ISampledRowIterator myIter = membershipSet.getIteratorOverSample(
                 sampleRate, seed, enforceRate);
-        int currRow = myIter.getNextRow();
-        while (currRow >= 0) {
-            this.add(column, currRow);
-            currRow = myIter.getNextRow();
+        final int[] rows = new int[IRowIterator.BATCH_SIZE];
+        final double[] values = new double[IRowIterator.BATCH_SIZE];
+        final boolean[] missing = new boolean[IRowIterator.BATCH_SIZE];
+        final int[] indexes = new int[IRowIterator.BATCH_SIZE];
+        int count = myIter.getNextRows(rows);
+        while (count > 0) {
+            this.bucketDescription.indexOf(column, rows, count, values, missing, indexes);
+            for (int i = 0; i < count; i++) {
+                if (missing[i])
+                    this.missingData++;
+                else
+                    this.addIndex(indexes[i]);
+            }
+            count = myIter.getNextRows(rows);
         }
         this.rescale(myIter.rate());
     }
@@ -97,4 +123,23 @@ public class Histogram extends HistogramBase {
         }
         return builder.toString();
     }
+
+    public static class Codec implements IBinaryCodec<Histogram> {
+        @Override
+        public void encode(Histogram value, DataOutput out) throws IOException {
+            BinaryCodecs.writeObject(out, value.bucketDescription);
+            BinaryCodecs.writeVarLong(out, value.missingData);
+            BinaryCodecs.writeLongArray(out, value.buckets);
+        }
+
+        @Override
+        public Histogram decode(DataInput in) throws IOException {
+            IHistogramBuckets buckets = (IHistogramBuckets)BinaryCodecs.readObject(in);
+            assert buckets != null;
+            Histogram result = new Histogram(buckets);
+            result.missingData = BinaryCodecs.readVarLong(in);
+            result.buckets = BinaryCodecs.readLongArray(in);
+            return result;
+        }
+    }
 }
@@ -37,4 +37,23 @@ public interface IHistogramBuckets extends Serializable {
      * If the value is out of the range of buckets this returns -1.
      */
     int indexOf(IColumn column, int rowIndex);
+
+    /**
+     * Batch version of indexOf.  For each of the first count rows sets missing[i]
+     * to true if the value is missing, and otherwise sets indexes[i] to the index
+     * of the bucket of the value in rows[i].
+     * @param column   Column holding the data.
+     * @param rows     Indexes of the rows in the column.
+     * @param count    Number of rows to process.
+     * @param values   Scratch space, at least count long.
+     * @param missing  Receives the missing flags.
+     * @param indexes  Receives the bucket indexes.
+     */
+    default void indexOf(IColumn column, int[] rows, int count,
+                         double[] values, boolean[] missing, int[] indexes) {
+        column.isMissing(rows, count, missing);
+        for (int i = 0; i < count; i++)
+            if (!missing[i])
+                indexes[i] = this.indexOf(column, rows[i]);
+    }
 }
@@ -77,6 +77,15 @@ public class JLSketch implements ISketch<ITable, JLProjection>{
         return left;
     }
 
+    /**
+     * The random matrix is generated from the seed starting with the first row
+     * of the data, so the data cannot be split.
+     */
+    @Override
+    public boolean canSplitData() {
+        return false;
+    }
+
     /**
      * The sketch of a column is the product with a random matrix of {-1,+1} entries. The same
      * matrix is applied to every column. Currently, we discard the random bits after processing the
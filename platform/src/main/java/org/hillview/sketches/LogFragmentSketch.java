@@ -49,6 +49,15 @@ public class LogFragmentSketch implements ISketch<ITable, NextKList> {
         this.count = count;
     }
 
+    /**
+     * The row positions are relative to the whole partition, and only one
+     * fragment may be non-empty.
+     */
+    @Override
+    public boolean canSplitData() {
+        return false;
+    }
+
     @Nullable
     @Override
     public NextKList create(@Nullable ITable data) {
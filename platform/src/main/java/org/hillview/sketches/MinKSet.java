@@ -1,9 +1,15 @@
 package org.hillview.sketches;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import it.unimi.dsi.fastutil.longs.Long2ObjectRBTreeMap;
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
 import org.hillview.utils.JsonList;
 
 import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -105,4 +111,46 @@ public class MinKSet<T> extends BucketsInfo {
         }
         return boundaries;
     }
+
+    /**
+     * The comparator is written using Java serialization.
+     */
+    public static class Codec implements IBinaryCodec<MinKSet> {
+        @Override
+        @SuppressWarnings("unchecked")
+        public void encode(MinKSet value, DataOutput out) throws IOException {
+            BinaryCodecs.writeObject(out, value.comp);
+            BinaryCodecs.writeVarInt(out, value.maxSize);
+            BinaryCodecs.writeVarLong(out, value.presentCount);
+            BinaryCodecs.writeVarLong(out, value.missingCount);
+            BinaryCodecs.writeObject(out, value.min);
+            BinaryCodecs.writeObject(out, value.max);
+            Long2ObjectRBTreeMap<Object> data = value.data;
+            BinaryCodecs.writeVarInt(out, data.size());
+            for (Long2ObjectMap.Entry<Object> e : data.long2ObjectEntrySet()) {
+                // Hash values are uniformly distributed, so a fixed-width encoding is best.
+                out.writeLong(e.getLongKey());
+                BinaryCodecs.writeObject(out, e.getValue());
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public MinKSet decode(DataInput in) throws IOException {
+            Comparator<Object> comp = (Comparator<Object>)BinaryCodecs.readObject(in);
+            assert comp != null;
+            int maxSize = BinaryCodecs.readVarInt(in);
+            long present = BinaryCodecs.readVarLong(in);
+            long missing = BinaryCodecs.readVarLong(in);
+            Object min = BinaryCodecs.readObject(in);
+            Object max = BinaryCodecs.readObject(in);
+            int size = BinaryCodecs.readVarInt(in);
+            Long2ObjectRBTreeMap<Object> data = new Long2ObjectRBTreeMap<Object>();
+            for (int i = 0; i < size; i++) {
+                long key = in.readLong();
+                data.put(key, BinaryCodecs.readObject(in));
+            }
+            return new MinKSet<Object>(maxSize, data, comp, min, max, present, missing);
+        }
+    }
 }
@@ -20,15 +20,21 @@ package org.hillview.sketches;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
 import it.unimi.dsi.fastutil.ints.IntLists;
 import org.hillview.dataset.api.IJson;
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
 import org.hillview.table.Schema;
 import org.hillview.table.SmallTable;
 import org.hillview.table.api.IRowIterator;
 import org.hillview.table.rows.RowSnapshot;
 import org.hillview.table.rows.VirtualRowSnapshot;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
 
@@ -133,4 +139,28 @@ public class NextKList implements Serializable, IJson {
         }
         return result;
     }
+
+    public static class Codec implements IBinaryCodec<NextKList> {
+        @Override
+        public void encode(NextKList value, DataOutput out) throws IOException {
+            BinaryCodecs.writeObject(out, value.table);
+            BinaryCodecs.writeVarInt(out, value.count.size());
+            for (int i = 0; i < value.count.size(); i++)
+                BinaryCodecs.writeVarInt(out, value.count.getInt(i));
+            BinaryCodecs.writeVarLong(out, value.startPosition);
+            BinaryCodecs.writeVarLong(out, value.rowsScanned);
+        }
+
+        @Override
+        public NextKList decode(DataInput in) throws IOException {
+            SmallTable table = (SmallTable)BinaryCodecs.readObject(in);
+            assert table != null;
+            int size = BinaryCodecs.readVarInt(in);
+            IntArrayList count = new IntArrayList(size);
+            for (int i = 0; i < size; i++)
+                count.add(BinaryCodecs.readVarInt(in));
+            long position = BinaryCodecs.readVarLong(in);
+            return new NextKList(table, count, position, BinaryCodecs.readVarLong(in));
+        }
+    }
 }
@@ -25,6 +25,7 @@ import org.hillview.table.ArrayRowOrder;
 import org.hillview.table.RecordOrder;
 import org.hillview.table.Schema;
 import org.hillview.table.SmallTable;
+import org.hillview.table.SortIndexCache;
 import org.hillview.table.api.*;
 import org.hillview.table.columns.ObjectArrayColumn;
 import org.hillview.table.rows.RowSnapshot;
@@ -39,6 +40,8 @@ import java.util.List;
  * Given a data set, the NextKSketch generates the Next K items in Sorted Order (specified by a
  * RecordOrder) starting from a specified rowSnapShot (topRow). It also computes counts for how many
  * rows in the data project onto each entry, and how many rows come before topRow.
+ * When the SortIndexCache is enabled the sorted permutation of the table rows is computed
+ * once and reused by subsequent requests with the same order, e.g., when paging.
  */
 @SuppressWarnings("Duplicates")
 public class NextKSketch implements ISketch<ITable, NextKList> {
@@ -63,6 +66,15 @@ public class NextKSketch implements ISketch<ITable, NextKList> {
         this(recordOrder, topRow, maxSize, true);
     }
 
+    /**
+     * When the sort index cache is used the whole table is sorted, so that
+     * the permutation is cached for the table of the dataset, not for its parts.
+     */
+    @Override
+    public boolean canSplitData() {
+        return !SortIndexCache.enabled;
+    }
+
     /**
      * Given a table, generate the Next K items in Sorted Order starting from a specified
      * rowSnapShot (topRow), together with counts.
@@ -70,7 +82,11 @@ public class NextKSketch implements ISketch<ITable, NextKList> {
      * @return A NextKList.
      */
     public NextKList create(@Nullable ITable data) {
-        IndexComparator comp = this.recordOrder.getIndexComparator(Converters.checkNull(data));
+        Converters.checkNull(data);
+        if (SortIndexCache.enabled)
+            return this.createFromIndex(data, SortIndexCache.getOrCreate(data, this.recordOrder));
+        IndexComparator comp = this.recordOrder.getNormalizedIndexComparator(
+                data, data.getMembershipSet());
         IntTopK topK = new IntTreeTopK(this.maxSize, comp);
         IRowIterator rowIt = data.getRowIterator();
         int position = 0;
@@ -92,6 +108,47 @@ public class NextKSketch implements ISketch<ITable, NextKList> {
         return new NextKList(topKRows, count, position, data.getNumOfRows());
     }
 
+    /**
+     * Computes the NextK list using a sorted permutation of all rows of the table:
+     * the start position is found by binary search and the result is the following
+     * slice of the permutation, where consecutive equal rows are counted together.
+     * @param data   The input table.
+     * @param sorted The rows of data sorted according to the record order.
+     */
+    private NextKList createFromIndex(ITable data, int[] sorted) {
+        IndexComparator comp = this.recordOrder.getIndexComparator(data);
+        int position = 0;
+        if (this.topRow != null) {
+            VirtualRowSnapshot vw = new VirtualRowSnapshot(data, this.recordOrder.toSchema());
+            int high = sorted.length;
+            while (position < high) {
+                int mid = (position + high) >>> 1;
+                vw.setRow(sorted[mid]);
+                if (this.topRow.compareTo(vw, this.recordOrder) <= 0)
+                    high = mid;
+                else
+                    position = mid + 1;
+            }
+        }
+        IntList rows = new IntArrayList(Math.min(this.maxSize, sorted.length - position));
+        IntList count = new IntArrayList(Math.min(this.maxSize, sorted.length - position));
+        for (int i = position; i < sorted.length; i++) {
+            int row = sorted[i];
+            if (!rows.isEmpty() && comp.compare(rows.getInt(rows.size() - 1), row) == 0) {
+                int last = count.size() - 1;
+                count.set(last, count.getInt(last) + 1);
+            } else {
+                if (rows.size() >= this.maxSize)
+                    break;
+                rows.add(row);
+                count.add(1);
+            }
+        }
+        IRowOrder rowOrder = new ArrayRowOrder(rows.toIntArray());
+        SmallTable topKRows = data.compress(this.recordOrder.toSchema(), rowOrder);
+        return new NextKList(topKRows, count, position, data.getNumOfRows());
+    }
+
     /**
      * Given two Columns containing counts left and right, merge them to a single Column, using an
      * Integer array mergeLeft which represents the order in which elements merge.
@@ -31,6 +31,14 @@ import java.util.List;
  * A sketch that computes the number of parsing errors in each column.
  */
 public class ParseErrorsSketch implements ISketch<ITable, ParseErrorsSketch.PerColumnErrors> {
+    /**
+     * The error counts belong to the columns, which are shared by all parts of a table.
+     */
+    @Override
+    public boolean canSplitData() {
+        return false;
+    }
+
     @Override
     public PerColumnErrors create(ITable data) {
         List<IColumn> columns = data.getColumns(data.getSchema());
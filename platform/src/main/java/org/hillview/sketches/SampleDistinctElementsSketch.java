@@ -42,26 +42,48 @@ public class SampleDistinctElementsSketch implements ISketch<ITable, MinKSet<Str
         MinKRows mkRows = new MinKRows(this.maxSize);
         long numPresent = 0;
         long numMissing = 0;
-        int currRow = myIter.getNextRow();
-        while (currRow >= 0) {
-            if (!col.isMissing(currRow)) {
-                numPresent += 1;
-                mkRows.push(col.hashCode64(currRow, hash), currRow);
-                String thisString = col.getString(currRow);
-                assert thisString != null;
-                if (minString == null) {
+        IDictionaryColumn dictionary = IDictionaryColumn.asDictionary(col, data.getNumOfRows());
+        if (dictionary != null) {
+            // Each distinct value is hashed and compared only once.
+            int[] firstRows = new int[dictionary.getDictionarySize()];
+            int[] counts = dictionary.countCodes(myIter, firstRows);
+            for (int code = 0; code < counts.length; code++) {
+                if (counts[code] == 0)
+                    continue;
+                String thisString = dictionary.decode(code);
+                if (thisString == null) {
+                    numMissing += counts[code];
+                    continue;
+                }
+                numPresent += counts[code];
+                mkRows.push(hash.hashChars(thisString), firstRows[code]);
+                if (minString == null || minString.compareTo(thisString) > 0)
                     minString = thisString;
+                if (maxString == null || maxString.compareTo(thisString) < 0)
                     maxString = thisString;
-                } else {
-                    if (minString.compareTo(thisString) > 0)
+            }
+        } else {
+            int currRow = myIter.getNextRow();
+            while (currRow >= 0) {
+                if (!col.isMissing(currRow)) {
+                    numPresent += 1;
+                    mkRows.push(col.hashCode64(currRow, hash), currRow);
+                    String thisString = col.getString(currRow);
+                    assert thisString != null;
+                    if (minString == null) {
                         minString = thisString;
-                    if (maxString.compareTo(thisString) < 0)
                         maxString = thisString;
+                    } else {
+                        if (minString.compareTo(thisString) > 0)
+                            minString = thisString;
+                        if (maxString.compareTo(thisString) < 0)
+                            maxString = thisString;
+                    }
+                } else {
+                    numMissing++;
                 }
-            } else {
-                numMissing++;
+                currRow = myIter.getNextRow();
             }
-            currRow = myIter.getNextRow();
         }
 
         Long2ObjectRBTreeMap<String> map = new Long2ObjectRBTreeMap<String>();
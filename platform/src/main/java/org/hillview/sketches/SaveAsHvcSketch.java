@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.sketches;
+
+import org.hillview.dataset.api.Empty;
+import org.hillview.dataset.api.ISketch;
+import org.hillview.storage.HvcFileWriter;
+import org.hillview.table.Schema;
+import org.hillview.table.api.ITable;
+import org.hillview.utils.Utilities;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+/**
+ * This sketch saves a table in the Hillview native column format:
+ * each partition is written into a sub-folder of the specified folder,
+ * which can be loaded back with the "hvc" file kind.
+ * If the saving fails this will trigger an exception.
+ */
+public class SaveAsHvcSketch implements ISketch<ITable, Empty> {
+    private final String folder;
+    @Nullable
+    private final Schema schema;
+    /**
+     * Map that describes how columns should be renamed.
+     */
+    @Nullable
+    private final HashMap<String, String> renameMap;
+
+    public SaveAsHvcSketch(final String folder,
+                           @Nullable final Schema schema,
+                           @Nullable final HashMap<String, String> renameMap) {
+        this.folder = folder;
+        this.schema = schema;
+        this.renameMap = renameMap;
+    }
+
+    /**
+     * Each partition is written to one sub-folder named after its source file.
+     */
+    @Override
+    public boolean canSplitData() {
+        return false;
+    }
+
+    @Override
+    public Empty create(ITable data) {
+        if (this.schema != null)
+            data = data.project(this.schema);
+        if (this.renameMap != null && this.renameMap.size() != 0)
+            data = data.renameColumns(this.renameMap);
+
+        File file = new File(this.folder);
+        @SuppressWarnings("unused")
+        boolean ignored = file.mkdir();
+        // Multiple workers may try to create the folder at the same time;
+        // if the folder can't be created the writing below will fail.
+
+        String tableFile = data.getSourceFile();
+        if (tableFile == null)
+            throw new RuntimeException("I don't know how to generate file names for the data");
+        String baseName = Utilities.getBasename(tableFile);
+        String path = Paths.get(this.folder, baseName + ".hvc").toString();
+        HvcFileWriter writer = new HvcFileWriter(path);
+        writer.writeTable(data);
+        return Empty.getInstance();
+    }
+
+    @Nullable
+    @Override
+    public Empty zero() {
+        return Empty.getInstance();
+    }
+
+    @Nullable
+    @Override
+    public Empty add(@Nullable Empty left, @Nullable Empty right) {
+        return left;
+    }
+}
@@ -64,6 +64,14 @@ public class SaveAsOrcSketch implements ISketch<ITable, Empty> {
         this.renameMap = renameMap;
     }
 
+    /**
+     * Each partition is written to one file named after its source file.
+     */
+    @Override
+    public boolean canSplitData() {
+        return false;
+    }
+
     @Override
     public Empty create(ITable data) {
         try {
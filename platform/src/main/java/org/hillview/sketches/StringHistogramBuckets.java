@@ -17,8 +17,15 @@
 
 package org.hillview.sketches;
 
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
 import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IDictionaryColumn;
 
+import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 
 /**
@@ -32,6 +39,38 @@ public class StringHistogramBuckets implements IHistogramBuckets {
      * These are the *left endpoints* of the buckets.
      */
     private final String[] leftBoundaries;
+    /**
+     * Columns with at most this many distinct values are bucketized by computing
+     * the bucket of each dictionary entry once.
+     */
+    private static final int maxDictionarySize = 1 << 16;
+    /**
+     * Bucket of each code of the last dictionary column bucketized.
+     */
+    @Nullable
+    private transient volatile CodeBuckets codeBuckets;
+
+    /**
+     * The buckets of all the codes of a dictionary column.
+     */
+    private static class CodeBuckets {
+        static final int Missing = -2;
+
+        final IDictionaryColumn column;
+        /**
+         * Bucket index for each code; Missing for the code of missing values.
+         */
+        final int[] buckets;
+
+        CodeBuckets(IDictionaryColumn column, StringHistogramBuckets owner) {
+            this.column = column;
+            this.buckets = new int[column.getDictionarySize()];
+            for (int i = 0; i < this.buckets.length; i++) {
+                String s = column.decode(i);
+                this.buckets[i] = s == null ? Missing : owner.indexOf(s);
+            }
+        }
+    }
 
     public StringHistogramBuckets(final String[] leftBoundaries) {
         if (leftBoundaries.length == 0)
@@ -85,6 +124,48 @@ public class StringHistogramBuckets implements IHistogramBuckets {
         return this.indexOf(item);
     }
 
+    /**
+     * For dictionary columns the bucket of each distinct value is computed once.
+     */
+    @Override
+    public void indexOf(IColumn column, int[] rows, int count,
+                        double[] values, boolean[] missing, int[] indexes) {
+        IDictionaryColumn dictionary = IDictionaryColumn.asDictionary(column, maxDictionarySize);
+        if (dictionary == null) {
+            IHistogramBuckets.super.indexOf(column, rows, count, values, missing, indexes);
+            return;
+        }
+        CodeBuckets cb = this.codeBuckets;
+        if (cb == null || cb.column != dictionary ||
+                cb.buckets.length != dictionary.getDictionarySize()) {
+            cb = new CodeBuckets(dictionary, this);
+            this.codeBuckets = cb;
+        }
+        dictionary.getCodes(rows, count, indexes);
+        for (int i = 0; i < count; i++) {
+            int bucket = cb.buckets[indexes[i]];
+            missing[i] = bucket == CodeBuckets.Missing;
+            indexes[i] = bucket;
+        }
+    }
+
     @Override
     public int getNumOfBuckets() { return this.numOfBuckets; }
+
+    public static class Codec implements IBinaryCodec<StringHistogramBuckets> {
+        @Override
+        public void encode(StringHistogramBuckets value, DataOutput out) throws IOException {
+            BinaryCodecs.writeVarInt(out, value.leftBoundaries.length);
+            for (String s : value.leftBoundaries)
+                BinaryCodecs.writeString(out, s);
+        }
+
+        @Override
+        public StringHistogramBuckets decode(DataInput in) throws IOException {
+            String[] boundaries = new String[BinaryCodecs.readVarInt(in)];
+            for (int i = 0; i < boundaries.length; i++)
+                boundaries[i] = BinaryCodecs.readString(in);
+            return new StringHistogramBuckets(boundaries);
+        }
+    }
 }
@@ -20,10 +20,14 @@ package org.hillview.storage;
 import com.univocity.parsers.csv.CsvFormat;
 import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.hillview.table.api.*;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.Schema;
 import org.hillview.table.Table;
+import org.hillview.table.columns.BaseListColumn;
+import org.hillview.table.columns.BaseOffHeapColumn;
 import org.hillview.table.membership.FullMembershipSet;
 import org.hillview.table.rows.GuessSchema;
 import org.hillview.utils.HillviewLogger;
@@ -31,10 +35,17 @@ import org.hillview.utils.Utilities;
 
 import javax.annotation.Nullable;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Knows how to read a CSV file (comma-separated file).
+ * Large uncompressed files can be split into byte ranges which are parsed in parallel.
  */
 public class CsvFileLoader extends TextFileLoader {
     public static class Config implements Serializable {
@@ -50,13 +61,44 @@ public class CsvFileLoader extends TextFileLoader {
          * If true the file is expected to have a header row.
          */
         public boolean hasHeaderRow;
+        /**
+         * If true the columns loaded are stored off the Java heap.
+         */
+        public boolean offHeap;
+        /**
+         * Maximum number of chunks that an uncompressed file is split into; the
+         * chunks are parsed in parallel.  If 1 the file is parsed serially.
+         */
+        public int threads = 1;
+        /**
+         * Minimum size in bytes of a chunk.
+         */
+        public long minChunkSize = 64L << 20;
+        /**
+         * If positive and there is no schema file the kinds of the columns are guessed
+         * from this many rows at the beginning of the file, and the values are parsed
+         * directly into columns of these kinds.  A column with values that do not match
+         * its kind is promoted to a more general kind.  If zero all values are first
+         * loaded as strings and the kinds are guessed from all values.
+         */
+        public int guessPrefixRows = 0;
     }
 
+    private static final byte quote = '"';
+    private static final byte newline = '\n';
+
     private final Config configuration;
     @Nullable
     private Schema actualSchema;
     @Nullable
     private final String schemaPath;
+    /**
+     * Kinds guessed from a prefix of the file; null if the values are loaded as strings.
+     */
+    @Nullable
+    private ContentsKind[] prefixKinds;
+    @Nullable
+    private TypedColumnAppender[] appenders;
 
     public CsvFileLoader(String path, Config configuration, @Nullable String schemaPath) {
         super(path);
@@ -65,77 +107,153 @@ public class CsvFileLoader extends TextFileLoader {
         this.allowFewerColumns = configuration.allowFewerColumns;
     }
 
-    public ITable load() {
-        if (!Utilities.isNullOrEmpty(this.schemaPath))
-            this.actualSchema = Schema.readFromJsonFile(Paths.get(this.schemaPath));
-
-        Reader file = null;
-        try {
-            file = this.getFileReader();
-            CsvParserSettings settings = new CsvParserSettings();
-            CsvFormat format = new CsvFormat();
-            format.setDelimiter(this.configuration.separator);
-            settings.setFormat(format);
-            settings.setIgnoreTrailingWhitespaces(true);
-            settings.setEmptyValue("");
-            settings.setNullValue(null);
-            settings.setReadInputOnSeparateThread(false);
-            if (this.actualSchema != null)
-                settings.setMaxColumns(this.actualSchema.getColumnCount());
-            else
-                settings.setMaxColumns(50000);
-            CsvParser reader = new CsvParser(settings);
-            reader.beginParsing(file);
+    private CsvParser createParser() {
+        CsvParserSettings settings = new CsvParserSettings();
+        CsvFormat format = new CsvFormat();
+        format.setDelimiter(this.configuration.separator);
+        settings.setFormat(format);
+        settings.setIgnoreTrailingWhitespaces(true);
+        settings.setEmptyValue("");
+        settings.setNullValue(null);
+        settings.setReadInputOnSeparateThread(false);
+        if (this.actualSchema != null)
+            settings.setMaxColumns(this.actualSchema.getColumnCount());
+        else
+            settings.setMaxColumns(50000);
+        return new CsvParser(settings);
+    }
 
-            if (this.configuration.hasHeaderRow) {
-                @Nullable
-                String[] line = null;
-                try {
-                    line = reader.parseNext();
-                } catch (Exception ex) {
-                    this.error(ex.getMessage());
-                }
-                if (line == null)
-                    throw new RuntimeException("Missing header row " + this.filename);
-                if (this.actualSchema == null) {
-                    HillviewLogger.instance.info("Creating schema");
-                    this.actualSchema = new Schema();
-                    int index = 0;
-                    for (String col : line) {
-                        if ((col == null) || col.isEmpty())
-                            col = this.actualSchema.newColumnName("Column_" + Integer.toString(index));
-                        col = this.actualSchema.newColumnName(col);
-                        ColumnDescription cd = new ColumnDescription(col,
-                                ContentsKind.String);
-                        this.actualSchema.append(cd);
-                        index++;
-                    }
-                } else {
-                    this.currentRow++;
-                }
+    /**
+     * Reads the header row if there is one and creates the schema if there is
+     * no schema file.
+     * @return  The first line of the file if it was read to create the schema,
+     *          null otherwise.
+     */
+    @Nullable
+    private String[] readSchema(CsvParser reader) {
+        if (this.configuration.hasHeaderRow) {
+            @Nullable
+            String[] line = null;
+            try {
+                line = reader.parseNext();
+            } catch (Exception ex) {
+                this.error(ex.getMessage());
             }
-
-            String[] firstLine = null;
+            if (line == null)
+                throw new RuntimeException("Missing header row " + this.filename);
             if (this.actualSchema == null) {
-                int columnCount;
+                HillviewLogger.instance.info("Creating schema");
                 this.actualSchema = new Schema();
-                firstLine = reader.parseNext();
-                if (firstLine == null)
-                    throw new RuntimeException("Cannot create schema from empty CSV file");
-                columnCount = firstLine.length;
-
-                for (int i = 0; i < columnCount; i++) {
-                    ColumnDescription cd = new ColumnDescription("Column " + Integer.toString(i),
+                int index = 0;
+                for (String col : line) {
+                    if ((col == null) || col.isEmpty())
+                        col = this.actualSchema.newColumnName("Column_" + Integer.toString(index));
+                    col = this.actualSchema.newColumnName(col);
+                    ColumnDescription cd = new ColumnDescription(col,
                             ContentsKind.String);
                     this.actualSchema.append(cd);
+                    index++;
                 }
+            } else {
+                this.currentRow++;
             }
+        }
+
+        String[] firstLine = null;
+        if (this.actualSchema == null) {
+            int columnCount;
+            this.actualSchema = new Schema();
+            firstLine = reader.parseNext();
+            if (firstLine == null)
+                throw new RuntimeException("Cannot create schema from empty CSV file");
+            columnCount = firstLine.length;
+
+            for (int i = 0; i < columnCount; i++) {
+                ColumnDescription cd = new ColumnDescription("Column " + Integer.toString(i),
+                        ContentsKind.String);
+                this.actualSchema.append(cd);
+            }
+        }
+        return firstLine;
+    }
+
+    @Override
+    void appendToken(int columnIndex, @Nullable String token) {
+        if (this.appenders == null) {
+            super.appendToken(columnIndex, token);
+            return;
+        }
+        assert this.columns != null;
+        this.columns[columnIndex] = this.appenders[columnIndex].append(token);
+    }
+
+    /**
+     * Reads rows from the beginning of the file and uses them to guess the kinds
+     * of the columns, if the configuration asks for it.
+     * @param reader    Parser positioned after the header row.
+     * @param firstLine The first line, if it was already read, or null.
+     * @return The lines read.
+     */
+    private List<String[]> readPrefix(CsvParser reader, @Nullable String[] firstLine) {
+        List<String[]> lines = new ArrayList<String[]>();
+        if (firstLine != null)
+            lines.add(firstLine);
+        if (this.configuration.guessPrefixRows <= 0 || !Utilities.isNullOrEmpty(this.schemaPath))
+            return lines;
+        while (lines.size() < this.configuration.guessPrefixRows) {
+            @Nullable
+            String[] line = null;
+            try {
+                line = reader.parseNext();
+            } catch (Exception ex) {
+                this.error(ex.getMessage());
+            }
+            if (line == null)
+                break;
+            lines.add(line);
+        }
+        assert this.actualSchema != null;
+        this.prefixKinds = TypedColumnAppender.guessKinds(
+                lines, this.actualSchema.getColumnCount());
+        return lines;
+    }
+
+    /**
+     * True if the kind of a column has to be guessed from all its values after loading.
+     */
+    private boolean guessAfterLoading(int columnIndex) {
+        return Utilities.isNullOrEmpty(this.schemaPath) &&
+                (this.prefixKinds == null || this.prefixKinds[columnIndex] == ContentsKind.None);
+    }
+
+    public ITable load() {
+        if (!Utilities.isNullOrEmpty(this.schemaPath))
+            this.actualSchema = Schema.readFromJsonFile(Paths.get(this.schemaPath));
+        if (this.configuration.threads > 1 && !Utilities.isCompressed(this.filename)) {
+            long[] boundaries = this.splitFile();
+            if (boundaries != null)
+                return this.loadChunks(boundaries);
+        }
+
+        Reader file = null;
+        try {
+            file = this.getFileReader();
+            CsvParser reader = this.createParser();
+            reader.beginParsing(file);
 
+            String[] firstLine = this.readSchema(reader);
             assert this.actualSchema != null;
-            this.columns = this.actualSchema.createAppendableColumns();
+            List<String[]> prefix = this.readPrefix(reader, firstLine);
+            if (this.prefixKinds != null) {
+                this.appenders = TypedColumnAppender.create(
+                        this.actualSchema, this.prefixKinds, this.configuration.offHeap);
+                this.columns = TypedColumnAppender.getColumns(this.appenders);
+            } else {
+                this.columns = this.actualSchema.createAppendableColumns(this.configuration.offHeap);
+            }
 
-            if (firstLine != null)
-                this.append(firstLine);
+            for (String[] line : prefix)
+                this.append(line);
             while (true) {
                 @Nullable
                 String[] line = null;
@@ -151,20 +269,18 @@ public class CsvFileLoader extends TextFileLoader {
 
             IColumn[] sealed = new IColumn[this.columns.length];
             reader.stopParsing();
+            // The kinds are final, so the original text is no longer needed.
+            this.appenders = null;
             IMembershipSet ms = null;
             for (int ci = 0; ci < this.columns.length; ci++) {
                 IAppendableColumn c = this.columns[ci];
                 IColumn s = c.seal();
                 if (ms == null)
                     ms = new FullMembershipSet(s.sizeInRows());
-                if (Utilities.isNullOrEmpty(this.schemaPath)) {
+                if (this.guessAfterLoading(ci)) {
                     GuessSchema gs = new GuessSchema();
                     GuessSchema.SchemaInfo info = gs.guess((IStringColumn)s);
-                    if (info.kind != ContentsKind.String &&
-                            info.kind != ContentsKind.None)  // all elements are null
-                        sealed[ci] = s.convertKind(info.kind, c.getName(), ms);
-                    else
-                        sealed[ci] = s;
+                    sealed[ci] = convert(s, info, c.getName(), ms);
                 } else {
                     sealed[ci] = s;
                 }
@@ -176,4 +292,334 @@ public class CsvFileLoader extends TextFileLoader {
             this.close(file);
         }
     }
+
+    private static IColumn convert(IColumn column, GuessSchema.SchemaInfo info,
+                                   String name, IMembershipSet ms) {
+        if (info.kind != ContentsKind.String &&
+                info.kind != ContentsKind.None)  // all elements are null
+            return column.convertKind(info.kind, name, ms);
+        return column;
+    }
+
+    /**
+     * Number of bytes in the UTF-8 byte order mark at the beginning of the file,
+     * or -1 if the file has a byte order mark for a different encoding.
+     */
+    private static int bomLength(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        channel.read(buffer, 0);
+        byte[] b = buffer.array();
+        int length = buffer.position();
+        if (length >= 3 && b[0] == (byte)0xEF && b[1] == (byte)0xBB && b[2] == (byte)0xBF)
+            return 3;
+        if (length >= 2 && ((b[0] == (byte)0xFE && b[1] == (byte)0xFF) ||
+                (b[0] == (byte)0xFF && b[1] == (byte)0xFE)))
+            return -1;
+        if (length >= 4 && b[0] == 0 && b[1] == 0 && b[2] == (byte)0xFE && b[3] == (byte)0xFF)
+            return -1;
+        return 0;
+    }
+
+    /**
+     * Scans the bytes between start and end.
+     * @return An array with three values: the number of quotes, the position after the first
+     * newline preceded by an even number of quotes in the range, and the position after the
+     * first newline preceded by an odd number of quotes.  The positions are -1 if there is no
+     * such newline.
+     */
+    private static long[] scanChunk(FileChannel channel, long start, long end) throws IOException {
+        long[] result = new long[] { 0, -1, -1 };
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        byte[] bytes = buffer.array();
+        long position = start;
+        long quotes = 0;
+        while (position < end) {
+            buffer.clear();
+            buffer.limit((int)Math.min(buffer.capacity(), end - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0)
+                break;
+            for (int i = 0; i < read; i++) {
+                byte b = bytes[i];
+                if (b == quote) {
+                    quotes++;
+                } else if (b == newline) {
+                    int parity = (int)(quotes & 1);
+                    if (result[1 + parity] < 0)
+                        result[1 + parity] = position + i + 1;
+                }
+            }
+            position += read;
+        }
+        result[0] = quotes;
+        return result;
+    }
+
+    /**
+     * Splits the file into chunks which start at record boundaries.  A newline starts a new
+     * record if it is preceded by an even number of quotes in the file; the
+     * chunks are scanned in parallel, counting quotes and finding the first newline after
+     * an even and after an odd number of quotes, and then the quote counts are summed to
+     * decide which of the two newlines ends a record.  This assumes that quotes only
+     * appear as delimiters of quoted values, or escaped by doubling them.
+     * @return The positions where chunks start, followed by the file size, or null if the
+     * file should be parsed serially.
+     */
+    @Nullable
+    private long[] splitFile() {
+        File file = new File(this.filename);
+        long size = file.length();
+        int chunks = (int)Math.min(this.configuration.threads,
+                size / Math.max(this.configuration.minChunkSize, 1));
+        if (chunks < 2)
+            return null;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long start = bomLength(channel);
+            if (start < 0)
+                return null;
+            long chunkSize = (size - start) / chunks;
+            List<Callable<long[]>> scans = new ArrayList<Callable<long[]>>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                long chunkStart = start + i * chunkSize;
+                long chunkEnd = i == chunks - 1 ? size : chunkStart + chunkSize;
+                scans.add(() -> scanChunk(channel, chunkStart, chunkEnd));
+            }
+            List<long[]> results = runAll(scans);
+            List<Long> boundaries = new ArrayList<Long>();
+            boundaries.add(start);
+            long quotes = results.get(0)[0];
+            for (int i = 1; i < chunks; i++) {
+                long[] r = results.get(i);
+                long boundary = r[1 + (int)(quotes & 1)];
+                if (boundary > boundaries.get(boundaries.size() - 1) && boundary < size)
+                    boundaries.add(boundary);
+                quotes += r[0];
+            }
+            if (boundaries.size() < 2)
+                return null;
+            boundaries.add(size);
+            long[] result = new long[boundaries.size()];
+            for (int i = 0; i < result.length; i++)
+                result[i] = boundaries.get(i);
+            return result;
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Parses a range of bytes of the file into string columns.
+     */
+    private class ChunkLoader extends TextFileLoader {
+        private final long start;
+        private final long end;
+        private final Schema schema;
+        /**
+         * Number of records to skip at the beginning of the range.
+         */
+        private final int skip;
+        /**
+         * Schema guessers; one for each column.  Null if the schema is known.
+         */
+        @Nullable
+        GuessSchema[] guessers;
+        @Nullable
+        GuessSchema.SchemaInfo[] guesses;
+        @Nullable
+        IColumn[] sealed;
+        @Nullable
+        TypedColumnAppender[] appenders;
+
+        ChunkLoader(long start, long end, Schema schema, int skip) {
+            super(CsvFileLoader.this.filename);
+            this.start = start;
+            this.end = end;
+            this.schema = schema;
+            this.skip = skip;
+            this.allowFewerColumns = CsvFileLoader.this.allowFewerColumns;
+        }
+
+        @Override
+        void appendToken(int columnIndex, @Nullable String token) {
+            if (this.appenders == null) {
+                super.appendToken(columnIndex, token);
+                return;
+            }
+            assert this.columns != null;
+            this.columns[columnIndex] = this.appenders[columnIndex].append(token);
+        }
+
+        @Override
+        public ITable load() {
+            try (FileInputStream stream = new FileInputStream(this.filename)) {
+                stream.getChannel().position(this.start);
+                Reader reader = new InputStreamReader(new BoundedInputStream(
+                        new BufferedInputStream(stream), this.end - this.start),
+                        StandardCharsets.UTF_8);
+                CsvParser parser = CsvFileLoader.this.createParser();
+                parser.beginParsing(reader);
+                ContentsKind[] kinds = CsvFileLoader.this.prefixKinds;
+                if (kinds != null) {
+                    this.appenders = TypedColumnAppender.create(this.schema, kinds, false);
+                    this.columns = TypedColumnAppender.getColumns(this.appenders);
+                } else {
+                    this.columns = this.schema.createAppendableColumns();
+                }
+                for (int i = 0; i < this.skip; i++)
+                    parser.parseNext();
+                while (true) {
+                    @Nullable
+                    String[] line = null;
+                    try {
+                        line = parser.parseNext();
+                    } catch (Exception ex) {
+                        this.error(ex.getMessage());
+                    }
+                    if (line == null)
+                        break;
+                    this.append(line);
+                }
+                parser.stopParsing();
+                this.sealed = new IColumn[this.columns.length];
+                for (int ci = 0; ci < this.columns.length; ci++)
+                    this.sealed[ci] = this.columns[ci].seal();
+                this.columns = null;
+                if (Utilities.isNullOrEmpty(CsvFileLoader.this.schemaPath)) {
+                    this.guessers = new GuessSchema[this.sealed.length];
+                    this.guesses = new GuessSchema.SchemaInfo[this.sealed.length];
+                    for (int ci = 0; ci < this.sealed.length; ci++) {
+                        if (!CsvFileLoader.this.guessAfterLoading(ci))
+                            continue;
+                        this.guessers[ci] = new GuessSchema();
+                        this.guesses[ci] = this.guessers[ci].guess((IStringColumn)this.sealed[ci]);
+                    }
+                }
+                return new Table(this.sealed, this.filename, null);
+            } catch (IOException ex) {
+                throw new RuntimeException(ex);
+            } catch (RuntimeException ex) {
+                throw new RuntimeException("Error while parsing bytes " + this.start + "-" +
+                        this.end + " of " + this.filename, ex);
+            }
+        }
+    }
+
+    /**
+     * Concatenates the values in one column of all chunks.
+     */
+    private IColumn stitch(List<ChunkLoader> chunks, int columnIndex) {
+        assert this.actualSchema != null;
+        ColumnDescription cd = this.actualSchema.getColumnDescriptions().get(columnIndex);
+        if (this.prefixKinds != null && !this.guessAfterLoading(columnIndex))
+            return this.stitchTyped(chunks, columnIndex, cd.name);
+        boolean guess = Utilities.isNullOrEmpty(this.schemaPath);
+        ColumnDescription appendDesc = guess ? new ColumnDescription(cd.name, ContentsKind.String) : cd;
+        IAppendableColumn result = this.configuration.offHeap ?
+                BaseOffHeapColumn.create(appendDesc) : BaseListColumn.create(appendDesc);
+        GuessSchema guesser = null;
+        GuessSchema.SchemaInfo info = null;
+        for (ChunkLoader chunk : chunks) {
+            assert chunk.sealed != null;
+            IColumn column = chunk.sealed[columnIndex];
+            for (int i = 0; i < column.sizeInRows(); i++) {
+                String value = column.getString(i);
+                try {
+                    result.parseAndAppendString(value);
+                } catch (Exception ex) {
+                    throw new RuntimeException("Error while parsing file " + this.filename +
+                            " column " + cd.name + " token " + value, ex);
+                }
+            }
+            if (guess) {
+                // Merge the guesses of the chunks in order; when the chunks
+                // disagree we continue guessing using the values in this chunk.
+                assert chunk.guessers != null && chunk.guesses != null;
+                GuessSchema.SchemaInfo chunkInfo = chunk.guesses[columnIndex];
+                if (info == null) {
+                    guesser = chunk.guessers[columnIndex];
+                    info = chunkInfo;
+                } else if (info.kind != chunkInfo.kind || !GuessSchema.isStable(info.kind)) {
+                    assert guesser != null;
+                    info = guesser.guess((IStringColumn)column, info);
+                }
+            }
+            chunk.sealed[columnIndex] = null;
+        }
+        IColumn sealed = result.seal();
+        if (info == null)
+            return sealed;
+        return convert(sealed, info, cd.name, new FullMembershipSet(sealed.sizeInRows()));
+    }
+
+    /**
+     * Concatenates the values in one column of all chunks, when the values were parsed
+     * into typed columns.  The chunks may have promoted the column to different kinds.
+     */
+    private IColumn stitchTyped(List<ChunkLoader> chunks, int columnIndex, String name) {
+        ContentsKind kind = null;
+        for (ChunkLoader chunk : chunks) {
+            assert chunk.sealed != null;
+            ContentsKind k = chunk.sealed[columnIndex].getKind();
+            kind = kind == null ? k : TypedColumnAppender.join(kind, k);
+        }
+        assert kind != null;
+        IAppendableColumn result = TypedColumnAppender.create(
+                new ColumnDescription(name, kind), this.configuration.offHeap);
+        for (ChunkLoader chunk : chunks) {
+            assert chunk.sealed != null && chunk.appenders != null;
+            IColumn column = chunk.sealed[columnIndex];
+            Int2ObjectMap<String> text = chunk.appenders[columnIndex].getText();
+            for (int i = 0; i < column.sizeInRows(); i++)
+                TypedColumnAppender.copy(column, text, i, result);
+            chunk.sealed[columnIndex] = null;
+            chunk.appenders[columnIndex] = null;
+        }
+        return result.seal();
+    }
+
+    /**
+     * Loads the file by parsing the specified byte ranges in parallel.
+     * @param boundaries  Positions where the chunks start, followed by the file size.
+     */
+    private ITable loadChunks(long[] boundaries) {
+        HillviewLogger.instance.info("Parsing file in parallel", "{0} in {1} chunks",
+                this.filename, boundaries.length - 1);
+        int skip = this.configuration.hasHeaderRow ? 1 : 0;
+        try (FileInputStream stream = new FileInputStream(this.filename)) {
+            stream.getChannel().position(boundaries[0]);
+            Reader reader = new InputStreamReader(new BoundedInputStream(
+                    new BufferedInputStream(stream), boundaries[1] - boundaries[0]),
+                    StandardCharsets.UTF_8);
+            CsvParser parser = this.createParser();
+            parser.beginParsing(reader);
+            String[] firstLine = this.readSchema(parser);
+            this.readPrefix(parser, firstLine);
+            parser.stopParsing();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        assert this.actualSchema != null;
+        Schema stringSchema = new Schema();
+        for (ColumnDescription cd : this.actualSchema.getColumnDescriptions())
+            stringSchema.append(new ColumnDescription(cd.name, ContentsKind.String));
+        List<ChunkLoader> chunks = new ArrayList<ChunkLoader>(boundaries.length - 1);
+        List<Callable<ITable>> parse = new ArrayList<Callable<ITable>>();
+        for (int i = 0; i < boundaries.length - 1; i++) {
+            ChunkLoader chunk = new ChunkLoader(
+                    boundaries[i], boundaries[i + 1], stringSchema, i == 0 ? skip : 0);
+            chunks.add(chunk);
+            parse.add(chunk::load);
+        }
+        runAll(parse);
+
+        List<Callable<IColumn>> stitch = new ArrayList<Callable<IColumn>>();
+        for (int ci = 0; ci < stringSchema.getColumnCount(); ci++) {
+            final int columnIndex = ci;
+            stitch.add(() -> this.stitch(chunks, columnIndex));
+        }
+        List<IColumn> sealed = runAll(stitch);
+        return new Table(sealed, this.filename, null);
+    }
 }
@@ -18,7 +18,11 @@
 package org.hillview.storage;
 
 import org.hillview.dataset.api.IJson;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.ContentsKind;
 import org.hillview.table.api.ITable;
+import org.hillview.table.api.ITableFilter;
+import org.hillview.table.filters.RangeFilterDescription;
 import org.hillview.utils.Converters;
 import org.hillview.utils.Utilities;
 
@@ -26,6 +30,9 @@ import javax.annotation.Nullable;
 import java.io.File;
 import java.io.Serializable;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Describes a set of files to load.  Not all fields are always used.
@@ -35,7 +42,8 @@ import java.nio.file.Paths;
 public class FileSetDescription implements Serializable, IJson {
     /**
      * This could probably be an enum.  Supported values are:
-     * csv, orc, parquet, json, hillviewlog.
+     * csv, orc, parquet, json, hillviewlog, genericlog, hvc.
+     * For hvc the file name pattern matches folders written by the HvcFileWriter.
      */
     public String fileKind = "";
     /**
@@ -67,10 +75,44 @@ public class FileSetDescription implements Serializable, IJson {
      */
     @Nullable
     public String logFormat = null;
+    /**
+     * If true the loaded columns store their data off the Java heap.
+     * Only used for csv and orc files.
+     */
+    public boolean offHeap = false;
     @Nullable
     public Double startTime;
     @Nullable
     public Double endTime;
+    /**
+     * If not null, startTime and endTime also restrict the rows loaded
+     * to the ones where this column is in the specified time range.
+     */
+    @Nullable
+    public String timestampColumn;
+    /**
+     * Filters applied to the data immediately after loading.
+     * The orc and parquet loaders use them to skip the parts of the files
+     * that cannot contain any row that passes the filters.
+     */
+    @Nullable
+    public RangeFilterDescription[] filters;
+
+    /**
+     * All the filters applied after loading, including the time range.
+     */
+    private List<RangeFilterDescription> getFilters() {
+        List<RangeFilterDescription> result = new ArrayList<RangeFilterDescription>();
+        if (this.filters != null)
+            result.addAll(Arrays.asList(this.filters));
+        if (this.timestampColumn != null && (this.startTime != null || this.endTime != null)) {
+            ColumnDescription cd = new ColumnDescription(this.timestampColumn, ContentsKind.Date);
+            double min = this.startTime != null ? this.startTime : Double.NEGATIVE_INFINITY;
+            double max = this.endTime != null ? this.endTime : Double.POSITIVE_INFINITY;
+            result.add(new RangeFilterDescription(cd, min, max, false));
+        }
+        return result;
+    }
 
     @Nullable
     private String getSchemaPath() {
@@ -97,27 +139,35 @@ public class FileSetDescription implements Serializable, IJson {
 
         @Override
         public ITable load() {
+            List<RangeFilterDescription> filters = FileSetDescription.this.getFilters();
             TextFileLoader loader;
             switch (FileSetDescription.this.fileKind) {
                 case "csv":
                     CsvFileLoader.Config config = new CsvFileLoader.Config();
                     config.allowFewerColumns = true;
                     config.hasHeaderRow = FileSetDescription.this.headerRow;
+                    config.offHeap = FileSetDescription.this.offHeap;
+                    config.threads = Runtime.getRuntime().availableProcessors();
+                    config.guessPrefixRows = 10000;
                     loader = new CsvFileLoader(
                             this.pathname, config, FileSetDescription.this.getSchemaPath());
                     break;
                 case "orc":
                     loader = new OrcFileLoader(
-                            this.pathname, FileSetDescription.this.getSchemaPath(), true);
+                            this.pathname, FileSetDescription.this.getSchemaPath(), true,
+                            FileSetDescription.this.offHeap, filters);
                     break;
                 case "parquet":
                     loader = new ParquetFileLoader(
-                            this.pathname, true);
+                            this.pathname, true, filters);
                     break;
                 case "json":
                     loader = new JsonFileLoader(
                             this.pathname, FileSetDescription.this.getSchemaPath());
                     break;
+                case "hvc":
+                    loader = new HvcFileLoader(this.pathname);
+                    break;
                 case "hillviewlog":
                     loader = new HillviewLogs.LogFileLoader(this.pathname);
                     break;
@@ -133,14 +183,41 @@ public class FileSetDescription implements Serializable, IJson {
                     throw new RuntimeException(
                             "Unexpected file kind " + FileSetDescription.this.fileKind);
             }
-            return loader.load();
+            ITable result = loader.load();
+            for (RangeFilterDescription filter : filters) {
+                ITableFilter f = filter.getFilter(result);
+                result = result.selectRowsFromFullTable(
+                        result.getMembershipSet().filter(f::test));
+            }
+            return result;
         }
 
         public long getSizeInBytes() {
             File file = new File(this.pathname);
+            if (file.isDirectory()) {
+                long size = 0;
+                File[] contained = file.listFiles();
+                if (contained != null)
+                    for (File f : contained)
+                        size += f.length();
+                return size;
+            }
             if (file.exists())
                 return file.length();
             return 0;
         }
+
+        @Override
+        public String getVersion() {
+            File file = new File(this.pathname);
+            long modified = file.lastModified();
+            if (file.isDirectory()) {
+                File[] contained = file.listFiles();
+                if (contained != null)
+                    for (File f : contained)
+                        modified = Math.max(modified, f.lastModified());
+            }
+            return this.getSizeInBytes() + "@" + modified;
+        }
     }
 }
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.storage;
+
+import org.hillview.utils.Utilities;
+
+/**
+ * Connection to an H2 database.  If no host is specified the database
+ * is embedded; e.g., the database "mem:test" is an in-memory database.
+ */
+public class H2JdbcConnection extends JdbcConnection {
+    H2JdbcConnection(JdbcConnectionInformation conn) {
+        super(';', ';', conn);
+    }
+
+    @Override
+    public String getQueryToReadTable(String table, int rowCount) {
+        String result = "SELECT * FROM " + table;
+        if (rowCount >= 0)
+            result += " LIMIT " + Integer.toString(rowCount);
+        return result;
+    }
+
+    @Override
+    public String getURL() {
+        if (Utilities.isNullOrEmpty(this.info.host))
+            return "jdbc:h2:" + this.info.database;
+        StringBuilder builder = new StringBuilder();
+        builder.append("jdbc:h2:tcp://");
+        builder.append(this.info.host);
+        if (this.info.port >= 0) {
+            builder.append(":");
+            builder.append(this.info.port);
+        }
+        builder.append("/");
+        builder.append(this.info.database);
+        return builder.toString();
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.storage;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Schema;
+import org.hillview.table.Table;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IColumnLoader;
+import org.hillview.table.api.ITable;
+import org.hillview.table.columns.BaseOffHeapColumn;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads a table written by the HvcFileWriter.  The columns are loaded
+ * lazily, by mapping the column files in memory; no data is copied or parsed,
+ * the operating system pages the data in when it is accessed.
+ */
+public class HvcFileLoader extends TextFileLoader {
+    /**
+     * Maximum size of a single memory mapping.
+     */
+    private static final int MaxMappingSize = 1 << 30;
+
+    @Nullable
+    private Schema schema;
+    private int rowCount;
+
+    /**
+     * Create a loader for a table.
+     * @param folder  Folder containing the schema and the column files.
+     */
+    public HvcFileLoader(String folder) {
+        super(folder);
+        this.schema = null;
+        this.rowCount = 0;
+    }
+
+    /**
+     * Information stored in the header of a column file.
+     */
+    private static class Header {
+        final int valueSize;
+        final int rowCount;
+        final int dictionarySize;
+        final boolean hasMissing;
+        final long missingOffset;
+        final long dataOffset;
+        final long dictionaryOffset;
+
+        Header(FileChannel channel, Path path) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(HvcFileWriter.HeaderSize)
+                    .order(HvcFileWriter.Order);
+            while (buffer.hasRemaining())
+                if (channel.read(buffer, buffer.position()) < 0)
+                    throw new RuntimeException("Truncated column file " + path);
+            buffer.flip();
+            if (buffer.getInt() != HvcFileWriter.Magic)
+                throw new RuntimeException("Not a column file " + path);
+            int version = buffer.getInt();
+            if (version != HvcFileWriter.Version)
+                throw new RuntimeException("Unsupported version " + version + " of " + path);
+            this.valueSize = buffer.getInt();
+            this.rowCount = buffer.getInt();
+            this.dictionarySize = buffer.getInt();
+            this.hasMissing = (buffer.getInt() & HvcFileWriter.HasMissingFlag) != 0;
+            this.missingOffset = buffer.getLong();
+            this.dataOffset = buffer.getLong();
+            this.dictionaryOffset = buffer.getLong();
+        }
+    }
+
+    /**
+     * Maps a section of a file in memory.
+     * @param channel    File to map.
+     * @param offset     Offset of the section in the file.
+     * @param length     Length of the section in bytes.
+     * @param sliceSize  The section is split into buffers of this size;
+     *                   only the last one may be smaller.
+     */
+    private static List<ByteBuffer> map(FileChannel channel, long offset,
+                                        long length, int sliceSize) throws IOException {
+        List<ByteBuffer> result = new ArrayList<ByteBuffer>();
+        long mappingSize = Math.max(1, MaxMappingSize / sliceSize) * (long)sliceSize;
+        for (long start = 0; start < length; start += mappingSize) {
+            long size = Math.min(mappingSize, length - start);
+            MappedByteBuffer mapped = channel.map(
+                    FileChannel.MapMode.READ_ONLY, offset + start, size);
+            for (int sliceStart = 0; sliceStart < size; sliceStart += sliceSize) {
+                ByteBuffer slice = mapped.duplicate();
+                slice.position(sliceStart);
+                slice.limit((int)Math.min(size, (long)sliceStart + sliceSize));
+                result.add(slice.slice().order(HvcFileWriter.Order));
+            }
+        }
+        return result;
+    }
+
+    private static List<String> readDictionary(FileChannel channel, Header header)
+            throws IOException {
+        List<String> result = new ArrayList<String>(header.dictionarySize);
+        if (header.dictionarySize == 0)
+            return result;
+        long length = channel.size() - header.dictionaryOffset;
+        ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                header.dictionaryOffset, length).order(HvcFileWriter.Order);
+        for (int i = 0; i < header.dictionarySize; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            result.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+
+    private static IColumn mapColumn(ColumnDescription desc, Path path, int rowCount) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Header header = new Header(channel, path);
+            if (header.rowCount != rowCount)
+                throw new RuntimeException("Expected " + rowCount + " rows in " + path +
+                        " found " + header.rowCount);
+            if (header.valueSize != HvcFileWriter.valueSize(desc.kind))
+                throw new RuntimeException("Column file " + path + " does not match " + desc);
+            List<ByteBuffer> missing = null;
+            if (header.hasMissing)
+                missing = map(channel, header.missingOffset, (rowCount + 7) / 8,
+                        BaseOffHeapColumn.SegmentSize / 8);
+            List<ByteBuffer> data = map(channel, header.dataOffset,
+                    (long)rowCount * header.valueSize,
+                    BaseOffHeapColumn.SegmentSize * header.valueSize);
+            List<String> dictionary = null;
+            if (desc.kind.isString())
+                dictionary = readDictionary(channel, header);
+            // The mappings remain valid after the channel is closed.
+            return BaseOffHeapColumn.wrap(desc, data, missing, rowCount, dictionary);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static int readRowCount(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Header(channel, path).rowCount;
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    class HvcColumnLoader implements IColumnLoader {
+        @Override
+        public List<IColumn> loadColumns(List<String> names) {
+            Schema schema = HvcFileLoader.this.schema;
+            assert schema != null;
+            List<String> allNames = schema.getColumnNames();
+            List<IColumn> result = new ArrayList<IColumn>(names.size());
+            for (String name : names) {
+                int index = allNames.indexOf(name);
+                if (index < 0)
+                    throw new RuntimeException("No column named " + name);
+                Path path = Paths.get(HvcFileLoader.this.filename,
+                        HvcFileWriter.columnFileName(index));
+                result.add(mapColumn(schema.getDescription(name), path,
+                        HvcFileLoader.this.rowCount));
+            }
+            return result;
+        }
+    }
+
+    @Override
+    public ITable load() {
+        this.schema = Schema.readFromJsonFile(Paths.get(this.filename, Schema.schemaFileName));
+        if (this.schema.getColumnCount() > 0)
+            this.rowCount = readRowCount(Paths.get(this.filename, HvcFileWriter.columnFileName(0)));
+        return Table.createLazyTable(this.schema.getColumnDescriptions(), this.rowCount,
+                this.filename, new HvcColumnLoader());
+    }
+}
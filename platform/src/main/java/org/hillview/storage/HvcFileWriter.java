@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.storage;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Schema;
+import org.hillview.table.api.*;
+import org.hillview.utils.Converters;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes Hillview ITable objects in the Hillview native column format.
+ * A table is stored in a folder, which contains a schema file and one
+ * file for each column.  The column files are read by the HvcFileLoader
+ * by mapping them in memory, so they can be loaded without parsing.
+ *
+ * A column file is stored in little-endian byte order and has the following
+ * sections, each starting at an offset that is a multiple of 8:
+ * - a header of HeaderSize bytes:
+ *   magic (int), version (int), value size in bytes (int), number of rows (int),
+ *   number of dictionary entries (int), flags (int),
+ *   missing bitmap offset (long), data offset (long), dictionary offset (long)
+ * - the missing bitmap, one bit per row, set for missing values;
+ *   only present for columns that are not strings
+ * - the data, one value of the specified size per row; strings are stored as
+ *   int codes, where 0 encodes null and i encodes dictionary entry i - 1
+ * - the dictionary, only for strings: for each entry the length in bytes
+ *   (int) followed by the UTF-8 bytes.
+ */
+public class HvcFileWriter implements ITableWriter {
+    static final int Magic = 0x31435648;  // "HVC1"
+    static final int Version = 1;
+    static final int HeaderSize = 48;
+    static final int HasMissingFlag = 1;
+    static final ByteOrder Order = ByteOrder.LITTLE_ENDIAN;
+    private static final int BufferSize = 1 << 20;
+
+    /**
+     * Folder where the table is written.
+     */
+    private final String folder;
+
+    public HvcFileWriter(String folder) {
+        this.folder = folder;
+    }
+
+    static String columnFileName(int index) {
+        return index + ".hvc";
+    }
+
+    /**
+     * Number of bytes used to store a value of the specified kind.
+     */
+    static int valueSize(ContentsKind kind) {
+        switch (kind) {
+            case String:
+            case Json:
+            case Integer:
+                return Integer.BYTES;
+            case Double:
+            case Date:
+            case Duration:
+                return Double.BYTES;
+            case None:
+            default:
+                throw new RuntimeException("Unexpected data type " + kind);
+        }
+    }
+
+    static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    /**
+     * Buffered output to a file channel in little-endian order.
+     */
+    private static class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(BufferSize).order(Order);
+        }
+
+        long position() throws IOException {
+            return this.channel.position() + this.buffer.position();
+        }
+
+        void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining())
+                this.channel.write(this.buffer);
+            this.buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (this.buffer.remaining() < bytes)
+                this.flush();
+        }
+
+        void putByte(byte b) throws IOException {
+            this.ensure(1);
+            this.buffer.put(b);
+        }
+
+        void putInt(int i) throws IOException {
+            this.ensure(Integer.BYTES);
+            this.buffer.putInt(i);
+        }
+
+        void putDouble(double d) throws IOException {
+            this.ensure(Double.BYTES);
+            this.buffer.putDouble(d);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            if (bytes.length > BufferSize) {
+                this.flush();
+                ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining())
+                    this.channel.write(wrapped);
+            } else {
+                this.ensure(bytes.length);
+                this.buffer.put(bytes);
+            }
+        }
+
+        /**
+         * Pads the output with zeros until the position is a multiple of 8.
+         */
+        void align() throws IOException {
+            long position = this.position();
+            long aligned = HvcFileWriter.align(position);
+            for (long i = position; i < aligned; i++)
+                this.putByte((byte)0);
+        }
+    }
+
+    private static void writeColumn(IColumn col, IMembershipSet set, Path path) throws IOException {
+        ColumnDescription cd = col.getDescription();
+        int valueSize = valueSize(cd.kind);
+        boolean hasMissing = !cd.kind.isObject();
+        int rowCount = set.getSize();
+        int[] rows = new int[IRowIterator.BATCH_SIZE];
+        boolean[] missing = new boolean[IRowIterator.BATCH_SIZE];
+        Object2IntOpenHashMap<String> codes = new Object2IntOpenHashMap<String>();
+        List<String> dictionary = new ArrayList<String>();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output output = new Output(channel);
+            for (int i = 0; i < HeaderSize; i++)
+                output.putByte((byte)0);
+
+            long missingOffset = output.position();
+            if (hasMissing) {
+                IRowIterator it = set.getIterator();
+                int bits = 0;
+                int bitCount = 0;
+                int count;
+                while ((count = it.getNextRows(rows)) > 0) {
+                    col.isMissing(rows, count, missing);
+                    for (int i = 0; i < count; i++) {
+                        if (missing[i])
+                            bits |= 1 << bitCount;
+                        bitCount++;
+                        if (bitCount == 8) {
+                            output.putByte((byte)bits);
+                            bits = 0;
+                            bitCount = 0;
+                        }
+                    }
+                }
+                if (bitCount != 0)
+                    output.putByte((byte)bits);
+                output.align();
+            }
+
+            long dataOffset = output.position();
+            IRowIterator it = set.getIterator();
+            int count;
+            while ((count = it.getNextRows(rows)) > 0) {
+                col.isMissing(rows, count, missing);
+                for (int i = 0; i < count; i++) {
+                    int row = rows[i];
+                    switch (cd.kind) {
+                        case String:
+                        case Json: {
+                            String s = missing[i] ? null : col.getString(row);
+                            int code = 0;
+                            if (s != null) {
+                                code = codes.getOrDefault(s, 0);
+                                if (code == 0) {
+                                    dictionary.add(s);
+                                    code = dictionary.size();
+                                    codes.put(s, code);
+                                }
+                            }
+                            output.putInt(code);
+                            break;
+                        }
+                        case Integer:
+                            output.putInt(missing[i] ? 0 : col.getInt(row));
+                            break;
+                        case Double:
+                            output.putDouble(missing[i] ? 0 : col.getDouble(row));
+                            break;
+                        case Date:
+                            output.putDouble(missing[i] ? 0 : Converters.toDouble(col.getDate(row)));
+                            break;
+                        case Duration:
+                            output.putDouble(missing[i] ? 0 : Converters.toDouble(col.getDuration(row)));
+                            break;
+                        case None:
+                        default:
+                            throw new RuntimeException("Unexpected data type " + cd.kind);
+                    }
+                }
+            }
+            output.align();
+
+            long dictionaryOffset = output.position();
+            for (String s : dictionary) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                output.putInt(bytes.length);
+                output.putBytes(bytes);
+            }
+            output.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HeaderSize).order(Order);
+            header.putInt(Magic);
+            header.putInt(Version);
+            header.putInt(valueSize);
+            header.putInt(rowCount);
+            header.putInt(dictionary.size());
+            header.putInt(hasMissing ? HasMissingFlag : 0);
+            header.putLong(missingOffset);
+            header.putLong(dataOffset);
+            header.putLong(dictionaryOffset);
+            header.flip();
+            channel.position(0);
+            while (header.hasRemaining())
+                channel.write(header);
+        }
+    }
+
+    @Override
+    public void writeTable(ITable table) {
+        try {
+            Path dir = Paths.get(this.folder);
+            Files.createDirectories(dir);
+            Schema schema = table.getSchema();
+            schema.writeToJsonFile(dir.resolve(Schema.schemaFileName));
+            List<String> names = schema.getColumnNames();
+            List<IColumn> cols = table.getLoadedColumns(names);
+            for (int i = 0; i < cols.size(); i++)
+                writeColumn(cols.get(i), table.getMembershipSet(), dir.resolve(columnFileName(i)));
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+}
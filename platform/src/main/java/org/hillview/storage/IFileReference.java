@@ -34,4 +34,12 @@ public interface IFileReference {
      * The size of the file in bytes.
      */
     long getSizeInBytes();
+
+    /**
+     * A string that changes when the file is modified, e.g., the size and
+     * modification time of the file.
+     */
+    default String getVersion() {
+        return Long.toString(this.getSizeInBytes());
+    }
 }
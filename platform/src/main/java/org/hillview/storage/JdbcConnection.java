@@ -19,7 +19,9 @@ package org.hillview.storage;
 
 import org.hillview.utils.Utilities;
 
+import javax.annotation.Nullable;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * Base abstract class that handles various specifics of JDBC driver requirements.
@@ -44,6 +46,8 @@ abstract class JdbcConnection {
                 return new MySqlJdbcConnection(conn);
             case "impala":
                 return new ImpalaJdbcConnection(conn);
+            case "h2":
+                return new H2JdbcConnection(conn);
             default:
                 throw new RuntimeException("Unsupported JDBC database kind " + conn.databaseKind);
         }
@@ -66,6 +70,35 @@ abstract class JdbcConnection {
         return "SELECT COUNT(*) FROM " + table;
     }
 
+    /**
+     * Construct the query string to read the rows of a table that satisfy a condition.
+     * @param table      Table to read.
+     * @param columns    Columns to read; if null all columns are read.
+     * @param condition  SQL condition on the rows; if null all rows are read.
+     */
+    public String getQueryToReadRows(
+            String table, @Nullable List<String> columns, @Nullable String condition) {
+        String cols = columns == null ? "*" : String.join(",", columns);
+        String result = "SELECT " + cols + " FROM " + table;
+        if (condition != null)
+            result += " WHERE " + condition;
+        return result;
+    }
+
+    public String getQueryToReadSize(String table, @Nullable String condition) {
+        String result = this.getQueryToReadSize(table);
+        if (condition != null)
+            result += " WHERE " + condition;
+        return result;
+    }
+
+    /**
+     * Number of rows fetched from the database at a time when reading data.
+     */
+    int getFetchSize() {
+        return 10000;
+    }
+
     void addBaseUrl(StringBuilder urlBuilder) {
         urlBuilder.append("jdbc:");
         urlBuilder.append(info.databaseKind);
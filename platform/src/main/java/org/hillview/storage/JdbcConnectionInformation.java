@@ -41,4 +41,21 @@ public class JdbcConnectionInformation implements Serializable {
      * If true data is loaded lazily - on demand.
      */
     public boolean lazyLoading;
+    /**
+     * If larger than 1 and a partitionColumn is specified the table is
+     * split into this many partitions, which are read concurrently, each
+     * over a separate connection.
+     */
+    public int partitions = 1;
+    /**
+     * Numeric column used to split the table into partitions.
+     */
+    @Nullable
+    public String partitionColumn;
+    /**
+     * If true the partitions are given by the value of partitionColumn
+     * modulo the number of partitions; the column must be an integer.
+     * Otherwise each partition holds a range of values of partitionColumn.
+     */
+    public boolean partitionByModulo;
 }
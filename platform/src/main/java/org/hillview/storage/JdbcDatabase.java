@@ -22,6 +22,7 @@ import org.hillview.table.Table;
 import org.hillview.table.api.*;
 import org.hillview.table.columns.BaseListColumn;
 import org.hillview.utils.Converters;
+import org.hillview.utils.ExecutorUtils;
 import org.hillview.utils.HillviewLogger;
 import org.hillview.utils.Linq;
 import org.hillview.utils.Utilities;
@@ -30,7 +31,9 @@ import javax.annotation.Nullable;
 import java.sql.*;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.*;
 
 /**
  * Conversions between JDBC information and ITable objects.
@@ -66,16 +69,25 @@ public class JdbcDatabase {
     }
 
     public ITable readTable() {
+        return this.readTable(null);
+    }
+
+    /**
+     * Reads the rows of the table that satisfy a condition.
+     * @param condition  SQL condition; if null all rows are read.
+     */
+    private ITable readTable(@Nullable String condition) {
         try {
             assert this.conn.info.table != null;
             if (this.conn.info.lazyLoading) {
-                String query = this.conn.getQueryToReadSize(this.conn.info.table);
+                String query = this.conn.getQueryToReadSize(this.conn.info.table, condition);
                 ResultSet rs = this.getQueryResult(query);
                 if (!rs.next())
                     throw new RuntimeException("Could not retrieve table size for " + this.conn.info.table);
                 int rowCount = rs.getInt(1);
+                rs.close();
 
-                IColumnLoader loader = new JdbcLoader(this.conn.info);
+                IColumnLoader loader = new JdbcLoader(this.conn.info, condition);
                 ResultSetMetaData meta = this.getSchema();
                 List<ColumnDescription> cds = new ArrayList<ColumnDescription>(
                         meta.getColumnCount());
@@ -85,8 +97,9 @@ public class JdbcDatabase {
                 }
                 return Table.createLazyTable(cds, rowCount, this.conn.info.table, loader);
             } else {
-                ResultSet rs = this.getDataInTable(-1);
-                List<IAppendableColumn> columns = JdbcDatabase.convertResultSet(rs);
+                String query = this.conn.getQueryToReadRows(
+                        this.conn.info.table, null, condition);
+                List<IAppendableColumn> columns = this.readQueryResult(query);
                 return new Table(columns, this.conn.info.table, null);
             }
         } catch (SQLException e) {
@@ -94,6 +107,98 @@ public class JdbcDatabase {
         }
     }
 
+    /**
+     * Reads the table in the number of partitions specified by the connection
+     * information.  The partitions are read concurrently, each over a
+     * separate connection.
+     * @return  A table for each partition.
+     */
+    public List<ITable> readTablePartitions() {
+        JdbcConnectionInformation info = this.conn.info;
+        if (info.partitions <= 1 || Utilities.isNullOrEmpty(info.partitionColumn))
+            return Collections.singletonList(this.readTable());
+        try {
+            List<String> conditions = this.getPartitionConditions();
+            List<Callable<ITable>> tasks = Linq.map(conditions, c -> (Callable<ITable>)() -> {
+                JdbcDatabase db = new JdbcDatabase(info);
+                db.connect();
+                try {
+                    return db.readTable(c);
+                } finally {
+                    db.disconnect();
+                }
+            });
+            // Reading is mostly waiting for the database, so we use a
+            // thread for each connection instead of the computation pool.
+            ExecutorService executor = ExecutorUtils.newNamedThreadPool(
+                    "jdbc", conditions.size(), -1);
+            List<ITable> result = new ArrayList<ITable>(conditions.size());
+            try {
+                for (Future<ITable> f : executor.invokeAll(tasks))
+                    result.add(f.get());
+            } finally {
+                executor.shutdown();
+            }
+            return result;
+        } catch (SQLException | InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Converts a partition boundary to a SQL literal.
+     */
+    private static String toLiteral(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15)
+            return Long.toString((long)value);
+        return Double.toString(value);
+    }
+
+    /**
+     * SQL conditions which split the table into partitions using the partition
+     * column.  The rows where the partition column is NULL are in the first partition.
+     */
+    private List<String> getPartitionConditions() throws SQLException {
+        JdbcConnectionInformation info = this.conn.info;
+        String column = info.partitionColumn;
+        int count = info.partitions;
+        assert column != null && info.table != null;
+        List<String> result = new ArrayList<String>(count);
+        if (info.partitionByModulo) {
+            for (int i = 0; i < count; i++)
+                result.add("ABS(MOD(" + column + ", " + count + ")) = " + i);
+        } else {
+            ResultSet rs = this.getQueryResult(
+                    "SELECT MIN(" + column + "), MAX(" + column + ") FROM " + info.table);
+            if (!rs.next())
+                throw new RuntimeException("Could not retrieve range of " + column);
+            double min = rs.getDouble(1);
+            double max = rs.getDouble(2);
+            rs.close();
+            // The first and last partitions are open, so they cover all values
+            // even if the boundaries are not exact.
+            String lower = null;
+            for (int i = 1; i <= count; i++) {
+                String upper = i == count ? null : toLiteral(min + (max - min) * i / count);
+                String condition;
+                if (lower == null)
+                    condition = column + " < " + upper;
+                else if (upper == null)
+                    condition = column + " >= " + lower;
+                else
+                    condition = column + " >= " + lower + " AND " + column + " < " + upper;
+                result.add(condition);
+                lower = upper;
+            }
+        }
+        result.set(0, "(" + result.get(0) + ") OR " + column + " IS NULL");
+        return result;
+    }
+
     private ResultSetMetaData getSchema() {
         try {
             ResultSet rs = this.getDataInTable(0);
@@ -108,9 +213,15 @@ public class JdbcDatabase {
      */
     static class JdbcLoader implements IColumnLoader {
         private final JdbcConnectionInformation connInfo;
+        /**
+         * Condition selecting the rows to read; if null all rows are read.
+         */
+        @Nullable
+        private final String condition;
 
-        JdbcLoader(final JdbcConnectionInformation connInfo) {
+        JdbcLoader(final JdbcConnectionInformation connInfo, @Nullable String condition) {
             this.connInfo = connInfo;
+            this.condition = condition;
         }
 
         @Override
@@ -118,10 +229,10 @@ public class JdbcDatabase {
             try {
                 JdbcDatabase db = new JdbcDatabase(this.connInfo);
                 db.connect();
-                String cols = String.join(",", names);
-                String query = "SELECT " + cols + " FROM " + this.connInfo.table;
-                ResultSet rs = db.getQueryResult(query);
-                List<IAppendableColumn> columns = JdbcDatabase.convertResultSet(rs);
+                assert this.connInfo.table != null;
+                String query = db.conn.getQueryToReadRows(
+                        this.connInfo.table, names, this.condition);
+                List<IAppendableColumn> columns = db.readQueryResult(query);
                 db.disconnect();
                 return Linq.map(columns, c -> c);
             } catch (SQLException ex) {
@@ -150,9 +261,25 @@ public class JdbcDatabase {
         }
     }
 
+    /**
+     * Executes a query and converts the result, fetching rows from the
+     * database in batches instead of reading the whole result in memory.
+     */
+    private List<IAppendableColumn> readQueryResult(String query) {
+        HillviewLogger.instance.info("Executing SQL query", "{0}", query);
+        try (Statement st = Converters.checkNull(this.connection).createStatement(
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(this.conn.getFetchSize());
+            try (ResultSet rs = st.executeQuery(query)) {
+                return JdbcDatabase.convertResultSet(rs);
+            }
+        } catch (SQLException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
     public ITable getQueryData(String query) {
-        ResultSet rs = this.getQueryResult(query);
-        List<IAppendableColumn> columns = JdbcDatabase.convertResultSet(rs);
+        List<IAppendableColumn> columns = this.readQueryResult(query);
         return new Table(columns, null, null);
     }
 
@@ -218,58 +345,66 @@ public class JdbcDatabase {
         return new ColumnDescription(name, kind);
     }
 
-    private static void appendNext(List<IAppendableColumn> cols,
-                                   ResultSetMetaData meta, ResultSet data)
-            throws SQLException {
-        for (int i = 0; i < cols.size(); i++) {
-            int colIndex = i + 1;
-            IAppendableColumn col = cols.get(i);
-            int colType = meta.getColumnType(colIndex);
-            switch (colType) {
-                case Types.BOOLEAN:
-                case Types.BIT:
+    /**
+     * Appends the value of a column in the current row of a result set to a Hillview column.
+     */
+    @FunctionalInterface
+    private interface IValueAppender {
+        void append(ResultSet data, int colIndex, IAppendableColumn col) throws SQLException;
+    }
+
+    /**
+     * Returns the function which appends values of the specified SQL type;
+     * this is called once for each column of a result set.
+     */
+    private static IValueAppender getAppender(int colType) {
+        switch (colType) {
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return (data, colIndex, col) -> {
                     boolean b = data.getBoolean(colIndex);
                     if (data.wasNull())
                         col.appendMissing();
                     else
                         col.append(b ? "true" : "false");
-                    break;
-                case Types.TINYINT:
-                case Types.SMALLINT:
-                case Types.INTEGER:
+                };
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return (data, colIndex, col) -> {
                     int integer = data.getInt(colIndex);
                     if (data.wasNull())
                         col.appendMissing();
                     else
                         col.append(integer);
-                    break;
-                case Types.BIGINT:
-                case Types.FLOAT:
-                case Types.REAL:
-                case Types.DOUBLE:
-                case Types.NUMERIC:
-                case Types.DECIMAL:
+                };
+            case Types.BIGINT:
+            case Types.FLOAT:
+            case Types.REAL:
+            case Types.DOUBLE:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return (data, colIndex, col) -> {
                     double d = data.getDouble(colIndex);
                     if (data.wasNull())
                         col.appendMissing();
                     else
                         col.append(d);
-                    break;
-                case Types.CHAR:
-                case Types.VARCHAR:
-                case Types.LONGVARCHAR:
-                case Types.NCHAR:
-                case Types.NVARCHAR:
-                case Types.LONGNVARCHAR:
-                case Types.SQLXML:
-                    String s = data.getString(colIndex);
-                    col.append(s);
-                    break;
-                case Types.DATE:
-                case Types.TIME:
-                case Types.TIMESTAMP:
-                case Types.TIME_WITH_TIMEZONE:
-                case Types.TIMESTAMP_WITH_TIMEZONE:
+                };
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+            case Types.SQLXML:
+                return (data, colIndex, col) -> col.append(data.getString(colIndex));
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+            case Types.TIME_WITH_TIMEZONE:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return (data, colIndex, col) -> {
                     Timestamp ts = data.getTimestamp(colIndex);
                     if (ts == null) {
                         col.appendMissing();
@@ -277,26 +412,25 @@ public class JdbcDatabase {
                         Instant instant = ts.toInstant();
                         col.append(instant);
                     }
-                    break;
-                case Types.BINARY:
-                case Types.VARBINARY:
-                case Types.LONGVARBINARY:
-                case Types.NULL:
-                case Types.OTHER:
-                case Types.JAVA_OBJECT:
-                case Types.DISTINCT:
-                case Types.STRUCT:
-                case Types.ARRAY:
-                case Types.BLOB:
-                case Types.CLOB:
-                case Types.REF:
-                case Types.DATALINK:
-                case Types.ROWID:
-                case Types.NCLOB:
-                case Types.REF_CURSOR:
-                default:
-                    throw new RuntimeException("Unhandled column type " + colType);
-            }
+                };
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.NULL:
+            case Types.OTHER:
+            case Types.JAVA_OBJECT:
+            case Types.DISTINCT:
+            case Types.STRUCT:
+            case Types.ARRAY:
+            case Types.BLOB:
+            case Types.CLOB:
+            case Types.REF:
+            case Types.DATALINK:
+            case Types.ROWID:
+            case Types.NCLOB:
+            case Types.REF_CURSOR:
+            default:
+                throw new RuntimeException("Unhandled column type " + colType);
         }
     }
 
@@ -314,11 +448,15 @@ public class JdbcDatabase {
         try {
             ResultSetMetaData meta = data.getMetaData();
             List<IAppendableColumn> cols = createColumns(meta);
+            IValueAppender[] appenders = new IValueAppender[cols.size()];
+            for (int i = 0; i < appenders.length; i++)
+                appenders[i] = getAppender(meta.getColumnType(i + 1));
 
             int rowsRead = 0;
             while (data.next()) {
                 rowsRead++;
-                appendNext(cols, meta, data);
+                for (int i = 0; i < appenders.length; i++)
+                    appenders[i].append(data, i + 1, cols.get(i));
                 if (rowsRead % 50000 == 0)
                     System.out.print(".");
             }
@@ -30,6 +30,15 @@ public class MySqlJdbcConnection extends JdbcConnection {
         return result;
     }
 
+    /**
+     * The MySQL driver only streams result sets with this fetch size;
+     * otherwise it reads the whole result set in memory.
+     */
+    @Override
+    int getFetchSize() {
+        return Integer.MIN_VALUE;
+    }
+
     @Override
     public String getURL() {
         this.addParameter("useLegacyDatetimeCode", "true");
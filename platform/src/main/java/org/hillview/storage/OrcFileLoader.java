@@ -20,6 +20,9 @@ package org.hillview.storage;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hive.ql.exec.vector.*;
+import org.apache.hadoop.hive.ql.io.sarg.PredicateLeaf;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
 import org.apache.orc.OrcFile;
 import org.apache.orc.Reader;
 import org.apache.orc.RecordReader;
@@ -29,12 +32,16 @@ import org.hillview.table.Schema;
 import org.hillview.table.Table;
 import org.hillview.table.api.*;
 import org.hillview.table.columns.BaseListColumn;
+import org.hillview.table.columns.BaseOffHeapColumn;
+import org.hillview.table.filters.RangeFilterDescription;
 import org.hillview.utils.Converters;
 import org.hillview.utils.Linq;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -46,6 +53,10 @@ import java.util.List;
  */
 public class OrcFileLoader extends TextFileLoader {
     private final boolean lazy;
+    /**
+     * If true the columns loaded are stored off the Java heap.
+     */
+    private final boolean offHeap;
     private final Configuration conf = new Configuration();
     /**
      * Path of the Hillview Schema if specified.
@@ -63,11 +74,36 @@ public class OrcFileLoader extends TextFileLoader {
      */
     @Nullable
     private Schema hillviewSchema = null;
+    /**
+     * Filters that will be applied to the loaded table.  They are used to skip
+     * the stripes and row groups whose statistics show that no row passes;
+     * the loaded table may still contain rows that do not pass the filters.
+     */
+    @Nullable
+    private final List<RangeFilterDescription> filters;
+    /**
+     * Search argument built from the filters; null if no filter applies to this file.
+     */
+    @Nullable
+    private SearchArgument searchArgument = null;
 
     public OrcFileLoader(String path, @Nullable String schemaPath, boolean lazy) {
+        this(path, schemaPath, lazy, false);
+    }
+
+    public OrcFileLoader(String path, @Nullable String schemaPath,
+                         boolean lazy, boolean offHeap) {
+        this(path, schemaPath, lazy, offHeap, null);
+    }
+
+    public OrcFileLoader(String path, @Nullable String schemaPath,
+                         boolean lazy, boolean offHeap,
+                         @Nullable List<RangeFilterDescription> filters) {
         super(path);
         this.lazy = lazy;
+        this.offHeap = offHeap;
         this.schemaPath = schemaPath;
+        this.filters = filters;
     }
 
     private boolean[] project(List<String> columns) {
@@ -85,18 +121,126 @@ public class OrcFileLoader extends TextFileLoader {
         return toInclude;
     }
 
+    /**
+     * Names of the columns used by the search argument.
+     */
+    private List<String> getSearchColumns() {
+        assert this.searchArgument != null;
+        return Linq.map(this.searchArgument.getLeaves(), PredicateLeaf::getColumnName);
+    }
+
+    /**
+     * Options to read the specified columns, skipping the row groups excluded
+     * by the search argument.  The row groups skipped depend only on the search
+     * argument, so all projections of the file have the same number of rows.
+     * The reader needs the indexes of the columns in the search argument, so
+     * these columns are always read.
+     */
+    private Reader.Options createOptions(@Nullable List<String> columns) {
+        assert this.schema != null;
+        Reader.Options options = new Reader.Options();
+        if (columns != null) {
+            List<String> toRead = new ArrayList<String>(columns);
+            if (this.searchArgument != null)
+                toRead.addAll(this.getSearchColumns());
+            options = options.include(this.project(toRead));
+        }
+        if (this.searchArgument != null)
+            options = options.searchArgument(this.searchArgument,
+                    this.schema.getFieldNames().toArray(new String[0]));
+        return options;
+    }
+
+    /**
+     * Converts a double to a long which can be safely offset by a few days.
+     */
+    private static long toMillis(double value) {
+        final long limit = Long.MAX_VALUE / 4;
+        return Math.max(-limit, Math.min(limit, (long)value));
+    }
+
+    /**
+     * Builds a search argument from the filters on numeric and date columns.
+     * Filters on other columns and complemented filters are not used.
+     */
+    @Nullable
+    private SearchArgument createSearchArgument() {
+        assert this.schema != null;
+        if (this.filters == null)
+            return null;
+        // The conversion of ORC dates to days depends on the time zone,
+        // so date ranges are extended by one day on each side.
+        final long day = 24 * 60 * 60 * 1000;
+        List<String> fields = this.schema.getFieldNames();
+        SearchArgument.Builder builder = SearchArgumentFactory.newBuilder().startAnd();
+        boolean empty = true;
+        for (RangeFilterDescription filter : this.filters) {
+            ColumnDescription cd = filter.getColumnDescription();
+            int index = fields.indexOf(cd.name);
+            if (index < 0 || filter.complement || cd.kind.isString())
+                continue;
+            double min = filter.getMin();
+            double max = filter.getMax();
+            switch (this.schema.getChildren().get(index).getCategory()) {
+                case BYTE:
+                case SHORT:
+                case INT:
+                case LONG:
+                    builder.between(cd.name, PredicateLeaf.Type.LONG,
+                            (long)Math.ceil(min), (long)Math.floor(max));
+                    break;
+                case FLOAT:
+                case DOUBLE:
+                    builder.between(cd.name, PredicateLeaf.Type.FLOAT, min, max);
+                    break;
+                case DATE:
+                    builder.between(cd.name, PredicateLeaf.Type.DATE,
+                            new Date(toMillis(min) - day), new Date(toMillis(max) + day));
+                    break;
+                case TIMESTAMP:
+                    builder.between(cd.name, PredicateLeaf.Type.TIMESTAMP,
+                            new Timestamp(toMillis(min) - day),
+                            new Timestamp(toMillis(max) + day));
+                    break;
+                default:
+                    continue;
+            }
+            empty = false;
+        }
+        if (empty)
+            return null;
+        return builder.end().build();
+    }
+
+    /**
+     * Counts the rows that are not skipped by the search argument by reading
+     * only the columns that it uses.
+     */
+    private int countRows(Reader reader) throws IOException {
+        RecordReader rows = reader.rows(this.createOptions(this.getSearchColumns()));
+        VectorizedRowBatch batch = reader.getSchema().createRowBatch();
+        long count = 0;
+        while (rows.nextBatch(batch))
+            count += batch.size;
+        rows.close();
+        return (int)count;
+    }
+
     class OrcColumnLoader implements IColumnLoader {
         @Override
         public List<IColumn> loadColumns(List<String> names) {
             try {
-                boolean[] toRead = OrcFileLoader.this.project(names);
-                Reader.Options options = new Reader.Options();
-                options = options.include(toRead);
+                Reader.Options options = OrcFileLoader.this.createOptions(names);
                 Reader reader = OrcFile.createReader(new Path(filename),
                         OrcFile.readerOptions(OrcFileLoader.this.conf));
                 List<IAppendableColumn> result = readColumns(
-                        reader, options, OrcFileLoader.this.hillviewSchema);
-                return Linq.map(result, e -> e);
+                        reader, options, OrcFileLoader.this.hillviewSchema,
+                        OrcFileLoader.this.offHeap);
+                List<IColumn> columns = new ArrayList<IColumn>(names.size());
+                for (IAppendableColumn c : result)
+                    if (names.contains(c.getName()))
+                        columns.add(c);
+                return columns;
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -312,8 +456,8 @@ public class OrcFileLoader extends TextFileLoader {
     }
 
     private static List<IAppendableColumn> readColumns(
-            Reader reader, Reader.Options options, @Nullable Schema hillviewSchema)
-            throws IOException {
+            Reader reader, Reader.Options options, @Nullable Schema hillviewSchema,
+            boolean offHeap) throws IOException {
         RecordReader rows = reader.rows(options);
         TypeDescription schema = reader.getSchema();
         List<ColumnDescription> desc = getDescriptions(schema);
@@ -331,7 +475,10 @@ public class OrcFileLoader extends TextFileLoader {
                     col = hillviewDesc.get(i);
                 else
                     col = desc.get(i);
-                toCreate.add(BaseListColumn.create(col));
+                if (offHeap)
+                    toCreate.add(BaseOffHeapColumn.create(col));
+                else
+                    toCreate.add(BaseListColumn.create(col));
             }
         }
 
@@ -359,6 +506,7 @@ public class OrcFileLoader extends TextFileLoader {
                     OrcFile.readerOptions(conf));
             this.schema = reader.getSchema();
             assert this.schema != null;
+            this.searchArgument = this.createSearchArgument();
             Table result;
 
             if (this.lazy) {
@@ -370,11 +518,13 @@ public class OrcFileLoader extends TextFileLoader {
                         throw new RuntimeException("Schema in JSON file does not match Orc schema");
                     desc = imposed;
                 }
-                long rowCount = reader.getNumberOfRows();
+                long rowCount = this.searchArgument == null ?
+                        reader.getNumberOfRows() : this.countRows(reader);
                 result = Table.createLazyTable(desc, (int)rowCount, this.filename, lazyLoader);
             } else {
-                Reader.Options options = new Reader.Options();
-                List<IAppendableColumn> cols = readColumns(reader, options, this.hillviewSchema);
+                Reader.Options options = this.createOptions(null);
+                List<IAppendableColumn> cols = readColumns(
+                        reader, options, this.hillviewSchema, this.offHeap);
                 this.close(null);
                 result = new Table(cols, this.filename, null);
             }
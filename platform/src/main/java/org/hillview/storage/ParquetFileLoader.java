@@ -19,41 +19,68 @@ package org.hillview.storage;
 
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.VersionParser;
 import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.Dictionary;
+import org.apache.parquet.column.impl.ColumnReaderImpl;
 import org.apache.parquet.column.page.PageReadStore;
-import org.apache.parquet.example.data.Group;
 import org.apache.parquet.example.data.simple.NanoTime;
-import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.compat.RowGroupFilter;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
 import org.apache.parquet.format.converter.ParquetMetadataConverter;
 import org.apache.parquet.hadoop.ParquetFileReader;
 import org.apache.parquet.hadoop.metadata.BlockMetaData;
 import org.apache.parquet.hadoop.metadata.FileMetaData;
 import org.apache.parquet.hadoop.metadata.ParquetMetadata;
-import org.apache.parquet.io.ColumnIOFactory;
-import org.apache.parquet.io.MessageColumnIO;
-import org.apache.parquet.io.RecordReader;
 import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.GroupType;
 import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
 import org.apache.parquet.schema.Type;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.Table;
 import org.hillview.table.api.*;
 import org.hillview.table.columns.BaseListColumn;
+import org.hillview.table.columns.StringListColumn;
+import org.hillview.table.filters.RangeFilterDescription;
 import org.hillview.utils.Linq;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 public class ParquetFileLoader extends TextFileLoader {
     private final boolean lazy;
     private final Path path;
     private final Configuration configuration;
     private final ParquetMetadata metadata;
+    /**
+     * Filters that will be applied to the loaded table.  They are used to skip
+     * the row groups whose statistics show that no row passes; the loaded table
+     * may still contain rows that do not pass the filters.
+     */
+    @Nullable
+    private final List<RangeFilterDescription> filters;
+    /**
+     * Row groups that are read from the file.
+     */
+    private final List<BlockMetaData> blocks;
 
     public ParquetFileLoader(String filename, boolean lazy) {
+        this(filename, lazy, null);
+    }
+
+    public ParquetFileLoader(String filename, boolean lazy,
+                             @Nullable List<RangeFilterDescription> filters) {
         super(filename);
+        this.filters = filters;
         this.path = new Path(this.filename);
         this.lazy = lazy;
         this.configuration = new Configuration();
@@ -66,78 +93,214 @@ public class ParquetFileLoader extends TextFileLoader {
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
+        this.blocks = this.selectBlocks();
     }
 
-    private static void appendGroup(
-            List<IAppendableColumn> cols, Group g, List<ColumnDescriptor> cds) {
-        int fieldCount = g.getType().getFieldCount();
-        for (int field = 0; field < fieldCount; field++) {
-            int valueCount = g.getFieldRepetitionCount(field);
-            IAppendableColumn col = cols.get(field);
-            if (valueCount == 0) {
-                col.appendMissing();
+    /**
+     * Builds a predicate from the filters on numeric columns.  Filters on other
+     * columns and complemented filters are not used; INT96 timestamps are not
+     * used either, since their statistics are not reliable.
+     */
+    @Nullable
+    private FilterPredicate createPredicate() {
+        if (this.filters == null)
+            return null;
+        MessageType schema = this.metadata.getFileMetaData().getSchema();
+        FilterPredicate result = null;
+        for (RangeFilterDescription filter : this.filters) {
+            ColumnDescription cd = filter.getColumnDescription();
+            if (!schema.containsField(cd.name) || filter.complement || cd.kind.isString())
                 continue;
-            }
-            if (valueCount > 1)
-                throw new RuntimeException("Repeated values not supported");
-
-            Type fieldType = g.getType().getType(field);
-            if (!fieldType.isPrimitive())
-                throw new RuntimeException("Non-primitive field not supported");
-            switch (cds.get(field).getType()) {
+            Type type = schema.getType(cd.name);
+            if (!type.isPrimitive())
+                continue;
+            double min = filter.getMin();
+            double max = filter.getMax();
+            FilterPredicate predicate;
+            switch (type.asPrimitiveType().getPrimitiveTypeName()) {
+                case INT32: {
+                    Operators.IntColumn column = FilterApi.intColumn(cd.name);
+                    predicate = FilterApi.and(
+                            FilterApi.gtEq(column, (int)Math.ceil(min)),
+                            FilterApi.ltEq(column, (int)Math.floor(max)));
+                    break;
+                }
                 case INT64: {
-                    long l = g.getLong(field, 0);
-                    col.append((double) l);
+                    Operators.LongColumn column = FilterApi.longColumn(cd.name);
+                    predicate = FilterApi.and(
+                            FilterApi.gtEq(column, (long)Math.ceil(min)),
+                            FilterApi.ltEq(column, (long)Math.floor(max)));
                     break;
                 }
                 case FLOAT: {
-                    float f = g.getFloat(field, 0);
-                    col.append((double) f);
+                    Operators.FloatColumn column = FilterApi.floatColumn(cd.name);
+                    predicate = FilterApi.and(
+                            FilterApi.gtEq(column, (float)min),
+                            FilterApi.ltEq(column, (float)max));
                     break;
                 }
                 case DOUBLE: {
-                    double d = g.getDouble(field, 0);
-                    col.append(d);
+                    Operators.DoubleColumn column = FilterApi.doubleColumn(cd.name);
+                    predicate = FilterApi.and(
+                            FilterApi.gtEq(column, min),
+                            FilterApi.ltEq(column, max));
                     break;
                 }
-                case INT32: {
-                    int i = g.getInteger(field, 0);
-                    col.append(i);
-                    break;
+                default:
+                    continue;
+            }
+            result = result == null ? predicate : FilterApi.and(result, predicate);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the row groups whose statistics do not exclude the filters.
+     */
+    private List<BlockMetaData> selectBlocks() {
+        List<BlockMetaData> all = this.metadata.getBlocks();
+        FilterPredicate predicate = this.createPredicate();
+        if (predicate == null)
+            return all;
+        return RowGroupFilter.filterRowGroups(FilterCompat.get(predicate), all,
+                this.metadata.getFileMetaData().getSchema());
+    }
+
+    /**
+     * Converts a Hive/Impala INT96 timestamp.
+     */
+    private static Instant toInstant(Binary value) {
+        // from the drill ParquetReaderUtility.java file
+        final long JULIAN_DAY_NUMBER_FOR_UNIX_EPOCH = 2440588;
+        NanoTime nt = NanoTime.fromBinary(value);
+        int julianDay = nt.getJulianDay();
+        long nanosOfDay = nt.getTimeOfDayNanos();
+        long epochSeconds = (julianDay - JULIAN_DAY_NUMBER_FOR_UNIX_EPOCH) * 24 * 60 * 60;
+        return Instant.ofEpochSecond(epochSeconds, nanosOfDay);
+    }
+
+    /**
+     * Appends the values decoded by a Parquet column reader to a Hillview column.
+     * The values of dictionary-encoded pages are converted once for each
+     * dictionary entry.  For string columns the dictionary entries are also
+     * mapped to the codes of the column dictionary, so their values are
+     * appended without being hashed.
+     */
+    static class ColumnConverter extends PrimitiveConverter {
+        private final IAppendableColumn column;
+        private final PrimitiveType.PrimitiveTypeName type;
+        @Nullable
+        private final StringListColumn strings;
+        @Nullable
+        private Dictionary dictionary;
+        /**
+         * Dictionary entries converted to strings; only used for binary columns.
+         */
+        @Nullable
+        private String[] values;
+        /**
+         * Codes of the dictionary entries in the column dictionary, or -1 if not yet known.
+         */
+        @Nullable
+        private int[] codes;
+
+        ColumnConverter(IAppendableColumn column, PrimitiveType.PrimitiveTypeName type) {
+            this.column = column;
+            this.type = type;
+            this.strings = column instanceof StringListColumn ? (StringListColumn)column : null;
+        }
+
+        @Override
+        public boolean hasDictionarySupport() {
+            return true;
+        }
+
+        @Override
+        public void setDictionary(Dictionary dictionary) {
+            this.dictionary = dictionary;
+            if (this.type == PrimitiveType.PrimitiveTypeName.BINARY ||
+                    this.type == PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY) {
+                int size = dictionary.getMaxId() + 1;
+                this.values = new String[size];
+                this.codes = new int[size];
+                for (int i = 0; i < size; i++) {
+                    this.values[i] = dictionary.decodeToBinary(i).toStringUsingUTF8().intern();
+                    this.codes[i] = -1;
                 }
-                case BOOLEAN: {
-                    boolean b = g.getBoolean(field, 0);
-                    col.append(b ? "true" : "false");
+            }
+        }
+
+        @Override
+        public void addValueFromDictionary(int id) {
+            assert this.dictionary != null;
+            switch (this.type) {
+                case BINARY:
+                case FIXED_LEN_BYTE_ARRAY: {
+                    assert this.values != null && this.codes != null;
+                    String value = this.values[id];
+                    if (this.strings == null) {
+                        this.column.append(value);
+                        break;
+                    }
+                    if (this.codes[id] < 0)
+                        this.codes[id] = this.strings.encode(value);
+                    this.strings.appendEncoded(this.codes[id], value);
                     break;
                 }
-                case BINARY: {
-                    Binary b = g.getBinary(field, 0);
-                    String s = b.toStringUsingUTF8();
-                    col.append(s);
+                case INT96:
+                    this.addBinary(this.dictionary.decodeToBinary(id));
                     break;
-                }
-                case FIXED_LEN_BYTE_ARRAY: {
-                    String s = g.getString(field, 0);
-                    col.append(s);
+                case INT64:
+                    this.addLong(this.dictionary.decodeToLong(id));
                     break;
-                }
-                case INT96: {
-                    // We are assuming that this is a Hive/Impala timestamp
-                    // from the drill ParquetReaderUtility.java file
-                    final long JULIAN_DAY_NUMBER_FOR_UNIX_EPOCH = 2440588;
-                    Binary val = g.getInt96(field, 0);
-                    NanoTime nt = NanoTime.fromBinary(val);
-                    int julianDay = nt.getJulianDay();
-                    long nanosOfDay = nt.getTimeOfDayNanos();
-                    long epochSeconds = (julianDay - JULIAN_DAY_NUMBER_FOR_UNIX_EPOCH) * 24 * 60 * 60;
-                    Instant inst = Instant.ofEpochSecond(epochSeconds, nanosOfDay);
-                    col.append(inst);
+                case INT32:
+                    this.addInt(this.dictionary.decodeToInt(id));
+                    break;
+                case FLOAT:
+                    this.addFloat(this.dictionary.decodeToFloat(id));
+                    break;
+                case DOUBLE:
+                    this.addDouble(this.dictionary.decodeToDouble(id));
+                    break;
+                case BOOLEAN:
+                    this.addBoolean(this.dictionary.decodeToBoolean(id));
                     break;
-                }
-                default:
-                    throw new RuntimeException("Unexpected column kind " + cds.get(field).getType());
             }
         }
+
+        @Override
+        public void addBinary(Binary value) {
+            if (this.type == PrimitiveType.PrimitiveTypeName.INT96)
+                // We are assuming that this is a Hive/Impala timestamp
+                this.column.append(toInstant(value));
+            else
+                this.column.append(value.toStringUsingUTF8());
+        }
+
+        @Override
+        public void addBoolean(boolean value) {
+            this.column.append(value ? "true" : "false");
+        }
+
+        @Override
+        public void addDouble(double value) {
+            this.column.append(value);
+        }
+
+        @Override
+        public void addFloat(float value) {
+            this.column.append((double)value);
+        }
+
+        @Override
+        public void addInt(int value) {
+            this.column.append(value);
+        }
+
+        @Override
+        public void addLong(long value) {
+            this.column.append((double)value);
+        }
     }
 
     private static ColumnDescription getColumnDescription(ColumnDescriptor cd) {
@@ -168,18 +331,6 @@ public class ParquetFileLoader extends TextFileLoader {
         return new ColumnDescription(name, kind);
     }
 
-    private static List<IAppendableColumn> createColumns(ParquetMetadata md) {
-        MessageType schema = md.getFileMetaData().getSchema();
-        List<ColumnDescriptor> cols = schema.getColumns();
-        List<IAppendableColumn> result = new ArrayList<IAppendableColumn>(cols.size());
-
-        for (ColumnDescriptor cd : cols) {
-            ColumnDescription desc = getColumnDescription(cd);
-            result.add(BaseListColumn.create(desc));
-        }
-        return result;
-    }
-
     public class ParquetColumnLoader implements IColumnLoader {
         @Override
         public List<IColumn> loadColumns(List<String> names) {
@@ -195,49 +346,87 @@ public class ParquetFileLoader extends TextFileLoader {
             MessageType newSchema = new MessageType(schema.getName(), list);
             FileMetaData nfm = new FileMetaData(
                     newSchema, fm.getKeyValueMetaData(), fm.getCreatedBy());
-            List<BlockMetaData> blocks = ParquetFileLoader.this.metadata.getBlocks();
-            ParquetMetadata md = new ParquetMetadata(nfm, blocks);
+            ParquetMetadata md = new ParquetMetadata(nfm, ParquetFileLoader.this.blocks);
             return ParquetFileLoader.this.loadColumns(md);
         }
     }
 
-    private List<IColumn> loadColumns(ParquetMetadata md) {
+    @Nullable
+    private static VersionParser.ParsedVersion parseVersion(String createdBy) {
         try {
-            MessageType schema = md.getFileMetaData().getSchema();
-            List<IAppendableColumn> cols = createColumns(md);
-            ParquetFileReader r = ParquetFileReader.open(this.configuration, this.path);
-            MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(schema);
+            return VersionParser.parse(createdBy);
+        } catch (RuntimeException | VersionParser.VersionParseException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Restricts a type to the field with the specified path.
+     * @param type   Type of path[depth - 1].
+     * @param depth  Number of path components already matched.
+     */
+    private static Type projectPath(Type type, String[] path, int depth) {
+        if (depth == path.length)
+            return type;
+        GroupType group = type.asGroupType();
+        return group.withNewFields(projectPath(group.getType(path[depth]), path, depth + 1));
+    }
 
+    /**
+     * Reads one column from the specified row groups, decoding the column chunks
+     * directly into a Hillview column.
+     */
+    private IColumn readColumn(ColumnDescriptor cd, List<BlockMetaData> blocks) throws IOException {
+        if (cd.getMaxRepetitionLevel() > 0)
+            throw new RuntimeException("Repeated values not supported");
+        IAppendableColumn col = BaseListColumn.create(getColumnDescription(cd));
+        ColumnConverter converter = new ColumnConverter(col, cd.getType());
+        FileMetaData fm = this.metadata.getFileMetaData();
+        VersionParser.ParsedVersion version = parseVersion(fm.getCreatedBy());
+        int maxDefinitionLevel = cd.getMaxDefinitionLevel();
+        // The reader reads all the columns in the schema of the metadata
+        MessageType schema = fm.getSchema();
+        MessageType columnSchema = new MessageType(schema.getName(),
+                projectPath(schema.getType(cd.getPath()[0]), cd.getPath(), 1));
+        ParquetMetadata md = new ParquetMetadata(new FileMetaData(
+                columnSchema, fm.getKeyValueMetaData(), fm.getCreatedBy()), blocks);
+        try (ParquetFileReader r = new ParquetFileReader(this.configuration, this.path, md)) {
             PageReadStore pages;
             while (null != (pages = r.readNextRowGroup())) {
-                final long rows = pages.getRowCount();
-                RecordReader<Group> recordReader = columnIO.getRecordReader(
-                        pages, new GroupRecordConverter(schema));
-                for (int i = 0; i < rows; i++) {
-                    Group g = recordReader.read();
-                    appendGroup(cols, g, md.getFileMetaData().getSchema().getColumns());
+                ColumnReaderImpl reader = new ColumnReaderImpl(
+                        cd, pages.getPageReader(cd), converter, version);
+                long values = reader.getTotalValueCount();
+                for (long i = 0; i < values; i++) {
+                    if (reader.getCurrentDefinitionLevel() < maxDefinitionLevel)
+                        col.appendMissing();
+                    else
+                        reader.writeCurrentValueToConverter();
+                    reader.consume();
                 }
             }
-
-            for (IAppendableColumn c : cols)
-                c.seal();
-            r.close();
-            return Linq.map(cols, e -> e);
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
         }
+        return col.seal();
+    }
+
+    /**
+     * Reads the columns in the schema of md in parallel.
+     */
+    private List<IColumn> loadColumns(ParquetMetadata md) {
+        List<ColumnDescriptor> cds = md.getFileMetaData().getSchema().getColumns();
+        List<Callable<IColumn>> tasks = Linq.map(cds,
+                cd -> (Callable<IColumn>)() -> this.readColumn(cd, md.getBlocks()));
+        return runAll(tasks);
     }
 
     private int getNumRows() {
-        List<BlockMetaData> blocks = this.metadata.getBlocks();
         long rowCount = 0;
-        for (BlockMetaData bm : blocks)
+        for (BlockMetaData bm : this.blocks)
             rowCount += bm.getRowCount();
         return (int)rowCount;
     }
 
     public ITable load() {
-        ParquetMetadata md = this.metadata;
+        ParquetMetadata md = new ParquetMetadata(this.metadata.getFileMetaData(), this.blocks);
         if (this.lazy) {
             ParquetColumnLoader loader = new ParquetColumnLoader();
             List<ColumnDescriptor> cds = md.getFileMetaData().getSchema().getColumns();
@@ -23,12 +23,18 @@ import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.input.BOMInputStream;
 import org.hillview.table.api.IAppendableColumn;
 import org.hillview.table.api.ITable;
+import org.hillview.utils.ExecutorUtils;
 import org.hillview.utils.HillviewLogger;
 import org.hillview.utils.Utilities;
 
 
 import javax.annotation.Nullable;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Abstract class for a reader that reads data from a text file and keeps
@@ -64,6 +70,24 @@ public abstract class TextFileLoader {
         this.currentToken = null;
     }
 
+    /**
+     * Runs the tasks on the computation thread pool and returns their results.
+     */
+    static <T> List<T> runAll(List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<T>(tasks.size());
+        try {
+            for (Future<T> f : ExecutorUtils.getComputeExecutorService().invokeAll(tasks))
+                results.add(f.get());
+        } catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException)ex.getCause();
+            throw new RuntimeException(ex.getCause());
+        }
+        return results;
+    }
+
     Reader getFileReader() {
         try {
             HillviewLogger.instance.info("Reading file", "{0}", this.filename);
@@ -111,6 +135,14 @@ public abstract class TextFileLoader {
         }
     }
 
+    /**
+     * Appends a value to the specified column.
+     */
+    void appendToken(int columnIndex, @Nullable String token) {
+        assert this.columns != null;
+        this.columns[columnIndex].parseAndAppendString(token);
+    }
+
     void append(String[] data) {
         try {
             assert this.columns != null;
@@ -120,7 +152,7 @@ public abstract class TextFileLoader {
                 this.error("Too many columns " + data.length + " vs " + columnCount);
             for (this.currentColumn = 0; this.currentColumn < data.length; this.currentColumn++) {
                 this.currentToken = data[this.currentColumn];
-                this.columns[this.currentColumn].parseAndAppendString(this.currentToken);
+                this.appendToken(this.currentColumn, this.currentToken);
                 this.currentField++;
                 if ((this.currentField % 100000) == 0) {
                     System.out.print(".");
@@ -133,7 +165,7 @@ public abstract class TextFileLoader {
                 else {
                     this.currentToken = "";
                     for (int i = data.length; i < columnCount; i++)
-                        this.columns[i].parseAndAppendString(this.currentToken);
+                        this.appendToken(i, this.currentToken);
                 }
             }
             this.currentRow++;
@@ -0,0 +1,303 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.storage;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Schema;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IAppendableColumn;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.columns.BaseListColumn;
+import org.hillview.table.columns.BaseOffHeapColumn;
+import org.hillview.table.rows.GuessSchema;
+import org.hillview.utils.DateParsing;
+
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Appends strings read from a file to a column whose kind was guessed from a
+ * prefix of the file, parsing the strings as they are read.  When a value cannot
+ * be parsed the column is promoted: integers to doubles if possible, and otherwise
+ * to strings; the values already appended are then converted to the new kind.
+ * The values are accepted exactly when GuessSchema would accept them.  The text
+ * of values that would not be reproduced by converting them back to strings,
+ * e.g., "02139", "1.50" or dates, is kept until the kind of the column is final.
+ */
+class TypedColumnAppender {
+    private IAppendableColumn column;
+    private final boolean offHeap;
+    /**
+     * True if the kind could not be guessed from the prefix, because all values
+     * were missing.  Such columns are appended as strings.
+     */
+    final boolean unknownKind;
+    @Nullable
+    private DateParsing dateParser;
+    /**
+     * Original text of the rows where it differs from canonical(column, row),
+     * including empty cells stored as missing values.  Null for string columns.
+     */
+    @Nullable
+    private Int2ObjectOpenHashMap<String> text;
+
+    TypedColumnAppender(String name, ContentsKind kind, boolean offHeap) {
+        this.unknownKind = kind == ContentsKind.None;
+        if (kind != ContentsKind.Integer && kind != ContentsKind.Double &&
+                kind != ContentsKind.Date)
+            kind = ContentsKind.String;
+        this.offHeap = offHeap;
+        this.column = create(new ColumnDescription(name, kind), offHeap);
+        this.dateParser = null;
+        this.text = kind == ContentsKind.String ? null : new Int2ObjectOpenHashMap<String>();
+    }
+
+    static IAppendableColumn create(ColumnDescription desc, boolean offHeap) {
+        if (offHeap)
+            return BaseOffHeapColumn.create(desc);
+        return BaseListColumn.create(desc);
+    }
+
+    /**
+     * Creates appenders for the columns of a schema.
+     * @param schema   Schema; only the column names are used.
+     * @param kinds    Kinds guessed for the columns.
+     * @param offHeap  If true the columns store their data off the Java heap.
+     */
+    static TypedColumnAppender[] create(Schema schema, ContentsKind[] kinds, boolean offHeap) {
+        List<ColumnDescription> desc = schema.getColumnDescriptions();
+        TypedColumnAppender[] result = new TypedColumnAppender[desc.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = new TypedColumnAppender(desc.get(i).name, kinds[i], offHeap);
+        return result;
+    }
+
+    static IAppendableColumn[] getColumns(TypedColumnAppender[] appenders) {
+        IAppendableColumn[] result = new IAppendableColumn[appenders.length];
+        for (int i = 0; i < appenders.length; i++)
+            result[i] = appenders[i].getColumn();
+        return result;
+    }
+
+    /**
+     * Guesses the kinds of the columns from some rows.
+     * @param lines        Rows, as parsed from the file.
+     * @param columnCount  Number of columns.
+     */
+    static ContentsKind[] guessKinds(List<String[]> lines, int columnCount) {
+        ContentsKind[] result = new ContentsKind[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            final int column = i;
+            GuessSchema gs = new GuessSchema();
+            result[i] = gs.guess(() -> lines.stream().map(
+                    l -> column < l.length ? l[column] : "").iterator()).kind;
+        }
+        return result;
+    }
+
+    /**
+     * The most specific kind that can represent values of both kinds.
+     */
+    static ContentsKind join(ContentsKind left, ContentsKind right) {
+        if (left == right)
+            return left;
+        if ((left == ContentsKind.Integer && right == ContentsKind.Double) ||
+                (left == ContentsKind.Double && right == ContentsKind.Integer))
+            return ContentsKind.Double;
+        return ContentsKind.String;
+    }
+
+    /**
+     * The string a value is converted to when the text of the value is not kept.
+     * Integral doubles are written as integers, so that integers are not affected
+     * when a column is promoted to doubles.
+     */
+    private static String canonical(IColumn column, int row) {
+        if (column.getKind() == ContentsKind.Double) {
+            double d = column.getDouble(row);
+            if (d == (int)d && (d != 0 || 1 / d > 0))
+                return Integer.toString((int)d);
+            return Double.toString(d);
+        }
+        return column.asString(row);
+    }
+
+    /**
+     * True if value is the text produced by Integer.toString for the parsed value.
+     */
+    private static boolean isCanonicalInt(String value) {
+        char first = value.charAt(0);
+        if (first == '+')
+            return false;
+        int start = first == '-' ? 1 : 0;
+        return value.charAt(start) != '0' || (start == 0 && value.length() == 1);
+    }
+
+    /**
+     * Appends row of column from to column to, which has a kind that is the
+     * same or more general.
+     * @param text  If not null, the original text of some rows of from; it is
+     *              used when to holds strings.
+     */
+    static void copy(IColumn from, @Nullable Int2ObjectMap<String> text,
+                     int row, IAppendableColumn to) {
+        if (text != null && to.getKind().isString()) {
+            String value = text.get(row);
+            if (value != null) {
+                to.append(value);
+                return;
+            }
+        }
+        if (from.isMissing(row)) {
+            to.appendMissing();
+            return;
+        }
+        switch (to.getKind()) {
+            case Integer:
+                to.append(from.getInt(row));
+                break;
+            case Double:
+                to.append(from.asDouble(row));
+                break;
+            case Date:
+                to.append(from.getDate(row));
+                break;
+            case String:
+            case Json:
+                if (from.getKind().isString())
+                    to.append(from.getString(row));
+                else
+                    to.append(canonical(from, row));
+                break;
+            default:
+                throw new RuntimeException("Unexpected kind " + to.getKind());
+        }
+    }
+
+    private void promote(ContentsKind kind) {
+        IAppendableColumn result = create(
+                new ColumnDescription(this.column.getName(), kind), this.offHeap);
+        for (int i = 0; i < this.column.sizeInRows(); i++)
+            copy(this.column, this.text, i, result);
+        this.column = result;
+        if (kind.isString())
+            this.text = null;
+    }
+
+    /**
+     * Appends a missing value for a cell that may be empty.
+     */
+    private void appendMissing(@Nullable String value) {
+        if (value != null) {
+            assert this.text != null;
+            this.text.put(this.column.sizeInRows(), value);
+        }
+        this.column.appendMissing();
+    }
+
+    /**
+     * Parses a string and appends it to the column.
+     * @return The column, which may be a new column if the column was promoted.
+     */
+    IAppendableColumn append(@Nullable String value) {
+        switch (this.column.getKind()) {
+            case Integer:
+                if (value == null || value.trim().isEmpty()) {
+                    this.appendMissing(value);
+                    return this.column;
+                }
+                try {
+                    int i = Integer.parseInt(value);
+                    if (!isCanonicalInt(value)) {
+                        assert this.text != null;
+                        this.text.put(this.column.sizeInRows(), value);
+                    }
+                    this.column.append(i);
+                    return this.column;
+                } catch (NumberFormatException ignored) {
+                    // promote below
+                }
+                try {
+                    double d = Double.parseDouble(value);
+                    this.promote(ContentsKind.Double);
+                    return this.appendDouble(d, value);
+                } catch (NumberFormatException ignored) {
+                    this.promote(ContentsKind.String);
+                }
+                break;
+            case Double:
+                if (value == null || value.trim().isEmpty()) {
+                    this.appendMissing(value);
+                    return this.column;
+                }
+                try {
+                    return this.appendDouble(Double.parseDouble(value), value);
+                } catch (NumberFormatException ignored) {
+                    this.promote(ContentsKind.String);
+                }
+                break;
+            case Date:
+                if (value == null) {
+                    this.column.appendMissing();
+                    return this.column;
+                }
+                try {
+                    if (this.dateParser == null)
+                        this.dateParser = new DateParsing(value);
+                    Instant date = this.dateParser.parse(value);
+                    assert this.text != null;
+                    this.text.put(this.column.sizeInRows(), value);
+                    this.column.append(date);
+                    return this.column;
+                } catch (Exception ignored) {
+                    this.promote(ContentsKind.String);
+                }
+                break;
+            default:
+                break;
+        }
+        this.column.append(value);
+        return this.column;
+    }
+
+    private IAppendableColumn appendDouble(double d, String value) {
+        int row = this.column.sizeInRows();
+        this.column.append(d);
+        if (!value.equals(canonical(this.column, row))) {
+            assert this.text != null;
+            this.text.put(row, value);
+        }
+        return this.column;
+    }
+
+    IAppendableColumn getColumn() {
+        return this.column;
+    }
+
+    /**
+     * Original text of the rows of the column that differs from their value
+     * converted to a string; null if the column holds strings.
+     */
+    @Nullable
+    Int2ObjectMap<String> getText() {
+        return this.text;
+    }
+}
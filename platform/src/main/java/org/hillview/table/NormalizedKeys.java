@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import org.hillview.sketches.ColumnSortOrientation;
+import org.hillview.table.api.*;
+import org.hillview.utils.Converters;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Normalized sort keys: for each row of a table a 64-bit key is computed such that
+ * comparing the keys as unsigned numbers is consistent with the RecordOrder:
+ * if row i is before row j then key[i] <= key[j].  The key is the concatenation
+ * of order-preserving encodings of the sort columns; integers, doubles and
+ * dictionary-encoded strings are encoded exactly, while dates, durations and other
+ * strings are encoded as prefixes.  When the keys of two rows are equal and the
+ * encoding is not exact the rows must be compared using the original comparator.
+ */
+public class NormalizedKeys {
+    /**
+     * Keys of the rows in the membership set, indexed by position (see position).
+     */
+    private final long[] keys;
+    /**
+     * The key of row r is at r - offset, unless positions is not null.
+     */
+    private final int offset;
+    /**
+     * If not null maps each row to the position of its key.  Used when the rows
+     * are sparse in the range that contains them.
+     */
+    @Nullable
+    private final Int2IntOpenHashMap positions;
+    /**
+     * If true equal keys imply equal rows.
+     */
+    private final boolean exact;
+
+    private NormalizedKeys(long[] keys, int offset,
+                           @Nullable Int2IntOpenHashMap positions, boolean exact) {
+        this.keys = keys;
+        this.offset = offset;
+        this.positions = positions;
+        this.exact = exact;
+    }
+
+    public boolean isExact() {
+        return this.exact;
+    }
+
+    private int position(int rowIndex) {
+        if (this.positions == null)
+            return rowIndex - this.offset;
+        return this.positions.get(rowIndex);
+    }
+
+    public long getKey(int rowIndex) {
+        return this.keys[this.position(rowIndex)];
+    }
+
+    /**
+     * Order-preserving encoding of the values in one column, including missing values,
+     * which are larger than all other values.  The encoding uses the low 'width' bits.
+     */
+    private static abstract class Encoder {
+        final int width;
+        final boolean exact;
+
+        Encoder(int width, boolean exact) {
+            this.width = width;
+            this.exact = exact;
+        }
+
+        abstract long encode(int rowIndex);
+    }
+
+    /**
+     * Maps a double to a long such that the unsigned order of the results is the
+     * order of Double.compare.  Double.doubleToLongBits maps all NaNs to a single value,
+     * so -1 is never returned.
+     */
+    static long orderBits(double d) {
+        long bits = Double.doubleToLongBits(d);
+        return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+    }
+
+    /**
+     * Encodes the first four characters of a string.
+     */
+    static long prefixBits(String s) {
+        long result = 0;
+        for (int i = 0; i < 4; i++) {
+            result <<= 16;
+            if (i < s.length())
+                result |= s.charAt(i);
+        }
+        return result;
+    }
+
+    private static Encoder createEncoder(IColumn column, boolean useDictionary) {
+        switch (column.getKind()) {
+            case Integer:
+                return new Encoder(33, true) {
+                    @Override
+                    long encode(int rowIndex) {
+                        if (column.isMissing(rowIndex))
+                            return 1L << 32;
+                        return (column.getInt(rowIndex) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+                    }
+                };
+            case Double:
+                return new Encoder(64, true) {
+                    @Override
+                    long encode(int rowIndex) {
+                        if (column.isMissing(rowIndex))
+                            return -1;
+                        return orderBits(column.getDouble(rowIndex));
+                    }
+                };
+            case Date:
+            case Duration:
+                return new Encoder(64, false) {
+                    @Override
+                    long encode(int rowIndex) {
+                        if (column.isMissing(rowIndex))
+                            return -1;
+                        return orderBits(column.asDouble(rowIndex));
+                    }
+                };
+            case String:
+            case Json:
+                IDictionaryColumn dict = useDictionary ?
+                        IDictionaryColumn.asDictionary(column, Integer.MAX_VALUE) : null;
+                if (dict != null) {
+                    int size = Math.max(dict.getDictionarySize(), 1);
+                    int[] rank = rankCodes(dict);
+                    return new Encoder(Math.max(1, 32 - Integer.numberOfLeadingZeros(size - 1)), true) {
+                        @Override
+                        long encode(int rowIndex) {
+                            return rank[dict.getCode(rowIndex)];
+                        }
+                    };
+                }
+                return new Encoder(64, false) {
+                    @Override
+                    long encode(int rowIndex) {
+                        String s = column.getString(rowIndex);
+                        if (s == null)
+                            return -1;
+                        return prefixBits(s);
+                    }
+                };
+            default:
+                throw new RuntimeException("Unexpected kind " + column.getKind());
+        }
+    }
+
+    /**
+     * Computes the rank of each dictionary code in the sorted order of the decoded values;
+     * missing values are last.  Codes with the same value get the same rank.
+     */
+    private static int[] rankCodes(IDictionaryColumn column) {
+        int size = column.getDictionarySize();
+        int[] codes = new int[size];
+        for (int i = 0; i < size; i++)
+            codes[i] = i;
+        IntArrays.quickSort(codes, (a, b) -> {
+            String sa = column.decode(a);
+            String sb = column.decode(b);
+            if (sa == null)
+                return sb == null ? 0 : 1;
+            if (sb == null)
+                return -1;
+            return sa.compareTo(sb);
+        });
+        int[] rank = new int[size];
+        int current = 0;
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                String previous = column.decode(codes[i - 1]);
+                String value = column.decode(codes[i]);
+                if (previous == null ? value != null : !previous.equals(value))
+                    current++;
+            }
+            rank[codes[i]] = current;
+        }
+        return rank;
+    }
+
+    /**
+     * Computes the normalized keys for the specified rows of a table.
+     * @param table          Table whose rows are encoded.
+     * @param order          Sort order; the table must contain all columns in the order.
+     * @param rows           Rows to encode.
+     * @param useDictionary  If true string columns with dictionaries are encoded using
+     *                       the rank of the dictionary code.  Such keys can only be compared
+     *                       with keys computed on the same column.
+     */
+    public static NormalizedKeys create(ITable table, RecordOrder order,
+                                        IMembershipSet rows, boolean useDictionary) {
+        // The keys are stored for the range of rows in the set if it is dense enough,
+        // and otherwise in the order of the rows, using a map from rows to positions.
+        int count = 0;
+        int min = Integer.MAX_VALUE;
+        int max = -1;
+        IRowIterator rit = rows.getIterator();
+        for (int row = rit.getNextRow(); row >= 0; row = rit.getNextRow()) {
+            count++;
+            min = Math.min(min, row);
+            max = Math.max(max, row);
+        }
+        int offset = count == 0 ? 0 : min;
+        Int2IntOpenHashMap positions = null;
+        long[] keys;
+        if (max - offset + 1 <= 2 * count) {
+            keys = new long[max - offset + 1];
+        } else {
+            keys = new long[count];
+            positions = new Int2IntOpenHashMap(count);
+            rit = rows.getIterator();
+            int position = 0;
+            for (int row = rit.getNextRow(); row >= 0; row = rit.getNextRow())
+                positions.put(row, position++);
+            offset = 0;
+        }
+        List<String> names = new ArrayList<String>(order.getSize());
+        for (int i = 0; i < order.getSize(); i++)
+            names.add(order.getOrientation(i).columnDescription.name);
+        List<IColumn> columns = table.getLoadedColumns(names);
+        int used = 0;
+        boolean exact = true;
+        for (int i = 0; i < order.getSize(); i++) {
+            if (used == Long.SIZE) {
+                exact = false;
+                break;
+            }
+            ColumnSortOrientation cso = order.getOrientation(i);
+            IColumn column = Converters.checkNull(columns.get(i));
+            Encoder encoder = createEncoder(column, useDictionary);
+            int take = Math.min(encoder.width, Long.SIZE - used);
+            int dropped = encoder.width - take;
+            int shift = Long.SIZE - used - take;
+            long mask = take == Long.SIZE ? -1 : (1L << take) - 1;
+            IRowIterator it = rows.getIterator();
+            for (int row = it.getNextRow(); row >= 0; row = it.getNextRow()) {
+                long value = encoder.encode(row) >>> dropped;
+                if (!cso.isAscending)
+                    value = ~value & mask;
+                int position = positions == null ? row - offset : positions.get(row);
+                keys[position] |= value << shift;
+            }
+            used += take;
+            if (dropped != 0 || !encoder.exact) {
+                exact = i == order.getSize() - 1 && dropped == 0 && encoder.exact;
+                break;
+            }
+        }
+        return new NormalizedKeys(keys, offset, positions, exact);
+    }
+
+    /**
+     * A comparator for rows which compares the normalized keys and falls back to the
+     * specified comparator when the keys are equal and the encoding is not exact.
+     */
+    public IndexComparator getComparator(IndexComparator fallback) {
+        final long[] keys = this.keys;
+        final int offset = this.offset;
+        if (this.positions != null) {
+            final Int2IntOpenHashMap positions = this.positions;
+            final boolean exact = this.exact;
+            return new IndexComparator() {
+                @Override
+                public int compare(int i, int j) {
+                    int c = Long.compareUnsigned(keys[positions.get(i)], keys[positions.get(j)]);
+                    if (c != 0 || exact)
+                        return c;
+                    return fallback.compare(i, j);
+                }
+            };
+        }
+        if (this.exact)
+            return new IndexComparator() {
+                @Override
+                public int compare(int i, int j) {
+                    return Long.compareUnsigned(keys[i - offset], keys[j - offset]);
+                }
+            };
+        return new IndexComparator() {
+            @Override
+            public int compare(int i, int j) {
+                int c = Long.compareUnsigned(keys[i - offset], keys[j - offset]);
+                if (c != 0)
+                    return c;
+                return fallback.compare(i, j);
+            }
+        };
+    }
+}
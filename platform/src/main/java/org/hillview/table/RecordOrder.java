@@ -34,6 +34,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.function.IntBinaryOperator;
 
 /**
  * This class specifies an ordering over all records that share a particular schema. These could be
@@ -43,6 +44,12 @@ import java.util.List;
  * the record.
  */
 public class RecordOrder implements Serializable {
+    /**
+     * If true sorting and top-K computations compare normalized keys (see NormalizedKeys)
+     * instead of calling the column comparators for every comparison.
+     */
+    public static boolean useNormalizedKeys = true;
+
     private final List<ColumnSortOrientation> sortOrientationList;
 
     public RecordOrder() {
@@ -108,6 +115,45 @@ public class RecordOrder implements Serializable {
         return new ListComparator(comparatorList);
     }
 
+    /**
+     * Returns an IndexComparator for the specified rows of a table which compares
+     * normalized keys if useNormalizedKeys is true.  Computing the keys requires a pass
+     * over the rows, so this is profitable when many comparisons will be performed.
+     * @param table The Table we wish to sort.
+     * @param rows  The rows that will be compared.
+     */
+    public IndexComparator getNormalizedIndexComparator(final ITable table, IMembershipSet rows) {
+        IndexComparator comparator = this.getIndexComparator(table);
+        if (!useNormalizedKeys)
+            return comparator;
+        return NormalizedKeys.create(table, this, rows, true).getComparator(comparator);
+    }
+
+    /**
+     * Returns a function that compares row i of the left table with row j of the right
+     * table.  Both tables must contain the columns in this order.
+     */
+    private IntBinaryOperator getCrossComparator(final SmallTable left, final SmallTable right) {
+        VirtualRowSnapshot vrsLeft = new VirtualRowSnapshot(left, left.schema);
+        VirtualRowSnapshot vrsRight = new VirtualRowSnapshot(right, right.schema);
+        IntBinaryOperator compareRows = (i, j) -> {
+            vrsLeft.setRow(i);
+            vrsRight.setRow(j);
+            return vrsLeft.compareTo(vrsRight, this);
+        };
+        if (!useNormalizedKeys)
+            return compareRows;
+        // Dictionaries are not shared between tables, so we do not use them for the keys.
+        NormalizedKeys leftKeys = NormalizedKeys.create(left, this, left.getMembershipSet(), false);
+        NormalizedKeys rightKeys = NormalizedKeys.create(right, this, right.getMembershipSet(), false);
+        return (i, j) -> {
+            int c = Long.compareUnsigned(leftKeys.getKey(i), rightKeys.getKey(j));
+            if (c != 0 || leftKeys.isExact())
+                return c;
+            return compareRows.applyAsInt(i, j);
+        };
+    }
+
     public Comparator<RowSnapshot> getRowComparator() {
         return (o1, o2) -> o1.compareTo(o2, RecordOrder.this);
     }
@@ -122,7 +168,14 @@ public class RecordOrder implements Serializable {
      */
     public int[] getSortedRowOrder(final ITable table, IMembershipSet set) {
         int[] order = set.getRows();
-        IntArrays.quickSort(order, this.getIndexComparator(table));
+        IndexComparator comparator;
+        // The normalized keys are indexed by row, so they are not worth computing for very
+        // small sets.
+        if (order.length >= set.getMax() / 16)
+            comparator = this.getNormalizedIndexComparator(table, set);
+        else
+            comparator = this.getIndexComparator(table);
+        IntArrays.quickSort(order, comparator);
         return order;
     }
 
@@ -146,12 +199,9 @@ public class RecordOrder implements Serializable {
         final boolean[] mergeLeft = new boolean[length];
         int i = 0, j = 0, k = 0;
 
-        VirtualRowSnapshot vrsLeft = new VirtualRowSnapshot(left, left.schema);
-        VirtualRowSnapshot vrsRight = new VirtualRowSnapshot(right, right.schema);
+        IntBinaryOperator comparator = this.getCrossComparator(left, right);
         while ((i < leftLength) && (j < rightLength)) {
-            vrsLeft.setRow(i);
-            vrsRight.setRow(j);
-            int outcome = vrsLeft.compareTo(vrsRight, this);
+            int outcome = comparator.applyAsInt(i, j);
             if (outcome < 0) {
                 mergeLeft[k] = true;
                 i++;
@@ -199,12 +249,9 @@ public class RecordOrder implements Serializable {
         final int rightLength = right.getNumOfRows();
         final IntList merge = new IntArrayList();
         int i = 0, j = 0;
-        VirtualRowSnapshot vrsLeft = new VirtualRowSnapshot(left, left.schema);
-        VirtualRowSnapshot vrsRight = new VirtualRowSnapshot(right, right.schema);
+        IntBinaryOperator comparator = this.getCrossComparator(left, right);
         while ((i < leftLength) && (j < rightLength)) {
-            vrsLeft.setRow(i);
-            vrsRight.setRow(j);
-            int outcome = vrsLeft.compareTo(vrsRight, this);
+            int outcome = comparator.applyAsInt(i, j);
             if (outcome < 0) {
                 merge.add(outcome);
                 i++;
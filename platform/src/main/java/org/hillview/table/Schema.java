@@ -22,6 +22,7 @@ import org.hillview.dataset.api.IJson;
 import org.hillview.table.api.ContentsKind;
 import org.hillview.table.api.IAppendableColumn;
 import org.hillview.table.columns.BaseListColumn;
+import org.hillview.table.columns.BaseOffHeapColumn;
 
 import javax.annotation.Nullable;
 import java.io.Serializable;
@@ -289,10 +290,22 @@ public final class Schema implements Serializable, IJson {
     }
 
     public IAppendableColumn[] createAppendableColumns() {
+        return this.createAppendableColumns(false);
+    }
+
+    /**
+     * Create empty columns for all the columns in this schema.
+     * @param offHeap  If true the columns store their data off the Java heap.
+     */
+    public IAppendableColumn[] createAppendableColumns(boolean offHeap) {
         IAppendableColumn[] cols = new IAppendableColumn[this.getColumnCount()];
         int index = 0;
         for (ColumnDescription cd: this.columns.values()) {
-            BaseListColumn col = BaseListColumn.create(cd);
+            IAppendableColumn col;
+            if (offHeap)
+                col = BaseOffHeapColumn.create(cd);
+            else
+                col = BaseListColumn.create(cd);
             cols[index++] = col;
         }
         return cols;
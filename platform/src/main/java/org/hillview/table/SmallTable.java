@@ -21,6 +21,8 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import org.hillview.dataset.api.IJson;
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
 import org.hillview.table.api.*;
 import org.hillview.table.columns.ObjectArrayColumn;
 import org.hillview.table.membership.FullMembershipSet;
@@ -28,6 +30,9 @@ import org.hillview.table.rows.RowSnapshot;
 import org.hillview.utils.Linq;
 
 import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -206,4 +211,28 @@ public class SmallTable extends BaseTable implements Serializable, IJson {
             return new SmallTable();
         }
     }
+
+    /**
+     * The columns are always read back as ObjectArrayColumns.
+     */
+    public static class Codec implements IBinaryCodec<SmallTable> {
+        @Override
+        public void encode(SmallTable value, DataOutput out) throws IOException {
+            List<IColumn> columns = value.getLoadedColumns(value.schema.getColumnNames());
+            BinaryCodecs.writeVarInt(out, columns.size());
+            for (IColumn c : columns)
+                ObjectArrayColumn.Codec.writeColumn(c, out);
+        }
+
+        @Override
+        public SmallTable decode(DataInput in) throws IOException {
+            int count = BinaryCodecs.readVarInt(in);
+            if (count == 0)
+                return new SmallTable();
+            List<IColumn> columns = new ArrayList<IColumn>(count);
+            for (int i = 0; i < count; i++)
+                columns.add(ObjectArrayColumn.Codec.readColumn(in));
+            return new SmallTable(columns);
+        }
+    }
 }
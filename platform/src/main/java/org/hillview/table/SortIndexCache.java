@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table;
+
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import org.hillview.sketches.ColumnSortOrientation;
+import org.hillview.table.api.IMembershipSet;
+import org.hillview.table.api.ITable;
+
+import javax.annotation.Nullable;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A process-wide cache of sorted row permutations.  For a given table and RecordOrder
+ * the cache holds the indexes of all rows in the table membership set, sorted according
+ * to the order.  This allows repeated queries on the same sort order (e.g., paging
+ * through a sorted tabular view) to avoid re-scanning the whole table.
+ * Tables are referenced weakly; entries are evicted in LRU order when the total size of
+ * the cached permutations exceeds the memory budget.
+ */
+public class SortIndexCache {
+    /**
+     * If false the cache is bypassed.
+     */
+    public static boolean enabled = true;
+    /**
+     * Maximum number of bytes used by all cached permutations.
+     */
+    public static long maxBytes = Runtime.getRuntime().maxMemory() / 10;
+
+    private static final LinkedHashMap<Key, int[]> cache =
+            new LinkedHashMap<Key, int[]>(16, .75f, true);
+    private static long usedBytes = 0;
+    private static long hits = 0;
+
+    private static class Key {
+        final WeakReference<ITable> table;
+        final int tableHash;
+        final String order;
+
+        Key(ITable table, RecordOrder order) {
+            this.table = new WeakReference<ITable>(table);
+            this.tableHash = System.identityHashCode(table);
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < order.getSize(); i++) {
+                ColumnSortOrientation cso = order.getOrientation(i);
+                builder.append(cso.columnDescription.toString())
+                       .append(cso.isAscending ? "+" : "-")
+                       .append(",");
+            }
+            this.order = builder.toString();
+        }
+
+        boolean isStale() {
+            return this.table.get() == null;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            ITable t = this.table.get();
+            return t != null && t == key.table.get() && this.order.equals(key.order);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.tableHash + this.order.hashCode();
+        }
+    }
+
+    private static long bytes(int[] permutation) {
+        return 4L * permutation.length;
+    }
+
+    /**
+     * Returns the cached sorted permutation of the rows of table, or null if none is cached.
+     */
+    @Nullable
+    public static synchronized int[] get(ITable table, RecordOrder order) {
+        int[] result = cache.get(new Key(table, order));
+        if (result != null)
+            hits++;
+        return result;
+    }
+
+    /**
+     * Returns the sorted permutation of the rows of table, computing and caching it if
+     * necessary.  The returned array must not be modified.
+     */
+    public static int[] getOrCreate(ITable table, RecordOrder order) {
+        int[] result = get(table, order);
+        if (result != null)
+            return result;
+        IMembershipSet members = table.getMembershipSet();
+        result = members.getRows();
+        IntArrays.parallelQuickSort(result, order.getNormalizedIndexComparator(table, members));
+        put(table, order, result);
+        return result;
+    }
+
+    private static synchronized void put(ITable table, RecordOrder order, int[] permutation) {
+        long size = bytes(permutation);
+        if (size > maxBytes)
+            return;
+        int[] previous = cache.put(new Key(table, order), permutation);
+        if (previous != null)
+            usedBytes -= bytes(previous);
+        usedBytes += size;
+        Iterator<Map.Entry<Key, int[]>> it = cache.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, int[]> e = it.next();
+            if (usedBytes <= maxBytes && !e.getKey().isStale())
+                continue;
+            if (e.getValue() == permutation)
+                continue;
+            usedBytes -= bytes(e.getValue());
+            it.remove();
+        }
+    }
+
+    /**
+     * Total number of bytes used by the cached permutations.
+     */
+    public static synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Number of lookups that found a cached permutation.
+     */
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized void clear() {
+        cache.clear();
+        usedBytes = 0;
+        hits = 0;
+    }
+}
@@ -17,6 +17,7 @@
 
 package org.hillview.table;
 
+import org.hillview.dataset.api.ISplittable;
 import org.hillview.table.api.*;
 import org.hillview.table.columns.LazyColumn;
 import org.hillview.table.membership.FullMembershipSet;
@@ -30,7 +31,7 @@ import java.util.List;
 /**
  * This is a simple table held entirely in RAM.
  */
-public class Table extends BaseTable {
+public class Table extends BaseTable implements ISplittable<ITable> {
     /**
      * The table schema: the set of columns.
      */
@@ -213,6 +214,27 @@ public class Table extends BaseTable {
         return new Table(this.getColumns(), set, this.sourceFile, this.columnLoader);
     }
 
+    @Override
+    public int getSplitSize() {
+        return this.members.getSizeUpperBound();
+    }
+
+    /**
+     * Splits the table into tables holding disjoint ranges of rows.
+     * The parts share the columns of this table; columns that are not
+     * yet loaded are loaded through this table, so they are loaded once.
+     */
+    @Override
+    public List<ITable> split(int parts) {
+        List<IMembershipSet> sets = this.members.split(parts);
+        List<IColumn> columns = this.getColumns();
+        IColumnLoader loader = this.columnLoader == null ? null : this::getLoadedColumns;
+        List<ITable> result = new ArrayList<ITable>(sets.size());
+        for (IMembershipSet set : sets)
+            result.add(new Table(columns, set, this.sourceFile, loader));
+        return result;
+    }
+
     /**
      * Generates a table that contains all the columns, and only
      * the rows contained in IMembership Set members with consecutive numbering.
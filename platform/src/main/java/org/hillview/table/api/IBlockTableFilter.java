@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.api;
+
+import org.hillview.table.columns.ZoneMap;
+
+import javax.annotation.Nullable;
+
+/**
+ * A table filter which may know the result for whole blocks of rows,
+ * using the zone map of a column.
+ */
+public interface IBlockTableFilter extends ITableFilter {
+    /**
+     * @return For each block of ZoneMap.BlockSize rows one of ZoneMap.NoRows,
+     * ZoneMap.AllRows or ZoneMap.SomeRows; null if the blocks are not known.
+     */
+    @Nullable
+    byte[] getBlockResults();
+}
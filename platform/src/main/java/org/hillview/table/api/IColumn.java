@@ -49,6 +49,16 @@ public interface IColumn extends Serializable {
      */
     int getParsingExceptionCount();
 
+    /**
+     * A summary of the values in blocks of rows; only some numeric
+     * columns maintain one.
+     * @return The zone map, or null if the column does not have one.
+     */
+    @Nullable
+    default ZoneMap getZoneMap() {
+        return null;
+    }
+
     /* This function is inefficient, it should be used sparingly. It
        will cast the value to an Object, boxing it if necessary. It returns null
        if the row is missing.
@@ -86,6 +96,37 @@ public interface IColumn extends Serializable {
      */
     boolean isMissing(int rowIndex);
 
+    /**
+     * Batch version of isMissing.
+     * @param rows     Row indexes; only the first count are used.
+     * @param count    Number of rows to check.
+     * @param missing  Array where missing[i] is set to isMissing(rows[i]).
+     */
+    default void isMissing(final int[] rows, final int count, final boolean[] missing) {
+        for (int i = 0; i < count; i++)
+            missing[i] = this.isMissing(rows[i]);
+    }
+
+    /**
+     * Batch version of asDouble.  Sets missing[i] to isMissing(rows[i]) and,
+     * for the rows that are not missing, values[i] to asDouble(rows[i]).
+     * Implementations backed by primitive arrays override this to avoid
+     * a virtual call per row.
+     * @param rows     Row indexes; only the first count are used.
+     * @param count    Number of rows to read.
+     * @param values   Array receiving the values.
+     * @param missing  Array receiving the missing flags.
+     */
+    default void asDouble(final int[] rows, final int count,
+                          final double[] values, final boolean[] missing) {
+        for (int i = 0; i < count; i++) {
+            final int row = rows[i];
+            missing[i] = this.isMissing(row);
+            if (!missing[i])
+                values[i] = this.asDouble(row);
+        }
+    }
+
     /**
      * @return Number of rows in the column.
      */
@@ -196,5 +237,24 @@ public interface IColumn extends Serializable {
      */
     long hashCode64(int rowIndex, LongHashFunction hash);
 
+    /**
+     * Batch version of hashCode64.  Sets missing[i] to isMissing(rows[i]) and
+     * hashes[i] to hashCode64(rows[i]) for the rows that are not missing.
+     * @param rows     Row indexes; only the first count are used.
+     * @param count    Number of rows to hash.
+     * @param hash     Hash function to use.
+     * @param hashes   Array receiving the hash values.
+     * @param missing  Array receiving the missing flags.
+     */
+    default void hashCode64(final int[] rows, final int count, final LongHashFunction hash,
+                            final long[] hashes, final boolean[] missing) {
+        for (int i = 0; i < count; i++) {
+            final int row = rows[i];
+            missing[i] = this.isMissing(row);
+            if (!missing[i])
+                hashes[i] = this.hashCode64(row, hash);
+        }
+    }
+
     long MISSING_HASH_VALUE = 0;
 }
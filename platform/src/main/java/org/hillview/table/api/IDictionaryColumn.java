@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.api;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * A string column which stores each value as a small integer code,
+ * which is an index in a dictionary of the distinct values.  Sketches
+ * can count and compare the codes and only decode the few distinct
+ * values they need at the end.  Missing values have a code as well,
+ * which is decoded as null.
+ */
+public interface IDictionaryColumn extends IStringColumn {
+    /**
+     * True if the column currently stores codes; some columns switch to
+     * storing the strings themselves when there are too many distinct values.
+     */
+    boolean hasDictionary();
+
+    /**
+     * All codes are between 0 and getDictionarySize() - 1.
+     */
+    int getDictionarySize();
+
+    /**
+     * The code of the value in the specified row.
+     */
+    int getCode(int rowIndex);
+
+    /**
+     * Batch version of getCode.
+     */
+    default void getCodes(final int[] rows, final int count, final int[] codes) {
+        for (int i = 0; i < count; i++)
+            codes[i] = this.getCode(rows[i]);
+    }
+
+    /**
+     * The value that has the specified code; null for missing values.
+     */
+    @Nullable
+    String decode(int code);
+
+    /**
+     * Counts the number of occurrences of each code.
+     * @param rows       Iterator over the rows to count.
+     * @param firstRows  If not null, an array with getDictionarySize() elements
+     *                   which receives the first row that has each code, or -1
+     *                   for codes that do not occur.
+     * @return           An array indexed with the code holding the counts.
+     */
+    default int[] countCodes(IRowIterator rows, @Nullable int[] firstRows) {
+        final int[] counts = new int[this.getDictionarySize()];
+        if (firstRows != null)
+            Arrays.fill(firstRows, -1);
+        final int[] batch = new int[IRowIterator.BATCH_SIZE];
+        final int[] codes = new int[IRowIterator.BATCH_SIZE];
+        int count = rows.getNextRows(batch);
+        while (count > 0) {
+            this.getCodes(batch, count, codes);
+            for (int i = 0; i < count; i++) {
+                int code = codes[i];
+                if (counts[code]++ == 0 && firstRows != null)
+                    firstRows[code] = batch[i];
+            }
+            count = rows.getNextRows(batch);
+        }
+        return counts;
+    }
+
+    /**
+     * Evaluates a filter once for each value in the dictionary.
+     * @return An array indexed with the code which is true for the
+     *         codes of the values that match the filter.
+     */
+    default boolean[] matchingCodes(IStringFilter filter) {
+        final boolean[] result = new boolean[this.getDictionarySize()];
+        for (int code = 0; code < result.length; code++)
+            result[code] = filter.test(this.decode(code));
+        return result;
+    }
+
+    /**
+     * Returns the column as an IDictionaryColumn if it stores codes
+     * for at most maxDictionarySize distinct values, or null otherwise.
+     */
+    @Nullable
+    static IDictionaryColumn asDictionary(IColumn column, int maxDictionarySize) {
+        if (!(column instanceof IDictionaryColumn))
+            return null;
+        IDictionaryColumn result = (IDictionaryColumn)column;
+        if (!result.hasDictionary() || result.getDictionarySize() > maxDictionarySize)
+            return null;
+        return result;
+    }
+}
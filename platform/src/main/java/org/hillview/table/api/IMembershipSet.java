@@ -17,8 +17,11 @@
 
 package org.hillview.table.api;
 
+import org.hillview.table.membership.CompressedMembershipSet;
 import org.hillview.table.membership.MembershipSetFactory;
 import org.hillview.utils.Randomness;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.IntPredicate;
 
 /**
@@ -32,6 +35,13 @@ public interface IMembershipSet extends IRowOrder {
      */
     int getMax();
 
+    /**
+     * An upper bound on getSize() which may be cheaper to compute.
+     */
+    default int getSizeUpperBound() {
+        return this.getSize();
+    }
+
     /**
      * @param rowIndex A non-negative row index.
      * @return True if the given rowIndex is a member of the set.
@@ -98,6 +108,8 @@ public interface IMembershipSet extends IRowOrder {
     }
 
     default IMembershipSet union(final IMembershipSet other) {
+        if (other instanceof CompressedMembershipSet && other.getMax() == this.getMax())
+            return other.union(this);
         IMutableMembershipSet mms = MembershipSetFactory.create(
                 this.getMax(), this.getSize() + other.getSize());
         IRowIterator iter = this.getIterator();
@@ -117,6 +129,8 @@ public interface IMembershipSet extends IRowOrder {
     }
 
     default IMembershipSet intersection(final IMembershipSet other) {
+        if (other instanceof CompressedMembershipSet && other.getMax() == this.getMax())
+            return other.intersection(this);
         IMutableMembershipSet mms = MembershipSetFactory.create(
                 this.getMax(), Math.min(this.getSize(), other.getSize()));
         final IRowIterator iter = this.getIterator();
@@ -159,6 +173,29 @@ public interface IMembershipSet extends IRowOrder {
         return result;
     }
 
+    /**
+     * Splits the set into disjoint sets, each containing a range of
+     * consecutive members.
+     * @param parts  Number of sets to produce; it should not exceed the size of the set.
+     * @return       A list with the sets, in increasing order of the rows.
+     */
+    default List<IMembershipSet> split(int parts) {
+        List<IMembershipSet> result = new ArrayList<IMembershipSet>(parts);
+        final int size = this.getSize();
+        IRowIterator iter = this.getIterator();
+        int current = iter.getNextRow();
+        for (int i = 0; i < parts; i++) {
+            int partSize = (int)(((long)size * (i + 1)) / parts - ((long)size * i) / parts);
+            IMutableMembershipSet mms = MembershipSetFactory.create(this.getMax(), partSize);
+            for (int j = 0; j < partSize; j++) {
+                mms.add(current);
+                current = iter.getNextRow();
+            }
+            result.add(mms.seal());
+        }
+        return result;
+    }
+
     /**
      * Policy which indicates when to use a sparse column when
      * storing only `size` elements.
@@ -22,7 +22,29 @@ package org.hillview.table.api;
  * It returns -1 when the iteration is completed.
  */
 public interface IRowIterator {
+    /**
+     * Number of rows that sketches request at once when using getNextRows.
+     */
+    int BATCH_SIZE = 1024;
+
     // Returns -1 when iteration is completed; else it returns
     // the index of the next row.
     int getNextRow();
+
+    /**
+     * Batch version of getNextRow: writes the indexes of the next rows
+     * in the rows array, filling it if enough rows are left.
+     * @param rows  Array that receives row indexes.
+     * @return      The number of rows written; 0 when the iteration is completed.
+     */
+    default int getNextRows(final int[] rows) {
+        int count = 0;
+        while (count < rows.length) {
+            final int row = this.getNextRow();
+            if (row < 0)
+                break;
+            rows[count++] = row;
+        }
+        return count;
+    }
 }
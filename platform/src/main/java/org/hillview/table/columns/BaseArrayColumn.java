@@ -31,6 +31,11 @@ import java.util.BitSet;
 public abstract class BaseArrayColumn extends BaseColumn implements Serializable {
     @Nullable
     private final BitSet missing;
+    /**
+     * Built on demand for numeric columns, and discarded when the data changes.
+     */
+    @Nullable
+    private transient volatile ZoneMap zoneMap;
 
     BaseArrayColumn(final ColumnDescription description, final int size) {
         super(description);
@@ -51,9 +56,50 @@ public abstract class BaseArrayColumn extends BaseColumn implements Serializable
         return this.missing.get(rowIndex);
     }
 
+    @Override
+    public void isMissing(final int[] rows, final int count, final boolean[] missing) {
+        if (this.missing == null) {
+            for (int i = 0; i < count; i++)
+                missing[i] = this.isMissing(rows[i]);
+            return;
+        }
+        for (int i = 0; i < count; i++)
+            missing[i] = this.missing.get(rows[i]);
+    }
+
     public void setMissing(final int rowIndex) {
         assert this.missing != null;
         this.missing.set(rowIndex);
+        this.invalidateZoneMap();
+    }
+
+    /**
+     * Must be called when a value in the column is changed.
+     */
+    void invalidateZoneMap() {
+        // Reading first avoids a volatile write for each value loaded
+        if (this.zoneMap != null)
+            this.zoneMap = null;
+    }
+
+    @Nullable
+    @Override
+    public ZoneMap getZoneMap() {
+        switch (this.description.kind) {
+            case Integer:
+            case Double:
+            case Date:
+            case Duration:
+                break;
+            default:
+                return null;
+        }
+        ZoneMap result = this.zoneMap;
+        if (result == null) {
+            result = ZoneMap.create(this);
+            this.zoneMap = result;
+        }
+        return result;
     }
 
     /**
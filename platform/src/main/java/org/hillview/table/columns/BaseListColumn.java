@@ -69,6 +69,19 @@ public abstract class BaseListColumn extends BaseColumn implements IAppendableCo
         return this.missing.get(segmentId).get(localIndex);
     }
 
+    @Override
+    public void isMissing(final int[] rows, final int count, final boolean[] missing) {
+        if (this.missing == null) {
+            for (int i = 0; i < count; i++)
+                missing[i] = this.isMissing(rows[i]);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            final int row = rows[i];
+            missing[i] = this.missing.get(row >> LogSegmentSize).get(row & SegmentMask);
+        }
+    }
+
     @Override
     public void append(@Nullable Object obj) {
         if (obj == null) {
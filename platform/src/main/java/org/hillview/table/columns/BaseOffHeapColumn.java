@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.*;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class for columns that keep their data outside of the Java heap,
+ * in direct byte buffers.  The data is stored in segments, as for the list
+ * columns, so the column can grow by appending.  A column created with a
+ * known size can also be written in place, as the array columns.
+ * Keeping the bulk of the data off-heap makes the heap smaller and
+ * the garbage collection pauses shorter.
+ */
+public abstract class BaseOffHeapColumn extends BaseColumn
+        implements IAppendableColumn, IMutableColumn {
+    static final int LogSegmentSize = 16;
+    public static final int SegmentSize = 1 << LogSegmentSize;
+    static final int SegmentMask = SegmentSize - 1;
+
+    /**
+     * Number of bytes used to store each value.
+     */
+    private final int valueSize;
+    transient ArrayList<ByteBuffer> segments;
+    /**
+     * One bit for each row; null for columns that represent missing values
+     * in the data itself.
+     */
+    @Nullable
+    transient ArrayList<ByteBuffer> missing;
+    int size;
+
+    BaseOffHeapColumn(final ColumnDescription desc, final int valueSize) {
+        super(desc);
+        this.valueSize = valueSize;
+        this.segments = new ArrayList<ByteBuffer>();
+        if (!desc.kind.isObject())
+            this.missing = new ArrayList<ByteBuffer>();
+        else
+            this.missing = null;
+        this.size = 0;
+    }
+
+    /**
+     * Creates a column that shares the data with another column.
+     */
+    BaseOffHeapColumn(final ColumnDescription desc, final BaseOffHeapColumn other) {
+        super(desc);
+        this.valueSize = other.valueSize;
+        this.segments = other.segments;
+        this.missing = other.missing;
+        this.size = other.size;
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Makes room for the specified number of rows and sets the column
+     * size accordingly.  All rows are initially present.
+     */
+    void allocateRows(final int rows) {
+        while (this.segments.size() * SegmentSize < rows)
+            this.grow();
+        this.size = rows;
+    }
+
+    void grow() {
+        this.segments.add(allocate(SegmentSize * this.valueSize));
+        if (this.missing != null)
+            this.missing.add(allocate(SegmentSize / 8));
+    }
+
+    /**
+     * Returns the segment which holds the specified row.
+     */
+    ByteBuffer segment(final int rowIndex) {
+        return this.segments.get(rowIndex >> LogSegmentSize);
+    }
+
+    /**
+     * Returns the offset in its segment where the value of the row is stored.
+     */
+    int offset(final int rowIndex) {
+        return (rowIndex & SegmentMask) * this.valueSize;
+    }
+
+    /**
+     * Makes room for the next appended value and returns its row index.
+     */
+    int nextRow() {
+        final int segmentId = this.size >> LogSegmentSize;
+        if (this.segments.size() == segmentId)
+            this.grow();
+        return this.size++;
+    }
+
+    @Override
+    public boolean isLoaded() { return true; }
+
+    @Override
+    public int sizeInRows() {
+        return this.size;
+    }
+
+    @Override
+    public IColumn seal() {
+        return this;
+    }
+
+    @Override
+    public boolean isMissing(final int rowIndex) {
+        assert this.missing != null;
+        final int localIndex = rowIndex & SegmentMask;
+        final ByteBuffer bits = this.missing.get(rowIndex >> LogSegmentSize);
+        return (bits.get(localIndex >> 3) & (1 << (localIndex & 7))) != 0;
+    }
+
+    @Override
+    public void isMissing(final int[] rows, final int count, final boolean[] missing) {
+        if (this.missing == null) {
+            for (int i = 0; i < count; i++)
+                missing[i] = this.isMissing(rows[i]);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            final int row = rows[i];
+            final int localIndex = row & SegmentMask;
+            final ByteBuffer bits = this.missing.get(row >> LogSegmentSize);
+            missing[i] = (bits.get(localIndex >> 3) & (1 << (localIndex & 7))) != 0;
+        }
+    }
+
+    @Override
+    public void setMissing(final int rowIndex) {
+        assert this.missing != null;
+        final int localIndex = rowIndex & SegmentMask;
+        final ByteBuffer bits = this.missing.get(rowIndex >> LogSegmentSize);
+        final int byteIndex = localIndex >> 3;
+        bits.put(byteIndex, (byte)(bits.get(byteIndex) | (1 << (localIndex & 7))));
+    }
+
+    @Override
+    public void appendMissing() {
+        this.setMissing(this.nextRow());
+    }
+
+    void parseEmptyOrNull() {
+        this.appendMissing();
+    }
+
+    @Override
+    public void append(@Nullable Object obj) {
+        if (obj == null) {
+            this.appendMissing();
+            return;
+        }
+        switch (this.description.kind) {
+            case String:
+            case Json:
+                this.append((String)obj);
+                break;
+            case Date:
+                this.append((Instant)obj);
+                break;
+            case Integer:
+                this.append((int)obj);
+                break;
+            case Double:
+                this.append((double)obj);
+                break;
+            case Duration:
+                this.append((Duration)obj);
+                break;
+            default:
+                throw new RuntimeException("Unexpected kind " + this.description.kind);
+        }
+    }
+
+    /**
+     * Converted columns are also stored off-heap.
+     */
+    @Override
+    public IMutableColumn allocateConvertedColumn(
+            ContentsKind kind, IMembershipSet set, String newColName) {
+        ColumnDescription cd = new ColumnDescription(newColName, kind);
+        if (set.useSparseColumn())
+            return new SparseColumn(cd, this.sizeInRows());
+        return BaseOffHeapColumn.create(cd, this.sizeInRows());
+    }
+
+    /**
+     * Create an empty off-heap column that can grow by appending.
+     * @param desc  Column description.
+     */
+    public static BaseOffHeapColumn create(ColumnDescription desc) {
+        switch (desc.kind) {
+            case String:
+            case Json:
+                return new StringOffHeapColumn(desc);
+            case Date:
+                return new DateOffHeapColumn(desc);
+            case Integer:
+                return new IntOffHeapColumn(desc);
+            case Double:
+                return new DoubleOffHeapColumn(desc);
+            case Duration:
+                return new DurationOffHeapColumn(desc);
+            default:
+                throw new RuntimeException("Unexpected description " + desc.toString());
+        }
+    }
+
+    /**
+     * Create an off-heap column with the specified number of rows,
+     * which can be written using the set methods.
+     * @param desc  Column description.
+     * @param size  Number of rows in the column.
+     */
+    public static BaseOffHeapColumn create(ColumnDescription desc, int size) {
+        BaseOffHeapColumn result = create(desc);
+        result.allocateRows(size);
+        return result;
+    }
+
+    /**
+     * Create an off-heap column whose data is stored in existing buffers,
+     * e.g., slices of a memory-mapped file.  The buffers are not copied.
+     * @param desc        Column description.
+     * @param segments    One buffer for each SegmentSize values.
+     * @param missing     One buffer for each SegmentSize bits of the missing bitmap;
+     *                    must be null for string columns.
+     * @param size        Number of rows in the column.
+     * @param dictionary  For string columns the values encoded as 1, 2, ...;
+     *                    the value 0 always encodes null.
+     */
+    public static BaseOffHeapColumn wrap(ColumnDescription desc, List<ByteBuffer> segments,
+                                         @Nullable List<ByteBuffer> missing, int size,
+                                         @Nullable List<String> dictionary) {
+        BaseOffHeapColumn result = create(desc);
+        if ((missing == null) != desc.kind.isObject())
+            throw new RuntimeException("Unexpected missing bitmap for " + desc);
+        if (result instanceof StringOffHeapColumn) {
+            if (dictionary == null)
+                throw new RuntimeException("Missing dictionary for " + desc);
+            ((StringOffHeapColumn)result).addToDictionary(dictionary);
+        }
+        if (segments.size() * SegmentSize < size)
+            throw new RuntimeException("Not enough data for " + size + " rows");
+        result.segments = new ArrayList<ByteBuffer>(segments);
+        result.missing = missing == null ? null : new ArrayList<ByteBuffer>(missing);
+        result.size = size;
+        return result;
+    }
+
+    private static void writeBuffers(ObjectOutputStream out, ArrayList<ByteBuffer> buffers)
+            throws IOException {
+        out.writeInt(buffers.size());
+        for (ByteBuffer buffer : buffers) {
+            byte[] bytes = new byte[buffer.capacity()];
+            // The position of the buffer is not used by the column, so it may be anywhere.
+            ByteBuffer all = buffer.duplicate();
+            all.clear();
+            all.get(bytes);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static ArrayList<ByteBuffer> readBuffers(ObjectInputStream in) throws IOException {
+        int count = in.readInt();
+        ArrayList<ByteBuffer> result = new ArrayList<ByteBuffer>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            ByteBuffer buffer = allocate(bytes.length);
+            buffer.put(bytes);
+            buffer.clear();
+            result.add(buffer);
+        }
+        return result;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        writeBuffers(out, this.segments);
+        out.writeBoolean(this.missing != null);
+        if (this.missing != null)
+            writeBuffers(out, this.missing);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.segments = readBuffers(in);
+        if (in.readBoolean())
+            this.missing = readBuffers(in);
+        else
+            this.missing = null;
+    }
+}
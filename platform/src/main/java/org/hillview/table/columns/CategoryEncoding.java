@@ -50,6 +50,11 @@ class CategoryEncoding {
         return encoding;
     }
 
+    /**
+     * Number of distinct values; codes are between 0 and size() - 1.
+     */
+    int size() { return this.intDecoding.size(); }
+
     public void clear() {
         this.intDecoding.clear();
         this.intDecoding.clear();
@@ -17,6 +17,7 @@
 
 package org.hillview.table.columns;
 
+import net.openhft.hashing.LongHashFunction;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.api.ContentsKind;
 import org.hillview.table.api.IColumn;
@@ -47,6 +48,7 @@ public class DoubleArrayColumn
 
     @Override
     public IColumn seal() {
+        this.getZoneMap();
         return this;
     }
 
@@ -61,6 +63,27 @@ public class DoubleArrayColumn
     @Override
     public double getDouble(final int rowIndex) { return this.data[rowIndex];}
 
+    /**
+     * Also used by the date and duration columns, which store their values as doubles.
+     */
+    @Override
+    public void asDouble(final int[] rows, final int count,
+                         final double[] values, final boolean[] missing) {
+        this.isMissing(rows, count, missing);
+        // Missing rows hold some value in data, so we don't need to test
+        for (int i = 0; i < count; i++)
+            values[i] = this.data[rows[i]];
+    }
+
+    @Override
+    public void hashCode64(final int[] rows, final int count, final LongHashFunction hash,
+                           final long[] hashes, final boolean[] missing) {
+        this.isMissing(rows, count, missing);
+        for (int i = 0; i < count; i++)
+            if (!missing[i])
+                hashes[i] = hash.hashLong(Double.doubleToRawLongBits(this.data[rows[i]]));
+    }
+
     @Override
     public void set(int rowIndex, @Nullable Object value) {
         if (value == null)
@@ -70,6 +93,8 @@ public class DoubleArrayColumn
     }
 
     @Override
-    public void set(final int rowIndex, final double value)
-    { this.data[rowIndex] = value; }
+    public void set(final int rowIndex, final double value) {
+        this.data[rowIndex] = value;
+        this.invalidateZoneMap();
+    }
 }
@@ -64,6 +64,16 @@ public class DoubleListColumn
         return this.segments.get(segmentId)[localIndex];
     }
 
+    @Override
+    public void asDouble(final int[] rows, final int count,
+                         final double[] values, final boolean[] missing) {
+        this.isMissing(rows, count, missing);
+        for (int i = 0; i < count; i++) {
+            final int row = rows[i];
+            values[i] = this.segments.get(row >> LogSegmentSize)[row & SegmentMask];
+        }
+    }
+
     @Override
     void grow() {
         this.segments.add(new double[SegmentSize]);
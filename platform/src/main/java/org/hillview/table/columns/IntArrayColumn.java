@@ -17,6 +17,7 @@
 
 package org.hillview.table.columns;
 
+import net.openhft.hashing.LongHashFunction;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.api.*;
 
@@ -50,6 +51,7 @@ public final class IntArrayColumn
 
     @Override
     public IColumn seal() {
+        this.getZoneMap();
         return this;
     }
 
@@ -68,6 +70,24 @@ public final class IntArrayColumn
         return this.data[rowIndex];
     }
 
+    @Override
+    public void asDouble(final int[] rows, final int count,
+                         final double[] values, final boolean[] missing) {
+        this.isMissing(rows, count, missing);
+        // Missing rows hold some value in data, so we don't need to test
+        for (int i = 0; i < count; i++)
+            values[i] = this.data[rows[i]];
+    }
+
+    @Override
+    public void hashCode64(final int[] rows, final int count, final LongHashFunction hash,
+                           final long[] hashes, final boolean[] missing) {
+        this.isMissing(rows, count, missing);
+        for (int i = 0; i < count; i++)
+            if (!missing[i])
+                hashes[i] = hash.hashInt(this.data[rows[i]]);
+    }
+
     @Override
     public void set(int rowIndex, @Nullable Object value) {
         if (value == null)
@@ -78,5 +98,6 @@ public final class IntArrayColumn
 
     public void set(final int rowIndex, final int value) {
         this.data[rowIndex] = value;
+        this.invalidateZoneMap();
     }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import net.openhft.hashing.LongHashFunction;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IIntColumn;
+
+import javax.annotation.Nullable;
+
+/**
+ * A column of integers stored off-heap.
+ */
+public final class IntOffHeapColumn extends BaseOffHeapColumn implements IIntColumn {
+    public IntOffHeapColumn(final ColumnDescription desc) {
+        super(desc, Integer.BYTES);
+        this.checkKind(ContentsKind.Integer);
+    }
+
+    private IntOffHeapColumn(final ColumnDescription desc, final IntOffHeapColumn other) {
+        super(desc, other);
+    }
+
+    @Override
+    public int getInt(final int rowIndex) {
+        return this.segment(rowIndex).getInt(this.offset(rowIndex));
+    }
+
+    @Override
+    public IColumn rename(String newName) {
+        return new IntOffHeapColumn(this.description.rename(newName), this);
+    }
+
+    @Override
+    public void asDouble(final int[] rows, final int count,
+                         final double[] values, final boolean[] missing) {
+        this.isMissing(rows, count, missing);
+        for (int i = 0; i < count; i++)
+            values[i] = this.getInt(rows[i]);
+    }
+
+    @Override
+    public void hashCode64(final int[] rows, final int count, final LongHashFunction hash,
+                           final long[] hashes, final boolean[] missing) {
+        this.isMissing(rows, count, missing);
+        for (int i = 0; i < count; i++)
+            if (!missing[i])
+                hashes[i] = hash.hashInt(this.getInt(rows[i]));
+    }
+
+    @Override
+    public void set(int rowIndex, @Nullable Object value) {
+        if (value == null)
+            this.setMissing(rowIndex);
+        else
+            this.set(rowIndex, (int)value);
+    }
+
+    @Override
+    public void set(final int rowIndex, final int value) {
+        this.segment(rowIndex).putInt(this.offset(rowIndex), value);
+    }
+
+    @Override
+    public void append(final int value) {
+        this.set(this.nextRow(), value);
+    }
+
+    @Override
+    public void parseAndAppendString(@Nullable String s) {
+        if ((s == null) || s.isEmpty())
+            this.parseEmptyOrNull();
+        else {
+            try {
+                this.append((int) Double.parseDouble(s));
+            } catch (Exception ex) {
+                this.parsingExceptionCount++;
+                this.parseEmptyOrNull();
+            }
+        }
+    }
+}
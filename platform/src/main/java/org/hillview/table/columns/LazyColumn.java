@@ -82,11 +82,21 @@ public class LazyColumn extends BaseColumn {
     public boolean isMissing(final int rowIndex) { return this.ensureLoaded().isMissing(rowIndex); }
 
 
+    @Override
+    public void isMissing(int[] rows, int count, boolean[] missing) {
+        this.ensureLoaded().isMissing(rows, count, missing);
+    }
+
     @Override
     public double asDouble(int rowIndex) {
         return this.ensureLoaded().asDouble(rowIndex);
     }
 
+    @Override
+    public void asDouble(int[] rows, int count, double[] values, boolean[] missing) {
+        this.ensureLoaded().asDouble(rows, count, values, missing);
+    }
+
     @Nullable
     @Override
     public String asString(int rowIndex) {
@@ -116,6 +126,12 @@ public class LazyColumn extends BaseColumn {
         return this.ensureLoaded().hashCode64(rowIndex, hash);
     }
 
+    @Override
+    public void hashCode64(int[] rows, int count, LongHashFunction hash,
+                           long[] hashes, boolean[] missing) {
+        this.ensureLoaded().hashCode64(rows, count, hash, hashes, missing);
+    }
+
     synchronized private IColumn ensureLoaded() {
         if (this.data != null)
             return this.data;
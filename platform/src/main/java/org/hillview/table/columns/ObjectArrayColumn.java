@@ -18,11 +18,16 @@
 package org.hillview.table.columns;
 
 import net.openhft.hashing.LongHashFunction;
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.IBinaryCodec;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.api.*;
 import org.hillview.utils.Converters;
 
 import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.security.InvalidParameterException;
 import java.time.Duration;
 import java.time.Instant;
@@ -256,4 +261,40 @@ public final class ObjectArrayColumn extends BaseArrayColumn {
                 throw new RuntimeException("Unexpected data type");
         }
     }
+
+    /**
+     * Any column can be written by this codec; it is always read back as an ObjectArrayColumn.
+     */
+    public static class Codec implements IBinaryCodec<ObjectArrayColumn> {
+        public static void writeColumn(IColumn column, DataOutput out) throws IOException {
+            BinaryCodecs.writeColumnDescription(out, column.getDescription());
+            int size = column.sizeInRows();
+            BinaryCodecs.writeVarInt(out, size);
+            if (column instanceof ObjectArrayColumn) {
+                for (Object o : ((ObjectArrayColumn)column).data)
+                    BinaryCodecs.writeObject(out, o);
+            } else {
+                for (int i = 0; i < size; i++)
+                    BinaryCodecs.writeObject(out, column.getObject(i));
+            }
+        }
+
+        public static ObjectArrayColumn readColumn(DataInput in) throws IOException {
+            ColumnDescription desc = BinaryCodecs.readColumnDescription(in);
+            Object[] data = new Object[BinaryCodecs.readVarInt(in)];
+            for (int i = 0; i < data.length; i++)
+                data[i] = BinaryCodecs.readObject(in);
+            return new ObjectArrayColumn(desc, data);
+        }
+
+        @Override
+        public void encode(ObjectArrayColumn value, DataOutput out) throws IOException {
+            writeColumn(value, out);
+        }
+
+        @Override
+        public ObjectArrayColumn decode(DataInput in) throws IOException {
+            return readColumn(in);
+        }
+    }
 }
@@ -23,7 +23,7 @@ import org.hillview.table.api.*;
 import javax.annotation.Nullable;
 
 public class StringArrayColumn extends BaseArrayColumn
-        implements IStringColumn, IMutableColumn {
+        implements IDictionaryColumn, IMutableColumn {
     private final int[] data;
     private final CategoryEncoding encoding;
 
@@ -92,6 +92,33 @@ public class StringArrayColumn extends BaseArrayColumn
         return this.encoding.decode(this.data[rowIndex]);
     }
 
+    @Override
+    public boolean hasDictionary() {
+        return true;
+    }
+
+    @Override
+    public int getDictionarySize() {
+        return this.encoding.size();
+    }
+
+    @Override
+    public int getCode(int rowIndex) {
+        return this.data[rowIndex];
+    }
+
+    @Override
+    public void getCodes(final int[] rows, final int count, final int[] codes) {
+        for (int i = 0; i < count; i++)
+            codes[i] = this.data[rows[i]];
+    }
+
+    @Nullable
+    @Override
+    public String decode(int code) {
+        return this.encoding.decode(code);
+    }
+
     @Override
     public int sizeInRows() {
         return this.data.length;
@@ -27,7 +27,7 @@ import java.util.ArrayList;
 /**
  * A column of String values that can grow in size.
  */
-public class StringListColumn extends BaseListColumn implements IStringColumn {
+public class StringListColumn extends BaseListColumn implements IDictionaryColumn {
     /*
      * We use one of two representations for string columns:
      * - for columns that have relatively few distinct values we use a dictionary encoding
@@ -93,32 +93,54 @@ public class StringListColumn extends BaseListColumn implements IStringColumn {
     @Nullable
     @Override
     public String getString(final int rowIndex) {
+        if (this.isSparse())
+            return this.encoding.decode(this.getCode(rowIndex));
         if (rowIndex > this.size)
             throw new ArrayIndexOutOfBoundsException(
                     "Index " + rowIndex + " larger than " + this.size);
-        if (this.isSparse()) {
-            int segmentId = rowIndex >> LogSegmentSize;
-            final int localIndex = rowIndex & SegmentMask;
-            if (segmentId < this.firstShortSegment) {
-                // use the byte segments
-                byte[] segment = this.byteSegments.get(segmentId);
-                byte index = segment[localIndex];
-                return this.encoding.decode(Byte.toUnsignedInt(index));
-            } else {
-                segmentId = segmentId - this.firstShortSegment;
-                short[] segment = this.shortSegments.get(segmentId);
-                short index = segment[localIndex];
-                return this.encoding.decode(Short.toUnsignedInt(index));
-            }
+        assert this.segments != null;
+        final int segmentId = rowIndex >> LogSegmentSize;
+        final int localIndex = rowIndex & SegmentMask;
+        String[] segment = this.segments.get(segmentId);
+        return segment[localIndex];
+    }
+
+    @Override
+    public boolean hasDictionary() {
+        return this.isSparse();
+    }
+
+    @Override
+    public int getDictionarySize() {
+        return this.encoding.size();
+    }
+
+    @Override
+    public int getCode(final int rowIndex) {
+        if (rowIndex > this.size)
+            throw new ArrayIndexOutOfBoundsException(
+                    "Index " + rowIndex + " larger than " + this.size);
+        if (!this.isSparse())
+            throw new RuntimeException("Column does not use a dictionary");
+        int segmentId = rowIndex >> LogSegmentSize;
+        final int localIndex = rowIndex & SegmentMask;
+        if (segmentId < this.firstShortSegment) {
+            // use the byte segments
+            byte[] segment = this.byteSegments.get(segmentId);
+            return Byte.toUnsignedInt(segment[localIndex]);
         } else {
-            assert this.segments != null;
-            final int segmentId = rowIndex >> LogSegmentSize;
-            final int localIndex = rowIndex & SegmentMask;
-            String[] segment = this.segments.get(segmentId);
-            return segment[localIndex];
+            segmentId = segmentId - this.firstShortSegment;
+            short[] segment = this.shortSegments.get(segmentId);
+            return Short.toUnsignedInt(segment[localIndex]);
         }
     }
 
+    @Nullable
+    @Override
+    public String decode(int code) {
+        return this.encoding.decode(code);
+    }
+
     @Override
     public IColumn seal() { return this; }
 
@@ -139,12 +161,34 @@ public class StringListColumn extends BaseListColumn implements IStringColumn {
     public void append(@Nullable String value) {
         if (value != null)
             value = value.intern();
+        this.appendEncoded(this.encode(value), value);
+    }
+
+    /**
+     * Returns the code of a value in the dictionary of this column, adding
+     * the value to the dictionary if needed.  The code can be used to append
+     * the value with appendEncoded.
+     * @param value  Value to encode.
+     * @return       The code of the value, or -1 if the column does not use a dictionary.
+     */
+    public int encode(@Nullable String value) {
+        if (!this.isSparse())
+            return -1;
+        return this.encoding.encode(value);
+    }
+
+    /**
+     * Appends a value without looking it up in the dictionary.
+     * @param encoding  Code of the value returned by encode.  Ignored if the
+     *                  column has stopped using a dictionary since.
+     * @param value     Value to append.
+     */
+    public void appendEncoded(int encoding, @Nullable String value) {
         int segmentId = this.size >> LogSegmentSize;
         final int localIndex = this.size & SegmentMask;
 
         if (this.isSparse()) {
-            int encoding = this.encoding.encode(value);
-
+            assert encoding >= 0;
             if (this.firstShortSegment != Integer.MAX_VALUE) {
                 if (encoding > 65535) {
                     HillviewLogger.instance.info(
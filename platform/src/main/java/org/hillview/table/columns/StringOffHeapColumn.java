@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IDictionaryColumn;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * A column of strings whose dictionary codes are stored off-heap.
+ * The dictionary itself is on the heap, so this representation is
+ * most useful for columns with relatively few distinct values.
+ */
+public class StringOffHeapColumn extends BaseOffHeapColumn implements IDictionaryColumn {
+    private final CategoryEncoding encoding;
+
+    public StringOffHeapColumn(final ColumnDescription desc) {
+        super(desc, Integer.BYTES);
+        if (!desc.kind.isString())
+            throw new IllegalArgumentException("Unexpected column kind " + desc.kind);
+        this.encoding = new CategoryEncoding();
+        // Reserve code 0 for null; the off-heap buffers are initialized
+        // with zeros, so rows that are never written are missing.
+        this.encoding.encode(null);
+    }
+
+    private StringOffHeapColumn(final ColumnDescription desc, final StringOffHeapColumn other) {
+        super(desc, other);
+        this.encoding = other.encoding;
+    }
+
+    /**
+     * Adds the values to the dictionary; they receive consecutive codes.
+     * The values must be distinct and not already in the dictionary.
+     */
+    void addToDictionary(List<String> values) {
+        for (String value : values)
+            this.encoding.encode(value);
+    }
+
+    @Nullable
+    @Override
+    public String getString(final int rowIndex) {
+        return this.encoding.decode(this.segment(rowIndex).getInt(this.offset(rowIndex)));
+    }
+
+    @Override
+    public boolean hasDictionary() {
+        return true;
+    }
+
+    @Override
+    public int getDictionarySize() {
+        return this.encoding.size();
+    }
+
+    @Override
+    public int getCode(final int rowIndex) {
+        return this.segment(rowIndex).getInt(this.offset(rowIndex));
+    }
+
+    @Nullable
+    @Override
+    public String decode(int code) {
+        return this.encoding.decode(code);
+    }
+
+    @Override
+    public boolean isMissing(final int rowIndex) {
+        return this.getString(rowIndex) == null;
+    }
+
+    @Override
+    public void setMissing(final int rowIndex) {
+        this.set(rowIndex, (String)null);
+    }
+
+    @Override
+    public IColumn rename(String newName) {
+        return new StringOffHeapColumn(this.description.rename(newName), this);
+    }
+
+    @Override
+    public void set(int rowIndex, @Nullable Object value) {
+        if (value == null || value instanceof String)
+            this.set(rowIndex, (String)value);
+        else
+            throw new UnsupportedOperationException("Wrong value type");
+    }
+
+    @Override
+    public void set(final int rowIndex, @Nullable final String value) {
+        this.segment(rowIndex).putInt(this.offset(rowIndex), this.encoding.encode(value));
+    }
+
+    @Override
+    public void append(@Nullable final String value) {
+        this.set(this.nextRow(), value);
+    }
+
+    @Override
+    public void appendMissing() {
+        this.append((String)null);
+    }
+
+    @Override
+    public void parseAndAppendString(@Nullable String s) {
+        this.append(s);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.columns;
+
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IRowIterator;
+
+/**
+ * A zone map summarizes the values of a numeric column in blocks of BlockSize
+ * consecutive rows: for each block it holds the minimum and maximum of the
+ * present values and the number of missing values.  Filters use it to
+ * accept or reject whole blocks without looking at the rows.  Values
+ * are summarized as doubles, as returned by asDouble.
+ */
+public final class ZoneMap {
+    public static final int LogBlockSize = 12;
+    public static final int BlockSize = 1 << LogBlockSize;
+
+    /**
+     * Results of testing a block against a predicate.
+     */
+    public static final byte NoRows = 0;
+    public static final byte AllRows = 1;
+    public static final byte SomeRows = 2;
+
+    private final int rows;
+    /**
+     * NaN for blocks that contain NaN values; such blocks are never
+     * accepted or rejected as a whole.
+     */
+    private final double[] min;
+    private final double[] max;
+    private final int[] missing;
+
+    private ZoneMap(int rows) {
+        this.rows = rows;
+        int blocks = (rows + BlockSize - 1) >>> LogBlockSize;
+        this.min = new double[blocks];
+        this.max = new double[blocks];
+        this.missing = new int[blocks];
+    }
+
+    /**
+     * Scans a column and builds its zone map.
+     */
+    public static ZoneMap create(IColumn column) {
+        ZoneMap result = new ZoneMap(column.sizeInRows());
+        final int[] rows = new int[IRowIterator.BATCH_SIZE];
+        final double[] values = new double[IRowIterator.BATCH_SIZE];
+        final boolean[] missing = new boolean[IRowIterator.BATCH_SIZE];
+        for (int block = 0; block < result.getBlockCount(); block++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            boolean nan = false;
+            int missingCount = 0;
+            int start = block << LogBlockSize;
+            int end = start + result.getBlockRows(block);
+            for (int first = start; first < end; first += rows.length) {
+                int count = Math.min(rows.length, end - first);
+                for (int i = 0; i < count; i++)
+                    rows[i] = first + i;
+                column.asDouble(rows, count, values, missing);
+                for (int i = 0; i < count; i++) {
+                    if (missing[i]) {
+                        missingCount++;
+                        continue;
+                    }
+                    double v = values[i];
+                    if (v < min)
+                        min = v;
+                    if (v > max)
+                        max = v;
+                    if (Double.isNaN(v))
+                        nan = true;
+                }
+            }
+            result.min[block] = nan ? Double.NaN : min;
+            result.max[block] = nan ? Double.NaN : max;
+            result.missing[block] = missingCount;
+        }
+        return result;
+    }
+
+    public int getRowCount() { return this.rows; }
+
+    public int getBlockCount() { return this.min.length; }
+
+    /**
+     * Number of rows in a block; only the last block may be smaller than BlockSize.
+     */
+    public int getBlockRows(int block) {
+        return Math.min(BlockSize, this.rows - (block << LogBlockSize));
+    }
+
+    /**
+     * Minimum present value in the block; NaN if the block contains NaN values,
+     * and positive infinity if all values are missing.
+     */
+    public double getMin(int block) { return this.min[block]; }
+
+    /**
+     * Maximum present value in the block; NaN if the block contains NaN values,
+     * and negative infinity if all values are missing.
+     */
+    public double getMax(int block) { return this.max[block]; }
+
+    public int getMissingCount(int block) { return this.missing[block]; }
+
+    public boolean hasNaN(int block) { return Double.isNaN(this.min[block]); }
+
+    /**
+     * Tests each block against the predicate: "missing ? missingMatches : low <= value <= high",
+     * or its negation if complement is true.
+     * @return  An array with one of NoRows, AllRows or SomeRows for each block.
+     */
+    public byte[] classify(double low, double high, boolean missingMatches, boolean complement) {
+        byte[] result = new byte[this.getBlockCount()];
+        for (int block = 0; block < result.length; block++) {
+            byte b = this.classify(block, low, high, missingMatches);
+            if (complement && b != SomeRows)
+                b = b == AllRows ? NoRows : AllRows;
+            result[block] = b;
+        }
+        return result;
+    }
+
+    private byte classify(int block, double low, double high, boolean missingMatches) {
+        if (this.hasNaN(block))
+            return SomeRows;
+        int missing = this.missing[block];
+        if (missing == this.getBlockRows(block))
+            return missingMatches ? AllRows : NoRows;
+        boolean allMissingMatch = missing == 0 || missingMatches;
+        boolean noMissingMatch = missing == 0 || !missingMatches;
+        double min = this.min[block];
+        double max = this.max[block];
+        if (low <= min && max <= high && allMissingMatch)
+            return AllRows;
+        if ((max < low || min > high) && noMissingMatch)
+            return NoRows;
+        return SomeRows;
+    }
+}
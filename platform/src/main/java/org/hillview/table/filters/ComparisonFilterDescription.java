@@ -19,6 +19,7 @@ package org.hillview.table.filters;
 
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.api.*;
+import org.hillview.table.columns.ZoneMap;
 
 import javax.annotation.Nullable;
 import java.util.function.Predicate;
@@ -58,13 +59,58 @@ public class ComparisonFilterDescription implements ITableFilterDescription {
         return new ComparisonFilter(table);
     }
 
+    /**
+     * Uses the zone map of a numeric column to find the blocks where all or
+     * none of the rows match.  Each comparison is expressed as a range of
+     * values and the result for missing values, matching the row tests below.
+     * @return The result for each block, or null if the column has no zone map.
+     */
+    @Nullable
+    private byte[] classifyBlocks(IColumn col) {
+        ZoneMap zoneMap = col.getZoneMap();
+        if (zoneMap == null || this.doubleValue == null)
+            return null;
+        double d;
+        switch (col.getKind()) {
+            case Integer:
+                d = (int)(double)this.doubleValue;
+                break;
+            case Double:
+            case Date:
+            case Duration:
+                d = this.doubleValue;
+                break;
+            default:
+                return null;
+        }
+        double inf = Double.POSITIVE_INFINITY;
+        switch (this.comparison) {
+            case "==":
+                return zoneMap.classify(d, d, false, false);
+            case "!=":
+                return zoneMap.classify(d, d, false, true);
+            case ">":
+                return zoneMap.classify(-inf, Math.nextDown(d), true, false);
+            case "<":
+                return zoneMap.classify(Math.nextUp(d), inf, false, false);
+            case "<=":
+                return zoneMap.classify(d, inf, true, false);
+            case ">=":
+                return zoneMap.classify(-inf, d, false, false);
+            default:
+                return null;
+        }
+    }
+
     /**
      * This filter maps a given Table to a Table that only contains the given value in the
      * specified column.
      */
-    public class ComparisonFilter implements ITableFilter {
+    public class ComparisonFilter implements IBlockTableFilter {
         private final IColumn column;
         private final Predicate<Integer> comparator;
+        @Nullable
+        private final byte[] blocks;
 
         ComparisonFilter(ITable table) {
             boolean isNull;
@@ -74,6 +120,7 @@ public class ComparisonFilterDescription implements ITableFilterDescription {
                 isNull = ComparisonFilterDescription.this.doubleValue == null;
 
             this.column = table.getLoadedColumn(ComparisonFilterDescription.this.column.name);
+            this.blocks = isNull ? null : ComparisonFilterDescription.this.classifyBlocks(this.column);
             if (isNull) {
                 switch (ComparisonFilterDescription.this.comparison) {
                     case "<":
@@ -282,8 +329,19 @@ public class ComparisonFilterDescription implements ITableFilterDescription {
         /**
          * @return Whether the value at the specified row index matches to the compare value.
          */
+        @Nullable
+        @Override
+        public byte[] getBlockResults() {
+            return this.blocks;
+        }
+
         @Override
         public boolean test(int rowIndex) {
+            if (this.blocks != null) {
+                byte b = this.blocks[rowIndex >>> ZoneMap.LogBlockSize];
+                if (b != ZoneMap.SomeRows)
+                    return b == ZoneMap.AllRows;
+            }
             return this.comparator.test(rowIndex);
         }
     }
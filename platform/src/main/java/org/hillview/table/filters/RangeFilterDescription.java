@@ -19,6 +19,9 @@ package org.hillview.table.filters;
 
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.api.*;
+import org.hillview.table.columns.ZoneMap;
+
+import javax.annotation.Nullable;
 
 @SuppressWarnings("CanBeFinal")
 public class RangeFilterDescription implements ITableFilterDescription {
@@ -31,6 +34,35 @@ public class RangeFilterDescription implements ITableFilterDescription {
     private String maxString = "";
     public boolean complement = false;
 
+    public RangeFilterDescription() {}
+
+    /**
+     * Creates a filter for a numeric or date column.
+     * @param cd          Column to filter.
+     * @param min         Minimum value (inclusive).
+     * @param max         Maximum value (inclusive).
+     * @param complement  If true the filter keeps the rows outside the range.
+     */
+    public RangeFilterDescription(ColumnDescription cd, double min, double max,
+                                  boolean complement) {
+        this.cd = cd;
+        this.min = min;
+        this.max = max;
+        this.complement = complement;
+    }
+
+    public ColumnDescription getColumnDescription() {
+        return this.cd;
+    }
+
+    public double getMin() {
+        return this.min;
+    }
+
+    public double getMax() {
+        return this.max;
+    }
+
     @Override
     public ITableFilter getFilter(ITable table) {
         IColumn col = table.getLoadedColumn(this.cd.name);
@@ -40,14 +72,31 @@ public class RangeFilterDescription implements ITableFilterDescription {
             return new DoubleRangeFilter(col);
     }
 
-    public class DoubleRangeFilter implements ITableFilter {
+    public class DoubleRangeFilter implements IBlockTableFilter {
         final IColumn column;
+        @Nullable
+        final byte[] blocks;
 
         DoubleRangeFilter(IColumn column) {
             this.column = column;
+            ZoneMap zoneMap = column.getZoneMap();
+            RangeFilterDescription desc = RangeFilterDescription.this;
+            this.blocks = zoneMap == null ? null :
+                    zoneMap.classify(desc.min, desc.max, false, desc.complement);
+        }
+
+        @Nullable
+        @Override
+        public byte[] getBlockResults() {
+            return this.blocks;
         }
 
         public boolean test(int rowIndex) {
+            if (this.blocks != null) {
+                byte b = this.blocks[rowIndex >>> ZoneMap.LogBlockSize];
+                if (b != ZoneMap.SomeRows)
+                    return b == ZoneMap.AllRows;
+            }
             RangeFilterDescription desc = RangeFilterDescription.this;
             boolean result;
             if (this.column.isMissing(rowIndex))
@@ -19,7 +19,10 @@
 package org.hillview.table.filters;
 
 import org.apache.commons.lang.StringUtils;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IDictionaryColumn;
 import org.hillview.table.api.IStringFilter;
+import org.hillview.table.api.ITableFilter;
 
 import javax.annotation.Nullable;
 import java.util.regex.Pattern;
@@ -39,6 +42,23 @@ public class StringFilterFactory {
         }
     }
 
+    /**
+     * Returns a filter which applies a string filter to the values of a column.
+     * For dictionary columns the string filter is evaluated once per distinct
+     * value and rows are tested by looking up their code.
+     * @param column  Column to filter.
+     * @param filter  Filter to apply to the values in the column.
+     * @param rows    Number of rows that will be tested; the dictionary is used only
+     *                if it does not have more entries.
+     */
+    public static ITableFilter getColumnFilter(IColumn column, IStringFilter filter, int rows) {
+        IDictionaryColumn dictionary = IDictionaryColumn.asDictionary(column, rows);
+        if (dictionary == null)
+            return rowIndex -> filter.test(column.asString(rowIndex));
+        final boolean[] matching = dictionary.matchingCodes(filter);
+        return rowIndex -> matching[dictionary.getCode(rowIndex)];
+    }
+
     static class MissingValuesFilter implements IStringFilter {
         private StringFilterDescription stringFilterDescription;
 
@@ -45,11 +45,12 @@ public class StringRowFilterDescription implements ITableFilterDescription {
      * specified column.
      */
     public class StringRowFilter implements ITableFilter {
-        private final IColumn column;
-        private final IStringFilter stringFilter;
+        private final ITableFilter columnFilter;
         StringRowFilter(ITable table) {
-            this.stringFilter = StringFilterFactory.getFilter(stringFilterDescription);
-            this.column = table.getLoadedColumn(StringRowFilterDescription.this.colName);
+            IStringFilter stringFilter = StringFilterFactory.getFilter(stringFilterDescription);
+            IColumn column = table.getLoadedColumn(StringRowFilterDescription.this.colName);
+            this.columnFilter = StringFilterFactory.getColumnFilter(
+                    column, stringFilter, table.getMembershipSet().getSizeUpperBound());
         }
 
         /**
@@ -57,7 +58,7 @@ public class StringRowFilterDescription implements ITableFilterDescription {
          */
         @Override
         public boolean test(int rowIndex) {
-            return this.stringFilter.test(column.asString(rowIndex));
+            return this.columnFilter.test(rowIndex);
         }
     }
 }
@@ -0,0 +1,413 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.membership;
+
+import org.hillview.table.api.IMembershipSet;
+import org.hillview.table.api.IMutableMembershipSet;
+import org.hillview.table.api.IRowIterator;
+import org.hillview.table.api.ISampledRowIterator;
+import org.hillview.utils.Randomness;
+
+import javax.annotation.Nullable;
+
+/**
+ * A membership set stored as a compressed bitmap, in the style of Roaring bitmaps.
+ * The rows are grouped in chunks of 2^16 rows, and the rows of each chunk are
+ * stored in a Container, which is either a sorted array, a bitmap or a list of runs,
+ * whichever is smaller.  Union, intersection and difference are computed
+ * chunk by chunk, without testing each row separately.
+ */
+public class CompressedMembershipSet implements IMembershipSet, IMutableMembershipSet {
+    private final int max;
+    /**
+     * Indexed with the upper 16 bits of the row; null for empty chunks.
+     */
+    private final Container[] containers;
+    private int size;
+    /**
+     * Number of rows in all chunks before each chunk; computed when sealing,
+     * which must happen when the set is built.  Null if the set is not sealed.
+     */
+    @Nullable
+    private int[] ranks;
+    private final static double samplingThreshold = 0.05;
+    private final static double samplingSizeMinimum = 100; // if size is smaller than this no need to sample
+
+    public CompressedMembershipSet(int max) {
+        this.max = max;
+        this.containers = new Container[chunks(max)];
+        this.size = 0;
+        this.ranks = null;
+    }
+
+    private static int chunks(int max) {
+        return (max >>> 16) + 1;
+    }
+
+    /**
+     * Converts a membership set to a CompressedMembershipSet.
+     */
+    public static CompressedMembershipSet from(IMembershipSet set) {
+        if (set instanceof CompressedMembershipSet)
+            return (CompressedMembershipSet)set;
+        CompressedMembershipSet result = new CompressedMembershipSet(set.getMax());
+        if (set instanceof FullMembershipSet) {
+            result.addRange(0, set.getSize());
+        } else {
+            IRowIterator it = set.getIterator();
+            int[] rows = new int[IRowIterator.BATCH_SIZE];
+            int count = it.getNextRows(rows);
+            while (count > 0) {
+                for (int i = 0; i < count; i++)
+                    result.add(rows[i]);
+                count = it.getNextRows(rows);
+            }
+        }
+        return result.sealSet();
+    }
+
+    /**
+     * Adds all rows between start (inclusive) and end (exclusive).
+     */
+    public void addRange(int start, int end) {
+        while (start < end) {
+            int key = start >>> 16;
+            int chunkEnd = Math.min(end, (key + 1) << 16);
+            this.ranks = null;
+            Container range = Container.range(start & 0xFFFF, chunkEnd - (key << 16));
+            Container c = this.containers[key];
+            if (c == null) {
+                this.containers[key] = range;
+                this.size += range.cardinality();
+            } else {
+                int before = c.cardinality();
+                c = c.or(range);
+                this.containers[key] = c;
+                this.size += c.cardinality() - before;
+            }
+            start = chunkEnd;
+        }
+    }
+
+    @Override
+    public int getMax() {
+        return this.max;
+    }
+
+    @Override
+    public boolean isMember(int rowIndex) {
+        int key = rowIndex >>> 16;
+        if (key >= this.containers.length)
+            return false;
+        Container c = this.containers[key];
+        return c != null && c.contains(rowIndex & 0xFFFF);
+    }
+
+    @Override
+    public void add(int index) {
+        int key = index >>> 16;
+        Container c = this.containers[key];
+        if (c == null)
+            c = new Container.ArrayContainer();
+        this.ranks = null;
+        int before = c.cardinality();
+        c = c.add(index & 0xFFFF);
+        this.containers[key] = c;
+        this.size += c.cardinality() - before;
+    }
+
+    @Override
+    public IMembershipSet seal() {
+        return this.sealSet();
+    }
+
+    private CompressedMembershipSet sealSet() {
+        this.ranks = new int[this.containers.length];
+        int total = 0;
+        for (int i = 0; i < this.containers.length; i++) {
+            this.ranks[i] = total;
+            Container c = this.containers[i];
+            if (c == null)
+                continue;
+            if (c.cardinality() == 0) {
+                this.containers[i] = null;
+                continue;
+            }
+            c = c.optimize();
+            this.containers[i] = c;
+            total += c.cardinality();
+        }
+        assert total == this.size;
+        return this;
+    }
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+    @Override
+    public int size() { return this.size; }
+
+    /**
+     * @param rank  A number between 0 and getSize() - 1.
+     * @return      The row with the specified rank in the set.
+     */
+    private int select(int rank) {
+        if (this.ranks == null)
+            throw new RuntimeException("Set was not sealed");
+        // The chunk is the last one with at most rank rows before it;
+        // empty chunks before it have the same count, those after have more.
+        int lo = 0, hi = this.ranks.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (this.ranks[mid] <= rank)
+                lo = mid;
+            else
+                hi = mid - 1;
+        }
+        Container c = this.containers[lo];
+        assert c != null;
+        return (lo << 16) | c.select(rank - this.ranks[lo]);
+    }
+
+    @Override
+    public IMembershipSet sample(int k, long seed) {
+        if (k >= this.size)
+            return this;
+        final Randomness psg = new Randomness(seed);
+        if (k > 0.7 * this.size) {
+            // choose the rows that are not in the sample
+            CompressedMembershipSet excluded = this.sampleRanks(this.size - k, psg);
+            return this.setMinus(excluded);
+        }
+        return this.sampleRanks(k, psg);
+    }
+
+    private CompressedMembershipSet sampleRanks(int k, Randomness psg) {
+        CompressedMembershipSet result = new CompressedMembershipSet(this.max);
+        while (result.size() < k)
+            result.add(this.select(psg.nextInt(this.size)));
+        return result.sealSet();
+    }
+
+    @Override
+    public IRowIterator getIterator() {
+        return new CompressedIterator(this.containers);
+    }
+
+    @Override
+    public ISampledRowIterator getIteratorOverSample(double rate, long seed, boolean enforceRate) {
+        double usedRate;
+        if (enforceRate)
+            usedRate = rate;
+        else
+            usedRate = this.computeRate(rate);
+        if (usedRate >= 1)
+            return new NoSampleRowIterator(this.getIterator());
+        return new CompressedSampledRowIterator(this.containers, usedRate, seed);
+    }
+
+    private double computeRate(double rate) {
+        if (this.size < CompressedMembershipSet.samplingSizeMinimum)
+            return 1;
+        if (rate <= CompressedMembershipSet.samplingThreshold)
+            return rate;
+        else return 1;
+    }
+
+    @Override
+    public IMembershipSet union(IMembershipSet other) {
+        if (other.getMax() != this.max)
+            return IMembershipSet.super.union(other);
+        CompressedMembershipSet o = CompressedMembershipSet.from(other);
+        CompressedMembershipSet result = new CompressedMembershipSet(this.max);
+        for (int i = 0; i < this.containers.length; i++) {
+            Container a = this.containers[i];
+            Container b = o.containers[i];
+            if (a == null)
+                result.setContainer(i, b);
+            else if (b == null)
+                result.setContainer(i, a);
+            else
+                result.setContainer(i, a.or(b));
+        }
+        return result.sealSet();
+    }
+
+    @Override
+    public IMembershipSet intersection(IMembershipSet other) {
+        if (other.getMax() != this.max)
+            return IMembershipSet.super.intersection(other);
+        if (other instanceof FullMembershipSet)
+            return this;
+        CompressedMembershipSet o = CompressedMembershipSet.from(other);
+        CompressedMembershipSet result = new CompressedMembershipSet(this.max);
+        for (int i = 0; i < this.containers.length; i++) {
+            Container a = this.containers[i];
+            Container b = o.containers[i];
+            if (a != null && b != null)
+                result.setContainer(i, a.and(b));
+        }
+        return result.sealSet();
+    }
+
+    @Override
+    public IMembershipSet setMinus(IMembershipSet other) {
+        if (other.getMax() != this.max)
+            return IMembershipSet.super.setMinus(other);
+        CompressedMembershipSet o = CompressedMembershipSet.from(other);
+        CompressedMembershipSet result = new CompressedMembershipSet(this.max);
+        for (int i = 0; i < this.containers.length; i++) {
+            Container a = this.containers[i];
+            Container b = o.containers[i];
+            if (a == null)
+                continue;
+            if (b == null)
+                result.setContainer(i, a);
+            else
+                result.setContainer(i, a.andNot(b));
+        }
+        return result.sealSet();
+    }
+
+    /**
+     * Used to build the result of set operations; containers may be shared
+     * between sets, since sealed sets are not modified.
+     */
+    private void setContainer(int key, @Nullable Container c) {
+        if (c == null || c.cardinality() == 0)
+            return;
+        this.containers[key] = c;
+        this.size += c.cardinality();
+    }
+
+    private static class CompressedIterator implements IRowIterator {
+        private final Container[] containers;
+        private int key;
+        @Nullable
+        private Container.Cursor cursor;
+
+        CompressedIterator(Container[] containers) {
+            this.containers = containers;
+            this.key = -1;
+            this.cursor = null;
+        }
+
+        /**
+         * Moves to the next non-empty container.
+         * @return False if there are no more containers.
+         */
+        private boolean nextContainer() {
+            do {
+                this.key++;
+                if (this.key >= this.containers.length) {
+                    this.cursor = null;
+                    return false;
+                }
+            } while (this.containers[this.key] == null);
+            this.cursor = this.containers[this.key].cursor();
+            return true;
+        }
+
+        @Override
+        public int getNextRow() {
+            while (true) {
+                if (this.cursor != null) {
+                    int value = this.cursor.next();
+                    if (value >= 0)
+                        return (this.key << 16) | value;
+                }
+                if (!this.nextContainer())
+                    return -1;
+            }
+        }
+
+        @Override
+        public int getNextRows(final int[] rows) {
+            int count = 0;
+            while (count < rows.length) {
+                if (this.cursor != null) {
+                    final int high = this.key << 16;
+                    int value = this.cursor.next();
+                    while (value >= 0) {
+                        rows[count++] = high | value;
+                        if (count == rows.length)
+                            return count;
+                        value = this.cursor.next();
+                    }
+                }
+                if (!this.nextContainer())
+                    break;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * An iterator over a sample of the rows; it skips a geometrically
+     * distributed number of rows between samples.  The skips move forward
+     * through the containers, and the rows in a container are found by a
+     * selector which resumes the search from the previous sample.
+     * The class has a Randomness object as a member which makes it non thread-safe.
+     */
+    private static class CompressedSampledRowIterator implements ISampledRowIterator {
+        private final Container[] containers;
+        private final Randomness prg;
+        private final double rate;
+        /**
+         * Index of the current container; -1 before the first one.
+         */
+        private int key = -1;
+        /**
+         * Rank of the current sample in the current container.
+         */
+        private long rank = -1;
+        @Nullable
+        private Container.Selector selector;
+
+        CompressedSampledRowIterator(Container[] containers, double rate, long seed) {
+            this.containers = containers;
+            this.prg = new Randomness(seed);
+            this.rate = rate;
+            this.selector = null;
+        }
+
+        @Override
+        public int getNextRow() {
+            if (this.key >= this.containers.length)
+                return -1;
+            this.rank += this.prg.nextGeometric(this.rate);
+            while (this.key < 0 || this.rank >= this.containers[this.key].cardinality()) {
+                if (this.key >= 0)
+                    this.rank -= this.containers[this.key].cardinality();
+                do {
+                    this.key++;
+                    if (this.key >= this.containers.length)
+                        return -1;
+                } while (this.containers[this.key] == null);
+                this.selector = this.containers[this.key].selector();
+            }
+            assert this.selector != null;
+            return (this.key << 16) | this.selector.select((int)this.rank);
+        }
+
+        @Override
+        public double rate() { return this.rate; }
+    }
+}
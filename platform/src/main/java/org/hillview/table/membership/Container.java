@@ -0,0 +1,548 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.membership;
+
+import java.util.Arrays;
+
+/**
+ * A set of 16-bit values, used to store the rows of a CompressedMembershipSet
+ * that share the same upper 16 bits.  There are three representations, as in
+ * Roaring bitmaps: a sorted array for sparse sets, a bitmap for dense sets,
+ * and a list of runs for sets made of long intervals.  Set operations between
+ * containers work on 64 bits at a time whenever a bitmap is involved.
+ */
+abstract class Container {
+    /**
+     * Number of values that a container can store.
+     */
+    static final int Span = 1 << 16;
+    /**
+     * Largest number of values stored in an ArrayContainer.
+     */
+    static final int ArrayMaxSize = 4096;
+    private static final int BitmapWords = Span / 64;
+
+    /**
+     * Iterates over the values in a container in increasing order.
+     */
+    interface Cursor {
+        /**
+         * @return The next value, or -1 at the end.
+         */
+        int next();
+    }
+
+    abstract int cardinality();
+
+    abstract boolean contains(int value);
+
+    /**
+     * Adds a value to the container.  The container may change representation,
+     * so the result should replace the container.
+     */
+    abstract Container add(int value);
+
+    /**
+     * @param rank  A number between 0 and cardinality() - 1.
+     * @return      The value with the specified rank.
+     */
+    abstract int select(int rank);
+
+    abstract Cursor cursor();
+
+    /**
+     * Finds the values with a sequence of non-decreasing ranks; each search
+     * resumes where the previous one ended.
+     */
+    interface Selector {
+        /**
+         * @param rank  A number between 0 and cardinality() - 1, not smaller
+         *              than the rank in the previous call.
+         * @return      The value with the specified rank.
+         */
+        int select(int rank);
+    }
+
+    abstract Selector selector();
+
+    abstract BitmapContainer toBitmap();
+
+    /**
+     * Number of runs of consecutive values in the container.
+     */
+    abstract int numberOfRuns();
+
+    /**
+     * @return The most compact representation of the same values.
+     */
+    Container optimize() {
+        int card = this.cardinality();
+        int runBytes = 4 * this.numberOfRuns();
+        int arrayBytes = card <= ArrayMaxSize ? 2 * card : Integer.MAX_VALUE;
+        int bitmapBytes = BitmapWords * 8;
+        if (runBytes < arrayBytes && runBytes < bitmapBytes)
+            return this.toRuns();
+        if (arrayBytes < bitmapBytes)
+            return this.toArray();
+        return this.toBitmap();
+    }
+
+    ArrayContainer toArray() {
+        char[] values = new char[this.cardinality()];
+        Cursor cursor = this.cursor();
+        for (int i = 0; i < values.length; i++)
+            values[i] = (char)cursor.next();
+        return new ArrayContainer(values, values.length);
+    }
+
+    RunContainer toRuns() {
+        int runs = this.numberOfRuns();
+        char[] starts = new char[runs];
+        char[] lengths = new char[runs];
+        Cursor cursor = this.cursor();
+        int run = -1;
+        int previous = -2;
+        for (int v = cursor.next(); v >= 0; v = cursor.next()) {
+            if (v != previous + 1) {
+                run++;
+                starts[run] = (char)v;
+            }
+            lengths[run] = (char)(v - starts[run]);
+            previous = v;
+        }
+        return new RunContainer(starts, lengths, runs);
+    }
+
+    /**
+     * A container holding all values between start (inclusive) and end (exclusive).
+     */
+    static Container range(int start, int end) {
+        return new RunContainer(new char[] { (char)start }, new char[] { (char)(end - start - 1) }, 1);
+    }
+
+    /**
+     * The result of the operations may be empty; the caller should check the cardinality.
+     */
+    Container and(Container other) {
+        if (other instanceof ArrayContainer)
+            return other.and(this);
+        return this.toBitmap().andBitmap(other.toBitmap()).optimize();
+    }
+
+    Container or(Container other) {
+        return this.toBitmap().orBitmap(other.toBitmap()).optimize();
+    }
+
+    Container andNot(Container other) {
+        return this.toBitmap().andNotBitmap(other.toBitmap()).optimize();
+    }
+
+    /**
+     * A sorted array of values.
+     */
+    static final class ArrayContainer extends Container {
+        private char[] values;
+        private int size;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        int cardinality() { return this.size; }
+
+        @Override
+        boolean contains(int value) {
+            return Arrays.binarySearch(this.values, 0, this.size, (char)value) >= 0;
+        }
+
+        @Override
+        Container add(int value) {
+            int index;
+            if (this.size == 0 || value > this.values[this.size - 1]) {
+                // Rows are usually added in increasing order.
+                index = this.size;
+            } else {
+                index = Arrays.binarySearch(this.values, 0, this.size, (char)value);
+                if (index >= 0)
+                    return this;
+                index = -index - 1;
+            }
+            if (this.size == ArrayMaxSize)
+                return this.toBitmap().add(value);
+            if (this.size == this.values.length)
+                this.values = Arrays.copyOf(this.values, Math.min(ArrayMaxSize, 2 * this.size));
+            System.arraycopy(this.values, index, this.values, index + 1, this.size - index);
+            this.values[index] = (char)value;
+            this.size++;
+            return this;
+        }
+
+        @Override
+        int select(int rank) { return this.values[rank]; }
+
+        @Override
+        Selector selector() { return this::select; }
+
+        @Override
+        Cursor cursor() {
+            return new Cursor() {
+                int index = 0;
+
+                @Override
+                public int next() {
+                    if (this.index >= ArrayContainer.this.size)
+                        return -1;
+                    return ArrayContainer.this.values[this.index++];
+                }
+            };
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            long[] words = new long[BitmapWords];
+            for (int i = 0; i < this.size; i++) {
+                int v = this.values[i];
+                words[v >>> 6] |= 1L << v;
+            }
+            return new BitmapContainer(words, this.size);
+        }
+
+        @Override
+        ArrayContainer toArray() { return this; }
+
+        @Override
+        int numberOfRuns() {
+            int runs = 0;
+            for (int i = 0; i < this.size; i++)
+                if (i == 0 || this.values[i] != this.values[i - 1] + 1)
+                    runs++;
+            return runs;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] result = new char[this.size];
+            int count = 0;
+            for (int i = 0; i < this.size; i++)
+                if (other.contains(this.values[i]))
+                    result[count++] = this.values[i];
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (!(other instanceof ArrayContainer))
+                return other.or(this);
+            ArrayContainer o = (ArrayContainer)other;
+            if (this.size + o.size > ArrayMaxSize)
+                return super.or(other);
+            // merge the sorted arrays
+            char[] result = new char[this.size + o.size];
+            int i = 0, j = 0, count = 0;
+            while (i < this.size && j < o.size) {
+                char a = this.values[i];
+                char b = o.values[j];
+                if (a <= b) {
+                    result[count++] = a;
+                    i++;
+                    if (a == b)
+                        j++;
+                } else {
+                    result[count++] = b;
+                    j++;
+                }
+            }
+            while (i < this.size)
+                result[count++] = this.values[i++];
+            while (j < o.size)
+                result[count++] = o.values[j++];
+            return new ArrayContainer(result, count);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] result = new char[this.size];
+            int count = 0;
+            for (int i = 0; i < this.size; i++)
+                if (!other.contains(this.values[i]))
+                    result[count++] = this.values[i];
+            return new ArrayContainer(result, count);
+        }
+    }
+
+    /**
+     * A bitmap with one bit for each value.
+     */
+    static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() { return this.cardinality; }
+
+        @Override
+        boolean contains(int value) {
+            return (this.words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(int value) {
+            long before = this.words[value >>> 6];
+            long after = before | (1L << value);
+            if (before != after) {
+                this.words[value >>> 6] = after;
+                this.cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        int select(int rank) {
+            for (int i = 0; i < this.words.length; i++) {
+                int count = Long.bitCount(this.words[i]);
+                if (rank < count) {
+                    long word = this.words[i];
+                    for (int j = 0; j < rank; j++)
+                        word &= word - 1;
+                    return i * 64 + Long.numberOfTrailingZeros(word);
+                }
+                rank -= count;
+            }
+            throw new RuntimeException("Rank larger than cardinality");
+        }
+
+        @Override
+        Selector selector() {
+            return new Selector() {
+                int index = 0;
+                // Number of values in the words before index.
+                int before = 0;
+
+                @Override
+                public int select(int rank) {
+                    long[] words = BitmapContainer.this.words;
+                    int count = Long.bitCount(words[this.index]);
+                    while (rank >= this.before + count) {
+                        this.before += count;
+                        this.index++;
+                        count = Long.bitCount(words[this.index]);
+                    }
+                    long word = words[this.index];
+                    for (int j = this.before; j < rank; j++)
+                        word &= word - 1;
+                    return this.index * 64 + Long.numberOfTrailingZeros(word);
+                }
+            };
+        }
+
+        @Override
+        Cursor cursor() {
+            return new Cursor() {
+                int index = 0;
+                long word = BitmapContainer.this.words[0];
+
+                @Override
+                public int next() {
+                    while (this.word == 0) {
+                        this.index++;
+                        if (this.index >= BitmapWords)
+                            return -1;
+                        this.word = BitmapContainer.this.words[this.index];
+                    }
+                    int result = this.index * 64 + Long.numberOfTrailingZeros(this.word);
+                    this.word &= this.word - 1;
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        BitmapContainer toBitmap() { return this; }
+
+        @Override
+        int numberOfRuns() {
+            int runs = 0;
+            long previous = 0;
+            for (long word : this.words) {
+                // count the bits that start a run
+                runs += Long.bitCount(word & ~((word << 1) | (previous >>> 63)));
+                previous = word;
+            }
+            return runs;
+        }
+
+        BitmapContainer andBitmap(BitmapContainer other) {
+            long[] result = new long[BitmapWords];
+            int card = 0;
+            for (int i = 0; i < BitmapWords; i++) {
+                result[i] = this.words[i] & other.words[i];
+                card += Long.bitCount(result[i]);
+            }
+            return new BitmapContainer(result, card);
+        }
+
+        BitmapContainer orBitmap(BitmapContainer other) {
+            long[] result = new long[BitmapWords];
+            int card = 0;
+            for (int i = 0; i < BitmapWords; i++) {
+                result[i] = this.words[i] | other.words[i];
+                card += Long.bitCount(result[i]);
+            }
+            return new BitmapContainer(result, card);
+        }
+
+        BitmapContainer andNotBitmap(BitmapContainer other) {
+            long[] result = new long[BitmapWords];
+            int card = 0;
+            for (int i = 0; i < BitmapWords; i++) {
+                result[i] = this.words[i] & ~other.words[i];
+                card += Long.bitCount(result[i]);
+            }
+            return new BitmapContainer(result, card);
+        }
+    }
+
+    /**
+     * A sorted list of runs; each run is described by its first value and
+     * by its length minus one.
+     */
+    static final class RunContainer extends Container {
+        private final char[] starts;
+        private final char[] lengths;
+        private final int runs;
+        private final int cardinality;
+
+        RunContainer(char[] starts, char[] lengths, int runs) {
+            this.starts = starts;
+            this.lengths = lengths;
+            this.runs = runs;
+            int card = 0;
+            for (int i = 0; i < runs; i++)
+                card += lengths[i] + 1;
+            this.cardinality = card;
+        }
+
+        @Override
+        int cardinality() { return this.cardinality; }
+
+        @Override
+        boolean contains(int value) {
+            int index = Arrays.binarySearch(this.starts, 0, this.runs, (char)value);
+            if (index >= 0)
+                return true;
+            index = -index - 2;
+            return index >= 0 && value - this.starts[index] <= this.lengths[index];
+        }
+
+        @Override
+        Container add(int value) {
+            if (this.contains(value))
+                return this;
+            return this.toBitmap().add(value);
+        }
+
+        @Override
+        int select(int rank) {
+            for (int i = 0; i < this.runs; i++) {
+                if (rank <= this.lengths[i])
+                    return this.starts[i] + rank;
+                rank -= this.lengths[i] + 1;
+            }
+            throw new RuntimeException("Rank larger than cardinality");
+        }
+
+        @Override
+        Selector selector() {
+            return new Selector() {
+                int run = 0;
+                // Number of values in the runs before run.
+                int before = 0;
+
+                @Override
+                public int select(int rank) {
+                    char[] lengths = RunContainer.this.lengths;
+                    while (rank - this.before > lengths[this.run]) {
+                        this.before += lengths[this.run] + 1;
+                        this.run++;
+                    }
+                    return RunContainer.this.starts[this.run] + rank - this.before;
+                }
+            };
+        }
+
+        @Override
+        Cursor cursor() {
+            return new Cursor() {
+                int run = 0;
+                int value = RunContainer.this.runs > 0 ? RunContainer.this.starts[0] : 0;
+
+                @Override
+                public int next() {
+                    if (this.run >= RunContainer.this.runs)
+                        return -1;
+                    int result = this.value;
+                    if (result == RunContainer.this.starts[this.run] + RunContainer.this.lengths[this.run]) {
+                        this.run++;
+                        if (this.run < RunContainer.this.runs)
+                            this.value = RunContainer.this.starts[this.run];
+                    } else {
+                        this.value++;
+                    }
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            long[] words = new long[BitmapWords];
+            for (int i = 0; i < this.runs; i++) {
+                int start = this.starts[i];
+                int end = start + this.lengths[i] + 1;
+                int firstWord = start >>> 6;
+                int lastWord = (end - 1) >>> 6;
+                if (firstWord == lastWord) {
+                    words[firstWord] |= (-1L >>> (64 - (end - start))) << start;
+                } else {
+                    words[firstWord] |= -1L << start;
+                    for (int w = firstWord + 1; w < lastWord; w++)
+                        words[w] = -1L;
+                    words[lastWord] |= -1L >>> (63 - ((end - 1) & 63));
+                }
+            }
+            return new BitmapContainer(words, this.cardinality);
+        }
+
+        @Override
+        RunContainer toRuns() { return this; }
+
+        @Override
+        int numberOfRuns() { return this.runs; }
+    }
+}
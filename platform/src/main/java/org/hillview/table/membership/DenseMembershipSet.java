@@ -197,5 +197,18 @@ public class DenseMembershipSet implements IMembershipSet, IMutableMembershipSet
             this.current = this.bits.nextSetBit(this.current + 1);
             return this.current;
         }
+
+        @Override
+        public int getNextRows(final int[] rows) {
+            int count = 0;
+            while (count < rows.length) {
+                final int next = this.bits.nextSetBit(this.current + 1);
+                if (next < 0)
+                    break;
+                rows[count++] = next;
+                this.current = next;
+            }
+            return count;
+        }
     }
 }
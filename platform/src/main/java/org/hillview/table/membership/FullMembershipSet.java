@@ -23,6 +23,9 @@ import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ISampledRowIterator;
 import org.hillview.utils.Randomness;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * A IMembershipSet which contains all rows.
  */
@@ -59,6 +62,16 @@ public class FullMembershipSet implements IMembershipSet {
         return new FullMembershipIterator(this.rowCount);
     }
 
+    @Override
+    public List<IMembershipSet> split(int parts) {
+        List<IMembershipSet> result = new ArrayList<IMembershipSet>(parts);
+        for (int i = 0; i < parts; i++)
+            result.add(new RangeMembershipSet(
+                    (int)(((long)this.rowCount * i) / parts),
+                    (int)(((long)this.rowCount * (i + 1)) / parts), this.rowCount));
+        return result;
+    }
+
     /**
      * The procedure
      * samples k times with replacement so it may return a set with less than k distinct items
@@ -165,5 +178,14 @@ public class FullMembershipSet implements IMembershipSet {
             }
             else return - 1;
         }
+
+        @Override
+        public int getNextRows(final int[] rows) {
+            final int count = Math.min(rows.length, this.range - this.cursor);
+            for (int i = 0; i < count; i++)
+                rows[i] = this.cursor + i;
+            this.cursor += count;
+            return count;
+        }
     }
 }
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.membership;
+
+import org.hillview.table.api.IMembershipSet;
+import org.hillview.table.api.IRowIterator;
+import org.hillview.table.api.ISampledRowIterator;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
+
+/**
+ * A membership set described by a base set and a predicate: it contains the
+ * rows of the base set where the predicate is true.  The set is only
+ * materialized when its size is needed, or when it has been iterated over
+ * more than maxLazyIterations times; until then the predicate is evaluated
+ * while iterating.  Filtering a lazy set produces a lazy set over the same
+ * base with the conjunction of the predicates, so a chain of filters is
+ * evaluated in a single pass.  The set can be iterated by several threads
+ * at once, so the predicate is produced by a factory: each iterator, and each
+ * thread calling isMember, uses its own predicate.
+ */
+public class LazyMembershipSet implements IMembershipSet {
+    /**
+     * Number of iterations over the set that evaluate the predicate;
+     * the next iteration materializes the set.
+     */
+    public static int maxLazyIterations = 2;
+
+    private final IMembershipSet base;
+    /**
+     * Creates predicates that can be used by one thread at a time.
+     */
+    private final Supplier<IntPredicate> predicates;
+    /**
+     * Predicate used by isMember in each thread.
+     */
+    private final ThreadLocal<IntPredicate> memberPredicate;
+    private final AtomicInteger iterations;
+    @Nullable
+    private volatile IMembershipSet materialized;
+
+    /**
+     * Creates a lazy set containing the rows of base where the predicate is true.
+     * If base is an unmaterialized lazy set the predicates are combined.
+     * @param predicates  Creates the predicate; each predicate created is only
+     *                    used by a single thread.
+     */
+    public LazyMembershipSet(IMembershipSet base, Supplier<IntPredicate> predicates) {
+        if (base instanceof LazyMembershipSet) {
+            LazyMembershipSet lazy = (LazyMembershipSet)base;
+            IMembershipSet set = lazy.materialized;
+            if (set == null) {
+                base = lazy.base;
+                Supplier<IntPredicate> first = lazy.predicates;
+                Supplier<IntPredicate> second = predicates;
+                predicates = () -> first.get().and(second.get());
+            } else {
+                base = set;
+            }
+        }
+        this.base = base;
+        this.predicates = predicates;
+        this.memberPredicate = ThreadLocal.withInitial(predicates);
+        this.iterations = new AtomicInteger();
+        this.materialized = null;
+    }
+
+    /**
+     * Creates a lazy set containing the rows of base where the predicate is true.
+     * @param predicate  A predicate that can be evaluated concurrently by several threads.
+     */
+    public LazyMembershipSet(IMembershipSet base, IntPredicate predicate) {
+        this(base, () -> predicate);
+    }
+
+    /**
+     * @return The set with the rows that satisfy the predicate.
+     */
+    public IMembershipSet materialize() {
+        IMembershipSet result = this.materialized;
+        if (result != null)
+            return result;
+        synchronized (this) {
+            if (this.materialized == null)
+                this.materialized = this.base.filter(this.predicates.get());
+            return this.materialized;
+        }
+    }
+
+    public boolean isMaterialized() {
+        return this.materialized != null;
+    }
+
+    @Override
+    public int getMax() {
+        return this.base.getMax();
+    }
+
+    @Override
+    public boolean isMember(int rowIndex) {
+        IMembershipSet set = this.materialized;
+        if (set != null)
+            return set.isMember(rowIndex);
+        return this.base.isMember(rowIndex) && this.memberPredicate.get().test(rowIndex);
+    }
+
+    @Override
+    public int getSize() {
+        return this.materialize().getSize();
+    }
+
+    /**
+     * The size of the base set, unless the set is materialized.
+     */
+    @Override
+    public int getSizeUpperBound() {
+        IMembershipSet set = this.materialized;
+        if (set != null)
+            return set.getSize();
+        return this.base.getSizeUpperBound();
+    }
+
+    /**
+     * @return The materialized set if the lazy one has been iterated enough;
+     * null otherwise.
+     */
+    @Nullable
+    private IMembershipSet countIteration() {
+        IMembershipSet set = this.materialized;
+        if (set != null)
+            return set;
+        if (this.iterations.incrementAndGet() > maxLazyIterations)
+            return this.materialize();
+        return null;
+    }
+
+    @Override
+    public IRowIterator getIterator() {
+        IMembershipSet set = this.countIteration();
+        if (set != null)
+            return set.getIterator();
+        return new FilteredIterator(this.base.getIterator(), this.predicates.get());
+    }
+
+    @Override
+    public ISampledRowIterator getIteratorOverSample(double rate, long seed, boolean enforceRate) {
+        IMembershipSet set = this.countIteration();
+        if (set != null)
+            return set.getIteratorOverSample(rate, seed, enforceRate);
+        return new FilteredSampledIterator(
+                this.base.getIteratorOverSample(rate, seed, enforceRate), this.predicates.get());
+    }
+
+    @Override
+    public IMembershipSet filter(IntPredicate predicate) {
+        return new LazyMembershipSet(this, predicate);
+    }
+
+    @Override
+    public IMembershipSet sample(int k, long seed) {
+        return this.materialize().sample(k, seed);
+    }
+
+    @Override
+    public IMembershipSet setMinus(IMembershipSet other) {
+        return this.materialize().setMinus(other);
+    }
+
+    @Override
+    public IMembershipSet union(IMembershipSet other) {
+        return this.materialize().union(other);
+    }
+
+    @Override
+    public IMembershipSet intersection(IMembershipSet other) {
+        return this.materialize().intersection(other);
+    }
+
+    /**
+     * Splits the base set, so that the parts evaluate the predicate independently.
+     */
+    @Override
+    public List<IMembershipSet> split(int parts) {
+        IMembershipSet set = this.materialized;
+        if (set != null)
+            return set.split(parts);
+        List<IMembershipSet> baseParts = this.base.split(parts);
+        List<IMembershipSet> result = new ArrayList<IMembershipSet>(baseParts.size());
+        for (IMembershipSet part : baseParts)
+            result.add(new LazyMembershipSet(part, this.predicates));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyMembershipSet(" + this.base + ")";
+    }
+
+    private static class FilteredIterator implements IRowIterator {
+        private final IRowIterator base;
+        private final IntPredicate predicate;
+        /**
+         * Rows that satisfy the predicate which have not been returned yet.
+         */
+        private final int[] pending;
+        private int pendingCount;
+        private int pendingIndex;
+
+        FilteredIterator(IRowIterator base, IntPredicate predicate) {
+            this.base = base;
+            this.predicate = predicate;
+            this.pending = new int[IRowIterator.BATCH_SIZE];
+            this.pendingCount = 0;
+            this.pendingIndex = 0;
+        }
+
+        /**
+         * Reads rows from the base iterator until some satisfy the predicate.
+         * @return False at the end of the base iterator.
+         */
+        private boolean refill() {
+            while (true) {
+                int count = this.base.getNextRows(this.pending);
+                if (count == 0)
+                    return false;
+                int kept = 0;
+                for (int i = 0; i < count; i++) {
+                    int row = this.pending[i];
+                    if (this.predicate.test(row))
+                        this.pending[kept++] = row;
+                }
+                this.pendingCount = kept;
+                this.pendingIndex = 0;
+                if (kept > 0)
+                    return true;
+            }
+        }
+
+        @Override
+        public int getNextRow() {
+            if (this.pendingIndex == this.pendingCount && !this.refill())
+                return -1;
+            return this.pending[this.pendingIndex++];
+        }
+
+        @Override
+        public int getNextRows(final int[] rows) {
+            int count = 0;
+            while (count < rows.length) {
+                if (this.pendingIndex == this.pendingCount && !this.refill())
+                    break;
+                int toCopy = Math.min(rows.length - count, this.pendingCount - this.pendingIndex);
+                System.arraycopy(this.pending, this.pendingIndex, rows, count, toCopy);
+                this.pendingIndex += toCopy;
+                count += toCopy;
+            }
+            return count;
+        }
+    }
+
+    private static class FilteredSampledIterator implements ISampledRowIterator {
+        private final ISampledRowIterator base;
+        private final IntPredicate predicate;
+
+        FilteredSampledIterator(ISampledRowIterator base, IntPredicate predicate) {
+            this.base = base;
+            this.predicate = predicate;
+        }
+
+        @Override
+        public int getNextRow() {
+            int row = this.base.getNextRow();
+            while (row >= 0 && !this.predicate.test(row))
+                row = this.base.getNextRow();
+            return row;
+        }
+
+        @Override
+        public double rate() { return this.base.rate(); }
+    }
+}
@@ -30,15 +30,14 @@ public class MembershipSetFactory {
     private static final int sizeEstimationSampleSize = 40;
 
     /**
-     * Creates a mutable membership set.
+     * Creates a mutable membership set.  The compressed representation
+     * adapts to the density of each region of the set, so the estimated
+     * size is only a hint.
      * @param maxSize        Maximum size.
      * @param estimatedSize  Estimated number of elements inside.
      */
     public static IMutableMembershipSet create(int maxSize, int estimatedSize) {
-        if (estimatedSize >= maxSize / 30)
-            return new DenseMembershipSet(maxSize, estimatedSize);
-        else
-            return new SparseMembershipSet(maxSize, estimatedSize);
+        return new CompressedMembershipSet(maxSize);
     }
 
     /**
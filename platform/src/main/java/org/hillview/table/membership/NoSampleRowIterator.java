@@ -20,5 +20,10 @@ public class NoSampleRowIterator implements ISampledRowIterator {
     public int getNextRow() {
         return this.iter.getNextRow();
     }
+
+    @Override
+    public int getNextRows(final int[] rows) {
+        return this.iter.getNextRows(rows);
+    }
 }
 
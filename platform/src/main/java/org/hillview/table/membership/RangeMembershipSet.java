@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.table.membership;
+
+import org.hillview.table.api.IMembershipSet;
+import org.hillview.table.api.IMutableMembershipSet;
+import org.hillview.table.api.IRowIterator;
+import org.hillview.table.api.ISampledRowIterator;
+import org.hillview.utils.Randomness;
+
+/**
+ * A IMembershipSet which contains a contiguous range of rows.
+ * These are produced when splitting a FullMembershipSet.
+ */
+public class RangeMembershipSet implements IMembershipSet {
+    /**
+     * First row in the set.
+     */
+    private final int start;
+    /**
+     * First row after the set.
+     */
+    private final int end;
+    private final int max;
+    private static final double samplingThreshold = 0.04;
+    private final static double samplingSizeMinimum = 100; // if size is smaller than this no need to sample
+
+    /**
+     * Create a membership set with rows in the range [start, end).
+     * @param max  Maximum number of rows of the table.
+     */
+    public RangeMembershipSet(int start, int end, int max) {
+        if (start < 0 || start > end || end > max)
+            throw new RuntimeException("Illegal row range [" + start + ", " + end +
+                    ") in " + max + " rows");
+        this.start = start;
+        this.end = end;
+        this.max = max;
+    }
+
+    /**
+     * The first row in the set.
+     */
+    public int getStart() {
+        return this.start;
+    }
+
+    /**
+     * One past the last row in the set.
+     */
+    public int getEnd() {
+        return this.end;
+    }
+
+    @Override
+    public int getMax() {
+        return this.max;
+    }
+
+    @Override
+    public boolean isMember(final int rowIndex) {
+        return rowIndex >= this.start && rowIndex < this.end;
+    }
+
+    @Override
+    public int getSize() {
+        return this.end - this.start;
+    }
+
+    @Override
+    public IRowIterator getIterator() {
+        return new RangeIterator(this.start, this.end);
+    }
+
+    /**
+     * Samples k times with replacement, so it may return a set with less than k items.
+     */
+    @Override
+    public IMembershipSet sample(final int k, final long seed) {
+        if (k >= this.getSize())
+            return this;
+        final Randomness randomGenerator = new Randomness(seed);
+        int size = this.getSize();
+        int l = k;
+        if (k > (int)(size * 0.7)) // sample the items that are not returned
+            l = size - k;
+        IMutableMembershipSet s = MembershipSetFactory.create(this.max, k);
+        for (int i = 0; i < l; i++)
+            s.add(this.start + randomGenerator.nextInt(size));
+        while (s.size() < l)
+            s.add(this.start + randomGenerator.nextInt(size));
+        if (l == k)
+            return s.seal();
+        else
+            return this.setMinus(s.seal());
+    }
+
+    @Override
+    public ISampledRowIterator getIteratorOverSample(double rate, long seed, boolean enforceRate) {
+        double effectiveRate = rate;
+        if (!enforceRate) {
+            if (this.getSize() < samplingSizeMinimum || rate > samplingThreshold)
+                effectiveRate = 1;
+        }
+        if (effectiveRate >= 1)
+            return new NoSampleRowIterator(this.getIterator());
+        return new RangeSampledRowIterator(this.start, this.end, rate, seed);
+    }
+
+    private static class RangeSampledRowIterator implements ISampledRowIterator {
+        private int cursor;
+        private final int end;
+        private final double rate;
+        private final Randomness prg;
+
+        RangeSampledRowIterator(int start, int end, double rate, long seed) {
+            // The first step of the geometric distribution is at least 1.
+            this.cursor = start - 1;
+            this.end = end;
+            this.rate = rate;
+            this.prg = new Randomness(seed);
+        }
+
+        @Override
+        public double rate() { return this.rate; }
+
+        @Override
+        public int getNextRow() {
+            this.cursor += this.prg.nextGeometric(this.rate);
+            if (this.cursor < this.end)
+                return this.cursor;
+            else return -1;
+        }
+    }
+
+    private static class RangeIterator implements IRowIterator {
+        private int cursor;
+        private final int end;
+
+        RangeIterator(int start, int end) {
+            this.cursor = start;
+            this.end = end;
+        }
+
+        @Override
+        public int getNextRow() {
+            if (this.cursor < this.end)
+                return this.cursor++;
+            return -1;
+        }
+
+        @Override
+        public int getNextRows(final int[] rows) {
+            final int count = Math.min(rows.length, this.end - this.cursor);
+            for (int i = 0; i < count; i++)
+                rows[i] = this.cursor + i;
+            this.cursor += count;
+            return count;
+        }
+    }
+}
@@ -164,5 +164,17 @@ public class SparseMembershipSet implements IMembershipSet, IMutableMembershipSe
         public int getNextRow() {
             return this.mySetIterator.getNext();
         }
+
+        @Override
+        public int getNextRows(final int[] rows) {
+            int count = 0;
+            while (count < rows.length) {
+                final int row = this.mySetIterator.getNext();
+                if (row < 0)
+                    break;
+                rows[count++] = row;
+            }
+            return count;
+        }
     }
 }
@@ -146,7 +146,15 @@ public class GuessSchema {
     }
 
     public SchemaInfo guess(IStringColumn column) {
-        SchemaInfo current = new SchemaInfo(ContentsKind.None, false);
+        return this.guess(column, new SchemaInfo(ContentsKind.None, false));
+    }
+
+    /**
+     * Continues guessing from a previous result, as if the values in the column
+     * followed the values that produced the previous result.
+     */
+    public SchemaInfo guess(IStringColumn column, SchemaInfo previous) {
+        SchemaInfo current = new SchemaInfo(previous.kind, previous.allowMissing);
         for (int i=0; i < column.sizeInRows(); i++) {
             this.guess(column.getString(i), current);
             if (current.kind == ContentsKind.String)
@@ -155,6 +163,15 @@ public class GuessSchema {
         return current;
     }
 
+    /**
+     * True if values which produce a guess of this kind starting from scratch produce
+     * the same guess when starting from this kind.  This is not true for dates, since
+     * each guesser detects a date format from the first date it sees.
+     */
+    public static boolean isStable(ContentsKind kind) {
+        return kind != ContentsKind.Date;
+    }
+
     private static boolean isJsonValid(final String json) throws IOException {
         return isJsonValid(new StringReader(json));
     }
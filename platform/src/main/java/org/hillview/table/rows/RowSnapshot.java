@@ -19,6 +19,7 @@ package org.hillview.table.rows;
 
 import com.google.gson.JsonElement;
 import org.hillview.dataset.api.IJson;
+import org.hillview.dataset.remoting.BinaryCodecs;
 import org.hillview.table.ColumnDescription;
 import org.hillview.table.Schema;
 import org.hillview.table.api.ContentsKind;
@@ -27,6 +28,9 @@ import org.hillview.table.api.ITable;
 import org.hillview.utils.Converters;
 
 import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
@@ -91,6 +95,29 @@ public class RowSnapshot extends BaseRowSnapshot
         this.cachedHashcode = this.computeHashCode(schema);
     }
 
+    public Schema getSchema() {
+        return this.schema;
+    }
+
+    /**
+     * Writes the values in this row, but not the schema.
+     */
+    public void writeValues(DataOutput out) throws IOException {
+        for (Object value : this.fields.values())
+            BinaryCodecs.writeObject(out, value);
+    }
+
+    /**
+     * Reads a row written by writeValues.
+     * @param schema  Schema of the row that was written.
+     */
+    public static RowSnapshot readValues(Schema schema, DataInput in) throws IOException {
+        Object[] data = new Object[schema.getColumnCount()];
+        for (int i = 0; i < data.length; i++)
+            data[i] = BinaryCodecs.readObject(in);
+        return new RowSnapshot(schema, data);
+    }
+
     @Override
     public boolean exists() { return true; }
 
@@ -8,6 +8,8 @@ import rx.schedulers.Schedulers;
 import javax.annotation.Nullable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadFactory;
 
 /**
@@ -15,7 +17,7 @@ import java.util.concurrent.ThreadFactory;
  */
 public class ExecutorUtils {
     @Nullable
-    private static ExecutorService computeExecutorService = null;
+    private static ForkJoinPool computeExecutorService = null;
 
     /**
      * This machinery is used to create a separate thread to handle unsubscriptions.
@@ -75,13 +77,20 @@ public class ExecutorUtils {
     }
 
     /**
-     * Use for all compute-heavy tasks.
+     * Use for all compute-heavy tasks.  This is a work-stealing pool, so
+     * computations can be split into fork-join tasks which are executed
+     * by any idle thread.
      */
-    public static synchronized ExecutorService getComputeExecutorService() {
+    public static synchronized ForkJoinPool getComputeExecutorService() {
         if (computeExecutorService == null) {
             int cpuCount = Runtime.getRuntime().availableProcessors();
             HillviewLogger.instance.info("Detect CPUs", "Using {0} processors", cpuCount);
-            computeExecutorService = newNamedThreadPool("computation", cpuCount, -1);
+            computeExecutorService = new ForkJoinPool(cpuCount, pool -> {
+                ForkJoinWorkerThread thread =
+                        ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("computation-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
         }
         return computeExecutorService;
     }
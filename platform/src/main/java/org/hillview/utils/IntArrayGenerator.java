@@ -22,6 +22,7 @@ import org.hillview.table.columns.IntArrayColumn;
 import org.hillview.table.api.ContentsKind;
 
 import java.security.InvalidParameterException;
+import java.util.Arrays;
 
 /**
  * This class generates random columns of integers for testing.
@@ -93,6 +94,34 @@ public class IntArrayGenerator {
         return col;
     }
 
+    /**
+     * Returns a column of integers in the range (1,..,range) drawn at random from
+     * a Zipf distribution: the probability of i is proportional to 1/i^exp.
+     * @param size the number of elements in the array.
+     * @param range integers in the array lie in the interval (1,range)
+     * @param exp the exponent of the distribution.
+     * @param name name of the column
+     * @param rn   random number generator
+     */
+    public static IntArrayColumn getRandZipfArray(int size, int range, double exp,
+                                                  String name, Randomness rn) {
+        final ColumnDescription desc = new ColumnDescription(name, ContentsKind.Integer);
+        final IntArrayColumn col = new IntArrayColumn(desc, size);
+        double[] cdf = new double[range];
+        double sum = 0;
+        for (int i = 0; i < range; i++) {
+            sum += 1.0 / Math.pow(i + 1, exp);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            int index = Arrays.binarySearch(cdf, rn.nextDouble() * sum);
+            if (index < 0)
+                index = -index - 1;
+            col.set(i, Math.min(index, range - 1) + 1);
+        }
+        return col;
+    }
+
     /**
      * Returns a column with a specified number of integers in the range
      * (1,..range), with the frequency of i proportional to base^i.
@@ -290,6 +290,19 @@ public class TestTables {
         return new SmallTable(columns);
     }
 
+    /**
+     * A table with one column of integers in (1,..,range) drawn from a Zipf distribution.
+     * @param size The number of rows.
+     * @param range The number of distinct values.
+     * @param exp The exponent of the Zipf distribution.
+     */
+    public static SmallTable getRandZipfTable(final int size, final int range, final double exp) {
+        Randomness rn = new Randomness(4);
+        final List<IColumn> columns = new ArrayList<IColumn>(1);
+        columns.add(IntArrayGenerator.getRandZipfArray(size, range, exp, "Column0", rn));
+        return new SmallTable(columns);
+    }
+
     /**
      * Generates a table with a specified number of correlated columns. Each row has the same
      * absolute value in every column, they only differ in the sign (which is drawn randomly).
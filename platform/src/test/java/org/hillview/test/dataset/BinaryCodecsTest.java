@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test.dataset;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.hillview.dataset.api.PartialResult;
+import org.hillview.dataset.api.Pair;
+import org.hillview.dataset.remoting.BinaryCodecs;
+import org.hillview.dataset.remoting.OperationResponse;
+import org.hillview.sketches.*;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.RecordOrder;
+import org.hillview.table.SmallTable;
+import org.hillview.table.Table;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.ITable;
+import org.hillview.table.columns.ObjectArrayColumn;
+import org.hillview.table.rows.RowSnapshot;
+import org.hillview.test.BaseTest;
+import org.hillview.utils.TestTables;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinaryCodecsTest extends BaseTest {
+    private static <T> T roundTrip(T value) {
+        byte[] bytes = BinaryCodecs.serialize(new OperationResponse<PartialResult<T>>(
+                new PartialResult<T>(0.5, value)));
+        OperationResponse<PartialResult<T>> response = BinaryCodecs.deserialize(bytes);
+        Assert.assertNotNull(response.result);
+        Assert.assertEquals(0.5, response.result.deltaDone, 0);
+        return response.result.deltaValue;
+    }
+
+    @Test
+    public void testVarLongs() throws IOException {
+        long[] values = { 0, 1, -1, 63, -64, 64, 1 << 20, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE };
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        BinaryCodecs.writeLongArray(out, values);
+        long[] result = BinaryCodecs.readLongArray(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+        Assert.assertArrayEquals(values, result);
+    }
+
+    @Test
+    public void testSparseCounts() throws IOException {
+        long[] sparse = new long[1000];
+        sparse[0] = 5;
+        sparse[17] = -3;
+        sparse[999] = 1L << 40;
+        long[] dense = new long[10];
+        for (int i = 0; i < dense.length; i++)
+            dense[i] = i % 3;
+        for (long[] values : new long[][] { sparse, dense, new long[0] }) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            BinaryCodecs.writeLongArray(out, values);
+            if (values == sparse)
+                Assert.assertTrue(bytes.size() < 20);
+            long[] result = BinaryCodecs.readLongArray(new DataInputStream(
+                    new ByteArrayInputStream(bytes.toByteArray())));
+            Assert.assertArrayEquals(values, result);
+        }
+    }
+
+    @Test
+    public void testPrimitives() {
+        Object[] values = { null, 3, -5L, 2.5, "", "String", Instant.ofEpochSecond(100, 12),
+                Duration.ofMillis(-1234) };
+        for (Object o : values)
+            Assert.assertEquals(o, roundTrip(o));
+    }
+
+    @Test
+    public void testFallback() {
+        // Pair has no codec, so it is written using Java serialization.
+        Pair<String, Integer> pair = new Pair<String, Integer>("a", 1);
+        Pair<String, Integer> result = roundTrip(pair);
+        Assert.assertEquals(pair.first, result.first);
+        Assert.assertEquals(pair.second, result.second);
+        // Data produced by plain Java serialization can still be read.
+        byte[] bytes = SerializationUtils.serialize(new OperationResponse<Integer>(5));
+        OperationResponse<Integer> response = BinaryCodecs.deserialize(bytes);
+        Assert.assertEquals(Integer.valueOf(5), response.result);
+    }
+
+    @Test
+    public void testHistograms() {
+        ITable table = TestTables.getIntTable(10000, 3);
+        DoubleHistogramBuckets b0 = new DoubleHistogramBuckets(0, 100, 20);
+        DoubleHistogramBuckets b1 = new DoubleHistogramBuckets(0, 100, 30);
+        StringHistogramBuckets b2 = new StringHistogramBuckets(new String[] { "A", "B", "C" });
+
+        Histogram histogram = new HistogramSketch(b0, "Column0", 1.0, 0).create(table);
+        Histogram h = roundTrip(histogram);
+        Assert.assertEquals(histogram.toJson(), h.toJson());
+
+        Heatmap heatmap = new HeatmapSketch(b0, b1, "Column0", "Column1", 1.0, 0).create(table);
+        Heatmap hm = roundTrip(heatmap);
+        Assert.assertEquals(heatmap.toJson(), hm.toJson());
+        Assert.assertTrue(BinaryCodecs.serialize(heatmap).length <
+                SerializationUtils.serialize(heatmap).length);
+
+        Heatmap3D heatmap3D = new Heatmap3DSketch(b0, b1, b0, "Column0", "Column1", "Column2",
+                1.0, 0).create(table);
+        Heatmap3D hm3 = roundTrip(heatmap3D);
+        Assert.assertEquals(heatmap3D.toJson(), hm3.toJson());
+
+        StringHistogramBuckets sb = roundTrip(b2);
+        Assert.assertEquals(b2.getNumOfBuckets(), sb.getNumOfBuckets());
+    }
+
+    @Test
+    public void testTables() {
+        Table table = TestTables.testTable();
+        List<RowSnapshot> rows = new ArrayList<RowSnapshot>();
+        for (int i = 0; i < table.getNumOfRows(); i++)
+            rows.add(new RowSnapshot(table, i));
+        SmallTable small = new SmallTable(table.getSchema(), rows);
+        SmallTable s = roundTrip(small);
+        Assert.assertEquals(small.toLongString(20), s.toLongString(20));
+        Assert.assertEquals(small.getSchema(), s.getSchema());
+
+        ObjectArrayColumn col = new ObjectArrayColumn(
+                new ColumnDescription("Date", ContentsKind.Date), 3);
+        col.set(0, Instant.ofEpochMilli(1000));
+        col.set(2, Instant.ofEpochMilli(2000));
+        ObjectArrayColumn c = roundTrip(col);
+        Assert.assertEquals(col.getDescription(), c.getDescription());
+        for (int i = 0; i < col.sizeInRows(); i++)
+            Assert.assertEquals(col.getObject(i), c.getObject(i));
+
+        Assert.assertEquals(0, roundTrip(new SmallTable()).getNumOfRows());
+
+        Table repTable = TestTables.getRepIntTable(1000, 2);
+        RecordOrder cso = new RecordOrder();
+        for (String colName : repTable.getSchema().getColumnNames())
+            cso.append(new ColumnSortOrientation(repTable.getSchema().getDescription(colName), true));
+        NextKList list = new NextKSketch(cso, null, 20).create(repTable);
+        NextKList l = roundTrip(list);
+        Assert.assertEquals(list.toLongString(20), l.toLongString(20));
+        Assert.assertEquals(list.count, l.count);
+        Assert.assertEquals(list.startPosition, l.startPosition);
+    }
+
+    @Test
+    public void testHeavyHitters() {
+        SmallTable table = TestTables.getHeavyIntTable(2, 10000, 1.5, 20);
+        FreqKListMG list = new FreqKSketchMG(table.getSchema(), 0.05).create(table);
+        FreqKListMG l = roundTrip(list);
+        Assert.assertEquals(list.totalRows, l.totalRows);
+        Assert.assertEquals(list.epsilon, l.epsilon, 0);
+        Assert.assertEquals(list.getErrBound(), l.getErrBound(), 0);
+        Assert.assertEquals(list.hMap, l.hMap);
+    }
+
+    @Test
+    public void testSpaceSaving() {
+        SmallTable table = TestTables.getRandZipfTable(10000, 1000, 1.2);
+        FreqKListSS list = new FreqKSketchSS(table.getSchema(), 0.05).create(table);
+        FreqKListSS l = roundTrip(list);
+        Assert.assertEquals(list.totalRows, l.totalRows);
+        Assert.assertEquals(list.epsilon, l.epsilon, 0);
+        Assert.assertEquals(list.errorBound, l.errorBound);
+        Assert.assertEquals(list.hMap, l.hMap);
+    }
+
+    @Test
+    public void testHLogLogPP() {
+        SmallTable table = TestTables.getIntTable(100000, 2);
+        String col = table.getSchema().getColumnNames().get(0);
+        for (int logSpaceSize : new int[] { 12, 16 }) {
+            HLogLogPP hll = new HLogLogPPSketch(col, logSpaceSize, 0).create(table);
+            HLogLogPP h = roundTrip(hll);
+            Assert.assertEquals(hll.isSparse(), h.isSparse());
+            Assert.assertEquals(hll.distinctItemCount, h.distinctItemCount);
+            Assert.assertEquals(hll.distinctItemsEstimator(), h.distinctItemsEstimator());
+            Assert.assertEquals(hll.union(hll).distinctItemCount, h.union(hll).distinctItemCount);
+        }
+    }
+
+    @Test
+    public void testMinKSet() {
+        Table table = TestTables.testLargeStringTable(10000,
+                new String[] { "A", "B", "C", "D" }, 20, "Test");
+        String col = table.getSchema().getColumnNames().get(0);
+        MinKSet<String> set = new SampleDistinctElementsSketch(col, 0, 100).create(table);
+        MinKSet<String> s = roundTrip(set);
+        Assert.assertEquals(set.getSamples(), s.getSamples());
+        Assert.assertEquals(set.min, s.min);
+        Assert.assertEquals(set.max, s.max);
+        Assert.assertEquals(set.presentCount, s.presentCount);
+        Assert.assertEquals(set.missingCount, s.missingCount);
+        Assert.assertEquals(set.getLeftBoundaries(10).toString(),
+                s.getLeftBoundaries(10).toString());
+    }
+}
@@ -17,6 +17,8 @@
 
 package org.hillview.test.dataset;
 
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import junit.framework.TestCase;
 import org.hillview.dataset.LocalDataSet;
 import org.hillview.dataset.ParallelDataSet;
@@ -25,7 +27,9 @@ import org.hillview.sketches.*;
 import org.hillview.table.Schema;
 import org.hillview.table.SmallTable;
 import org.hillview.table.Table;
+import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ITable;
+import org.hillview.table.rows.RowSnapshot;
 import org.hillview.test.BaseTest;
 import org.hillview.utils.Converters;
 import org.hillview.utils.TestTables;
@@ -180,6 +184,49 @@ public class FreqKTest extends BaseTest {
             System.out.println(shhList.toString());
     }
 
+    /**
+     * Checks the guarantees of the Space-Saving sketch against the exact counts.
+     */
+    private void checkSpaceSaving(ITable table, @Nullable FreqKListSS ssList) {
+        Assert.assertNotNull(ssList);
+        Object2IntOpenHashMap<RowSnapshot> exact = new Object2IntOpenHashMap<RowSnapshot>();
+        IRowIterator it = table.getRowIterator();
+        for (int i = it.getNextRow(); i >= 0; i = it.getNextRow())
+            exact.addTo(new RowSnapshot(table, i), 1);
+        Assert.assertEquals(table.getNumOfRows(), ssList.totalRows);
+        Assert.assertTrue(ssList.getSize() <= ssList.maxSize);
+        for (Object2IntMap.Entry<RowSnapshot> e : exact.object2IntEntrySet()) {
+            int trueCount = e.getIntValue();
+            if (ssList.hMap.containsKey(e.getKey())) {
+                int count = ssList.hMap.getInt(e.getKey());
+                Assert.assertTrue(count >= trueCount);
+                Assert.assertTrue(count - trueCount <= ssList.errorBound);
+            } else {
+                Assert.assertTrue(trueCount <= ssList.errorBound);
+            }
+        }
+    }
+
+    @Test
+    public void testSpaceSaving() {
+        SmallTable table = TestTables.getRandZipfTable(100000, 10000, 1.2);
+        FreqKSketchSS ss = new FreqKSketchSS(table.getSchema(), 0.01);
+        FreqKListSS ssList = ss.create(table);
+        checkSpaceSaving(table, ssList);
+        Assert.assertTrue(ssList.errorBound > 0);
+
+        ParallelDataSet<ITable> all = TestTables.makeParallel(table, 10000);
+        FreqKListSS merged = all.blockingSketch(ss);
+        checkSpaceSaving(table, merged);
+
+        Table rep = TestTables.getRepIntTable(10000, 2);
+        FreqKListSS repList = new FreqKSketchSS(rep.getSchema(), 0.05).create(rep);
+        checkSpaceSaving(rep, repList);
+        Assert.assertNotNull(repList);
+        repList.filter();
+        checkList(repList, rep.getSchema());
+    }
+
     @Test
     public void testTopK6() {
         Table t = TestTables.testRepTable();
@@ -19,6 +19,8 @@ package org.hillview.test.dataset;
 
 import org.hillview.dataset.ParallelDataSet;
 import org.hillview.sketches.*;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.ContentsKind;
 import org.hillview.table.membership.FullMembershipSet;
 import org.hillview.table.columns.IntArrayColumn;
 import org.hillview.table.SmallTable;
@@ -29,6 +31,9 @@ import org.hillview.utils.Randomness;
 import org.hillview.utils.TestTables;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
+
 import static org.junit.Assert.*;
 
 /**
@@ -63,4 +68,59 @@ public class HLLTest extends BaseTest {
         final HLogLog hll = all.blockingSketch(new HLogLogSketch(colName,16,12345678));
         assertTrue(hll.distinctItemsEstimator() > 85000);
     }
+
+    @Test
+    public void testHLLPP() {
+        final int size = 2000000;
+        final Randomness rn = this.getRandomness();
+        for (int range : new int[] { 500, 20000 }) {
+            final IntArrayColumn col = IntArrayGenerator.getRandIntArray(size, range, "Test", rn);
+            final SmallTable table = new SmallTable(Collections.singletonList(col));
+            final HLogLogPP hll = new HLogLogPPSketch("Test", 14, 0).create(table);
+            assertNotNull(hll);
+            // The small range is exact in the sparse representation
+            assertEquals(range == 500, hll.isSparse());
+            long result = hll.distinctItemCount;
+            assertEquals(result, hll.distinctItemsEstimator());
+            assertTrue((result > (0.98 * range)) && (result < (1.02 * range)));
+        }
+    }
+
+    @Test
+    public void testHLLPPSketch() {
+        final int bigSize = 100000;
+        final SmallTable bigTable = TestTables.getIntTable(bigSize, 1);
+        final String colName = bigTable.getSchema().getColumnNames().get(0);
+        final ParallelDataSet<ITable> all = TestTables.makeParallel(bigTable, bigSize / 10);
+        final HLogLogPPSketch sketch = new HLogLogPPSketch(colName, 16, 12345678);
+        final HLogLogPP hll = all.blockingSketch(sketch);
+        assertNotNull(hll);
+        final HLogLogPP direct = sketch.create(bigTable);
+        assertNotNull(direct);
+        assertEquals(direct.distinctItemCount, hll.distinctItemCount);
+        assertTrue(hll.distinctItemsEstimator() > 85000);
+    }
+
+    @Test
+    public void testHLLPPMultiColumn() {
+        final int size = 100000;
+        final IntArrayColumn first = new IntArrayColumn(
+                new ColumnDescription("First", ContentsKind.Integer), size);
+        final IntArrayColumn second = new IntArrayColumn(
+                new ColumnDescription("Second", ContentsKind.Integer), size);
+        for (int i = 0; i < size; i++) {
+            first.set(i, i % 100);
+            second.set(i, i % 37);
+        }
+        final SmallTable table = new SmallTable(Arrays.asList(first, second));
+        final HLogLogPPSketch sketch = new HLogLogPPSketch(new String[] { "First", "Second" }, 0);
+        final ParallelDataSet<ITable> all = TestTables.makeParallel(table, size / 10);
+        final HLogLogPP hll = all.blockingSketch(sketch);
+        assertNotNull(hll);
+        // 100 * 37 distinct pairs
+        long result = hll.distinctItemCount;
+        assertTrue((result > 3600) && (result < 3800));
+        final HLogLogPP one = new HLogLogPPSketch("First", 0).create(table);
+        assertEquals(100, one.distinctItemCount);
+    }
 }
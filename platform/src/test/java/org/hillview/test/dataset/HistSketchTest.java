@@ -16,16 +16,33 @@
  */
 
 package org.hillview.test.dataset;
+import org.hillview.dataset.LocalDataSet;
+import org.hillview.dataset.MultiSketch;
 import org.hillview.dataset.ParallelDataSet;
+import org.hillview.dataset.ParallelSketch;
+import org.hillview.dataset.api.IDataSet;
+import org.hillview.dataset.api.ISketch;
+import org.hillview.dataset.api.Pair;
+import org.hillview.maps.FilterMap;
 import org.hillview.sketches.*;
+import org.hillview.table.Schema;
 import org.hillview.table.api.IColumn;
+import org.hillview.table.api.ITableFilter;
+import org.hillview.table.api.ITableFilterDescription;
+import org.hillview.table.membership.LazyMembershipSet;
 import org.hillview.test.BaseTest;
+import org.hillview.utils.Converters;
 import org.hillview.utils.TestTables;
 import org.hillview.table.SmallTable;
 import org.hillview.table.Table;
 import org.hillview.table.api.ITable;
 import org.junit.Assert;
 import org.junit.Test;
+import rx.Observable;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Test class for the sketches of all types of histograms.
@@ -92,4 +109,229 @@ public class HistSketchTest extends BaseTest {
         all.blockingSketch(
                 new HeatmapSketch(buckets1, buckets2, colName1, colName2, rate, 0));
     }
+
+
+    @Test
+    public void HistogramSplitTest() {
+        final int bigSize = 100000;
+        final SmallTable small = TestTables.getIntTable(bigSize, 2);
+        final Table table = new Table(small.getColumns(), null, null);
+        final String colName = table.getSchema().getColumnNames().get(0);
+        final IHistogramBuckets buckets = new DoubleHistogramBuckets(0, 100, 10);
+        final HistogramSketch sketch = new HistogramSketch(buckets, colName, 1, 0);
+        final Histogram expected = sketch.create(table);
+        int minSplitSize = LocalDataSet.minSplitSize;
+        try {
+            LocalDataSet.minSplitSize = 1000;
+            for (ITable t : new ITable[] { table, table.selectRowsFromFullTable(
+                    table.getMembershipSet().filter(row -> row % 2 == 0)) }) {
+                Histogram result = new LocalDataSet<ITable>(t).sketch(sketch)
+                        .map(e -> e.deltaValue).toBlocking().last();
+                Histogram direct = sketch.create(t);
+                Assert.assertNotNull(result);
+                Assert.assertNotNull(direct);
+                for (int i = 0; i < result.getNumOfBuckets(); i++)
+                    Assert.assertEquals(direct.getCount(i), result.getCount(i));
+                Assert.assertEquals(direct.getMissingData(), result.getMissingData());
+            }
+            Assert.assertTrue(expected.getCount(0) > 0);
+        } finally {
+            LocalDataSet.minSplitSize = minSplitSize;
+        }
+    }
+
+
+    @Test
+    public void ParallelNoSplitTest() {
+        final SmallTable small = TestTables.getIntTable(50000, 2);
+        final Table table = new Table(small.getColumns(), null, null);
+        final String[] columns = { "Column0", "Column1" };
+        final JLSketch sketch = new JLSketch(columns, 5, 1);
+        Assert.assertFalse(sketch.canSplitData());
+        final JLProjection expected = sketch.create(table);
+        final JLProjection result = new ParallelSketch<ITable, JLProjection>(sketch, 1000)
+                .create(table);
+        Assert.assertNotNull(expected);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(expected.highDim, result.highDim);
+        for (String c : columns)
+            Assert.assertArrayEquals(expected.hMap.get(c), result.hMap.get(c), 0);
+    }
+
+    @Test
+    public void ParallelHeatmapTest() {
+        final SmallTable small = TestTables.getIntTable(50000, 2);
+        final Table table = new Table(small.getColumns(), null, null);
+        final IHistogramBuckets buckets = new DoubleHistogramBuckets(0, 100, 10);
+        final HeatmapSketch sketch = new HeatmapSketch(
+                buckets, buckets, "Column0", "Column1", 1.0, 0);
+        final Heatmap expected = sketch.create(table);
+        final Heatmap result = new ParallelSketch<ITable, Heatmap>(sketch, 1000).create(table);
+        Assert.assertNotNull(expected);
+        Assert.assertNotNull(result);
+        Assert.assertEquals(expected.getSize(), result.getSize());
+        for (int i = 0; i < expected.getNumOfBucketsD1(); i++)
+            for (int j = 0; j < expected.getNumOfBucketsD2(); j++)
+                Assert.assertEquals(expected.getCount(i, j), result.getCount(i, j));
+    }
+
+    @Test
+    public void BatchedSketchTest() {
+        final SmallTable small = TestTables.getIntTable(100000, 2);
+        final Table table = new Table(small.getColumns(), null, null);
+        final IHistogramBuckets buckets = new DoubleHistogramBuckets(0, 100, 10);
+        final HistogramSketch histogram = new HistogramSketch(buckets, "Column0", 1, 0);
+        final HeatmapSketch heatmap = new HeatmapSketch(
+                buckets, buckets, "Column0", "Column1", 1.0, 0);
+        final Histogram expectedHistogram = histogram.create(table);
+        final Heatmap expectedHeatmap = heatmap.create(table);
+        Assert.assertNotNull(expectedHistogram);
+        Assert.assertNotNull(expectedHeatmap);
+
+        int minSplitSize = LocalDataSet.minSplitSize;
+        int window = LocalDataSet.sketchBatchWindow;
+        try {
+            LocalDataSet.minSplitSize = 10000;
+            LocalDataSet.sketchBatchWindow = 100;
+            LocalDataSet<ITable> local = new LocalDataSet<ITable>(table);
+            Observable<Histogram> h = local.sketch(histogram).map(e -> e.deltaValue);
+            Observable<Heatmap> hm = local.sketch(heatmap).map(e -> e.deltaValue);
+            Pair<Histogram, Heatmap> result = Observable.zip(h, hm, Pair<Histogram, Heatmap>::new)
+                    .toBlocking().last();
+            Assert.assertNotNull(result.first);
+            Assert.assertNotNull(result.second);
+            for (int i = 0; i < expectedHistogram.getNumOfBuckets(); i++)
+                Assert.assertEquals(expectedHistogram.getCount(i), result.first.getCount(i));
+            for (int i = 0; i < expectedHeatmap.getNumOfBucketsD1(); i++)
+                for (int j = 0; j < expectedHeatmap.getNumOfBucketsD2(); j++)
+                    Assert.assertEquals(expectedHeatmap.getCount(i, j), result.second.getCount(i, j));
+        } finally {
+            LocalDataSet.minSplitSize = minSplitSize;
+            LocalDataSet.sketchBatchWindow = window;
+        }
+    }
+
+    /**
+     * Counts the parts of the data on which it is computed.
+     */
+    static class PartCountSketch implements ISketch<ITable, Object> {
+        @Override
+        public Object create(@Nullable ITable data) { return 1; }
+
+        @Override
+        public Object zero() { return 0; }
+
+        @Override
+        public Object add(@Nullable Object left, @Nullable Object right) {
+            return (Integer)Converters.checkNull(left) + (Integer)Converters.checkNull(right);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void MultiSketchChunkTest() {
+        final SmallTable small = TestTables.getIntTable(200000, 2);
+        final Table table = new Table(small.getColumns(), null, null);
+        final String[] columns = { "Column0", "Column1" };
+        final JLSketch jl = new JLSketch(columns, 5, 1);
+        final JLProjection expected = Converters.checkNull(jl.create(table));
+        final List<ISketch<ITable, Object>> sketches = new ArrayList<ISketch<ITable, Object>>();
+        sketches.add((ISketch<ITable, Object>)(ISketch)jl);
+        sketches.add(new PartCountSketch());
+
+        // A sketch that cannot split the data prevents chunking.
+        List<Object> result = Converters.checkNull(new MultiSketch<ITable>(sketches).create(table));
+        JLProjection projection = (JLProjection)result.get(0);
+        Assert.assertEquals(expected.highDim, projection.highDim);
+        for (String c : columns)
+            Assert.assertArrayEquals(expected.hMap.get(c), projection.hMap.get(c), 0);
+        Assert.assertEquals(1, result.get(1));
+
+        sketches.set(0, new PartCountSketch());
+        result = Converters.checkNull(new MultiSketch<ITable>(sketches).create(table));
+        Assert.assertTrue((Integer)result.get(0) > 1);
+        boolean split = LocalDataSet.splitLargeData;
+        try {
+            LocalDataSet.splitLargeData = false;
+            result = Converters.checkNull(new MultiSketch<ITable>(sketches).create(table));
+            Assert.assertEquals(1, result.get(0));
+            Assert.assertEquals(1, result.get(1));
+        } finally {
+            LocalDataSet.splitLargeData = split;
+        }
+    }
+
+    @Test
+    public void ConcurrentHeavyHittersFilterTest() {
+        final int size = 200000;
+        final SmallTable small = TestTables.getHeavyIntTable(2, size, 1.5, 20);
+        final Table table = new Table(small.getColumns(), null, null);
+        final Schema schema = table.getSchema().project(c -> c.equals("Column0"));
+        final FreqKListMG heavy = new FreqKSketchMG(schema, 0.05).create(table);
+        Assert.assertNotNull(heavy);
+        final ITableFilterDescription filter = heavy.getFilter(schema, true);
+        final ITableFilter eagerFilter = filter.getFilter(table);
+        final ITable eager = table.selectRowsFromFullTable(
+                table.getMembershipSet().filter(eagerFilter::test));
+        final IHistogramBuckets buckets = new DoubleHistogramBuckets(0, 20, 20);
+        final HistogramSketch first = new HistogramSketch(buckets, "Column0", 1, 0);
+        final HistogramSketch second = new HistogramSketch(buckets, "Column1", 1, 0);
+        final Histogram expectedFirst = first.create(eager);
+        final Histogram expectedSecond = second.create(eager);
+        Assert.assertNotNull(expectedFirst);
+        Assert.assertNotNull(expectedSecond);
+
+        int minSplitSize = LocalDataSet.minSplitSize;
+        int lazyIterations = LazyMembershipSet.maxLazyIterations;
+        try {
+            LocalDataSet.minSplitSize = 1000;
+            LazyMembershipSet.maxLazyIterations = 100;
+            for (int iteration = 0; iteration < 5; iteration++) {
+                IDataSet<ITable> filtered = new LocalDataSet<ITable>(table)
+                        .map(new FilterMap(filter)).toBlocking().last().deltaValue;
+                Assert.assertNotNull(filtered);
+                Observable<Histogram> h1 = filtered.sketch(first).map(e -> e.deltaValue);
+                Observable<Histogram> h2 = filtered.sketch(second).map(e -> e.deltaValue);
+                Pair<Histogram, Histogram> result = Observable.zip(h1, h2, Pair<Histogram, Histogram>::new)
+                        .toBlocking().last();
+                Assert.assertNotNull(result.first);
+                Assert.assertNotNull(result.second);
+                for (int i = 0; i < buckets.getNumOfBuckets(); i++) {
+                    Assert.assertEquals(expectedFirst.getCount(i), result.first.getCount(i));
+                    Assert.assertEquals(expectedSecond.getCount(i), result.second.getCount(i));
+                }
+            }
+        } finally {
+            LocalDataSet.minSplitSize = minSplitSize;
+            LazyMembershipSet.maxLazyIterations = lazyIterations;
+        }
+    }
+
+    @Test
+    public void FilterThenHistogramTest() {
+        final int size = 100000;
+        SmallTable small = TestTables.getIntTable(size, 1);
+        Table table = new Table(small.getColumns(), null, null);
+        String colName = table.getSchema().getColumnNames().get(0);
+        IColumn col = table.getLoadedColumn(colName);
+        FilterMap first = new FilterMap(t -> row -> col.getInt(row) % 2 == 0);
+        FilterMap second = new FilterMap(t -> row -> col.getInt(row) > 10);
+        ITable filtered = second.apply(first.apply(table));
+        Assert.assertNotNull(filtered);
+
+        final IHistogramBuckets buckets = new DoubleHistogramBuckets(0, 100, 10);
+        HistogramSketch sketch = new HistogramSketch(buckets, colName, 1, 0);
+        Histogram lazy = sketch.create(filtered);
+        Assert.assertTrue(filtered.getMembershipSet() instanceof LazyMembershipSet);
+        Assert.assertFalse(((LazyMembershipSet)filtered.getMembershipSet()).isMaterialized());
+
+        ITable eager = table.selectRowsFromFullTable(table.getMembershipSet().filter(
+                row -> col.getInt(row) % 2 == 0 && col.getInt(row) > 10));
+        Histogram expected = sketch.create(eager);
+        Assert.assertNotNull(lazy);
+        Assert.assertNotNull(expected);
+        for (int i = 0; i < buckets.getNumOfBuckets(); i++)
+            Assert.assertEquals(expected.getCount(i), lazy.getCount(i));
+        Assert.assertEquals(eager.getNumOfRows(), filtered.getNumOfRows());
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test.dataset;
+
+import com.google.protobuf.ByteString;
+import org.hillview.dataset.LocalDataSet;
+import org.hillview.dataset.ParallelDataSet;
+import org.hillview.dataset.api.IDataSet;
+import org.hillview.dataset.remoting.MemoizedResults;
+import org.hillview.pb.Command;
+import org.hillview.pb.PartialResponse;
+import org.hillview.storage.FileSetDescription;
+import org.hillview.storage.IFileReference;
+import org.hillview.test.BaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MemoizedResultsTest extends BaseTest {
+    private static Command command(String op, int index) {
+        return Command.newBuilder()
+                .setSerializedOp(ByteString.copyFromUtf8(op))
+                .setIdsIndex(index)
+                .build();
+    }
+
+    private static PartialResponse response(int size) {
+        return PartialResponse.newBuilder()
+                .setSerializedOp(ByteString.copyFrom(new byte[size]))
+                .build();
+    }
+
+    @Test
+    public void testEviction() {
+        MemoizedResults results = new MemoizedResults(10000, null);
+        Command expensive = command("expensive", -1);
+        Command cheap = command("cheap", -1);
+        Command other = command("other", -1);
+        results.insert(expensive, response(3000), 0, 1000000);
+        results.insert(cheap, response(3000), 0, 10);
+        results.insert(other, response(3000), 0, 1000);
+        Assert.assertNotNull(results.get(expensive));
+        Assert.assertNotNull(results.get(cheap));
+        Assert.assertTrue(results.getUsedBytes() <= 10000);
+
+        // The cheapest result is evicted first.
+        results.insert(command("new", -1), response(3000), 0, 1000);
+        Assert.assertNull(results.get(cheap));
+        Assert.assertNotNull(results.get(expensive));
+        Assert.assertTrue(results.getUsedBytes() <= 10000);
+
+        // Results larger than the budget are not kept.
+        results.insert(command("large", -1), response(20000), 0, 1000000);
+        Assert.assertNull(results.get(command("large", -1)));
+        Assert.assertNotNull(results.get(expensive));
+    }
+
+    @Test
+    public void testDatasets() {
+        MemoizedResults results = new MemoizedResults(100000, null);
+        Command load = command("load", -1);
+        // Commands on datasets with an unknown source are not memoized.
+        Command sketch = command("sketch", 5);
+        results.insert(sketch, response(10), 0, 10);
+        Assert.assertNull(results.get(sketch));
+
+        results.insert(load, response(10), 5, 10);
+        results.setSource(5, load);
+        results.insert(sketch, response(10), 0, 10);
+        Assert.assertNotNull(results.get(sketch));
+        Assert.assertNotNull(results.get(load));
+
+        // A dataset with the same source finds the same results.
+        results.setSource(6, load);
+        Command other = command("sketch", 6);
+        Assert.assertNotNull(results.get(other));
+
+        // The results on the source are kept while a dataset with that source exists,
+        // but the result referring to the removed dataset is not.
+        results.datasetRemoved(5);
+        Assert.assertNull(results.get(sketch));
+        Assert.assertNull(results.get(load));
+        Assert.assertNotNull(results.get(other));
+        results.datasetRemoved(6);
+        Assert.assertNull(results.get(other));
+        Assert.assertEquals(0, results.getUsedBytes());
+    }
+
+    @Test
+    public void testDataVersion() throws IOException {
+        File file = File.createTempFile("memoized", ".csv");
+        try {
+            Files.write(file.toPath(), "a\n1\n".getBytes(StandardCharsets.UTF_8));
+            FileSetDescription desc = new FileSetDescription();
+            List<IDataSet<IFileReference>> children = new ArrayList<IDataSet<IFileReference>>();
+            children.add(new LocalDataSet<IFileReference>(desc.createFileReference(file.getPath())));
+            IDataSet<IFileReference> files = new ParallelDataSet<IFileReference>(children);
+            String version = MemoizedResults.getDataVersion(files);
+            Assert.assertEquals(version, MemoizedResults.getDataVersion(files));
+            Files.write(file.toPath(), "a\n1\n2\n".getBytes(StandardCharsets.UTF_8));
+            Assert.assertNotEquals(version, MemoizedResults.getDataVersion(files));
+            Assert.assertEquals("", MemoizedResults.getDataVersion(new LocalDataSet<Integer>(1)));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    @Test
+    public void testDisk() throws IOException {
+        File folder = Files.createTempDirectory("memoized").toFile();
+        MemoizedResults results = new MemoizedResults(100000, folder.getPath());
+        Command load = command("load", -1);
+        Command sketch = command("sketch", 1);
+        results.insert(load, response(10), 1, 10);
+        results.setSource(1, load);
+        results.insert(sketch, response(100), 0, 10);
+
+        // After a restart the dataset is produced again, with a different index.
+        MemoizedResults restarted = new MemoizedResults(100000, folder.getPath());
+        restarted.setSource(2, load);
+        Command again = command("sketch", 2);
+        Assert.assertNotNull(restarted.get(again));
+        // Results that refer to datasets are not saved.
+        Assert.assertNull(restarted.get(load));
+
+        // The same commands on data that changed do not find the results.
+        MemoizedResults versioned = new MemoizedResults(100000, folder.getPath());
+        versioned.setSource(1, load, "100@1000,");
+        versioned.insert(command("sketch", 1), response(100), 0, 10);
+        MemoizedResults changed = new MemoizedResults(100000, folder.getPath());
+        changed.setSource(1, load, "120@2000,");
+        Assert.assertNull(changed.get(command("sketch", 1)));
+        changed.setSource(2, load, "100@1000,");
+        Assert.assertNotNull(changed.get(command("sketch", 2)));
+
+        restarted.purge();
+        Assert.assertNull(new MemoizedResults(100000, folder.getPath()).get(again));
+        String[] files = folder.list();
+        Assert.assertNotNull(files);
+        Assert.assertEquals(0, files.length);
+        Assert.assertTrue(folder.delete());
+    }
+}
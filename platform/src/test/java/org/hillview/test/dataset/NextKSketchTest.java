@@ -258,4 +258,67 @@ public class NextKSketchTest extends BaseTest {
         Assert.assertNotNull(nkl);
         Assert.assertEquals(nkl.table.toString(), "Table[1x0]");
     }
+
+    @Test
+    public void testSortIndexCache() {
+        this.checkSortIndexCache(TestTables.getMissingIntTable(1000, 2));
+        this.checkSortIndexCache(TestTables.getRepIntTable(1000, 2));
+    }
+
+    @Test
+    public void testSortIndexCacheOnSplitTable() {
+        final int size = 10000;
+        final int maxSize = 10;
+        Table table = TestTables.getRepIntTable(size, 2);
+        RecordOrder cso = new RecordOrder();
+        for (String colName : table.getSchema().getColumnNames())
+            cso.append(new ColumnSortOrientation(table.getSchema().getDescription(colName), true));
+        int minSplitSize = LocalDataSet.minSplitSize;
+        SortIndexCache.clear();
+        try {
+            LocalDataSet.minSplitSize = 1000;
+            Assert.assertTrue(size > 2 * LocalDataSet.minSplitSize);
+            IDataSet<ITable> local = new LocalDataSet<ITable>(table);
+            RowSnapshot topRow = null;
+            for (int page = 0; page < 3; page++) {
+                NextKSketch nk = new NextKSketch(cso, topRow, maxSize);
+                NextKList list = local.blockingSketch(nk);
+                Assert.assertNotNull(list);
+                SortIndexCache.enabled = false;
+                NextKList expected = Converters.checkNull(nk.create(table));
+                SortIndexCache.enabled = true;
+                Assert.assertEquals(expected.toLongString(maxSize), list.toLongString(maxSize));
+                Assert.assertEquals(expected.startPosition, list.startPosition);
+                topRow = new RowSnapshot(list.table, list.table.getNumOfRows() - 1);
+            }
+            Assert.assertEquals(2, SortIndexCache.getHits());
+            Assert.assertEquals(4L * size, SortIndexCache.getUsedBytes());
+        } finally {
+            LocalDataSet.minSplitSize = minSplitSize;
+            SortIndexCache.enabled = true;
+            SortIndexCache.clear();
+        }
+    }
+
+    private void checkSortIndexCache(ITable table) {
+        final int maxSize = 7;
+        List<String> columns = table.getSchema().getColumnNames();
+        RecordOrder cso = new RecordOrder();
+        cso.append(new ColumnSortOrientation(table.getSchema().getDescription(columns.get(0)), false));
+        cso.append(new ColumnSortOrientation(table.getSchema().getDescription(columns.get(1)), true));
+        SortIndexCache.clear();
+        for (int r = 0; r < table.getNumOfRows(); r += 97) {
+            RowSnapshot topRow = r == 0 ? null : new RowSnapshot(table, r);
+            NextKSketch nk = new NextKSketch(cso, topRow, maxSize);
+            SortIndexCache.enabled = false;
+            NextKList expected = Converters.checkNull(nk.create(table));
+            SortIndexCache.enabled = true;
+            NextKList cached = Converters.checkNull(nk.create(table));
+            Assert.assertEquals(expected.toLongString(maxSize), cached.toLongString(maxSize));
+            Assert.assertEquals(expected.startPosition, cached.startPosition);
+        }
+        Assert.assertNotNull(SortIndexCache.get(table, cso));
+        Assert.assertEquals(4L * table.getNumOfRows(), SortIndexCache.getUsedBytes());
+        SortIndexCache.clear();
+    }
 }
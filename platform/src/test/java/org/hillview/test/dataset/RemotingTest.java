@@ -23,6 +23,8 @@ import org.hillview.dataset.ParallelDataSet;
 import org.hillview.dataset.RemoteDataSet;
 import org.hillview.dataset.api.*;
 import org.hillview.dataset.remoting.HillviewServer;
+import org.hillview.dataset.remoting.Lz4MessageCodec;
+import org.hillview.dataset.remoting.ResultCompression;
 import org.hillview.maps.FalseMap;
 import org.hillview.test.BaseTest;
 import org.hillview.utils.Converters;
@@ -34,11 +36,14 @@ import org.junit.Test;
 import rx.Observable;
 import rx.Subscriber;
 import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
 import rx.subjects.PublishSubject;
 import rx.subjects.SerializedSubject;
 
 import javax.annotation.Nullable;
+import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -93,6 +98,19 @@ public class RemotingTest extends BaseTest {
         }
     }
 
+    private static class SlowSumSketch extends SumSketch {
+        static final AtomicInteger invocations = new AtomicInteger(0);
+
+        @Override
+        public Integer create(final int[] data) {
+            invocations.incrementAndGet();
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException ignored) {}
+            return super.create(data);
+        }
+    }
+
     private static class ImmutableListSketch implements ISketch<int[], List<Integer>> {
         @Override @Nullable
         public List<Integer> zero() {
@@ -130,6 +148,34 @@ public class RemotingTest extends BaseTest {
         }
     }
 
+    /**
+     * Produces a large and compressible result.
+     */
+    private static class RepeatSketch implements ISketch<int[], int[]> {
+        static final int Repeats = 10;
+
+        @Override @Nullable
+        public int[] zero() {
+            return new int[0];
+        }
+
+        @Override @Nullable
+        public int[] add(@Nullable final int[] left, @Nullable final int[] right) {
+            int[] result = Arrays.copyOf(Converters.checkNull(left),
+                    Converters.checkNull(left).length + Converters.checkNull(right).length);
+            System.arraycopy(right, 0, result, left.length, right.length);
+            return result;
+        }
+
+        @Override
+        public int[] create(final int[] data) {
+            final int[] result = new int[data.length * Repeats];
+            for (int i = 0; i < result.length; i++)
+                result[i] = data[i % data.length];
+            return result;
+        }
+    }
+
     /*
      * Create separate server and client actor systems to test remoting.
      */
@@ -167,6 +213,27 @@ public class RemotingTest extends BaseTest {
         assertEquals(50005000, result);
     }
 
+    @Test
+    public void testConcurrentIdenticalSketches() {
+        final IDataSet<int[]> remoteIds = new RemoteDataSet<int[]>(serverAddress);
+        SlowSumSketch.invocations.set(0);
+        final Observable<Integer> first = remoteIds.sketch(new SlowSumSketch())
+                .map(e -> e.deltaValue)
+                .reduce(Integer::sum)
+                .subscribeOn(Schedulers.io());
+        final Observable<Integer> second = remoteIds.sketch(new SlowSumSketch())
+                .map(e -> e.deltaValue)
+                .reduce(Integer::sum)
+                .subscribeOn(Schedulers.io());
+        final List<Integer> results = Observable.zip(first, second, Arrays::asList)
+                .toBlocking()
+                .last();
+        assertEquals(49995000, (int)results.get(0));
+        assertEquals(49995000, (int)results.get(1));
+        // The second sketch attaches to the first one, so each partition is scanned once.
+        assertEquals(10, SlowSumSketch.invocations.get());
+    }
+
     //@Test
     public void testRaceSerialized() throws InterruptedException {
         final ExecutorService es = Executors.newFixedThreadPool(10);
@@ -379,4 +446,45 @@ public class RemotingTest extends BaseTest {
             server.shutdown();
         }
     }
+
+
+    @Test
+    public void testCompressedSketchThroughClient() {
+        ResultCompression.resetCounters();
+        final IDataSet<int[]> remoteIds = new RemoteDataSet<int[]>(serverAddress);
+        final int[] result = remoteIds.sketch(new RepeatSketch())
+                                      .map(e -> e.deltaValue)
+                                      .reduce(new int[0], (l, r) -> new RepeatSketch().add(l, r))
+                                      .toBlocking()
+                                      .last();
+        assertEquals(10000 * RepeatSketch.Repeats, Converters.checkNull(result).length);
+        long sum = 0;
+        for (int v : result)
+            sum += v;
+        assertEquals(49995000L * RepeatSketch.Repeats, sum);
+        Assert.assertTrue(ResultCompression.getCompressedMessages() > 0);
+        Assert.assertTrue(ResultCompression.getCompressedBytes() < ResultCompression.getRawBytes());
+    }
+
+    @Test
+    public void testLz4Codec() throws IOException {
+        Lz4MessageCodec codec = new Lz4MessageCodec();
+        byte[] data = new byte[1000000];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte)((i / 100) % 7);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream os = codec.compress(bytes)) {
+            os.write(data, 0, 10);
+            os.write(data[10]);
+            os.write(data, 11, data.length - 11);
+        }
+        Assert.assertTrue(bytes.size() < data.length / 10);
+        byte[] read = new byte[data.length];
+        try (DataInputStream is = new DataInputStream(
+                codec.decompress(new ByteArrayInputStream(bytes.toByteArray())))) {
+            is.readFully(read);
+            assertEquals(-1, is.read());
+        }
+        Assert.assertArrayEquals(data, read);
+    }
 }
@@ -30,9 +30,12 @@ import org.hillview.table.api.ITable;
 import org.hillview.table.columns.StringListColumn;
 import org.hillview.table.columns.IntListColumn;
 import org.hillview.test.BaseTest;
+import org.hillview.utils.Converters;
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -42,6 +45,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.UUID;
 
 /**
@@ -116,6 +120,26 @@ public class CsvFileTest extends BaseTest {
         Assert.assertNotNull(t);
     }
 
+    @Test
+    public void readCsvFileOffHeapTest() {
+        Path path = Paths.get(ontimeFolder, csvFile);
+        CsvFileLoader.Config config = new CsvFileLoader.Config();
+        config.allowFewerColumns = false;
+        config.hasHeaderRow = true;
+        CsvFileLoader r = new CsvFileLoader(path.toString(), config, null);
+        ITable onHeap = r.load();
+        config.offHeap = true;
+        r = new CsvFileLoader(path.toString(), config, null);
+        ITable offHeap = r.load();
+        Assert.assertEquals(onHeap.getSchema(), offHeap.getSchema());
+        for (String col : onHeap.getSchema().getColumnNames()) {
+            IColumn expected = onHeap.getLoadedColumn(col);
+            IColumn actual = offHeap.getLoadedColumn(col);
+            for (int i = 0; i < onHeap.getNumOfRows(); i++)
+                Assert.assertEquals(expected.getObject(i), actual.getObject(i));
+        }
+    }
+
     @Test
     public void readUTF16FileTest() {
         Path path = Paths.get("../data/", "utf16-data.csv");
@@ -212,6 +236,137 @@ public class CsvFileTest extends BaseTest {
         Assert.assertNotNull(tbl);
         writeReadTable(tbl);
     }
-}
 
+    private static ITable loadCsv(String path, boolean header, @Nullable String schema, int threads) {
+        return loadCsv(path, header, schema, threads, 0);
+    }
+
+    private static ITable loadCsv(String path, boolean header, @Nullable String schema,
+                                  int threads, int prefixRows) {
+        CsvFileLoader.Config config = new CsvFileLoader.Config();
+        config.allowFewerColumns = true;
+        config.hasHeaderRow = header;
+        config.threads = threads;
+        config.guessPrefixRows = prefixRows;
+        config.minChunkSize = 512;
+        CsvFileLoader r = new CsvFileLoader(path, config, schema);
+        return r.load();
+    }
+
+    private static void compareParallel(String path, boolean header, @Nullable String schema) {
+        ITable serial = loadCsv(path, header, schema, 1);
+        ITable parallel = loadCsv(path, header, schema, 7);
+        Assert.assertEquals(serial.getSchema(), parallel.getSchema());
+        Assert.assertEquals(serial.toLongString(serial.getNumOfRows()),
+                parallel.toLongString(parallel.getNumOfRows()));
+    }
 
+    @Test
+    public void parallelReadTest() throws IOException {
+        String path = "./" + UUID.randomUUID().toString();
+        Random random = new Random(0);
+        try {
+            try (Writer writer = new FileWriter(path)) {
+                writer.write("Id,Value,Text,Date\n");
+                for (int i = 0; i < 2000; i++) {
+                    String value = random.nextInt(10) == 0 ? "" : Double.toString(random.nextGaussian());
+                    String text;
+                    switch (random.nextInt(5)) {
+                        case 0:
+                            text = "\"with, comma\"";
+                            break;
+                        case 1:
+                            text = "\"with\nnewline " + i + "\"";
+                            break;
+                        case 2:
+                            text = "\"with \"\"quotes\"\"\n\"";
+                            break;
+                        case 3:
+                            text = "";
+                            break;
+                        default:
+                            text = "plain" + i;
+                            break;
+                    }
+                    String date = "2019-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10);
+                    writer.write(i + "," + value + "," + text + "," + date + "\n");
+                }
+            }
+            compareParallel(path, true, null);
+            compareParallel(path, false, null);
+            ITable table = loadCsv(path, true, null, 7);
+            Assert.assertEquals(2000, table.getNumOfRows());
+            Assert.assertEquals(ContentsKind.Integer, table.getSchema().getKind("Id"));
+            Assert.assertEquals(ContentsKind.Double, table.getSchema().getKind("Value"));
+            Assert.assertEquals(ContentsKind.Date, table.getSchema().getKind("Date"));
+        } finally {
+            if (Files.exists(Paths.get(path)))
+                Files.delete(Paths.get(path));
+        }
+    }
+
+    @Test
+    public void parallelReadWithSchemaTest() {
+        Path schemaPath = Paths.get(ontimeFolder, schemaFile);
+        Path path = Paths.get(ontimeFolder, csvFile);
+        compareParallel(path.toString(), true, schemaPath.toString());
+        compareParallel(path.toString(), true, null);
+    }
+
+    @Test
+    public void typedPrefixReadTest() throws IOException {
+        String path = "./" + UUID.randomUUID().toString();
+        Random random = new Random(1);
+        try {
+            try (Writer writer = new FileWriter(path)) {
+                writer.write("Id,Mixed,Late,Value,Date,Empty,Zip,Price,Exp,Day\n");
+                for (int i = 0; i < 2000; i++) {
+                    String mixed = i < 1500 ? Integer.toString(random.nextInt(100)) : "1.5";
+                    String late = i == 1800 ? "n/a" : Integer.toString(random.nextInt(100));
+                    String value = random.nextInt(10) == 0 ? "" : Double.toString(random.nextGaussian());
+                    String date = "2019-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10);
+                    String empty = i < 150 ? "" : Integer.toString(i);
+                    // Values whose text is not the canonical form of the parsed value,
+                    // in columns that eventually become strings.
+                    String zip = i == 1900 ? "n/a" : i % 13 == 0 ? "\"\"" :
+                            String.format("%05d", random.nextInt(3000));
+                    String price = i == 1700 ? "free" : i % 11 == 0 ? "\"\"" :
+                            (random.nextInt(100) + ".50");
+                    String exp = i == 1600 ? "many" : i % 3 == 0 ? "1e3" : Integer.toString(i);
+                    String day = i == 1950 ? "never" : "2019-0" + (1 + random.nextInt(9)) + "-0" +
+                            (1 + random.nextInt(9));
+                    writer.write(i + "," + mixed + "," + late + "," + value + "," + date + "," + empty +
+                            "," + zip + "," + price + "," + exp + "," + day + "\n");
+                }
+            }
+            ITable expected = loadCsv(path, true, null, 1);
+            String expectedString = expected.toLongString(expected.getNumOfRows());
+            for (int threads : new int[] { 1, 7 }) {
+                ITable typed = loadCsv(path, true, null, threads, 100);
+                Assert.assertEquals(expected.getSchema(), typed.getSchema());
+                Assert.assertEquals(expectedString, typed.toLongString(typed.getNumOfRows()));
+                for (String col : new String[] { "Late", "Zip", "Price", "Exp", "Day" }) {
+                    IColumn e = expected.getLoadedColumn(col);
+                    IColumn t = typed.getLoadedColumn(col);
+                    for (int i = 0; i < e.sizeInRows(); i++)
+                        Assert.assertEquals(col + " row " + i, e.getString(i), t.getString(i));
+                }
+            }
+            Assert.assertEquals(ContentsKind.Integer, expected.getSchema().getKind("Id"));
+            Assert.assertEquals(ContentsKind.Double, expected.getSchema().getKind("Mixed"));
+            Assert.assertEquals(ContentsKind.String, expected.getSchema().getKind("Late"));
+            Assert.assertEquals(ContentsKind.Date, expected.getSchema().getKind("Date"));
+            Assert.assertEquals(ContentsKind.Integer, expected.getSchema().getKind("Empty"));
+            Assert.assertEquals(ContentsKind.String, expected.getSchema().getKind("Zip"));
+            Assert.assertEquals(ContentsKind.String, expected.getSchema().getKind("Price"));
+            Assert.assertEquals(ContentsKind.String, expected.getSchema().getKind("Exp"));
+            Assert.assertEquals(ContentsKind.String, expected.getSchema().getKind("Day"));
+            Assert.assertEquals("", expected.getLoadedColumn("Zip").getString(0));
+            Assert.assertEquals(5, Converters.checkNull(
+                    expected.getLoadedColumn("Zip").getString(1)).length());
+        } finally {
+            if (Files.exists(Paths.get(path)))
+                Files.delete(Paths.get(path));
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test.storage;
+
+import org.apache.commons.io.FileUtils;
+import org.hillview.dataset.LocalDataSet;
+import org.hillview.dataset.ParallelDataSet;
+import org.hillview.dataset.api.IDataSet;
+import org.hillview.maps.FindFilesMapper;
+import org.hillview.sketches.SaveAsHvcSketch;
+import org.hillview.storage.IFileReference;
+import org.hillview.storage.FileSetDescription;
+import org.hillview.storage.HvcFileLoader;
+import org.hillview.storage.HvcFileWriter;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Table;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IRowIterator;
+import org.hillview.table.api.ITable;
+import org.hillview.table.columns.DateArrayColumn;
+import org.hillview.table.columns.DoubleArrayColumn;
+import org.hillview.table.columns.IntArrayColumn;
+import org.hillview.table.columns.StringArrayColumn;
+import org.hillview.table.membership.SparseMembershipSet;
+import org.hillview.test.BaseTest;
+import org.hillview.utils.Converters;
+import org.hillview.utils.TestTables;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class HvcFileTest extends BaseTest {
+    private static void delete(File folder) throws IOException {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    @Test
+    public void writeSmallTableTest() throws IOException {
+        File folder = Files.createTempDirectory("hvc").toFile();
+        Table t = TestTables.testTable();
+        HvcFileWriter writer = new HvcFileWriter(folder.getPath());
+        writer.writeTable(t);
+
+        HvcFileLoader loader = new HvcFileLoader(folder.getPath());
+        ITable table = loader.load();
+        Assert.assertEquals(t.toLongString(20), table.toLongString(20));
+        delete(folder);
+    }
+
+    @Test
+    public void writeLargeTableTest() throws IOException {
+        // Spans several segments of the off-heap columns
+        final int size = 150000;
+        IntArrayColumn ints = new IntArrayColumn(
+                new ColumnDescription("Int", ContentsKind.Integer), size);
+        DoubleArrayColumn doubles = new DoubleArrayColumn(
+                new ColumnDescription("Double", ContentsKind.Double), size);
+        DateArrayColumn dates = new DateArrayColumn(
+                new ColumnDescription("Date", ContentsKind.Date), size);
+        StringArrayColumn strings = new StringArrayColumn(
+                new ColumnDescription("String", ContentsKind.String), size);
+        for (int i = 0; i < size; i++) {
+            if ((i % 7) == 0) {
+                ints.setMissing(i);
+                doubles.setMissing(i);
+                dates.setMissing(i);
+                strings.setMissing(i);
+            } else {
+                ints.set(i, i);
+                doubles.set(i, i / 2.0);
+                dates.set(i, Converters.toDouble(Instant.ofEpochMilli(i * 1000L)));
+                strings.set(i, "S" + (i % 100));
+            }
+        }
+        List<IColumn> cols = new ArrayList<IColumn>();
+        cols.add(ints);
+        cols.add(doubles);
+        cols.add(dates);
+        cols.add(strings);
+        // Only write the odd rows
+        SparseMembershipSet members = new SparseMembershipSet(size, size / 2);
+        for (int i = 1; i < size; i += 2)
+            members.add(i);
+        Table t = new Table(cols, members.seal(), null, null);
+
+        File folder = Files.createTempDirectory("hvc").toFile();
+        HvcFileWriter writer = new HvcFileWriter(folder.getPath());
+        writer.writeTable(t);
+
+        FileSetDescription desc = new FileSetDescription();
+        desc.fileKind = "hvc";
+        ITable table = desc.createFileReference(folder.getPath()).load();
+        Assert.assertEquals(t.getSchema(), table.getSchema());
+        Assert.assertEquals(size / 2, table.getNumOfRows());
+        List<IColumn> loaded = table.getLoadedColumns(table.getSchema().getColumnNames());
+
+        IRowIterator it = members.getIterator();
+        int row = it.getNextRow();
+        int loadedRow = 0;
+        while (row >= 0) {
+            for (int c = 0; c < cols.size(); c++) {
+                IColumn original = cols.get(c);
+                IColumn copy = loaded.get(c);
+                Assert.assertEquals(original.isMissing(row), copy.isMissing(loadedRow));
+                if (!original.isMissing(row))
+                    Assert.assertEquals(original.asString(row), copy.asString(loadedRow));
+            }
+            row = it.getNextRow();
+            loadedRow++;
+        }
+        Assert.assertEquals(size / 2, loadedRow);
+        delete(folder);
+    }
+
+    @Test
+    public void saveAndReopenTest() throws IOException {
+        final int size = 1000;
+        Table rep = TestTables.getRepIntTable(size, 2);
+        Map<String, Table> sources = new HashMap<String, Table>();
+        List<IDataSet<ITable>> parts = new ArrayList<IDataSet<ITable>>();
+        for (String source : new String[] { "a.csv", "b.csv" }) {
+            Table part = new Table(rep.getColumns(), source, null);
+            sources.put(source.replace(".csv", ".hvc"), part);
+            parts.add(new LocalDataSet<ITable>(part));
+        }
+        IDataSet<ITable> data = new ParallelDataSet<ITable>(parts);
+
+        File folder = Files.createTempDirectory("hvc").toFile();
+        int minSplitSize = LocalDataSet.minSplitSize;
+        try {
+            // Partitions are large enough to be split, but each must be saved as one folder.
+            LocalDataSet.minSplitSize = 100;
+            data.blockingSketch(new SaveAsHvcSketch(folder.getPath(), null, null));
+
+            FileSetDescription desc = new FileSetDescription();
+            desc.fileKind = "hvc";
+            desc.fileNamePattern = new File(folder, "*.hvc").getPath();
+            List<IFileReference> found = new FindFilesMapper(desc).apply(null);
+            Assert.assertEquals(2, found.size());
+            for (Map.Entry<String, Table> e : sources.entrySet()) {
+                ITable saved = desc.createFileReference(
+                        new File(folder, e.getKey()).getPath()).load();
+                Assert.assertEquals(e.getValue().toLongString(size), saved.toLongString(size));
+            }
+        } finally {
+            LocalDataSet.minSplitSize = minSplitSize;
+            delete(folder);
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.hillview.test.storage;
 
 import org.hillview.storage.JdbcConnectionInformation;
 import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ITable;
 import org.hillview.storage.JdbcDatabase;
 import org.hillview.test.BaseTest;
@@ -26,6 +27,13 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import javax.annotation.Nullable;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
 
 /**
  * Various tests for reading data from databases through JDBC.
@@ -101,4 +109,81 @@ public class JdbcTest extends BaseTest {
             Assert.assertEquals(10001, empNo);
         }
     }
+
+    /**
+     * Creates a table in an embedded H2 database; the database exists as long
+     * as the returned connection is open.  H2 is a test dependency, so failing
+     * to create the table is an error.
+     */
+    private static Connection createH2Table(String database, int rows) throws SQLException {
+        Connection connection = DriverManager.getConnection("jdbc:h2:" + database);
+        Statement st = connection.createStatement();
+        st.execute("CREATE TABLE test (id INT, value DOUBLE, name VARCHAR(20), time TIMESTAMP)");
+        st.close();
+        PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO test VALUES (?, ?, ?, ?)");
+        for (int i = 0; i < rows; i++) {
+            if (i % 10 == 0)
+                insert.setNull(1, java.sql.Types.INTEGER);
+            else
+                insert.setInt(1, i - 100);
+            insert.setDouble(2, i / 2.0);
+            insert.setString(3, "n" + (i % 7));
+            insert.setTimestamp(4, new Timestamp(1000L * i));
+            insert.executeUpdate();
+        }
+        insert.close();
+        return connection;
+    }
+
+    private static double sum(ITable table, String column) {
+        IColumn col = table.getLoadedColumn(column);
+        IRowIterator it = table.getMembershipSet().getIterator();
+        double sum = 0;
+        for (int row = it.getNextRow(); row >= 0; row = it.getNextRow())
+            if (!col.isMissing(row))
+                sum += col.asDouble(row);
+        return sum;
+    }
+
+    @Test
+    public void testPartitionedRead() throws SQLException {
+        final int rows = 1000;
+        Connection connection = createH2Table("mem:partitions", rows);
+        JdbcConnectionInformation conn = new JdbcConnectionInformation();
+        conn.databaseKind = "h2";
+        conn.database = "mem:partitions";
+        conn.table = "test";
+        ITable full = this.getTable(conn);
+        Assert.assertNotNull(full);
+        Assert.assertEquals("Table[4x1000]", full.toString());
+
+        conn.partitionColumn = "id";
+        for (boolean lazy : new boolean[] { false, true }) {
+            for (boolean modulo : new boolean[] { false, true }) {
+                conn.partitions = 4;
+                conn.partitionByModulo = modulo;
+                conn.lazyLoading = lazy;
+                JdbcDatabase db = new JdbcDatabase(conn);
+                db.connect();
+                List<ITable> partitions = db.readTablePartitions();
+                db.disconnect();
+                Assert.assertEquals(4, partitions.size());
+                int count = 0;
+                double ids = 0, values = 0, times = 0;
+                for (ITable t : partitions) {
+                    Assert.assertTrue(t.getNumOfRows() > 0);
+                    count += t.getNumOfRows();
+                    ids += sum(t, "ID");
+                    values += sum(t, "VALUE");
+                    times += sum(t, "TIME");
+                }
+                Assert.assertEquals(rows, count);
+                Assert.assertEquals(sum(full, "ID"), ids, 0);
+                Assert.assertEquals(sum(full, "VALUE"), values, 0);
+                Assert.assertEquals(sum(full, "TIME"), times, 0);
+            }
+        }
+        connection.close();
+    }
 }
@@ -24,7 +24,11 @@ import org.apache.orc.OrcFile;
 import org.apache.orc.Reader;
 import org.apache.orc.RecordReader;
 import org.apache.orc.TypeDescription;
+import org.hillview.dataset.LocalDataSet;
+import org.hillview.dataset.api.IDataSet;
+import org.hillview.sketches.SaveAsOrcSketch;
 import org.hillview.storage.CsvFileLoader;
+import org.hillview.storage.FileSetDescription;
 import org.hillview.storage.OrcFileLoader;
 import org.hillview.storage.OrcFileWriter;
 import org.hillview.table.ColumnDescription;
@@ -33,7 +37,13 @@ import org.hillview.table.Table;
 import org.hillview.table.api.ContentsKind;
 import org.hillview.table.api.IColumn;
 import org.hillview.table.api.ITable;
+import org.hillview.table.api.ITableFilter;
+import org.hillview.table.columns.DateArrayColumn;
+import org.hillview.table.columns.DoubleArrayColumn;
+import org.hillview.table.columns.IntArrayColumn;
 import org.hillview.table.columns.StringArrayColumn;
+import org.hillview.table.filters.RangeFilterDescription;
+import org.hillview.utils.Converters;
 import org.hillview.test.BaseTest;
 import org.hillview.test.storage.CsvFileTest;
 import org.hillview.utils.TestTables;
@@ -42,8 +52,11 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class OrcFileTest extends BaseTest {
@@ -82,6 +95,32 @@ public class OrcFileTest extends BaseTest {
         deleteOrcFile(orcFolder, "tmp.orc");
     }
 
+    @Test
+    public void saveSplitPartitionTest() throws IOException {
+        final int size = 1000;
+        Table rep = TestTables.getRepIntTable(size, 2);
+        ITable table = new Table(rep.getColumns(), "src.csv", null);
+        File folder = Files.createTempDirectory("orc").toFile();
+        int minSplitSize = LocalDataSet.minSplitSize;
+        try {
+            // The partition is large enough to be split, but it must be saved as one file.
+            LocalDataSet.minSplitSize = 100;
+            IDataSet<ITable> local = new LocalDataSet<ITable>(table);
+            local.blockingSketch(new SaveAsOrcSketch(folder.getPath(), null, null, false));
+            OrcFileLoader loader = new OrcFileLoader(
+                    Paths.get(folder.getPath(), "src.orc").toString(), null, false);
+            ITable saved = loader.load();
+            Assert.assertEquals(size, saved.getNumOfRows());
+        } finally {
+            LocalDataSet.minSplitSize = minSplitSize;
+            File[] files = folder.listFiles();
+            if (files != null)
+                for (File f : files)
+                    Assert.assertTrue(f.delete());
+            Assert.assertTrue(folder.delete());
+        }
+    }
+
     @Test
     public void convertCsvFileTest() {
         String file = CsvFileTest.ontimeFolder + "/" + CsvFileTest.csvFile;
@@ -186,4 +225,77 @@ public class OrcFileTest extends BaseTest {
         Table ref = TestTables.testRepTable();
         Assert.assertEquals(ref.toLongString(20), table.toLongString(20));
     }
+
+    static Table sortedTable(int size) {
+        ColumnDescription x = new ColumnDescription("X", ContentsKind.Integer);
+        ColumnDescription d = new ColumnDescription("D", ContentsKind.Double);
+        ColumnDescription t = new ColumnDescription("T", ContentsKind.Date);
+        IntArrayColumn xCol = new IntArrayColumn(x, size);
+        DoubleArrayColumn dCol = new DoubleArrayColumn(d, size);
+        DateArrayColumn tCol = new DateArrayColumn(t, size);
+        Instant start = Instant.parse("2019-01-01T00:00:00Z");
+        for (int i = 0; i < size; i++) {
+            xCol.set(i, i);
+            dCol.set(i, i / 2.0);
+            tCol.set(i, start.plusSeconds(60 * i));
+        }
+        List<IColumn> cols = new ArrayList<IColumn>();
+        cols.add(xCol);
+        cols.add(dCol);
+        cols.add(tCol);
+        return new Table(cols, null, null);
+    }
+
+    static ITable filter(ITable table, List<RangeFilterDescription> filters) {
+        for (RangeFilterDescription desc : filters) {
+            ITableFilter filter = desc.getFilter(table);
+            table = table.selectRowsFromFullTable(
+                    table.getMembershipSet().filter(filter::test));
+        }
+        return table;
+    }
+
+    @Test
+    public void pushdownTest() {
+        String orcFile = orcFolder + "tmpPushdown.orc";
+        final int size = 50000;
+        Table t = sortedTable(size);
+        deleteOrcFile(orcFolder, "tmpPushdown.orc");
+        OrcFileWriter writer = new OrcFileWriter(orcFile);
+        writer.writeTable(t);
+
+        List<RangeFilterDescription> filters = Arrays.asList(
+                new RangeFilterDescription(
+                        new ColumnDescription("X", ContentsKind.Integer), 20000, 25000, false),
+                new RangeFilterDescription(
+                        new ColumnDescription("D", ContentsKind.Double), 0, 12000.5, false));
+        ITable expected = filter(t, filters);
+        Assert.assertEquals(4002, expected.getNumOfRows());
+        for (boolean lazy : new boolean[] { false, true }) {
+            OrcFileLoader loader = new OrcFileLoader(orcFile, null, lazy, false, filters);
+            ITable pruned = loader.load();
+            Assert.assertTrue(pruned.getNumOfRows() < size);
+            Assert.assertTrue(pruned.getNumOfRows() >= expected.getNumOfRows());
+            ITable result = filter(pruned, filters);
+            Assert.assertEquals(expected.getNumOfRows(), result.getNumOfRows());
+            Assert.assertEquals(expected.toLongString(10), result.toLongString(10));
+        }
+
+        // A filter that excludes all rows.
+        List<RangeFilterDescription> none = Arrays.asList(new RangeFilterDescription(
+                new ColumnDescription("X", ContentsKind.Integer), -10, -1, false));
+        ITable empty = new OrcFileLoader(orcFile, null, true, false, none).load();
+        Assert.assertEquals(0, empty.getNumOfRows());
+
+        // A time range on a timestamp column
+        FileSetDescription desc = new FileSetDescription();
+        desc.fileKind = "orc";
+        desc.fileNamePattern = orcFile;
+        desc.timestampColumn = "T";
+        desc.startTime = Converters.toDouble(Instant.parse("2019-01-10T00:00:00Z"));
+        desc.endTime = Converters.toDouble(Instant.parse("2019-01-11T00:00:00Z"));
+        ITable range = desc.createFileReference(orcFile).load();
+        Assert.assertEquals(24 * 60 + 1, range.getNumOfRows());
+        deleteOrcFile(orcFolder, "tmpPushdown.orc");
+    }
 }
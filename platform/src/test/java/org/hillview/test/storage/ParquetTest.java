@@ -17,14 +17,30 @@
 
 package org.hillview.test.storage;
 
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
 import org.hillview.storage.ParquetFileLoader;
+import org.hillview.table.ColumnDescription;
 import org.hillview.table.Table;
+import org.hillview.table.api.ContentsKind;
 import org.hillview.table.api.IColumn;
+import org.hillview.table.api.IDictionaryColumn;
 import org.hillview.table.api.ITable;
+import org.hillview.table.filters.RangeFilterDescription;
 import org.hillview.test.BaseTest;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
 public class ParquetTest extends BaseTest {
     // Not yet checked-in into the repository
     private static final String path = "../data/parquet/" +
@@ -63,4 +79,101 @@ public class ParquetTest extends BaseTest {
         Table tbl = (Table)table;
         Assert.assertFalse(tbl.getColumns().get(1).isLoaded());
     }
+
+    @Test
+    public void pushdownTest() throws IOException {
+        String file = "tmpPushdown.parquet";
+        File f = new File(file);
+        if (f.exists())
+            Assert.assertTrue(f.delete());
+        MessageType schema = MessageTypeParser.parseMessageType(
+                "message test { required int32 X; required double D; }");
+        final int size = 50000;
+        SimpleGroupFactory factory = new SimpleGroupFactory(schema);
+        try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(new Path(file))
+                .withType(schema).withRowGroupSize(16 * 1024).build()) {
+            for (int i = 0; i < size; i++)
+                writer.write(factory.newGroup().append("X", i).append("D", i / 2.0));
+        }
+
+        List<RangeFilterDescription> filters = Arrays.asList(
+                new RangeFilterDescription(
+                        new ColumnDescription("X", ContentsKind.Integer), 20000, 25000, false),
+                new RangeFilterDescription(
+                        new ColumnDescription("D", ContentsKind.Double), 0, 12000.5, false));
+        ITable expected = OrcFileTest.filter(new ParquetFileLoader(file, false).load(), filters);
+        Assert.assertEquals(4002, expected.getNumOfRows());
+        for (boolean lazy : new boolean[] { false, true }) {
+            ITable pruned = new ParquetFileLoader(file, lazy, filters).load();
+            Assert.assertTrue(pruned.getNumOfRows() < size);
+            ITable result = OrcFileTest.filter(pruned, filters);
+            Assert.assertEquals(expected.getNumOfRows(), result.getNumOfRows());
+            Assert.assertEquals(expected.toLongString(10), result.toLongString(10));
+        }
+        Assert.assertTrue(f.delete());
+        File crc = new File("." + file + ".crc");
+        if (crc.exists())
+            Assert.assertTrue(crc.delete());
+    }
+
+    @Test
+    public void columnReaderTest() throws IOException {
+        String file = "tmpColumns.parquet";
+        File f = new File(file);
+        if (f.exists())
+            Assert.assertTrue(f.delete());
+        MessageType schema = MessageTypeParser.parseMessageType(
+                "message test { required int32 X; optional binary S (UTF8); " +
+                "optional binary U (UTF8); optional int64 L; optional float F; " +
+                "optional boolean B; }");
+        final int size = 70000;
+        SimpleGroupFactory factory = new SimpleGroupFactory(schema);
+        try (ParquetWriter<Group> writer = ExampleParquetWriter.builder(new Path(file))
+                .withType(schema).withRowGroupSize(256 * 1024).build()) {
+            for (int i = 0; i < size; i++) {
+                Group g = factory.newGroup().append("X", i);
+                if (i % 7 != 0)
+                    g.append("S", "v" + (i % 10));
+                g.append("U", "u" + i);
+                if (i % 5 != 0)
+                    g.append("L", (long)i * 3);
+                g.append("F", i / 4.0f);
+                g.append("B", i % 2 == 0);
+                writer.write(g);
+            }
+        }
+
+        for (boolean lazy : new boolean[] { false, true }) {
+            ITable table = new ParquetFileLoader(file, lazy).load();
+            Assert.assertEquals(size, table.getNumOfRows());
+            IColumn x = table.getLoadedColumn("X");
+            IColumn s = table.getLoadedColumn("S");
+            IColumn u = table.getLoadedColumn("U");
+            IColumn l = table.getLoadedColumn("L");
+            IColumn fl = table.getLoadedColumn("F");
+            IColumn b = table.getLoadedColumn("B");
+            for (int i = 0; i < size; i++) {
+                Assert.assertEquals(i, x.getInt(i));
+                if (i % 7 == 0)
+                    Assert.assertTrue(s.isMissing(i));
+                else
+                    Assert.assertEquals("v" + (i % 10), s.getString(i));
+                Assert.assertEquals("u" + i, u.getString(i));
+                if (i % 5 == 0)
+                    Assert.assertTrue(l.isMissing(i));
+                else
+                    Assert.assertEquals(i * 3.0, l.getDouble(i), 0);
+                Assert.assertEquals(i / 4.0, fl.getDouble(i), 0);
+                Assert.assertEquals(i % 2 == 0 ? "true" : "false", b.getString(i));
+            }
+            Assert.assertTrue(s instanceof IDictionaryColumn);
+            Assert.assertTrue(((IDictionaryColumn)s).hasDictionary());
+            // 10 values and null
+            Assert.assertEquals(11, ((IDictionaryColumn)s).getDictionarySize());
+        }
+        Assert.assertTrue(f.delete());
+        File crc = new File("." + file + ".crc");
+        if (crc.exists())
+            Assert.assertTrue(crc.delete());
+    }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test.table;
+
+import org.hillview.sketches.*;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Schema;
+import org.hillview.table.Table;
+import org.hillview.table.api.*;
+import org.hillview.table.columns.SparseColumn;
+import org.hillview.table.columns.StringArrayColumn;
+import org.hillview.table.columns.StringListColumn;
+import org.hillview.table.rows.RowSnapshot;
+import org.hillview.test.BaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that sketches using dictionary codes produce the same results
+ * as sketches looking at the strings.
+ */
+public class DictionaryColumnTest extends BaseTest {
+    private static final int distinct = 200;
+    private static final ColumnDescription desc =
+            new ColumnDescription("Name", ContentsKind.String);
+
+    private static String[] randomData(int size) {
+        Random random = new Random(0);
+        String[] data = new String[size];
+        for (int i = 0; i < size; i++) {
+            // skewed distribution
+            int value = Math.min(random.nextInt(distinct), random.nextInt(distinct));
+            data[i] = value == 0 ? null : "Name" + value;
+        }
+        return data;
+    }
+
+    private static Table makeTable(IColumn column) {
+        return new Table(Collections.singletonList(column), null, null);
+    }
+
+    private static ITable filter(ITable table) {
+        return table.selectRowsFromFullTable(
+                table.getMembershipSet().filter(r -> r % 3 != 0));
+    }
+
+    /**
+     * A table with a dictionary column and one with the same data in
+     * a column without a dictionary.
+     */
+    private static ITable[] makeTables(int size) {
+        String[] data = randomData(size);
+        StringArrayColumn sac = new StringArrayColumn(desc, data);
+        SparseColumn sc = new SparseColumn(desc, size);
+        for (int i = 0; i < size; i++)
+            sc.set(i, data[i]);
+        Assert.assertNotNull(IDictionaryColumn.asDictionary(sac, size));
+        Assert.assertNull(IDictionaryColumn.asDictionary(sc, size));
+        return new ITable[] { makeTable(sac), makeTable(sc) };
+    }
+
+    private static void compareDistinct(ITable dict, ITable plain) {
+        SampleDistinctElementsSketch sketch = new SampleDistinctElementsSketch("Name", 12345, 5);
+        MinKSet<String> left = sketch.create(dict);
+        MinKSet<String> right = sketch.create(plain);
+        Assert.assertNotNull(left);
+        Assert.assertNotNull(right);
+        Assert.assertEquals(right.getSamples(), left.getSamples());
+        Assert.assertEquals(right.min, left.min);
+        Assert.assertEquals(right.max, left.max);
+        Assert.assertEquals(right.presentCount, left.presentCount);
+        Assert.assertEquals(right.missingCount, left.missingCount);
+    }
+
+    private static void compareExact(ITable dict, ITable plain) {
+        Schema schema = dict.getSchema();
+        List<RowSnapshot> rows = Collections.singletonList(new RowSnapshot(plain, 0));
+        FreqKListMG mg = new FreqKSketchMG(schema, 4).create(plain);
+        Assert.assertNotNull(mg);
+        ExactFreqSketch ef = new ExactFreqSketch(schema, mg);
+        FreqKListExact left = ef.create(dict);
+        FreqKListExact right = ef.create(plain);
+        Assert.assertNotNull(left);
+        Assert.assertNotNull(right);
+        Assert.assertEquals(right.hMap, left.hMap);
+        Assert.assertEquals(right.totalRows, left.totalRows);
+        ExactFreqSketch one = new ExactFreqSketch(schema, new FreqKListExact(0.1, rows));
+        Assert.assertEquals(one.create(plain).hMap, one.create(dict).hMap);
+    }
+
+    private static void compareFreqK(ITable dict, ITable plain) {
+        // With more entries than distinct values both compute exact counts
+        FreqKSketchMG sketch = new FreqKSketchMG(dict.getSchema(), distinct);
+        FreqKListMG left = sketch.create(dict);
+        FreqKListMG right = sketch.create(plain);
+        Assert.assertNotNull(left);
+        Assert.assertNotNull(right);
+        Assert.assertEquals(right.hMap, left.hMap);
+        // With fewer entries the dictionary version keeps the heaviest values
+        // and never over-estimates.
+        sketch = new FreqKSketchMG(dict.getSchema(), 4);
+        FreqKListMG small = sketch.create(dict);
+        Assert.assertNotNull(small);
+        Assert.assertTrue(small.hMap.size() < left.hMap.size());
+        small.hMap.forEach((rss, count) -> {
+            Assert.assertTrue(count <= left.hMap.getInt(rss));
+            Assert.assertTrue(left.hMap.getInt(rss) - count <= small.getErrBound());
+        });
+    }
+
+    private static void compareBuckets(ITable dict, ITable plain) {
+        StringHistogramBuckets buckets = new StringHistogramBuckets(
+                new String[] { "Name1", "Name150", "Name3", "Name60" });
+        IColumn dictColumn = dict.getLoadedColumn("Name");
+        IColumn plainColumn = plain.getLoadedColumn("Name");
+        int[] rows = new int[IRowIterator.BATCH_SIZE];
+        double[] values = new double[rows.length];
+        boolean[] leftMissing = new boolean[rows.length];
+        boolean[] rightMissing = new boolean[rows.length];
+        int[] leftIndexes = new int[rows.length];
+        int[] rightIndexes = new int[rows.length];
+        IRowIterator it = dict.getRowIterator();
+        int count = it.getNextRows(rows);
+        while (count > 0) {
+            buckets.indexOf(dictColumn, rows, count, values, leftMissing, leftIndexes);
+            buckets.indexOf(plainColumn, rows, count, values, rightMissing, rightIndexes);
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals(rightMissing[i], leftMissing[i]);
+                if (!rightMissing[i])
+                    Assert.assertEquals(rightIndexes[i], leftIndexes[i]);
+            }
+            count = it.getNextRows(rows);
+        }
+    }
+
+    private static void compareAll(ITable dict, ITable plain) {
+        compareDistinct(dict, plain);
+        compareExact(dict, plain);
+        compareFreqK(dict, plain);
+        compareBuckets(dict, plain);
+    }
+
+    @Test
+    public void testArrayColumn() {
+        ITable[] tables = makeTables(10000);
+        compareAll(tables[0], tables[1]);
+        compareAll(filter(tables[0]), filter(tables[1]));
+    }
+
+    @Test
+    public void testListColumn() {
+        String[] data = randomData(100000);
+        StringListColumn col = new StringListColumn(desc);
+        for (String s : data)
+            col.append(s);
+        IColumn sealed = col.seal();
+        Assert.assertNotNull(IDictionaryColumn.asDictionary(sealed, data.length));
+        SparseColumn sc = new SparseColumn(desc, data.length);
+        for (int i = 0; i < data.length; i++)
+            sc.set(i, data[i]);
+        compareAll(makeTable(sealed), makeTable(sc));
+    }
+
+    @Test
+    public void testCodes() {
+        String[] data = randomData(1000);
+        StringArrayColumn col = new StringArrayColumn(desc, data);
+        IDictionaryColumn dict = IDictionaryColumn.asDictionary(col, distinct);
+        Assert.assertNotNull(dict);
+        Assert.assertNull(IDictionaryColumn.asDictionary(col, 2));
+        int[] firstRows = new int[dict.getDictionarySize()];
+        int[] counts = dict.countCodes(makeTable(col).getRowIterator(), firstRows);
+        int total = 0;
+        for (int code = 0; code < counts.length; code++) {
+            total += counts[code];
+            if (counts[code] > 0) {
+                @Nullable String s = dict.decode(code);
+                Assert.assertEquals(s, data[firstRows[code]]);
+                for (int i = 0; i < firstRows[code]; i++)
+                    Assert.assertNotEquals(code, dict.getCode(i));
+            }
+        }
+        Assert.assertEquals(data.length, total);
+    }
+}
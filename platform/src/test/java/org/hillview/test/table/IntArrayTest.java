@@ -87,4 +87,19 @@ public class IntArrayTest extends BaseTest {
         assertEquals(col.sizeInRows(), size);
         checkContents(col);
     }
+
+    @Test
+    public void testBatchAccess() {
+        final int size = 100;
+        final IntArrayColumn col = IntArrayGenerator.getMissingIntArray("X", size, 5);
+        final int[] rows = { 0, 3, 5, 99, 42 };
+        final double[] values = new double[rows.length];
+        final boolean[] missing = new boolean[rows.length];
+        col.asDouble(rows, rows.length, values, missing);
+        for (int i = 0; i < rows.length; i++) {
+            assertEquals(col.isMissing(rows[i]), missing[i]);
+            if (!missing[i])
+                assertEquals(col.asDouble(rows[i]), values[i], 0);
+        }
+    }
 }
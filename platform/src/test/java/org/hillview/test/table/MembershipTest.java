@@ -21,15 +21,23 @@ import org.hillview.table.api.IMembershipSet;
 import org.hillview.table.api.IMutableMembershipSet;
 import org.hillview.table.api.IRowIterator;
 import org.hillview.table.api.ISampledRowIterator;
+import org.hillview.table.membership.CompressedMembershipSet;
 import org.hillview.table.membership.DenseMembershipSet;
 import org.hillview.table.membership.EmptyMembershipSet;
 import org.hillview.table.membership.FullMembershipSet;
+import org.hillview.table.membership.LazyMembershipSet;
 import org.hillview.table.membership.MembershipSetFactory;
 import org.hillview.test.BaseTest;
 import org.hillview.utils.IntSet;
+import org.hillview.utils.Randomness;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /* Tests for the three Membership Classes:
  * FullMembership, LazyMembership, SparseMembership
  */
@@ -155,4 +163,262 @@ public class MembershipTest extends BaseTest {
         Assert.assertTrue( counter > 0.9 * iter.rate() * dms.getSize());
         Assert.assertTrue( counter < 1.1 * iter.rate() * dms.getSize());
     }
+
+    private static void checkBatches(IMembershipSet set) {
+        IRowIterator it = set.getIterator();
+        IRowIterator batchIt = set.getIterator();
+        int[] rows = new int[7];
+        int count = batchIt.getNextRows(rows);
+        int total = 0;
+        while (count > 0) {
+            for (int i = 0; i < count; i++)
+                Assert.assertEquals(it.getNextRow(), rows[i]);
+            total += count;
+            count = batchIt.getNextRows(rows);
+        }
+        Assert.assertEquals(-1, it.getNextRow());
+        Assert.assertEquals(set.getSize(), total);
+        Assert.assertEquals(0, batchIt.getNextRows(rows));
+    }
+
+    @Test
+    public void TestBatchIterators() {
+        checkBatches(new EmptyMembershipSet(this.size));
+        checkBatches(new FullMembershipSet(100));
+        DenseMembershipSet dms = new DenseMembershipSet(1000, 1000);
+        for (int i = 0; i < 1000; i++)
+            if (i % 3 != 0) dms.add(i);
+        checkBatches(dms);
+        IMutableMembershipSet mms = MembershipSetFactory.create(1000, 10);
+        for (int i = 5; i < 1000; i += 50)
+            mms.add(i);
+        checkBatches(mms.seal());
+    }
+
+
+    @Test
+    public void TestSplit() {
+        final FullMembershipSet full = new FullMembershipSet(10001);
+        final IMembershipSet filtered = full.filter(row -> row % 3 == 0);
+        for (IMembershipSet set : new IMembershipSet[] { full, filtered }) {
+            List<IMembershipSet> parts = set.split(7);
+            Assert.assertEquals(7, parts.size());
+            IRowIterator it = set.getIterator();
+            int row = it.getNextRow();
+            for (IMembershipSet part : parts) {
+                Assert.assertEquals(set.getMax(), part.getMax());
+                IRowIterator pit = part.getIterator();
+                int prow = pit.getNextRow();
+                while (prow >= 0) {
+                    Assert.assertEquals(row, prow);
+                    Assert.assertTrue(part.isMember(prow));
+                    row = it.getNextRow();
+                    prow = pit.getNextRow();
+                }
+                ISampledRowIterator sit = part.getIteratorOverSample(0.1, 0, true);
+                int srow = sit.getNextRow();
+                while (srow >= 0) {
+                    Assert.assertTrue(part.isMember(srow));
+                    srow = sit.getNextRow();
+                }
+                Assert.assertTrue(part.sample(10, 0).getSize() <= 10);
+            }
+            Assert.assertEquals(-1, row);
+        }
+    }
+
+    /**
+     * Builds a set with a mix of sparse, dense and run regions.
+     */
+    private static IMembershipSet randomCompressedSet(int max, BitSet expected, Random random) {
+        CompressedMembershipSet set = new CompressedMembershipSet(max);
+        int chunk = 1 << 16;
+        for (int start = 0; start < max; start += chunk) {
+            int end = Math.min(max, start + chunk);
+            int kind = random.nextInt(4);
+            for (int row = start; row < end; row++) {
+                boolean add;
+                switch (kind) {
+                    case 0:
+                        add = random.nextInt(100) == 0;
+                        break;
+                    case 1:
+                        add = random.nextBoolean();
+                        break;
+                    case 2:
+                        add = (row / 1000) % 3 == 0;
+                        break;
+                    default:
+                        add = false;
+                        break;
+                }
+                if (add) {
+                    set.add(row);
+                    expected.set(row);
+                }
+            }
+        }
+        return set.seal();
+    }
+
+    @Test
+    public void TestCompressedSample() {
+        final int max = 5 << 16;
+        Random random = new Random(3);
+        for (int iteration = 0; iteration < 4; iteration++) {
+            BitSet bits = new BitSet(max);
+            IMembershipSet set = randomCompressedSet(max, bits, random);
+            int[] rows = bits.stream().toArray();
+            for (double rate : new double[] { 0.001, 0.01, 0.04 }) {
+                // The sample contains the rows whose ranks are the sums of the skips.
+                Randomness prg = new Randomness(iteration);
+                ISampledRowIterator it = set.getIteratorOverSample(rate, iteration, true);
+                long rank = -1;
+                while (true) {
+                    rank += prg.nextGeometric(rate);
+                    int row = it.getNextRow();
+                    if (rank >= rows.length) {
+                        Assert.assertEquals(-1, row);
+                        break;
+                    }
+                    Assert.assertEquals(rows[(int)rank], row);
+                }
+                Assert.assertEquals(-1, it.getNextRow());
+            }
+        }
+    }
+
+    private static void checkSet(IMembershipSet set, BitSet expected, int max) {
+        Assert.assertEquals(expected.cardinality(), set.getSize());
+        IRowIterator it = set.getIterator();
+        int row = it.getNextRow();
+        for (int i = expected.nextSetBit(0); i >= 0; i = expected.nextSetBit(i + 1)) {
+            Assert.assertEquals(i, row);
+            row = it.getNextRow();
+        }
+        Assert.assertEquals(-1, row);
+        for (int i = 0; i < max; i += 7)
+            Assert.assertEquals(expected.get(i), set.isMember(i));
+        checkBatches(set);
+    }
+
+    @Test
+    public void TestCompressedMembership() {
+        final int max = 5 * (1 << 16) + 1234;
+        Random random = new Random(0);
+        BitSet leftBits = new BitSet();
+        BitSet rightBits = new BitSet();
+        IMembershipSet left = randomCompressedSet(max, leftBits, random);
+        IMembershipSet right = randomCompressedSet(max, rightBits, random);
+        checkSet(left, leftBits, max);
+        checkSet(right, rightBits, max);
+
+        BitSet union = (BitSet)leftBits.clone();
+        union.or(rightBits);
+        checkSet(left.union(right), union, max);
+        BitSet intersection = (BitSet)leftBits.clone();
+        intersection.and(rightBits);
+        checkSet(left.intersection(right), intersection, max);
+        BitSet difference = (BitSet)leftBits.clone();
+        difference.andNot(rightBits);
+        checkSet(left.setMinus(right), difference, max);
+
+        // Operations with other kinds of sets
+        DenseMembershipSet dense = new DenseMembershipSet(max, max);
+        for (int i = rightBits.nextSetBit(0); i >= 0; i = rightBits.nextSetBit(i + 1))
+            dense.add(i);
+        checkSet(left.union(dense), union, max);
+        checkSet(dense.union(left), union, max);
+        checkSet(dense.intersection(left), intersection, max);
+        checkSet(left.setMinus(dense), difference, max);
+        FullMembershipSet full = new FullMembershipSet(max);
+        BitSet all = new BitSet();
+        all.set(0, max);
+        checkSet(CompressedMembershipSet.from(full), all, max);
+        checkSet(left.intersection(full), leftBits, max);
+        checkSet(full.intersection(left), leftBits, max);
+        BitSet complement = (BitSet)all.clone();
+        complement.andNot(leftBits);
+        checkSet(full.setMinus(left), complement, max);
+
+        IMembershipSet sample = left.sample(100, 1);
+        Assert.assertEquals(100, sample.getSize());
+        Assert.assertEquals(100, left.intersection(sample).getSize());
+        sample = left.sample(left.getSize() - 100, 1);
+        Assert.assertEquals(left.getSize() - 100, sample.getSize());
+        Assert.assertEquals(0, sample.setMinus(left).getSize());
+
+        ISampledRowIterator sit = left.getIteratorOverSample(0.01, 2, true);
+        int count = 0;
+        int previous = -1;
+        for (int r = sit.getNextRow(); r >= 0; r = sit.getNextRow()) {
+            Assert.assertTrue(r > previous);
+            Assert.assertTrue(leftBits.get(r));
+            previous = r;
+            count++;
+        }
+        Assert.assertTrue(count > 0.8 * 0.01 * left.getSize());
+        Assert.assertTrue(count < 1.2 * 0.01 * left.getSize());
+    }
+
+    @Test
+    public void TestLazyMembership() {
+        final int max = 100000;
+        FullMembershipSet full = new FullMembershipSet(max);
+        IMembershipSet lazy = new LazyMembershipSet(full, r -> r % 3 == 0).filter(r -> r % 5 == 0);
+        IMembershipSet eager = full.filter(r -> r % 15 == 0);
+        Assert.assertTrue(lazy instanceof LazyMembershipSet);
+        LazyMembershipSet l = (LazyMembershipSet)lazy;
+        for (int i = 0; i < LazyMembershipSet.maxLazyIterations; i++) {
+            IRowIterator it = lazy.getIterator();
+            IRowIterator eit = eager.getIterator();
+            int row = it.getNextRow();
+            while (row >= 0) {
+                Assert.assertEquals(eit.getNextRow(), row);
+                row = it.getNextRow();
+            }
+            Assert.assertEquals(-1, eit.getNextRow());
+        }
+        Assert.assertTrue(lazy.isMember(30));
+        Assert.assertFalse(lazy.isMember(10));
+        Assert.assertFalse(l.isMaterialized());
+        ISampledRowIterator sit = lazy.getIteratorOverSample(0.5, 0, true);
+        for (int row = sit.getNextRow(); row >= 0; row = sit.getNextRow())
+            Assert.assertTrue(eager.isMember(row));
+        Assert.assertTrue(l.isMaterialized());
+        Assert.assertEquals(eager.getSize(), lazy.getSize());
+
+        IMembershipSet lazy2 = new LazyMembershipSet(full, r -> r % 3 == 0);
+        Assert.assertEquals(max, lazy2.getSizeUpperBound());
+        List<IMembershipSet> parts = lazy2.split(4);
+        int total = 0;
+        for (IMembershipSet part : parts)
+            total += part.getSize();
+        Assert.assertEquals((max + 2) / 3, total);
+        Assert.assertFalse(((LazyMembershipSet)lazy2).isMaterialized());
+        Assert.assertEquals((max + 2) / 3, lazy2.getSize());
+        Assert.assertEquals(lazy2.getSize(), lazy2.getSizeUpperBound());
+        checkBatches(new LazyMembershipSet(full, r -> r % 100 < 30));
+    }
+
+    @Test
+    public void TestLazyMembershipPredicatePerIterator() {
+        final int max = 10000;
+        FullMembershipSet full = new FullMembershipSet(max);
+        AtomicInteger created = new AtomicInteger();
+        IMembershipSet lazy = new LazyMembershipSet(full, () -> {
+            created.incrementAndGet();
+            return r -> r % 7 == 0;
+        });
+        List<IMembershipSet> parts = lazy.split(4);
+        Assert.assertEquals(0, created.get());
+        int total = 0;
+        for (IMembershipSet part : parts) {
+            IRowIterator it = part.getIterator();
+            for (int row = it.getNextRow(); row >= 0; row = it.getNextRow())
+                total++;
+        }
+        Assert.assertEquals(parts.size(), created.get());
+        Assert.assertEquals((max + 6) / 7, total);
+    }
 }
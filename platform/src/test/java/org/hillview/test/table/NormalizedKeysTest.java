@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test.table;
+
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.hillview.sketches.ColumnSortOrientation;
+import org.hillview.table.*;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.api.ITable;
+import org.hillview.table.api.IndexComparator;
+import org.hillview.table.columns.*;
+import org.hillview.test.BaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that comparisons using normalized keys agree with the column comparators.
+ */
+public class NormalizedKeysTest extends BaseTest {
+    private static final int size = 2000;
+    private static final String[] words = {
+            "a", "ab", "abcd", "abcde", "abcdf", "b", "été", "" };
+
+    private static Table makeTable() {
+        Random random = new Random(0);
+        IntArrayColumn ic = new IntArrayColumn(
+                new ColumnDescription("Int", ContentsKind.Integer), size);
+        DoubleArrayColumn dc = new DoubleArrayColumn(
+                new ColumnDescription("Double", ContentsKind.Double), size);
+        DateArrayColumn tc = new DateArrayColumn(
+                new ColumnDescription("Date", ContentsKind.Date), size);
+        ColumnDescription sd = new ColumnDescription("Dict", ContentsKind.String);
+        StringArrayColumn sc = new StringArrayColumn(sd, size);
+        SparseColumn pc = new SparseColumn(
+                new ColumnDescription("Prefix", ContentsKind.String), size);
+        double[] doubles = { -0.0, 0.0, Double.NaN, -1.5, 3, Double.NEGATIVE_INFINITY };
+        for (int i = 0; i < size; i++) {
+            if (random.nextInt(10) == 0)
+                ic.setMissing(i);
+            else
+                ic.set(i, random.nextInt(20) - 10);
+            if (random.nextInt(10) == 0)
+                dc.setMissing(i);
+            else
+                dc.set(i, doubles[random.nextInt(doubles.length)]);
+            if (random.nextInt(10) == 0)
+                tc.setMissing(i);
+            else
+                tc.set(i, Instant.ofEpochSecond(random.nextInt(5), random.nextInt(3)));
+            String word = random.nextInt(10) == 0 ? null : words[random.nextInt(words.length)];
+            sc.set(i, word);
+            pc.set(i, word);
+        }
+        List<IColumn> columns = new ArrayList<IColumn>();
+        columns.add(ic);
+        columns.add(dc);
+        columns.add(tc);
+        columns.add(sc);
+        columns.add(pc);
+        return new Table(columns, null, null);
+    }
+
+    private static RecordOrder order(ITable table, String... columns) {
+        RecordOrder result = new RecordOrder();
+        for (String c : columns) {
+            boolean ascending = !c.startsWith("-");
+            String name = ascending ? c : c.substring(1);
+            result.append(new ColumnSortOrientation(
+                    table.getSchema().getDescription(name), ascending));
+        }
+        return result;
+    }
+
+    private static void checkOrder(Table table, RecordOrder order) {
+        IndexComparator plain = order.getIndexComparator(table);
+        IndexComparator normalized = order.getNormalizedIndexComparator(
+                table, table.getMembershipSet());
+        for (int i = 0; i < size; i += 7) {
+            for (int j = 0; j < size; j += 3) {
+                Assert.assertEquals(Integer.signum(plain.compare(i, j)),
+                        Integer.signum(normalized.compare(i, j)));
+            }
+        }
+    }
+
+    @Test
+    public void testComparators() {
+        Table table = makeTable();
+        String[] names = { "Int", "Double", "Date", "Dict", "Prefix" };
+        for (String name : names) {
+            checkOrder(table, order(table, name));
+            checkOrder(table, order(table, "-" + name));
+        }
+        checkOrder(table, order(table, "Int", "-Dict", "Double"));
+        checkOrder(table, order(table, "-Prefix", "Int"));
+        checkOrder(table, order(table, "Dict", "-Int", "Date", "Double"));
+        checkOrder(table, order(table, "Double", "-Double", "Int"));
+    }
+
+    /**
+     * Checks the comparator on the rows of a table that may not contain all rows.
+     */
+    private static void checkRows(ITable table, RecordOrder order) {
+        IndexComparator plain = order.getIndexComparator(table);
+        IndexComparator normalized = order.getNormalizedIndexComparator(
+                table, table.getMembershipSet());
+        int[] rows = table.getMembershipSet().getRows();
+        for (int i = 0; i < rows.length; i += 5) {
+            for (int j = 0; j < rows.length; j += 3) {
+                Assert.assertEquals(Integer.signum(plain.compare(rows[i], rows[j])),
+                        Integer.signum(normalized.compare(rows[i], rows[j])));
+            }
+        }
+    }
+
+    @Test
+    public void testSplitTable() {
+        Table table = makeTable();
+        RecordOrder order = order(table, "Int", "-Dict", "Double");
+        List<ITable> parts = table.split(4);
+        Assert.assertEquals(4, parts.size());
+        for (ITable part : parts)
+            checkRows(part, order);
+        ITable sparse = table.selectRowsFromFullTable(
+                table.getMembershipSet().filter(r -> r % 10 == 3));
+        checkRows(sparse, order);
+        checkRows(sparse, order(table, "-Prefix", "Int"));
+        ITable empty = table.selectRowsFromFullTable(table.getMembershipSet().filter(r -> false));
+        checkRows(empty, order);
+    }
+
+    @Test
+    public void testNormalizedKeys() {
+        Table table = makeTable();
+        NormalizedKeys keys = NormalizedKeys.create(
+                table, order(table, "Int", "-Dict"), table.getMembershipSet(), true);
+        Assert.assertTrue(keys.isExact());
+        keys = NormalizedKeys.create(
+                table, order(table, "Int", "-Dict"), table.getMembershipSet(), false);
+        Assert.assertFalse(keys.isExact());
+        keys = NormalizedKeys.create(
+                table, order(table, "Double", "Int"), table.getMembershipSet(), true);
+        Assert.assertFalse(keys.isExact());
+    }
+
+    @Test
+    public void testMerge() {
+        Table table = makeTable();
+        RecordOrder order = order(table, "-Prefix", "Int", "Double");
+        ITable left = table.selectRowsFromFullTable(table.getMembershipSet().filter(r -> r % 2 == 0));
+        ITable right = table.selectRowsFromFullTable(table.getMembershipSet().filter(r -> r % 2 == 1));
+        SmallTable sleft = left.compress(order.toSchema(), new ArrayRowOrder(
+                order.getSortedRowOrder(left, left.getMembershipSet())));
+        SmallTable sright = right.compress(order.toSchema(), new ArrayRowOrder(
+                order.getSortedRowOrder(right, right.getMembershipSet())));
+        IntList merge = order.getIntMergeOrder(sleft, sright);
+        RecordOrder.useNormalizedKeys = false;
+        try {
+            IntList expected = order.getIntMergeOrder(sleft, sright);
+            Assert.assertEquals(expected.size(), merge.size());
+            for (int i = 0; i < merge.size(); i++)
+                Assert.assertEquals(Integer.signum(expected.getInt(i)),
+                        Integer.signum(merge.getInt(i)));
+        } finally {
+            RecordOrder.useNormalizedKeys = true;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test.table;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.api.ContentsKind;
+import org.hillview.table.api.IColumn;
+import org.hillview.table.columns.BaseOffHeapColumn;
+import org.hillview.table.columns.IntOffHeapColumn;
+import org.hillview.table.columns.StringOffHeapColumn;
+import org.hillview.table.membership.FullMembershipSet;
+import org.hillview.test.BaseTest;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OffHeapColumnTest extends BaseTest {
+    private void checkInts(IColumn col, int size) {
+        assertEquals(size, col.sizeInRows());
+        for (int i = 0; i < size; i++) {
+            if ((i % 5) == 0)
+                assertTrue(col.isMissing(i));
+            else {
+                assertFalse(col.isMissing(i));
+                assertEquals(i, col.getInt(i));
+            }
+        }
+    }
+
+    @Test
+    public void testAppendInts() {
+        final IntOffHeapColumn col = new IntOffHeapColumn(
+                new ColumnDescription("test", ContentsKind.Integer));
+        // Spans more than one segment
+        final int size = 100000;
+        for (int i = 0; i < size; i++) {
+            if ((i % 5) == 0)
+                col.appendMissing();
+            else
+                col.append(i);
+        }
+        this.checkInts(col.seal(), size);
+        this.checkInts(col.rename("other"), size);
+        IColumn copy = SerializationUtils.clone(col);
+        this.checkInts(copy, size);
+    }
+
+    @Test
+    public void testSetDoubles() {
+        final int size = 1000;
+        BaseOffHeapColumn col = BaseOffHeapColumn.create(
+                new ColumnDescription("test", ContentsKind.Double), size);
+        for (int i = 0; i < size; i++) {
+            if ((i % 3) == 0)
+                col.setMissing(i);
+            else
+                col.set(i, i / 2.0);
+        }
+        this.checkDoubles(col, size);
+        // Serializing a column that was deserialized must work as well.
+        IColumn copy = SerializationUtils.clone(col);
+        this.checkDoubles(copy, size);
+        IColumn second = SerializationUtils.clone(copy);
+        this.checkDoubles(second, size);
+    }
+
+    private void checkDoubles(IColumn col, int size) {
+        assertEquals(size, col.sizeInRows());
+        for (int i = 0; i < size; i++) {
+            assertEquals((i % 3) == 0, col.isMissing(i));
+            if ((i % 3) != 0)
+                assertEquals(i / 2.0, col.getDouble(i), 0);
+        }
+    }
+
+    @Test
+    public void testStrings() {
+        final StringOffHeapColumn col = new StringOffHeapColumn(
+                new ColumnDescription("test", ContentsKind.String));
+        final int size = 1000;
+        for (int i = 0; i < size; i++) {
+            if ((i % 7) == 0)
+                col.appendMissing();
+            else
+                col.append(Integer.toString(i % 10));
+        }
+        for (int i = 0; i < size; i++) {
+            if ((i % 7) == 0)
+                assertTrue(col.isMissing(i));
+            else
+                assertEquals(Integer.toString(i % 10), col.getString(i));
+        }
+        IColumn converted = col.convertKind(
+                ContentsKind.Integer, "int", new FullMembershipSet(size));
+        assertTrue(converted instanceof IntOffHeapColumn);
+        for (int i = 0; i < size; i++) {
+            if ((i % 7) == 0)
+                assertTrue(converted.isMissing(i));
+            else
+                assertEquals(i % 10, converted.getInt(i));
+        }
+    }
+}
@@ -20,6 +20,8 @@ package org.hillview.test.table;
 import org.hillview.maps.FilterMap;
 import org.hillview.table.*;
 import org.hillview.table.api.*;
+import org.hillview.table.columns.SparseColumn;
+import org.hillview.table.columns.StringArrayColumn;
 import org.hillview.table.filters.StringFilterDescription;
 import org.hillview.table.filters.StringRowFilterDescription;
 import org.hillview.test.BaseTest;
@@ -27,6 +29,9 @@ import org.hillview.utils.TestTables;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.Random;
+
 public class StringRowFilterTest extends BaseTest {
     @Test
     public void testFilterSmallTable() {
@@ -118,4 +123,40 @@ public class StringRowFilterTest extends BaseTest {
             row = it.getNextRow();
         }
     }
+
+    @Test
+    public void testFilterDictionary() {
+        int size = 1000;
+        ColumnDescription desc = new ColumnDescription("Name", ContentsKind.String);
+        String[] names = {"John", "Robert", "Ed", "Sam", "Ned", "Jaime", "Rickard", null};
+        Random random = new Random(0);
+        String[] data = new String[size];
+        SparseColumn sc = new SparseColumn(desc, size);
+        for (int i = 0; i < size; i++) {
+            data[i] = names[random.nextInt(names.length)];
+            sc.set(i, data[i]);
+        }
+        StringArrayColumn sac = new StringArrayColumn(desc, data);
+        Assert.assertNotNull(IDictionaryColumn.asDictionary(sac, size));
+        Table dict = new Table(Collections.singletonList(sac), null, null);
+        Table plain = new Table(Collections.singletonList(sc), null, null);
+
+        StringFilterDescription[] filters = {
+                new StringFilterDescription("ed"),
+                new StringFilterDescription("Ed", false, false, true, true),
+                new StringFilterDescription("r", true, false, false),
+                new StringFilterDescription("^[JR].*", false, true, true),
+                new StringFilterDescription(null),
+                new StringFilterDescription(null, false, false, false, true)
+        };
+        for (StringFilterDescription f : filters) {
+            FilterMap filterMap = new FilterMap(new StringRowFilterDescription("Name", f));
+            IMembershipSet left = filterMap.apply(dict).getMembershipSet();
+            IMembershipSet right = filterMap.apply(plain).getMembershipSet();
+            Assert.assertEquals(right.getSize(), left.getSize());
+            IRowIterator it = right.getIterator();
+            for (int row = it.getNextRow(); row >= 0; row = it.getNextRow())
+                Assert.assertTrue(left.isMember(row));
+        }
+    }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test.table;
+
+import org.hillview.dataset.api.IJson;
+import org.hillview.maps.FilterMap;
+import org.hillview.sketches.DataRange;
+import org.hillview.sketches.DoubleDataRangeSketch;
+import org.hillview.table.ColumnDescription;
+import org.hillview.table.Table;
+import org.hillview.table.api.*;
+import org.hillview.table.columns.*;
+import org.hillview.table.filters.ComparisonFilterDescription;
+import org.hillview.table.filters.RangeFilterDescription;
+import org.hillview.test.BaseTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks that filters and sketches using zone maps give the same results
+ * as the ones that look at each row.
+ */
+public class ZoneMapTest extends BaseTest {
+    private static final int size = 50000;
+    private static final String[] comparisons = { "==", "!=", "<", ">", "<=", ">=" };
+
+    /**
+     * Two tables with the same data: one with an array column, which has a zone map,
+     * and one with a list column, which does not.  The values are mostly increasing,
+     * like timestamps in a log, with some missing values and a block of constants.
+     */
+    private static ITable[] makeTables(ContentsKind kind) {
+        ColumnDescription desc = new ColumnDescription("X", kind);
+        Random random = new Random(1);
+        BaseArrayColumn array;
+        BaseListColumn list;
+        if (kind == ContentsKind.Integer) {
+            array = new IntArrayColumn(desc, size);
+            list = new IntListColumn(desc);
+        } else {
+            array = new DoubleArrayColumn(desc, size);
+            list = new DoubleListColumn(desc);
+        }
+        for (int i = 0; i < size; i++) {
+            boolean missing = (i / 4096 == 3) || random.nextInt(20000) == 0;
+            int value = (i / 4096 == 5) ? 5 * 4096 : i + random.nextInt(100);
+            if (missing) {
+                array.setMissing(i);
+                list.appendMissing();
+            } else if (kind == ContentsKind.Integer) {
+                ((IntArrayColumn)array).set(i, value);
+                ((IntListColumn)list).append(value);
+            } else {
+                ((DoubleArrayColumn)array).set(i, (double)value);
+                ((DoubleListColumn)list).append((double)value);
+            }
+        }
+        Assert.assertNotNull(array.getZoneMap());
+        Assert.assertNull(list.seal().getZoneMap());
+        return new ITable[] {
+                new Table(Collections.singletonList(array), null, null),
+                new Table(Collections.singletonList(list), null, null) };
+    }
+
+    private static void compare(ITableFilterDescription filter, ITable zoned, ITable plain) {
+        FilterMap map = new FilterMap(filter);
+        IMembershipSet left = map.apply(zoned).getMembershipSet();
+        IMembershipSet right = map.apply(plain).getMembershipSet();
+        Assert.assertEquals(right.getSize(), left.getSize());
+        IRowIterator it = right.getIterator();
+        for (int row = it.getNextRow(); row >= 0; row = it.getNextRow())
+            Assert.assertTrue(left.isMember(row));
+    }
+
+    private static void checkFilters(ITable zoned, ITable plain) {
+        ColumnDescription desc = zoned.getSchema().getDescription("X");
+        for (double value : new double[] { -1, 5 * 4096, 10000, 10000.5, 30000, size + 1000 })
+            for (String comparison : comparisons)
+                compare(new ComparisonFilterDescription(desc, null, value, comparison), zoned, plain);
+        for (boolean complement : new boolean[] { false, true }) {
+            compare(range(desc, 12000, 13000, complement), zoned, plain);
+            compare(range(desc, 5 * 4096, 5 * 4096, complement), zoned, plain);
+            compare(range(desc, -10, size * 2, complement), zoned, plain);
+        }
+    }
+
+    private static RangeFilterDescription range(
+            ColumnDescription desc, double min, double max, boolean complement) {
+        String json = "{\"cd\":" + desc.toJson() + ",\"min\":" + min + ",\"max\":" + max +
+                ",\"complement\":" + complement + "}";
+        return IJson.gsonInstance.fromJson(json, RangeFilterDescription.class);
+    }
+
+    private static void checkRange(ITable zoned, ITable plain) {
+        DoubleDataRangeSketch sketch = new DoubleDataRangeSketch("X");
+        DataRange left = sketch.create(zoned);
+        DataRange right = sketch.create(plain);
+        Assert.assertEquals(right.toJson(), left.toJson());
+    }
+
+    private static void check(ContentsKind kind) {
+        ITable[] tables = makeTables(kind);
+        checkFilters(tables[0], tables[1]);
+        checkRange(tables[0], tables[1]);
+        // Parts of the table hold ranges of rows which do not start on block boundaries
+        List<ITable> left = ((Table)tables[0]).split(7);
+        List<ITable> right = ((Table)tables[1]).split(7);
+        for (int i = 0; i < left.size(); i++) {
+            checkFilters(left.get(i), right.get(i));
+            checkRange(left.get(i), right.get(i));
+        }
+        // A filtered table uses the lazy path
+        ColumnDescription desc = tables[0].getSchema().getDescription("X");
+        FilterMap first = new FilterMap(range(desc, 1000, 40000, false));
+        checkFilters(first.apply(tables[0]), first.apply(tables[1]));
+        checkRange(first.apply(tables[0]), first.apply(tables[1]));
+    }
+
+    @Test
+    public void testIntColumn() {
+        check(ContentsKind.Integer);
+    }
+
+    @Test
+    public void testDoubleColumn() {
+        check(ContentsKind.Double);
+    }
+
+    @Test
+    public void testZoneMap() {
+        ColumnDescription desc = new ColumnDescription("X", ContentsKind.Double);
+        DoubleArrayColumn col = new DoubleArrayColumn(desc, 10000);
+        for (int i = 0; i < 10000; i++)
+            col.set(i, (double)i);
+        col.setMissing(5000);
+        ZoneMap zoneMap = col.getZoneMap();
+        Assert.assertNotNull(zoneMap);
+        Assert.assertEquals(3, zoneMap.getBlockCount());
+        Assert.assertEquals(10000 - 2 * ZoneMap.BlockSize, zoneMap.getBlockRows(2));
+        Assert.assertEquals(1, zoneMap.getMissingCount(1));
+        Assert.assertEquals(0, zoneMap.getMin(0), 0);
+        Assert.assertEquals(ZoneMap.BlockSize - 1, zoneMap.getMax(0), 0);
+        byte[] blocks = zoneMap.classify(0, 5000, false, false);
+        Assert.assertEquals(ZoneMap.AllRows, blocks[0]);
+        Assert.assertEquals(ZoneMap.SomeRows, blocks[1]);
+        Assert.assertEquals(ZoneMap.NoRows, blocks[2]);
+        // Changing the data discards the zone map
+        col.set(9999, Double.NaN);
+        ZoneMap updated = col.getZoneMap();
+        Assert.assertNotNull(updated);
+        Assert.assertNotSame(zoneMap, updated);
+        Assert.assertTrue(updated.hasNaN(2));
+        Assert.assertEquals(ZoneMap.SomeRows, updated.classify(0, 5000, false, false)[2]);
+    }
+}
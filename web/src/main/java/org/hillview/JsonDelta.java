@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+/**
+ * Computes the difference between two JSON values, so that a streaming
+ * sketch can send to the browser only the parts of a result that have
+ * changed since the previous reply.  A patch is one of:
+ * - a JSON primitive or null: the new value,
+ * - {"v": value}: the new value, when it cannot be patched,
+ * - {"o": {key: patch, ...}}: an object with the same keys, where only
+ *   the keys whose values have changed are listed,
+ * - {"i": [index, ...], "p": [patch, ...]}: an array with the same length,
+ *   where only the elements that have changed are listed.
+ * The patch is applied by applyJsonDelta in util.ts.
+ */
+public final class JsonDelta {
+    private JsonDelta() {}
+
+    /**
+     * Computes a patch which transforms previous into current.
+     * @return null if the two values are equal.
+     */
+    @Nullable
+    public static JsonElement diff(JsonElement previous, JsonElement current) {
+        if (previous.equals(current))
+            return null;
+        if (current.isJsonPrimitive() || current.isJsonNull())
+            return current;
+        if (previous.isJsonObject() && current.isJsonObject()) {
+            JsonObject prev = previous.getAsJsonObject();
+            JsonObject cur = current.getAsJsonObject();
+            if (prev.keySet().equals(cur.keySet())) {
+                JsonObject changes = new JsonObject();
+                for (Map.Entry<String, JsonElement> e : cur.entrySet()) {
+                    JsonElement d = diff(prev.get(e.getKey()), e.getValue());
+                    if (d != null)
+                        changes.add(e.getKey(), d);
+                }
+                JsonObject result = new JsonObject();
+                result.add("o", changes);
+                return result;
+            }
+        } else if (previous.isJsonArray() && current.isJsonArray()) {
+            JsonArray prev = previous.getAsJsonArray();
+            JsonArray cur = current.getAsJsonArray();
+            if (prev.size() == cur.size()) {
+                JsonArray indexes = new JsonArray();
+                JsonArray patches = new JsonArray();
+                for (int i = 0; i < cur.size(); i++) {
+                    JsonElement d = diff(prev.get(i), cur.get(i));
+                    if (d != null) {
+                        indexes.add(i);
+                        patches.add(d);
+                    }
+                }
+                JsonObject result = new JsonObject();
+                result.add("i", indexes);
+                result.add("p", patches);
+                return result;
+            }
+        }
+        JsonObject result = new JsonObject();
+        result.add("v", current);
+        return result;
+    }
+}
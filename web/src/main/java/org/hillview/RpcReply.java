@@ -41,18 +41,25 @@ public final class RpcReply {
      * True if this message corresponds to an onCompleted call.
      */
     private final boolean isCompleted;
+    /**
+     * True if the result is a patch to apply to the previous result of the
+     * same request; see JsonDelta.
+     */
+    private final boolean isDelta;
 
     /**
      * Create a reply to a request; this is one of many replies.
      * @param requestId  Request that is being replied.
      * @param result     Result produced so far.
      * @param isError    True if this result is an error.
+     * @param isDelta    True if this result is a patch to the previous result.
      */
-    RpcReply(final int requestId, final String result, boolean isError) {
+    RpcReply(final int requestId, final String result, boolean isError, boolean isDelta) {
         this.requestId = requestId;
         this.result = result;
         this.isError = isError;
         this.isCompleted = false;
+        this.isDelta = isDelta;
     }
 
     /**
@@ -64,6 +71,7 @@ public final class RpcReply {
         this.result = "0";  // unused
         this.isError = false;
         this.isCompleted = true;
+        this.isDelta = false;
     }
 
     JsonElement toJson() {
@@ -72,6 +80,7 @@ public final class RpcReply {
         result.addProperty("result", this.result);
         result.addProperty("isError", this.isError);
         result.addProperty("isCompleted", this.isCompleted);
+        result.addProperty("isDelta", this.isDelta);
         return result;
     }
 
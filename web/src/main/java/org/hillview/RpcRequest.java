@@ -78,16 +78,24 @@ public final class RpcRequest implements IJson {
     }
 
     private RpcReply createReply(String json) {
-        return new RpcReply(this.requestId, json, false);
+        return new RpcReply(this.requestId, json, false, false);
     }
 
     public RpcReply createReply(JsonElement userResult) {
         return this.createReply(userResult.toString());
     }
 
+    /**
+     * Creates a reply which holds a patch to apply to the previous reply.
+     * @param patch  Patch produced by JsonDelta.diff.
+     */
+    RpcReply createDeltaReply(String patch) {
+        return new RpcReply(this.requestId, patch, false, true);
+    }
+
     RpcReply createReply(Throwable th) {
         return new RpcReply(this.requestId, this.toString() + "\n" +
-                Utilities.throwableToString(th), true);
+                Utilities.throwableToString(th), true, false);
     }
 
     RpcReply createCompletedReply() {
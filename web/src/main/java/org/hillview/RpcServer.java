@@ -155,7 +155,7 @@ public final class RpcServer {
 
     private void replyWithError(final Throwable th, final Session session) {
         final RpcReply reply = new RpcReply(
-                -1, Converters.checkNull(Utilities.throwableToString(th)), true);
+                -1, Converters.checkNull(Utilities.throwableToString(th)), true, false);
         RpcServer.sendReply(reply, session);
         RpcServer.closeSession(session);
     }
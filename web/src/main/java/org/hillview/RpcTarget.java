@@ -88,6 +88,12 @@ public abstract class RpcTarget implements IJson {
         }
     }
 
+    /**
+     * If true, streaming sketch results after the first one are sent to the
+     * client as patches to the previous result.
+     */
+    public static boolean sendDeltas = true;
+
     private final Id objectId;
     /**
      * Computation that has generated this object.  Can only
@@ -279,10 +285,22 @@ public abstract class RpcTarget implements IJson {
         }
     }
 
+    /**
+     * Sends each partial result to the client.  Only the first result is sent
+     * in full; each following result is sent as a patch to the previous one,
+     * unless the patch is larger than the result itself.
+     */
     class SketchResultObserver<R extends IJson> extends ResultObserver<R> {
+        /**
+         * Last result sent to the client.
+         */
+        @Nullable
+        private JsonElement previous;
+
         SketchResultObserver(String name, RpcTarget target, RpcRequest request,
                              RpcRequestContext context) {
             super(name, request, target, context);
+            this.previous = null;
         }
 
         @Override
@@ -292,7 +310,21 @@ public abstract class RpcTarget implements IJson {
             if (session == null)
                 return;
 
-            RpcReply reply = this.request.createReply(Utilities.toJsonTree(pr));
+            JsonElement json = Utilities.toJsonTree(pr);
+            RpcReply reply = null;
+            if (this.previous != null && RpcTarget.sendDeltas) {
+                JsonElement patch = JsonDelta.diff(this.previous, json);
+                if (patch == null)
+                    // Nothing has changed.
+                    return;
+                String patchString = patch.toString();
+                String jsonString = json.toString();
+                if (patchString.length() < jsonString.length())
+                    reply = this.request.createDeltaReply(patchString);
+            }
+            if (reply == null)
+                reply = this.request.createReply(json);
+            this.previous = json;
             this.sendReply(reply);
         }
     }
@@ -23,6 +23,7 @@ import org.hillview.dataset.api.*;
 import org.hillview.dataset.remoting.HillviewServer;
 import org.hillview.management.*;
 import org.hillview.maps.FindFilesMapper;
+import org.hillview.maps.LoadDatabasePartitionsMapper;
 import org.hillview.maps.LoadDatabaseTableMapper;
 import org.hillview.storage.*;
 import org.hillview.utils.*;
@@ -73,9 +74,14 @@ public class InitialObjectTarget extends RpcTarget {
     @HillviewRpc
     public void loadDBTable(RpcRequest request, RpcRequestContext context) {
         JdbcConnectionInformation conn = request.parseArgs(JdbcConnectionInformation.class);
-        LoadDatabaseTableMapper mapper = new LoadDatabaseTableMapper(conn);
         assert this.emptyDataset != null;
-        this.runMap(this.emptyDataset, mapper, TableTarget::new, request, context);
+        if (conn.partitions > 1) {
+            LoadDatabasePartitionsMapper mapper = new LoadDatabasePartitionsMapper(conn);
+            this.runFlatMap(this.emptyDataset, mapper, TableTarget::new, request, context);
+        } else {
+            LoadDatabaseTableMapper mapper = new LoadDatabaseTableMapper(conn);
+            this.runMap(this.emptyDataset, mapper, TableTarget::new, request, context);
+        }
     }
 
     @HillviewRpc
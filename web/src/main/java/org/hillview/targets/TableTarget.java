@@ -165,6 +165,14 @@ public final class TableTarget extends RpcTarget {
         this.runCompleteSketch(this.table, sk, (e, c) -> e, request, context);
     }
 
+    @HillviewRpc
+    public void saveAsHvc(RpcRequest request, RpcRequestContext context) {
+        SaveAsArgs args = request.parseArgs(SaveAsArgs.class);
+        SaveAsHvcSketch sk = new SaveAsHvcSketch(
+                args.folder, args.schema, Utilities.arrayToMap(args.renameMap));
+        this.runCompleteSketch(this.table, sk, (e, c) -> e, request, context);
+    }
+
     static class StringBucketLeftBoundaries extends BucketsInfo {
         JsonList<String> leftBoundaries;
         @Nullable
@@ -626,6 +634,17 @@ public final class TableTarget extends RpcTarget {
                 request, context);
     }
 
+    /**
+     * Calls the Space-Saving (streaming) heavy hitters routine.
+     */
+    @HillviewRpc
+    public void heavyHittersSS(RpcRequest request, RpcRequestContext context) {
+        HeavyHittersInfo info = request.parseArgs(HeavyHittersInfo.class);
+        FreqKSketchSS sk = new FreqKSketchSS(info.columns, info.amount/100);
+        this.runCompleteSketch(this.table, sk, (x, c) -> TableTarget.getTopList(x, info.columns, c),
+                request, context);
+    }
+
     /**
      * Calls the Sampling heavy hitters routine.
      */
@@ -707,13 +726,19 @@ public final class TableTarget extends RpcTarget {
 
     static class HLogLogInfo {
         String columnName = "";
+        /**
+         * If set, the distinct tuples of these columns are counted instead of columnName.
+         */
+        @Nullable
+        String[] columnNames;
         long seed;
     }
 
     @HillviewRpc
     public void hLogLog(RpcRequest request, RpcRequestContext context) {
         HLogLogInfo col = request.parseArgs(HLogLogInfo.class);
-        HLogLogSketch sketch = new HLogLogSketch(col.columnName, col.seed);
+        String[] columns = col.columnNames != null ? col.columnNames : new String[] { col.columnName };
+        HLogLogPPSketch sketch = new HLogLogPPSketch(columns, col.seed);
         this.runSketch(this.table, sketch, request, context);
     }
 
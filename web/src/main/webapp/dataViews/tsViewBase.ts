@@ -104,16 +104,26 @@ export abstract class TSViewBase extends BigTableView {
     }
 
     public saveAsOrc(schema: SchemaClass): void {
-        const dialog = new Dialog("Save as ORC files",
-            "Describe the set of ORC files where data will be saved.");
-        const folder = dialog.addTextField("folderName", "Folder", FieldKind.String, "/",
+        this.saveAs(schema, "ORC files", "saveAsOrc",
             "All ORC files will be written to this folder on each of the remote machines.");
+    }
+
+    public saveAsHvc(schema: SchemaClass): void {
+        this.saveAs(schema, "Hillview column files", "saveAsHvc",
+            "Each partition will be written to a sub-folder of this folder on each of the remote machines; " +
+            "the data can be loaded back as Hillview column files.");
+    }
+
+    protected saveAs(schema: SchemaClass, format: string, method: string, folderHelp: string): void {
+        const dialog = new Dialog("Save as " + format,
+            "Describe the folder where the " + format + " will be saved.");
+        const folder = dialog.addTextField("folder", "Folder", FieldKind.String, "/", folderHelp);
         folder.required = true;
         dialog.setCacheTitle("saveAsDialog");
 
         class SaveReceiver extends OnCompleteReceiver<boolean> {
             constructor(page: FullPage, operation: ICancellable<boolean>) {
-                super(page, operation, "Save as ORC files");
+                super(page, operation, "Save as " + format);
             }
 
             public run(value: boolean): void {
@@ -123,9 +133,8 @@ export abstract class TSViewBase extends BigTableView {
         }
 
         dialog.setAction(() => {
-            const folderName = dialog.getFieldValue("folderName");
-            const rr = this.createStreamingRpcRequest<boolean>("saveAsOrc", {
-                folderName,
+            const rr = this.createStreamingRpcRequest<boolean>(method, {
+                folder: dialog.getFieldValue("folder"),
                 schema: schema.schema,
                 renameMap: mapToArray(schema.getRenameMap()),
             });
@@ -392,6 +401,12 @@ export abstract class TSViewBase extends BigTableView {
                     action: () => this.saveAsOrc(this.schema),
                     help: "Save the data to a set of ORC files on the remote machines.",
                 },
+                {
+                    text: "Save as Hillview column files...",
+                    action: () => this.saveAsHvc(this.schema),
+                    help: "Save the data in the Hillview native column format on the remote machines; " +
+                        "it can be reopened quickly with the Hillview column files loader.",
+                },
             ]),
         };
     }
@@ -107,7 +107,7 @@ export interface JdbcConnectionInformation {
     lazyLoading: boolean;
 }
 
-export type DataKinds = "csv" | "orc" | "parquet" | "json" | "hillviewlog" | "db" | "genericlog";
+export type DataKinds = "csv" | "orc" | "parquet" | "json" | "hillviewlog" | "db" | "genericlog" | "hvc";
 
 export interface FileSetDescription {
     fileKind: DataKinds;
@@ -118,6 +118,7 @@ export interface FileSetDescription {
     repeat: number;
     name: string;  // not used on the Java side
     logFormat: string;
+    offHeap?: boolean;
     startTime: number | null;
     endTime: number | null;
 }
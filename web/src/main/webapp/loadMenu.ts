@@ -153,6 +153,13 @@ export class LoadMenu extends RemoteObject implements IDataView {
                     dialog.show();
                 },
                 help: "A set of Orc files residing on the worker machines." },
+            { text: "Hillview column files...",
+                action: () => {
+                    const dialog = new HvcFileDialog();
+                    dialog.setAction(() => this.init.loadFiles(dialog.getFiles(), this.page));
+                    dialog.show();
+                },
+                help: "A set of folders in the Hillview native column format residing on the worker machines." },
             { text: "DB tables...",
                 action: () => {
                     const dialog = new DBDialog();
@@ -276,6 +283,7 @@ export class LoadMenu extends RemoteObject implements IDataView {
         this.loadMenu.enable("JSON files...", show);
         this.loadMenu.enable("Parquet files...", show);
         this.loadMenu.enable("ORC files...", show);
+        this.loadMenu.enable("Hillview column files...", show);
     }
 
     // noinspection JSMethodCanBeStatic
@@ -467,6 +475,34 @@ class OrcFileDialog extends Dialog {
     }
 }
 
+/**
+ * Dialog that asks the user which Hillview column folders to load.
+ */
+class HvcFileDialog extends Dialog {
+    constructor() {
+        super("Load Hillview column files", "Loads folders in the Hillview native column format " +
+            "from all machines that are part of the service.");
+        const pattern = this.addTextField("fileNamePattern", "Folder name pattern", FieldKind.String, "/*.hvc",
+            "Shell pattern that describes the names of the folders to load.");
+        pattern.required = true;
+        this.setCacheTitle("HvcFileDialog");
+    }
+
+    public getFiles(): FileSetDescription {
+        return {
+            schemaFile: null,  // not used
+            fileNamePattern: this.getFieldValue("fileNamePattern"),
+            headerRow: false,  // not used
+            repeat: 1,
+            name: null,
+            fileKind: "hvc",
+            logFormat: null,
+            startTime: null,
+            endTime: null
+        };
+    }
+}
+
 /**
  * Dialog asking the user which DB table to load.
  */
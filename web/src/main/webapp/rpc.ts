@@ -24,7 +24,7 @@ import Observer = Rx.Observer;
 import {ErrorReporter} from "./ui/errReporter";
 import {FullPage} from "./ui/fullPage";
 import {ProgressBar} from "./ui/progress";
-import {formatDate, ICancellable, PartialResult, RpcReply} from "./util";
+import {applyJsonDelta, formatDate, ICancellable, PartialResult, RpcReply} from "./util";
 
 /**
  * Path in server url for rpc web sockets.
@@ -88,6 +88,10 @@ export class RpcRequest<T> implements ICancellable<T> {
      * that span multiple RPCs
      */
     public rpcTime: Date;
+    /**
+     * Last result received; replies which are deltas are applied to it.
+     */
+    protected lastResult: any;
 
     public static requestCounter: number = 0;
 
@@ -106,6 +110,7 @@ export class RpcRequest<T> implements ICancellable<T> {
         this.closed = true;
         this.completed = false;
         this.rpcTime = null;
+        this.lastResult = null;
     }
 
     /**
@@ -217,7 +222,10 @@ export class RpcRequest<T> implements ICancellable<T> {
                     let success = false;
                     let response: any;
                     try {
-                        response = JSON.parse(reply.result) as T;
+                        response = JSON.parse(reply.result);
+                        if (reply.isDelta)
+                            response = applyJsonDelta(this.lastResult, response);
+                        this.lastResult = response;
                         success = true;
                     } catch (e) {
                         onReply.onError(e);
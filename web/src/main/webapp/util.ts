@@ -532,6 +532,35 @@ export interface RpcReply {
     requestId: number;  // Request that is being replied.
     isError: boolean;   // Indicates that the message contains an error.
     isCompleted: boolean;  // If true this message is the last one.
+    isDelta: boolean;   // If true the result is a patch to the previous result.
+}
+
+/**
+ * Applies a patch produced by JsonDelta.diff on the server to the previous value.
+ * The previous value is not modified; the parts that have not changed are
+ * shared between the previous and the returned value.
+ */
+export function applyJsonDelta(previous: any, patch: any): any {
+    if (patch === null || typeof patch !== "object")
+        return patch;
+    if (patch.v !== undefined)
+        return patch.v;
+    if (patch.o !== undefined) {
+        const result: any = {};
+        for (const key in previous)
+            if (previous.hasOwnProperty(key))
+                result[key] = previous[key];
+        for (const key in patch.o)
+            if (patch.o.hasOwnProperty(key))
+                result[key] = applyJsonDelta(previous[key], patch.o[key]);
+        return result;
+    }
+    const array: any[] = previous.slice();
+    for (let i = 0; i < patch.i.length; i++) {
+        const index = patch.i[i];
+        array[index] = applyJsonDelta(previous[index], patch.p[i]);
+    }
+    return array;
 }
 
 // untyped cancellable
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2019 VMware Inc. All Rights Reserved.
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.hillview.test;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.hillview.JsonDelta;
+import org.hillview.dataset.api.IJson;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+public class JsonDeltaTest {
+    /**
+     * Java version of applyJsonDelta from util.ts.
+     */
+    private static JsonElement apply(JsonElement previous, JsonElement patch) {
+        if (!patch.isJsonObject())
+            return patch;
+        JsonObject p = patch.getAsJsonObject();
+        if (p.has("v"))
+            return p.get("v");
+        if (p.has("o")) {
+            JsonObject prev = previous.getAsJsonObject();
+            JsonObject result = new JsonObject();
+            for (Map.Entry<String, JsonElement> e : prev.entrySet())
+                result.add(e.getKey(), e.getValue());
+            for (Map.Entry<String, JsonElement> e : p.getAsJsonObject("o").entrySet())
+                result.add(e.getKey(), apply(prev.get(e.getKey()), e.getValue()));
+            return result;
+        }
+        JsonArray prev = previous.getAsJsonArray();
+        JsonArray result = new JsonArray();
+        result.addAll(prev);
+        JsonArray indexes = p.getAsJsonArray("i");
+        JsonArray patches = p.getAsJsonArray("p");
+        for (int i = 0; i < indexes.size(); i++) {
+            int index = indexes.get(i).getAsInt();
+            result.set(index, apply(prev.get(index), patches.get(i)));
+        }
+        return result;
+    }
+
+    private static JsonElement parse(String json) {
+        return new JsonParser().parse(json);
+    }
+
+    /**
+     * Checks that the patch from previous to current, sent as RpcTarget sends it,
+     * transforms previous into current.
+     * @return The patch.
+     */
+    @Nullable
+    private static JsonElement roundTrip(String previous, String current) {
+        JsonElement prev = parse(previous);
+        JsonElement cur = parse(current);
+        JsonElement patch = JsonDelta.diff(prev, cur);
+        if (patch == null) {
+            Assert.assertEquals(prev, cur);
+            return null;
+        }
+        Assert.assertEquals(cur, apply(prev, parse(patch.toString())));
+        Assert.assertEquals(cur, apply(prev, parse(IJson.gsonInstance.toJson(patch))));
+        // The previous value is not modified
+        Assert.assertEquals(parse(previous), prev);
+        return patch;
+    }
+
+    @Test
+    public void unchangedTest() {
+        Assert.assertNull(roundTrip("1", "1"));
+        Assert.assertNull(roundTrip("null", "null"));
+        Assert.assertNull(roundTrip("{\"a\":[1,2],\"b\":{\"c\":\"x\"}}", "{\"a\":[1,2],\"b\":{\"c\":\"x\"}}"));
+    }
+
+    @Test
+    public void primitiveTest() {
+        Assert.assertEquals(parse("2"), roundTrip("1", "2"));
+        Assert.assertEquals(parse("\"x\""), roundTrip("{\"a\":1}", "\"x\""));
+    }
+
+    @Test
+    public void objectTest() {
+        JsonElement patch = roundTrip(
+                "{\"done\":0.5,\"data\":{\"a\":1,\"b\":2}}",
+                "{\"done\":1.0,\"data\":{\"a\":1,\"b\":3}}");
+        Assert.assertEquals(parse("{\"o\":{\"done\":1.0,\"data\":{\"o\":{\"b\":3}}}}"), patch);
+    }
+
+    @Test
+    public void objectKeysTest() {
+        JsonElement patch = roundTrip("{\"a\":1,\"b\":2}", "{\"a\":1,\"c\":2}");
+        Assert.assertEquals(parse("{\"v\":{\"a\":1,\"c\":2}}"), patch);
+        patch = roundTrip("{\"a\":1}", "{\"a\":1,\"b\":2}");
+        Assert.assertEquals(parse("{\"v\":{\"a\":1,\"b\":2}}"), patch);
+    }
+
+    @Test
+    public void arrayLengthTest() {
+        JsonElement patch = roundTrip("[1,2,3]", "[1,2]");
+        Assert.assertEquals(parse("{\"v\":[1,2]}"), patch);
+        patch = roundTrip("{\"a\":[1]}", "{\"a\":[1,2]}");
+        Assert.assertEquals(parse("{\"o\":{\"a\":{\"v\":[1,2]}}}"), patch);
+    }
+
+    @Test
+    public void nestedArrayTest() {
+        JsonElement patch = roundTrip("[[1,2],[3,4],[5]]", "[[1,2],[3,6],[5,7]]");
+        Assert.assertEquals(parse(
+                "{\"i\":[1,2],\"p\":[{\"i\":[1],\"p\":[6]},{\"v\":[5,7]}]}"), patch);
+    }
+
+    @Test
+    public void toNullTest() {
+        JsonElement patch = roundTrip("{\"a\":1,\"b\":2}", "{\"a\":null,\"b\":2}");
+        Assert.assertEquals(parse("{\"o\":{\"a\":null}}"), patch);
+        Assert.assertNotNull(patch);
+        Assert.assertEquals("{\"o\":{\"a\":null}}", patch.toString());
+        Assert.assertEquals("{\"o\":{\"a\":null}}", IJson.gsonInstance.toJson(patch));
+        roundTrip("[1,{\"a\":2}]", "[null,{\"a\":null}]");
+        roundTrip("{\"a\":null}", "{\"a\":1}");
+    }
+}